@@ -32,12 +32,15 @@
  */
 package org.openimaj.audio.analysis;
 
+import java.util.Arrays;
+
 import org.openimaj.audio.AudioFormat;
 import org.openimaj.audio.AudioStream;
 import org.openimaj.audio.SampleChunk;
 import org.openimaj.audio.processor.AudioProcessor;
 import org.openimaj.audio.samples.SampleBuffer;
 import org.openimaj.audio.samples.SampleBufferFactory;
+import org.openimaj.math.util.FFTPlanCache;
 
 import edu.emory.mathcs.jtransforms.fft.FloatFFT_1D;
 
@@ -50,6 +53,12 @@ import edu.emory.mathcs.jtransforms.fft.FloatFFT_1D;
  * 	frequency domain array (such as that delivered by {@link #getLastFFT()})
  * 	and returns a {@link SampleChunk}. The format of the output sample chunk
  * 	is determined by the given audio format.
+ * 	<p>
+ * 	FFT plans are obtained from the {@link FFTPlanCache}, and the arrays
+ * 	holding the frequency domain data are reused between calls to
+ * 	{@link #process(SampleBuffer)} when the size of the input does not
+ * 	change, so processing a stream of fixed-size windows does not allocate
+ * 	any new arrays.
  *
  *  @author David Dupplaw (dpd@ecs.soton.ac.uk)
  *	@created 28 Oct 2011
@@ -114,14 +123,19 @@ public class FourierTransform extends AudioProcessor
 				this.nextPowerOf2( nSamplesPerChannel ) : nSamplesPerChannel;
 
 		// The Fourier transformer we're going to use
-		final FloatFFT_1D fft = new FloatFFT_1D( nSamplesPerChannel );
+		final FloatFFT_1D fft = FFTPlanCache.getFloatFFT_1D( nSamplesPerChannel );
+
+		// Reuse the output arrays if they are the right shape
+		if( this.lastFFT == null || this.lastFFT.length != nChannels )
+			this.lastFFT = new float[nChannels][];
 
 		// Creates an FFT for each of the channels in turn
-		this.lastFFT = new float[nChannels][];
 		for( int c = 0; c < nChannels; c++ )
 		{
 			// Twice the length to account for imaginary parts
-			this.lastFFT[c] = new float[ sizeOfFFT*2 ];
+			if( this.lastFFT[c] == null || this.lastFFT[c].length != sizeOfFFT*2 )
+				this.lastFFT[c] = new float[ sizeOfFFT*2 ];
+			else	Arrays.fill( this.lastFFT[c], 0 );
 
 			// Fill the array
 			for( int x = 0; x < nSamplesPerChannel; x++ )
@@ -134,7 +148,7 @@ public class FourierTransform extends AudioProcessor
 			fft.complexForward( this.lastFFT[c] );
 
 			if( this.normalise )
-				this.normaliseReals( sizeOfFFT );
+				this.normaliseReals( this.lastFFT[c], sizeOfFFT );
 
 //			System.out.println( "FFT Output (channel "+c+"): " );
 //			System.out.println( Arrays.toString( this.lastFFT[c] ));
@@ -144,14 +158,14 @@ public class FourierTransform extends AudioProcessor
     }
 
 	/**
-	 * 	Divides the real parts of the last FFT by the given size
+	 * 	Divides the real parts of the given FFT data by the given size
+	 *	@param data the FFT data for a single channel
 	 *	@param size the divisor
 	 */
-	private void normaliseReals( final int size )
+	private void normaliseReals( final float[] data, final int size )
 	{
-		for( int c = 0; c < this.lastFFT.length; c++ )
-			for( int i = 0; i < this.lastFFT[c].length; i +=2 )
-				this.lastFFT[c][i] /= size;
+		for( int i = 0; i < data.length; i +=2 )
+			data[i] /= size;
 	}
 
 	/**
@@ -190,7 +204,7 @@ public class FourierTransform extends AudioProcessor
 		final int nChannels = transformedData.length;
 
 		// The Fourier transformer we're going to use
-		final FloatFFT_1D fft = new FloatFFT_1D( transformedData[0].length/2 );
+		final FloatFFT_1D fft = FFTPlanCache.getFloatFFT_1D( transformedData[0].length/2 );
 
 		// Create a sample buffer to put the time domain data into
 		final SampleBuffer sb = SampleBufferFactory.createSampleBuffer( format,
@@ -212,7 +226,10 @@ public class FourierTransform extends AudioProcessor
 	}
 
 	/**
-	 * 	Get the last processed FFT frequency data.
+	 * 	Get the last processed FFT frequency data. Note that the returned
+	 * 	arrays are reused (and overwritten) by the next call to
+	 * 	{@link #process(SampleBuffer)}, so should be copied if they need to
+	 * 	be retained.
 	 * 	@return The fft of the last processed window
 	 */
 	public float[][] getLastFFT()
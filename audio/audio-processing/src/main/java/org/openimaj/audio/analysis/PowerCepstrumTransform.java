@@ -34,6 +34,7 @@ package org.openimaj.audio.analysis;
 
 import org.openimaj.audio.SampleChunk;
 import org.openimaj.audio.processor.AudioProcessor;
+import org.openimaj.math.util.FFTPlanCache;
 
 import edu.emory.mathcs.jtransforms.fft.FloatFFT_1D;
 
@@ -52,11 +53,15 @@ public class PowerCepstrumTransform extends AudioProcessor
 	/** The last generated cepstrum */
 	private float[][] lastCepstrum = null;
 
+	/** The Fourier transform of the signal */
+	private final FourierTransform fft = new FourierTransform();
+
+	/** Working space for the log-squared-magnitudes */
+	private float[][] logMags = null;
+
 	@Override
     public SampleChunk process( final SampleChunk sample ) throws Exception
     {
-		final FourierTransform fft = new FourierTransform();
-		
 		//
 		// The squared magnitude of the Fourier transform of the logarithm 
 		// of the squared magnitude of the Fourier transform of a signal...
@@ -64,14 +69,14 @@ public class PowerCepstrumTransform extends AudioProcessor
 		// Working backwards...
 		// ... the FFT of a signal...
 		//
-		fft.process( sample );
-		final float[][] fftCoeffs = fft.getLastFFT();
+		this.fft.process( sample );
+		final float[][] fftCoeffs = this.fft.getLastFFT();
 		
 		// ...the logarithm of the squared magnitude...
-		final float logMags[][] = new float[fftCoeffs.length][];
+		final float logMags[][] = this.reuse( this.logMags, fftCoeffs, 4 );
+		this.logMags = logMags;
 		for( int c = 0; c < fftCoeffs.length; c++ )
 		{
-			logMags[c] = new float[fftCoeffs[c].length/4];
 			for( int i = 0; i < fftCoeffs[c].length/4; i++ )
 			{
 				// Calculate magnitude
@@ -91,14 +96,12 @@ public class PowerCepstrumTransform extends AudioProcessor
 		}
 		
 		// ... the Fast Fourier (of the log-squared-mags)
-		this.lastCepstrum  = new float[ logMags.length ][];
-		final FloatFFT_1D fft2 = new FloatFFT_1D( logMags[0].length/4 );
+		this.lastCepstrum = this.reuse( this.lastCepstrum, logMags, 4 );
+		final FloatFFT_1D fft2 = FFTPlanCache.getFloatFFT_1D( logMags[0].length/4 );
 		for( int c = 0; c < logMags.length; c++ )
 		{
 			fft2.complexForward( logMags[c] );
 			
-			this.lastCepstrum[c] = new float[ logMags[c].length/4 ];
-			
 			// ...the squared magnitude of...
 			for( int i = 0; i < logMags[c].length/4; i++ )
 			{
@@ -118,7 +121,30 @@ public class PowerCepstrumTransform extends AudioProcessor
     }
 	
 	/**
-	 * 	Returns the last generated cepstrum
+	 * 	Returns an array of arrays, each the length of the corresponding
+	 * 	array in the template divided by the divisor, reusing the given
+	 * 	arrays if they are already the correct shape.
+	 *
+	 *	@param arrays The arrays to reuse (can be null)
+	 *	@param template The template arrays
+	 *	@param divisor The divisor of the template array lengths
+	 *	@return The arrays
+	 */
+	private float[][] reuse( float[][] arrays, final float[][] template, final int divisor )
+	{
+		if( arrays == null || arrays.length != template.length )
+			arrays = new float[template.length][];
+
+		for( int c = 0; c < template.length; c++ )
+			if( arrays[c] == null || arrays[c].length != template[c].length/divisor )
+				arrays[c] = new float[template[c].length/divisor];
+
+		return arrays;
+	}
+
+	/**
+	 * 	Returns the last generated cepstrum. Note that the returned arrays
+	 * 	are reused by the next call to {@link #process(SampleChunk)}.
 	 *	@return The last generated cepstrum
 	 */
 	public float[][] getLastCepstrum()
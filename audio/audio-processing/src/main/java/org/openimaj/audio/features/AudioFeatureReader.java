@@ -0,0 +1,141 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.audio.features;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reader for the binary containers of {@link AudioFeatureRecord}s produced by
+ * an {@link AudioFeatureWriter}. Records are read sequentially from the
+ * underlying stream, so the container can only be iterated once.
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class AudioFeatureReader implements Iterable<AudioFeatureRecord>, Closeable {
+	private final BufferedInputStream bis;
+	private final DataInputStream in;
+
+	/**
+	 * Construct a reader for the given stream
+	 * 
+	 * @param is
+	 *            the stream
+	 * @throws IOException
+	 *             if the stream doesn't contain a container
+	 */
+	public AudioFeatureReader(InputStream is) throws IOException {
+		this.bis = new BufferedInputStream(is);
+		this.in = new DataInputStream(bis);
+
+		final byte[] header = new byte[AudioFeatureWriter.HEADER.length];
+		in.readFully(header);
+		if (!Arrays.equals(header, AudioFeatureWriter.HEADER))
+			throw new IOException("Not an audio feature container");
+	}
+
+	/**
+	 * Construct a reader for the given file
+	 * 
+	 * @param file
+	 *            the file
+	 * @throws IOException
+	 *             if the file can't be opened or doesn't contain a container
+	 */
+	public AudioFeatureReader(File file) throws IOException {
+		this(new FileInputStream(file));
+	}
+
+	/**
+	 * Read the next record
+	 * 
+	 * @return the next record, or null if there are no more records
+	 * @throws IOException
+	 *             if an error occurs reading the record
+	 */
+	public AudioFeatureRecord read() throws IOException {
+		bis.mark(1);
+		if (bis.read() == -1)
+			return null;
+		bis.reset();
+
+		final AudioFeatureRecord record = new AudioFeatureRecord();
+		record.readBinary(in);
+		return record;
+	}
+
+	@Override
+	public Iterator<AudioFeatureRecord> iterator() {
+		return new Iterator<AudioFeatureRecord>() {
+			AudioFeatureRecord next = readNext();
+
+			private AudioFeatureRecord readNext() {
+				try {
+					return read();
+				} catch (final IOException e) {
+					throw new RuntimeException(e);
+				}
+			}
+
+			@Override
+			public boolean hasNext() {
+				return next != null;
+			}
+
+			@Override
+			public AudioFeatureRecord next() {
+				if (next == null)
+					throw new NoSuchElementException();
+
+				final AudioFeatureRecord current = next;
+				next = readNext();
+				return current;
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+}
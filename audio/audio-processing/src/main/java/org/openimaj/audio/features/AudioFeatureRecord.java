@@ -0,0 +1,180 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.audio.features;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.openimaj.io.ReadWriteableBinary;
+
+/**
+ * The features extracted from a single audio stream by a
+ * {@link BatchAudioFeatureExtractor}. Each frame holds the features of one
+ * window of audio, with the features of each channel concatenated. Features
+ * are stored as floats to keep the serialised form compact.
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class AudioFeatureRecord implements ReadWriteableBinary {
+	private String name;
+	private float sampleRate;
+	private int numChannels;
+	private float windowMillis;
+	private float stepMillis;
+	private float[][] frames;
+
+	/**
+	 * Construct an empty record, ready for reading
+	 */
+	public AudioFeatureRecord() {
+		this.name = "";
+		this.frames = new float[0][];
+	}
+
+	/**
+	 * Construct a record with the given data
+	 * 
+	 * @param name
+	 *            the name of the stream (e.g. the file name)
+	 * @param sampleRate
+	 *            the sample rate of the stream in Hz
+	 * @param numChannels
+	 *            the number of channels in the stream
+	 * @param windowMillis
+	 *            the length of the windows in milliseconds
+	 * @param stepMillis
+	 *            the step between windows in milliseconds
+	 * @param frames
+	 *            the features of each window; all frames must have the same
+	 *            length
+	 */
+	public AudioFeatureRecord(String name, float sampleRate, int numChannels, float windowMillis, float stepMillis,
+			float[][] frames)
+	{
+		this.name = name;
+		this.sampleRate = sampleRate;
+		this.numChannels = numChannels;
+		this.windowMillis = windowMillis;
+		this.stepMillis = stepMillis;
+		this.frames = frames;
+	}
+
+	/**
+	 * @return the name of the stream
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return the sample rate of the stream in Hz
+	 */
+	public float getSampleRate() {
+		return sampleRate;
+	}
+
+	/**
+	 * @return the number of channels in the stream
+	 */
+	public int getNumChannels() {
+		return numChannels;
+	}
+
+	/**
+	 * @return the length of the windows in milliseconds
+	 */
+	public float getWindowMillis() {
+		return windowMillis;
+	}
+
+	/**
+	 * @return the step between windows in milliseconds
+	 */
+	public float getStepMillis() {
+		return stepMillis;
+	}
+
+	/**
+	 * @return the features of each window
+	 */
+	public float[][] getFrames() {
+		return frames;
+	}
+
+	/**
+	 * @return the number of features in each frame
+	 */
+	public int getFrameLength() {
+		return frames.length == 0 ? 0 : frames[0].length;
+	}
+
+	@Override
+	public void readBinary(DataInput in) throws IOException {
+		name = in.readUTF();
+		sampleRate = in.readFloat();
+		numChannels = in.readInt();
+		windowMillis = in.readFloat();
+		stepMillis = in.readFloat();
+
+		final int nFrames = in.readInt();
+		final int frameLength = in.readInt();
+		frames = new float[nFrames][frameLength];
+		for (int i = 0; i < nFrames; i++)
+			for (int j = 0; j < frameLength; j++)
+				frames[i][j] = in.readFloat();
+	}
+
+	@Override
+	public byte[] binaryHeader() {
+		return "AFR".getBytes();
+	}
+
+	@Override
+	public void writeBinary(DataOutput out) throws IOException {
+		final int frameLength = getFrameLength();
+
+		out.writeUTF(name);
+		out.writeFloat(sampleRate);
+		out.writeInt(numChannels);
+		out.writeFloat(windowMillis);
+		out.writeFloat(stepMillis);
+		out.writeInt(frames.length);
+		out.writeInt(frameLength);
+
+		for (final float[] frame : frames) {
+			if (frame.length != frameLength)
+				throw new IOException("All frames must have the same length");
+
+			for (final float f : frame)
+				out.writeFloat(f);
+		}
+	}
+}
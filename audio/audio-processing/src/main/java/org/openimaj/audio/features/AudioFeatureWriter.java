@@ -0,0 +1,106 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.audio.features;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writer for a binary container of {@link AudioFeatureRecord}s. The container
+ * consists of a short header followed by the binary form of each record.
+ * Writing is synchronised, so a single writer can be shared by many
+ * extraction threads.
+ * 
+ * @see AudioFeatureReader
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class AudioFeatureWriter implements Closeable {
+	/** The header written at the start of every container */
+	public static final byte[] HEADER = "AFC1".getBytes();
+
+	private final DataOutputStream out;
+	private int count;
+
+	/**
+	 * Construct a writer that writes to the given stream
+	 * 
+	 * @param os
+	 *            the stream
+	 * @throws IOException
+	 *             if an error occurs writing the header
+	 */
+	public AudioFeatureWriter(OutputStream os) throws IOException {
+		this.out = new DataOutputStream(new BufferedOutputStream(os));
+		this.out.write(HEADER);
+	}
+
+	/**
+	 * Construct a writer that writes to the given file
+	 * 
+	 * @param file
+	 *            the file
+	 * @throws IOException
+	 *             if an error occurs opening the file or writing the header
+	 */
+	public AudioFeatureWriter(File file) throws IOException {
+		this(new FileOutputStream(file));
+	}
+
+	/**
+	 * Write a record to the container
+	 * 
+	 * @param record
+	 *            the record
+	 * @throws IOException
+	 *             if an error occurs writing the record
+	 */
+	public synchronized void write(AudioFeatureRecord record) throws IOException {
+		record.writeBinary(out);
+		count++;
+	}
+
+	/**
+	 * @return the number of records written so far
+	 */
+	public synchronized int getCount() {
+		return count;
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		out.close();
+	}
+}
@@ -0,0 +1,345 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.audio.features;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.openimaj.audio.AudioFormat;
+import org.openimaj.audio.AudioStream;
+import org.openimaj.audio.SampleChunk;
+import org.openimaj.audio.processor.AudioProcessor;
+import org.openimaj.audio.processor.FixedSizeSampleAudioProcessor;
+import org.openimaj.util.array.ArrayUtils;
+import org.openimaj.util.function.Operation;
+import org.openimaj.util.parallel.GlobalExecutorPool.DaemonThreadFactory;
+import org.openimaj.util.parallel.Parallel;
+import org.openimaj.util.parallel.partition.FixedSizeChunkPartitioner;
+import org.openimaj.video.xuggle.XuggleAudio;
+
+/**
+ * Extract windowed features from large numbers of audio files. Each file is
+ * decoded, windowed and passed through a new extractor of the chosen
+ * {@link AudioFeatureType} on one of a pool of threads, so many files are
+ * processed concurrently. The features of each file are written as a single
+ * {@link AudioFeatureRecord} to an {@link AudioFeatureWriter} as soon as the
+ * file is complete, so the records are not necessarily in the same order as
+ * the input. Files that cannot be opened, decoded or processed are skipped and
+ * recorded in the {@link Statistics} of the batch, whilst a failure to write a
+ * record stops the batch.
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class BatchAudioFeatureExtractor {
+	/**
+	 * Statistics about the progress of a batch extraction. All methods are
+	 * thread safe, so the statistics can be polled whilst extraction is in
+	 * progress.
+	 * 
+	 * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+	 */
+	public static class Statistics {
+		private final long startTime = System.nanoTime();
+		private long endTime = -1;
+		private int numProcessed;
+		private final Map<File, Throwable> failures = new LinkedHashMap<File, Throwable>();
+		private long numFrames;
+		private double audioSeconds;
+
+		synchronized void processed(AudioFeatureRecord record, double seconds) {
+			numProcessed++;
+			numFrames += record.getFrames().length;
+			audioSeconds += seconds;
+		}
+
+		synchronized void failed(File file, Throwable cause) {
+			failures.put(file, cause);
+		}
+
+		synchronized void finished() {
+			endTime = System.nanoTime();
+		}
+
+		/**
+		 * @return the number of streams that have been successfully processed
+		 */
+		public synchronized int getNumProcessed() {
+			return numProcessed;
+		}
+
+		/**
+		 * @return the number of streams that could not be processed
+		 */
+		public synchronized int getNumFailed() {
+			return failures.size();
+		}
+
+		/**
+		 * Get the streams that could not be processed, together with the cause
+		 * of each failure, in the order in which the failures occurred.
+		 * 
+		 * @return a copy of the map of failed files to the cause of the failure
+		 */
+		public synchronized Map<File, Throwable> getFailures() {
+			return new LinkedHashMap<File, Throwable>(failures);
+		}
+
+		/**
+		 * @return the total number of feature frames extracted
+		 */
+		public synchronized long getNumFrames() {
+			return numFrames;
+		}
+
+		/**
+		 * @return the total duration of the processed audio in seconds
+		 */
+		public synchronized double getAudioSeconds() {
+			return audioSeconds;
+		}
+
+		/**
+		 * @return the wall-clock time spent so far (or in total if the
+		 *         extraction has finished) in seconds
+		 */
+		public synchronized double getWallSeconds() {
+			return ((endTime < 0 ? System.nanoTime() : endTime) - startTime) / 1e9;
+		}
+
+		/**
+		 * @return the throughput in seconds of audio processed per second of
+		 *         wall-clock time
+		 */
+		public synchronized double getAudioSecondsPerSecond() {
+			return getAudioSeconds() / getWallSeconds();
+		}
+
+		@Override
+		public synchronized String toString() {
+			return String.format("%d streams (%d failed); %d frames; %.1f audio secs in %.1f secs; %.1f audio secs/sec",
+					numProcessed, failures.size(), numFrames, audioSeconds, getWallSeconds(), getAudioSecondsPerSecond());
+		}
+	}
+
+	/**
+	 * Passes through sample chunks, counting the samples
+	 */
+	private static class SampleCounter extends AudioProcessor {
+		long count;
+
+		SampleCounter(AudioStream stream) {
+			super(stream);
+		}
+
+		@Override
+		public SampleChunk process(SampleChunk sample) {
+			count += sample.getNumberOfSamples();
+			return sample;
+		}
+	}
+
+	private final AudioFeatureType type;
+	private float windowMillis = 25;
+	private float stepMillis = 10;
+	private int numThreads = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * Construct with the given feature type, using 25ms windows with a 10ms
+	 * step and a thread per processor.
+	 * 
+	 * @param type
+	 *            the type of feature to extract
+	 */
+	public BatchAudioFeatureExtractor(AudioFeatureType type) {
+		this.type = type;
+	}
+
+	/**
+	 * Construct with the given feature type, window size and step, using a
+	 * thread per processor.
+	 * 
+	 * @param type
+	 *            the type of feature to extract
+	 * @param windowMillis
+	 *            the size of the windows in milliseconds
+	 * @param stepMillis
+	 *            the step between windows in milliseconds; if zero or less the
+	 *            windows will not overlap
+	 */
+	public BatchAudioFeatureExtractor(AudioFeatureType type, float windowMillis, float stepMillis) {
+		this.type = type;
+		this.windowMillis = windowMillis;
+		this.stepMillis = stepMillis;
+	}
+
+	/**
+	 * @return the number of threads used for batch extraction
+	 */
+	public int getNumThreads() {
+		return numThreads;
+	}
+
+	/**
+	 * Set the number of threads used for batch extraction
+	 * 
+	 * @param numThreads
+	 *            the number of threads
+	 */
+	public void setNumThreads(int numThreads) {
+		this.numThreads = numThreads;
+	}
+
+	/**
+	 * Extract the features from all the frames of the given stream.
+	 * 
+	 * @param name
+	 *            the name to give the record
+	 * @param stream
+	 *            the stream
+	 * @return the features
+	 */
+	public AudioFeatureRecord extract(String name, AudioStream stream) {
+		return extract(name, new SampleCounter(stream));
+	}
+
+	private AudioFeatureRecord extract(String name, SampleCounter counter) {
+		final AudioFormat format = counter.getFormat();
+		final int nChannels = format.getNumChannels();
+		final int window = Math.max(1, (int) Math.round(format.getSampleRateKHz() * windowMillis)) * nChannels;
+		final int step = Math.max(0, (int) Math.round(format.getSampleRateKHz() * stepMillis)) * nChannels;
+
+		final FixedSizeSampleAudioProcessor fssap = new FixedSizeSampleAudioProcessor(counter, window, step);
+		final JAudioFeatureExtractor extractor = type.newInstance();
+
+		final List<float[]> frames = new ArrayList<float[]>();
+		SampleChunk sc;
+		while ((sc = fssap.nextSampleChunk()) != null) {
+			extractor.process(sc.getSampleBuffer());
+
+			final double[][] features = extractor.getLastCalculatedFeature();
+			for (final double[] f : features)
+				if (f == null)
+					throw new RuntimeException("Feature extraction failed for " + name);
+
+			frames.add(ArrayUtils.convertToFloat(ArrayUtils.reshape(features)));
+		}
+
+		return new AudioFeatureRecord(name, (float) (format.getSampleRateKHz() * 1000), nChannels,
+				windowMillis, stepMillis, frames.toArray(new float[frames.size()][]));
+	}
+
+	/**
+	 * Open the given file for decoding. By default this uses
+	 * {@link XuggleAudio}.
+	 * 
+	 * @param file
+	 *            the file
+	 * @return the decoded stream
+	 * @throws IOException
+	 *             if the file cannot be opened
+	 */
+	protected AudioStream open(File file) throws IOException {
+		return new XuggleAudio(file);
+	}
+
+	/**
+	 * Extract features from all the given files in parallel, writing a record
+	 * for each file to the given writer. Files that cannot be opened, decoded
+	 * or processed are counted as failures and the cause of each failure is
+	 * available from {@link Statistics#getFailures()}. If the writer fails,
+	 * no further files are started and the error is rethrown once the files
+	 * in progress have finished.
+	 * 
+	 * @param files
+	 *            the files to process
+	 * @param writer
+	 *            the writer for the features
+	 * @return statistics about the extraction
+	 * @throws IOException
+	 *             if a record cannot be written
+	 */
+	public Statistics extract(Iterable<File> files, final AudioFeatureWriter writer) throws IOException {
+		final Statistics stats = new Statistics();
+		final AtomicReference<IOException> writeError = new AtomicReference<IOException>();
+		final ThreadPoolExecutor pool = (ThreadPoolExecutor) Executors.newFixedThreadPool(numThreads,
+				new DaemonThreadFactory());
+
+		try {
+			Parallel.forEach(new FixedSizeChunkPartitioner<File>(files, 1), new Operation<File>() {
+				@Override
+				public void perform(File file) {
+					if (writeError.get() != null)
+						return;
+
+					AudioStream stream = null;
+					final SampleCounter counter;
+					final AudioFeatureRecord record;
+					try {
+						stream = open(file);
+						counter = new SampleCounter(stream);
+						record = extract(file.getPath(), counter);
+					} catch (final Exception e) {
+						stats.failed(file, e);
+						return;
+					} finally {
+						if (stream instanceof XuggleAudio)
+							((XuggleAudio) stream).close();
+					}
+
+					try {
+						writer.write(record);
+					} catch (final IOException e) {
+						writeError.compareAndSet(null, e);
+						return;
+					}
+
+					final AudioFormat format = counter.getFormat();
+					stats.processed(record,
+							counter.count / (format.getSampleRateKHz() * 1000 * format.getNumChannels()));
+				}
+			}, pool);
+		} finally {
+			pool.shutdown();
+			stats.finished();
+		}
+
+		if (writeError.get() != null)
+			throw writeError.get();
+
+		return stats;
+	}
+}
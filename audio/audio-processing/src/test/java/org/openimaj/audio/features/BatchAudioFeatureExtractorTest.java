@@ -0,0 +1,204 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.audio.features;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+import org.openimaj.audio.AudioFormat;
+import org.openimaj.audio.AudioStream;
+import org.openimaj.audio.SampleChunk;
+
+/**
+ * Tests for {@link BatchAudioFeatureExtractor} and the feature container
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class BatchAudioFeatureExtractorTest {
+	/**
+	 * Stream of random 16-bit mono audio
+	 */
+	private static class RandomAudio extends AudioStream {
+		private final Random rng;
+		private int remaining;
+
+		RandomAudio(int seed, int nSamples) {
+			this.format = new AudioFormat(16, 16, 1);
+			this.rng = new Random(seed);
+			this.remaining = nSamples;
+		}
+
+		@Override
+		public SampleChunk nextSampleChunk() {
+			if (remaining <= 0)
+				return null;
+
+			final int n = Math.min(remaining, 1 + rng.nextInt(1000));
+			final byte[] samples = new byte[n * 2];
+			rng.nextBytes(samples);
+			remaining -= n;
+
+			return new SampleChunk(samples, format);
+		}
+
+		@Override
+		public void reset() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public long getLength() {
+			return -1;
+		}
+	}
+
+	/**
+	 * Test extraction from a single stream
+	 */
+	@Test
+	public void testExtract() {
+		final BatchAudioFeatureExtractor bafe = new BatchAudioFeatureExtractor(AudioFeatureType.MFCC);
+		final AudioFeatureRecord record = bafe.extract("test", new RandomAudio(0, 16000));
+
+		// 98 full 400 sample windows with a step of 160, plus one padded
+		// window with the final 320 samples
+		assertEquals(99, record.getFrames().length);
+		assertEquals(16000, record.getSampleRate(), 0);
+		assertEquals(1, record.getNumChannels());
+		assertEquals(25, record.getWindowMillis(), 0);
+		assertEquals(10, record.getStepMillis(), 0);
+	}
+
+	/**
+	 * Test that the batch extraction processes every stream and that the
+	 * container can be read back
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testBatch() throws IOException {
+		final List<File> files = new ArrayList<File>();
+		for (int i = 0; i < 20; i++)
+			files.add(new File("file" + i));
+
+		final BatchAudioFeatureExtractor bafe = new BatchAudioFeatureExtractor(AudioFeatureType.MFCC, 50, 20) {
+			@Override
+			protected AudioStream open(File file) throws IOException {
+				if (file.getName().equals("file13"))
+					throw new IOException("cannot open");
+
+				final int i = Integer.parseInt(file.getName().substring(4));
+				return new RandomAudio(i, 1000 + i * 1000);
+			}
+		};
+		bafe.setNumThreads(4);
+
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		final AudioFeatureWriter writer = new AudioFeatureWriter(baos);
+		final BatchAudioFeatureExtractor.Statistics stats = bafe.extract(files, writer);
+		writer.close();
+
+		assertEquals(19, stats.getNumProcessed());
+		assertEquals(1, stats.getNumFailed());
+		assertEquals("cannot open", stats.getFailures().get(new File("file13")).getMessage());
+		assertEquals(19, writer.getCount());
+
+		double seconds = 0;
+		for (int i = 0; i < 20; i++)
+			if (i != 13)
+				seconds += (1000 + i * 1000) / 16000.0;
+		assertEquals(seconds, stats.getAudioSeconds(), 1e-6);
+
+		final Map<String, AudioFeatureRecord> records = new HashMap<String, AudioFeatureRecord>();
+		final AudioFeatureReader reader = new AudioFeatureReader(new ByteArrayInputStream(baos.toByteArray()));
+		for (final AudioFeatureRecord r : reader)
+			records.put(r.getName(), r);
+		reader.close();
+
+		assertEquals(19, records.size());
+		assertNull(records.get(new File("file13").getPath()));
+
+		long frames = 0;
+		for (int i = 0; i < 20; i++) {
+			if (i == 13)
+				continue;
+
+			final AudioFeatureRecord expected = bafe.extract("", new RandomAudio(i, 1000 + i * 1000));
+			final AudioFeatureRecord actual = records.get(new File("file" + i).getPath());
+
+			assertEquals(expected.getFrames().length, actual.getFrames().length);
+			for (int j = 0; j < expected.getFrames().length; j++)
+				assertArrayEquals(expected.getFrames()[j], actual.getFrames()[j], 0f);
+
+			frames += actual.getFrames().length;
+		}
+		assertEquals(frames, stats.getNumFrames());
+	}
+
+	/**
+	 * Test that a failure to write a record stops the batch and is rethrown
+	 * 
+	 * @throws IOException
+	 */
+	@Test(expected = IOException.class)
+	public void testWriterFailure() throws IOException {
+		final List<File> files = new ArrayList<File>();
+		for (int i = 0; i < 20; i++)
+			files.add(new File("file" + i));
+
+		final BatchAudioFeatureExtractor bafe = new BatchAudioFeatureExtractor(AudioFeatureType.MFCC, 50, 20) {
+			@Override
+			protected AudioStream open(File file) {
+				return new RandomAudio(0, 1000);
+			}
+		};
+		bafe.setNumThreads(4);
+
+		final AudioFeatureWriter writer = new AudioFeatureWriter(new ByteArrayOutputStream()) {
+			@Override
+			public synchronized void write(AudioFeatureRecord record) throws IOException {
+				throw new IOException("disk full");
+			}
+		};
+		bafe.extract(files, writer);
+	}
+}
@@ -32,8 +32,10 @@
  */
 package org.openimaj.audio.processor;
 
+import org.openimaj.audio.AudioFormat;
 import org.openimaj.audio.AudioStream;
 import org.openimaj.audio.SampleChunk;
+import org.openimaj.audio.timecode.AudioTimecode;
 
 /**
  * Provides an audio processor that will process sample chunks of specific sizes
@@ -46,7 +48,14 @@ import org.openimaj.audio.SampleChunk;
  * The processor can also provide overlapping sample windows. Call
  * {@link #setWindowStep(int)} to determine the slide of each sliding window. If
  * this is set to 0 or below, the windows will be consecutive and will not
- * overlap.
+ * overlap. If the step is larger than the window size, the samples between
+ * windows are skipped.
+ * <p>
+ * Incoming samples are copied once into a circular buffer, and each window is
+ * copied once out of it, so the cost of producing a window depends only on the
+ * window size and not on the size of the chunks provided by the underlying
+ * stream or the amount of overlap. Window sizes and steps are given in samples
+ * across all the (interleaved) channels, as they are in {@link SampleChunk}.
  * <p>
  * The only assumption made by the class about the samples is that they are
  * whole numbers of bytes (8, 16, 24, 32 bits etc.). This is a pretty reasonable
@@ -61,15 +70,42 @@ public class FixedSizeSampleAudioProcessor extends AudioProcessor
 	/** The size of each required sample chunk */
 	private int requiredSampleSetSize = 512;
 
-	/** Our buffer of sample chunks stored between calls to process() */
-	private SampleChunk sampleBuffer = null;
-
 	/** The number of samples overlap required between each window */
 	private int windowStep = 0;
 
 	/** Whether or not the windows are overlapping */
 	private boolean overlapping = false;
 
+	/** Circular buffer of samples stored between calls to process() */
+	private byte[] ring = new byte[0];
+
+	/** Mask for converting a byte position into an index in the ring */
+	private int ringMask = -1;
+
+	/** The format of the samples in the ring */
+	private AudioFormat ringFormat = null;
+
+	/** The number of bytes in each sample of the ring format */
+	private int nBytesPerSample = 1;
+
+	/** The position (in samples) of the start of the next window */
+	private long readPosition = 0;
+
+	/** The number of samples that have been read from the stream */
+	private long writePosition = 0;
+
+	/** The position (in samples) of the end of the last window */
+	private long windowEnd = 0;
+
+	/** The position (in samples) at which the base timecode was taken */
+	private long timecodePosition = 0;
+
+	/** The timecode of the sample at the timecode position */
+	private long timecodeMillis = 0;
+
+	/** Whether the underlying stream has been exhausted */
+	private boolean endOfStream = false;
+
 	/**
 	 * Create processor that will process chunks of the given size.
 	 *
@@ -137,104 +173,41 @@ public class FixedSizeSampleAudioProcessor extends AudioProcessor
 	@Override
 	public SampleChunk nextSampleChunk()
 	{
-		// System.out.println( "Sample Buffer: "+(sampleBuffer != null?
-		// sampleBuffer.getNumberOfSamples() : "null"));
-
-		// Get the samples. If there's more samples than we need in the
-		// buffer, we'll just use that, otherwise we'll get a new sample
-		// chunk from the stream.
-		SampleChunk s = null;
-		if (this.sampleBuffer != null &&
-				this.sampleBuffer.getNumberOfSamples() >= this.requiredSampleSetSize)
-		{
-			s = this.sampleBuffer;
-			this.sampleBuffer = null;
-		}
-		else
+		// Keep reading chunks from the stream until we have a full window
+		// or until the end of the stream is reached.
+		while (!this.endOfStream && this.writePosition - this.readPosition < this.requiredSampleSetSize)
 		{
-			s = this.getUnderlyingStream().nextSampleChunk();
+			final SampleChunk s = this.getUnderlyingStream().nextSampleChunk();
 			if (s != null)
-				s = s.clone();
-
-			// If we have something in our buffer, prepend it to the new
-			// sample chunk
-			if (this.sampleBuffer != null && this.sampleBuffer.getNumberOfSamples() > 0
-					&& s != null)
-			{
-				// Prepend the contents of the sample buffer to the new sample
-				// chunk
-				s.prepend(this.sampleBuffer);
-				this.sampleBuffer = null;
-			}
-		}
-
-		// Sample buffer will always be null here
-		// It will be reinstated later with the left-overs after processing.
-		// From this point on we'll only work on the SampleChunk s.
-
-		// Catch the end of the stream. As the sample buffer is always empty
-		// at this point, the only time s can be null is that if the
-		// nextSampleChunk() above returned null. In which case, there's no
-		// more audio, so we return null.
-		if (s == null)
-		{
-			if (this.sampleBuffer != null)
-			{
-				s = this.sampleBuffer;
-				this.sampleBuffer = null;
-				return s;
-			}
+				this.write(s);
 			else
-				return null;
+				this.endOfStream = true;
 		}
 
-		// Now check how many samples we have to start with
-		int nSamples = s.getNumberOfSamples();
+		final long available = this.writePosition - this.readPosition;
 
-		// If we don't have enough samples, we'll keep getting chunks until
-		// we have enough or until the end of the stream is reached.
-		boolean endOfStream = false;
-		while (!endOfStream && nSamples < this.requiredSampleSetSize)
+		final SampleChunk ss;
+		if (available >= this.requiredSampleSetSize)
 		{
-			final SampleChunk nextSamples = this.getUnderlyingStream().nextSampleChunk();
-			if (nextSamples != null)
-			{
-				// Append the new samples onto the end of the sample chunk
-				s.append(nextSamples);
-
-				// Check how many samples we now have.
-				nSamples = s.getNumberOfSamples();
-			}
-			else
-				endOfStream = true;
-		}
+			ss = this.read(this.requiredSampleSetSize);
 
-		// If we have the right number of samples,
-		// or we've got to the end of the stream
-		// then we just return the chunk we have.
-		SampleChunk ss;
-		if (!endOfStream && (this.overlapping || nSamples > this.requiredSampleSetSize))
-		{
-			// We must now have too many samples...
-			// Store the excess back into the buffer
-			int start = 0;
 			if (this.overlapping)
-				start = this.windowStep;
+				this.readPosition += this.windowStep;
 			else
-				start = this.requiredSampleSetSize;
-
-			// Store the rest into the sample buffer
-			this.sampleBuffer = s.getSampleSlice(start, nSamples - start);
-
-			// Process a slice of the sample chunk
-			ss = s.getSampleSlice(0, this.requiredSampleSetSize);
+				this.readPosition += this.requiredSampleSetSize;
+		}
+		else if (available > 0 && this.writePosition > this.windowEnd)
+		{
+			// At the end of the stream there are samples that have not been
+			// in any window yet, so pad what we've got to the window size
+			ss = this.read((int) available);
+			this.readPosition = this.writePosition;
 		}
 		else
 		{
-			ss = s;
-
-			if (ss.getNumberOfSamples() < this.requiredSampleSetSize)
-				ss.pad(this.requiredSampleSetSize);
+			// Nothing left, so start afresh if we're called again
+			this.clear();
+			return null;
 		}
 
 		try
@@ -249,6 +222,137 @@ public class FixedSizeSampleAudioProcessor extends AudioProcessor
 		}
 	}
 
+	/**
+	 * Append the samples of the given chunk to the ring, skipping any samples
+	 * that fall before the start of the next window.
+	 *
+	 * @param s
+	 *            the chunk
+	 */
+	private void write(final SampleChunk s)
+	{
+		if (this.ringFormat == null)
+		{
+			this.ringFormat = s.getFormat().clone();
+			this.nBytesPerSample = this.ringFormat.getNBits() / 8;
+		}
+		else if (!this.ringFormat.equals(s.getFormat()))
+		{
+			throw new IllegalArgumentException("Sample types are not equivalent");
+		}
+
+		final byte[] samples = s.getSamples();
+		final int nSamples = samples.length / this.nBytesPerSample;
+
+		// If the ring is empty, the timecode of this chunk becomes the
+		// reference for the windows that follow
+		if (this.writePosition <= this.readPosition)
+		{
+			this.timecodePosition = this.writePosition;
+			this.timecodeMillis = s.getStartTimecode() == null ? 0 :
+					s.getStartTimecode().getTimecodeInMilliseconds();
+		}
+
+		// Skip anything that lies in the gap between two windows
+		int skip = 0;
+		if (this.readPosition > this.writePosition)
+			skip = (int) Math.min(this.readPosition - this.writePosition, nSamples);
+
+		final int nBytes = (nSamples - skip) * this.nBytesPerSample;
+		this.ensureCapacity((int) Math.max(0, this.writePosition + skip - this.readPosition) * this.nBytesPerSample
+				+ nBytes);
+
+		final int start = (int) (((this.writePosition + skip) * this.nBytesPerSample) & this.ringMask);
+		final int n1 = Math.min(nBytes, this.ring.length - start);
+		System.arraycopy(samples, skip * this.nBytesPerSample, this.ring, start, n1);
+		System.arraycopy(samples, skip * this.nBytesPerSample + n1, this.ring, 0, nBytes - n1);
+
+		this.writePosition += nSamples;
+	}
+
+	/**
+	 * Copy the given number of samples from the start of the ring into a new
+	 * {@link SampleChunk} of the window size. The read position is not moved.
+	 *
+	 * @param nSamples
+	 *            the number of samples to copy
+	 * @return the window
+	 */
+	private SampleChunk read(final int nSamples)
+	{
+		final byte[] samples = new byte[this.requiredSampleSetSize * this.nBytesPerSample];
+		final int nBytes = nSamples * this.nBytesPerSample;
+		final int start = (int) ((this.readPosition * this.nBytesPerSample) & this.ringMask);
+		final int n1 = Math.min(nBytes, this.ring.length - start);
+		System.arraycopy(this.ring, start, samples, 0, n1);
+		System.arraycopy(this.ring, 0, samples, n1, nBytes - n1);
+
+		this.windowEnd = this.readPosition + nSamples;
+
+		final double samplesPerMillisec = this.ringFormat.getSampleRateKHz() * this.ringFormat.getNumChannels();
+		final long tc = this.timecodeMillis
+				+ (long) ((this.readPosition - this.timecodePosition) / samplesPerMillisec);
+
+		return new SampleChunk(samples, this.ringFormat, new AudioTimecode(tc));
+	}
+
+	/**
+	 * Make sure the ring can hold at least the given number of bytes from the
+	 * current read position, preserving the buffered samples.
+	 *
+	 * @param nBytes
+	 *            the required capacity
+	 */
+	private void ensureCapacity(final int nBytes)
+	{
+		if (nBytes <= this.ring.length)
+			return;
+
+		int capacity = Math.max(1024, Integer.highestOneBit(nBytes));
+		if (capacity < nBytes)
+			capacity <<= 1;
+
+		final byte[] newRing = new byte[capacity];
+		final int newMask = capacity - 1;
+
+		// Move the buffered samples to their positions in the new ring
+		final long from = this.readPosition * this.nBytesPerSample;
+		final long to = Math.max(this.readPosition, this.writePosition) * this.nBytesPerSample;
+		for (long p = from; p < to; p++)
+			newRing[(int) (p & newMask)] = this.ring[(int) (p & this.ringMask)];
+
+		this.ring = newRing;
+		this.ringMask = newMask;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Any buffered samples are also discarded.
+	 *
+	 * @see org.openimaj.audio.processor.AudioProcessor#reset()
+	 */
+	@Override
+	public void reset()
+	{
+		super.reset();
+		this.clear();
+	}
+
+	/**
+	 * Discard any buffered samples
+	 */
+	private void clear()
+	{
+		this.readPosition = 0;
+		this.writePosition = 0;
+		this.windowEnd = 0;
+		this.timecodePosition = 0;
+		this.timecodeMillis = 0;
+		this.endOfStream = false;
+		this.ringFormat = null;
+	}
+
 	/**
 	 * Set the step of each overlapping window.
 	 *
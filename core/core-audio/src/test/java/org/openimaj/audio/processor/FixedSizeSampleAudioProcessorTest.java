@@ -34,6 +34,7 @@ package org.openimaj.audio.processor;
 
 
 import java.util.Arrays;
+import java.util.Random;
 
 import junit.framework.Assert;
 
@@ -42,6 +43,7 @@ import org.junit.Test;
 import org.openimaj.audio.AudioFormat;
 import org.openimaj.audio.AudioStream;
 import org.openimaj.audio.SampleChunk;
+import org.openimaj.audio.timecode.AudioTimecode;
 
 /**
  *  @author David Dupplaw (dpd@ecs.soton.ac.uk)
@@ -235,4 +237,119 @@ public class FixedSizeSampleAudioProcessorTest
 		// (nsamples - window size/window step)
 		Assert.assertEquals( ((65536 / 2)-256)/windowStep+1, count );	
 	}
+
+	/**
+	 * 	Stream a byte array in randomly sized chunks.
+	 */
+	private static class RandomChunkAudio extends AudioStream
+	{
+		private final byte[] data;
+		private final Random rng = new Random( 0 );
+		private int pos = 0;
+
+		public RandomChunkAudio( final byte[] data, final AudioFormat f )
+		{
+			this.data = data;
+			super.setFormat( f );
+		}
+
+		@Override
+		public SampleChunk nextSampleChunk()
+		{
+			if( pos >= data.length ) return null;
+
+			final int bps = getFormat().getNBits()/8;
+			final int len = Math.min( data.length - pos, bps * (1 + rng.nextInt( 700 )) );
+			final SampleChunk s = new SampleChunk( Arrays.copyOfRange( data, pos, pos+len ), getFormat(),
+					new AudioTimecode( (long)(pos / bps / (getFormat().getSampleRateKHz() * getFormat().getNumChannels())) ) );
+			pos += len;
+			return s;
+		}
+
+		@Override
+		public void reset()
+		{
+			pos = 0;
+		}
+
+		@Override
+		public long getLength()
+		{
+			return -1;
+		}
+	}
+
+	/**
+	 * 	Check the windows against those cut directly from the data
+	 * 	for various window sizes and steps, including steps larger than
+	 * 	the window, with stereo 16-bit audio.
+	 */
+	@Test
+	public void testWindowsMatchData()
+	{
+		final AudioFormat f = new AudioFormat( 16, 44.1, 2 );
+		final byte[] data = new byte[ 2 * 10001 ];
+		new Random( 1 ).nextBytes( data );
+		final int nSamples = data.length / 2;
+
+		final int[][] configs = { { 256, 0 }, { 256, 16 }, { 300, 299 }, { 100, 250 }, { 1024, 1000 } };
+		for( final int[] config : configs )
+		{
+			final int window = config[0];
+			final int step = config[1] <= 0 ? window : config[1];
+
+			final FixedSizeSampleAudioProcessor fssap =
+					new FixedSizeSampleAudioProcessor( new RandomChunkAudio( data, f ), window, config[1] );
+
+			int start = 0;
+			int lastEnd = 0;
+			SampleChunk s = null;
+			while( (s = fssap.nextSampleChunk()) != null )
+			{
+				Assert.assertEquals( window, s.getNumberOfSamples() );
+
+				final byte[] expected = new byte[ window * 2 ];
+				final int n = Math.min( window, nSamples - start );
+				System.arraycopy( data, start * 2, expected, 0, n * 2 );
+				Assert.assertTrue( Arrays.equals( expected, s.getSamples() ) );
+
+				// timecodes count interleaved samples over all channels
+				Assert.assertTrue( Math.abs( (long)(start / (44.1 * 2)) -
+						s.getStartTimecode().getTimecodeInMilliseconds() ) <= 1 );
+
+				lastEnd = start + n;
+				start += step;
+			}
+
+			// every sample in a window must have been seen
+			Assert.assertTrue( lastEnd == nSamples || (step > window && start >= nSamples) );
+		}
+	}
+
+	/**
+	 * 	Check that the processor can be reused once the stream is exhausted.
+	 * 
+	 *	@throws Exception
+	 */
+	@Test
+	public void testReuse() throws Exception
+	{
+		count = 0;
+		final FixedSizeSampleAudioProcessor fssap = new FixedSizeSampleAudioProcessor( 256, 64 )
+		{
+			@Override
+			public SampleChunk process( final SampleChunk sample )
+			{
+				count++;
+				return sample;
+			}
+		};
+
+		fssap.process( audio );
+		final int first = count;
+		audio.reset();
+		fssap.process( audio );
+
+		Assert.assertEquals( 2 * first, count );
+	}
 }
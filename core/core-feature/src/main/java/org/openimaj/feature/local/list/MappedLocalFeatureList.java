@@ -0,0 +1,303 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.feature.local.list;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.AbstractList;
+
+import org.openimaj.data.RandomData;
+import org.openimaj.feature.local.LocalFeature;
+import org.openimaj.io.IOUtils;
+
+/**
+ * A {@link LocalFeatureList} backed by a memory-mapped binary file, as written
+ * by {@link IOUtils#writeBinary(File, org.openimaj.io.WriteableBinary)}.
+ * <p>
+ * Unlike the {@link FileLocalFeatureList}, which re-opens the file and seeks
+ * for every access, the records of a {@link MappedLocalFeatureList} are read
+ * directly from the operating system's page cache. Feature objects are only
+ * created when {@link #get(int)} is called; callers that only need the raw
+ * data can use {@link #getLocationBuffer(int)} and
+ * {@link #getVectorBuffer(int)} to access the bytes of a record without
+ * copying them or instantiating a feature at all.
+ * <p>
+ * Files that are larger than 2GB are mapped as a series of segments, each of
+ * which holds a whole number of records. The list is read-only.
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ * 
+ * @param <T>
+ *            the type of local feature
+ */
+public class MappedLocalFeatureList<T extends LocalFeature<?, ?>> extends AbstractList<T>
+		implements
+		LocalFeatureList<T>
+{
+	protected final Class<T> clz;
+	protected final int size;
+	protected final int veclen;
+	protected final int recordLength;
+	protected final int locationLength;
+	protected final int recordsPerSegment;
+	protected final ByteBuffer[] segments;
+
+	protected MappedLocalFeatureList(Class<T> clz, int size, int veclen, int recordLength, int locationLength,
+			int recordsPerSegment, ByteBuffer[] segments)
+	{
+		this.clz = clz;
+		this.size = size;
+		this.veclen = veclen;
+		this.recordLength = recordLength;
+		this.locationLength = locationLength;
+		this.recordsPerSegment = recordsPerSegment;
+		this.segments = segments;
+	}
+
+	/**
+	 * Memory-map a binary file containing a set of local features of type clz.
+	 * As with {@link FileLocalFeatureList#read(File, Class)}, it is assumed
+	 * that clz can instantiate itself either given a vec length or no
+	 * parameters, and that the instance can write itself even when filled with
+	 * no other data; this is used to determine the (fixed) length of each
+	 * record.
+	 * 
+	 * @param <T>
+	 *            the local feature class
+	 * @param keypointFile
+	 *            the file
+	 * @param clz
+	 *            the local feature class
+	 * @return a list of local features backed by the mapped file
+	 * @throws IOException
+	 *             if the file is not in the binary format, is truncated, or a
+	 *             problem occurs reading it
+	 */
+	public static <T extends LocalFeature<?, ?>> MappedLocalFeatureList<T> read(File keypointFile, Class<T> clz)
+			throws IOException
+	{
+		if (!IOUtils.isBinary(keypointFile, LocalFeatureList.BINARY_HEADER))
+			throw new IOException("Only binary local feature files can be memory-mapped");
+
+		final int[] header = LocalFeatureListUtils.readHeader(keypointFile, true);
+		final int size = header[0];
+		final int veclen = header[1];
+		final int headerLength = header[2];
+
+		final T instance = LocalFeatureListUtils.newInstance(clz, veclen);
+
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		instance.writeBinary(new DataOutputStream(buffer));
+		final int recordLength = buffer.size();
+
+		buffer.reset();
+		instance.getLocation().writeBinary(new DataOutputStream(buffer));
+		final int locationLength = buffer.size();
+
+		final long dataLength = (long) size * recordLength;
+		final int recordsPerSegment = Math.max(1, Integer.MAX_VALUE / recordLength);
+		final int nSegments = size == 0 ? 0 : 1 + (size - 1) / recordsPerSegment;
+		final ByteBuffer[] segments = new ByteBuffer[nSegments];
+
+		final RandomAccessFile raf = new RandomAccessFile(keypointFile, "r");
+		try {
+			final FileChannel channel = raf.getChannel();
+
+			if (channel.size() < headerLength + dataLength)
+				throw new IOException("File is truncated: expected " + (headerLength + dataLength) + " bytes, but found "
+						+ channel.size());
+
+			for (int i = 0; i < nSegments; i++) {
+				final long start = (long) i * recordsPerSegment * recordLength;
+				final long length = Math.min((long) recordsPerSegment * recordLength, dataLength - start);
+
+				final MappedByteBuffer mbb = channel.map(FileChannel.MapMode.READ_ONLY, headerLength + start, length);
+				segments[i] = mbb;
+			}
+		} finally {
+			raf.close();
+		}
+
+		return new MappedLocalFeatureList<T>(clz, size, veclen, recordLength, locationLength, recordsPerSegment,
+				segments);
+	}
+
+	/**
+	 * Get the length of a single record in bytes
+	 * 
+	 * @return the record length
+	 */
+	public int getRecordLength() {
+		return recordLength;
+	}
+
+	/**
+	 * Get a read-only view of the bytes of the record at the given index. The
+	 * returned buffer shares its content with the mapped file; its position is
+	 * zero and its limit is the record length.
+	 * 
+	 * @param index
+	 *            the index of the record
+	 * @return a view of the record bytes
+	 */
+	public ByteBuffer getRecordBuffer(int index) {
+		return slice(index, 0, recordLength);
+	}
+
+	/**
+	 * Get a read-only view of the bytes encoding the location of the feature
+	 * at the given index. The bytes are in the format written by the
+	 * location's <code>writeBinary</code> method (for example, four big-endian
+	 * floats for a <code>KeypointLocation</code>).
+	 * 
+	 * @param index
+	 *            the index of the record
+	 * @return a view of the location bytes
+	 */
+	public ByteBuffer getLocationBuffer(int index) {
+		return slice(index, 0, locationLength);
+	}
+
+	/**
+	 * Get a read-only view of the bytes encoding the feature vector of the
+	 * feature at the given index; that is, all the bytes of the record that
+	 * follow the location. For a <code>Keypoint</code> these are exactly the
+	 * bytes of the descriptor.
+	 * 
+	 * @param index
+	 *            the index of the record
+	 * @return a view of the feature vector bytes
+	 */
+	public ByteBuffer getVectorBuffer(int index) {
+		return slice(index, locationLength, recordLength - locationLength);
+	}
+
+	private ByteBuffer slice(int index, int offset, int length) {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+
+		final ByteBuffer buffer = segments[index / recordsPerSegment].asReadOnlyBuffer();
+		final int start = (index % recordsPerSegment) * recordLength + offset;
+		buffer.limit(start + length);
+		buffer.position(start);
+
+		return buffer.slice();
+	}
+
+	@Override
+	public T get(int index) {
+		final byte[] record = new byte[recordLength];
+		getRecordBuffer(index).get(record);
+
+		final T t = LocalFeatureListUtils.newInstance(clz, veclen);
+		try {
+			t.readBinary(new DataInputStream(new ByteArrayInputStream(record)));
+		} catch (final IOException e) {
+			throw new RuntimeException(e);
+		}
+
+		return t;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public int vecLength() {
+		return veclen;
+	}
+
+	@Override
+	public void writeBinary(DataOutput out) throws IOException {
+		LocalFeatureListUtils.writeBinary(out, this);
+	}
+
+	@Override
+	public void writeASCII(PrintWriter out) throws IOException {
+		LocalFeatureListUtils.writeASCII(out, this);
+	}
+
+	@Override
+	public byte[] binaryHeader() {
+		return LocalFeatureList.BINARY_HEADER;
+	}
+
+	@Override
+	public String asciiHeader() {
+		return "";
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public <Q> Q[] asDataArray(Q[] a) {
+		if (a.length < size()) {
+			a = (Q[]) Array.newInstance(a.getClass().getComponentType(), size());
+		}
+
+		int i = 0;
+		for (final T t : this) {
+			a[i++] = (Q) t.getFeatureVector().getVector();
+		}
+
+		return a;
+	}
+
+	@Override
+	public MemoryLocalFeatureList<T> subList(int fromIndex, int toIndex) {
+		return new MemoryLocalFeatureList<T>(super.subList(fromIndex, toIndex));
+	}
+
+	@Override
+	public MemoryLocalFeatureList<T> randomSubList(int nelem) {
+		if (nelem > size())
+			throw new IllegalArgumentException("number of requested elements is greater than the list size");
+
+		final int[] indices = RandomData.getUniqueRandomInts(nelem, 0, size());
+
+		final MemoryLocalFeatureList<T> list = new MemoryLocalFeatureList<T>(veclen, nelem);
+		for (final int i : indices)
+			list.add(get(i));
+
+		return list;
+	}
+}
@@ -32,10 +32,12 @@ package org.openimaj.image;
 import java.util.Comparator;
 
 import org.apache.log4j.Logger;
+import org.openimaj.image.analyser.FloatPixelAnalyser;
 import org.openimaj.image.analyser.PixelAnalyser;
 import org.openimaj.image.colour.ColourSpace;
 import org.openimaj.image.pixel.FValuePixel;
 import org.openimaj.image.pixel.Pixel;
+import org.openimaj.image.processor.FloatPixelProcessor;
 import org.openimaj.image.processor.KernelProcessor;
 import org.openimaj.image.processor.PixelProcessor;
 import org.openimaj.image.renderer.FImageRenderer;
@@ -85,15 +87,37 @@ public class FImage extends SingleBandImage<Float, FImage>
 	 */
 	public FImage(final float[] array, final int width, final int height)
 	{
-		assert (array.length == width * height);
+		this(array, width, height, 0, width);
+	}
+
+	/**
+	 * Create an {@link FImage} from a region of a contiguous array of floating
+	 * point values in row-major order. Row <code>y</code> of the image is read
+	 * from <code>array[offset + y * stride]</code> to
+	 * <code>array[offset + y * stride + width - 1]</code>.
+	 *
+	 * @param array
+	 *            An array of floating point values.
+	 * @param width
+	 *            The width of the resulting image.
+	 * @param height
+	 *            The height of the resulting image.
+	 * @param offset
+	 *            The offset in the array of the first pixel
+	 * @param stride
+	 *            The distance in the array between the starts of consecutive
+	 *            rows (must be at least the width)
+	 */
+	public FImage(final float[] array, final int width, final int height, final int offset, final int stride)
+	{
+		assert (stride >= width && array.length >= offset + (height - 1) * stride + width);
 
 		this.pixels = new float[height][width];
 		this.height = height;
 		this.width = width;
 
 		for (int y = 0; y < height; y++)
-			for (int x = 0; x < width; x++)
-				this.pixels[y][x] = array[y * width + x];
+			System.arraycopy(array, offset + y * stride, this.pixels[y], 0, width);
 	}
 
 	/**
@@ -787,12 +811,58 @@ public class FImage extends SingleBandImage<Float, FImage>
 	 */
 	public float[] getFloatPixelVector()
 	{
-		final float f[] = new float[this.height * this.width];
+		return getFloatPixelVector(new float[this.height * this.width], 0, this.width);
+	}
+
+	/**
+	 * Copy the pixels of the image into a contiguous array in row-major order.
+	 * Row <code>y</code> of the image is written starting at
+	 * <code>data[offset + y * stride]</code>. This allows a single buffer to be
+	 * reused across many images, or the pixels to be placed directly into a
+	 * padded buffer (for example the input to an FFT).
+	 *
+	 * @param data
+	 *            the array to write into
+	 * @param offset
+	 *            the offset in the array of the first pixel
+	 * @param stride
+	 *            the distance in the array between the starts of consecutive
+	 *            rows (must be at least the width)
+	 * @return the data array
+	 */
+	public float[] getFloatPixelVector(final float[] data, final int offset, final int stride)
+	{
+		assert (stride >= this.width && data.length >= offset + (this.height - 1) * stride + this.width);
+
 		for (int y = 0; y < this.height; y++)
-			for (int x = 0; x < this.width; x++)
-				f[x + y * this.width] = this.pixels[y][x];
+			System.arraycopy(this.pixels[y], 0, data, offset + y * stride, this.width);
 
-		return f;
+		return data;
+	}
+
+	/**
+	 * Copy the pixels of this image from a contiguous array in row-major order
+	 * without reallocating the pixel storage. Row <code>y</code> of the image
+	 * is read from <code>data[offset + y * stride]</code>. This is the inverse
+	 * of {@link #getFloatPixelVector(float[], int, int)}.
+	 *
+	 * @param data
+	 *            the array to read from
+	 * @param offset
+	 *            the offset in the array of the first pixel
+	 * @param stride
+	 *            the distance in the array between the starts of consecutive
+	 *            rows (must be at least the width)
+	 * @return this image
+	 */
+	public FImage internalAssign(final float[] data, final int offset, final int stride)
+	{
+		assert (stride >= this.width && data.length >= offset + (this.height - 1) * stride + this.width);
+
+		for (int y = 0; y < this.height; y++)
+			System.arraycopy(data, offset + y * stride, this.pixels[y], 0, this.width);
+
+		return this;
 	}
 
 	/**
@@ -1302,11 +1372,52 @@ public class FImage extends SingleBandImage<Float, FImage>
 	public FImage process(final KernelProcessor<Float, FImage> p, final boolean pad)
 	{
 		final FImage newImage = new FImage(this.width, this.height);
+
+		return processKernel(p, pad, newImage, new FImage(p.getKernelWidth(), p.getKernelHeight()));
+	}
+
+	/**
+	 * Process this image with the given {@link KernelProcessor}
+	 * side-affecting this image. The intermediate images required are drawn
+	 * from (and returned to) the given pool, so repeated calls on images of
+	 * the same size do not allocate any new pixel storage.
+	 *
+	 * @param p
+	 *            The {@link KernelProcessor} to apply.
+	 * @param pad
+	 *            Should the image be zero padded so the kernel reaches the
+	 *            edges of the output
+	 * @param pool
+	 *            The pool from which to draw intermediate images.
+	 * @return A reference to this image containing the result.
+	 */
+	public FImage processInplace(final KernelProcessor<Float, FImage> p, final boolean pad, final ImagePool<FImage> pool)
+	{
+		final FImage newImage = pool.acquire(this.width, this.height);
+		final FImage tmp = pool.acquire(p.getKernelWidth(), p.getKernelHeight());
+
+		if (!pad)
+			newImage.zero();
+
+		processKernel(p, pad, newImage, tmp);
+
+		// swap the pixel storage so the old pixels go back to the pool
+		final float[][] old = this.pixels;
+		this.pixels = newImage.pixels;
+		newImage.pixels = old;
+
+		pool.release(tmp);
+		pool.release(newImage);
+
+		return this;
+	}
+
+	private FImage processKernel(final KernelProcessor<Float, FImage> p, final boolean pad, final FImage newImage,
+			final FImage tmp)
+	{
 		final int kh = p.getKernelHeight();
 		final int kw = p.getKernelWidth();
 
-		final FImage tmp = new FImage(kw, kh);
-
 		final int hh = kh / 2;
 		final int hw = kw / 2;
 
@@ -1329,13 +1440,17 @@ public class FImage extends SingleBandImage<Float, FImage>
 
 	/**
 	 * {@inheritDoc} This method has been overridden in {@link FImage} for
-	 * performance.
+	 * performance. If the processor is a {@link FloatPixelProcessor} the
+	 * pixels are processed without boxing.
 	 *
 	 * @see org.openimaj.image.Image#processInplace(org.openimaj.image.processor.PixelProcessor)
 	 */
 	@Override
 	public FImage processInplace(final PixelProcessor<Float> p)
 	{
+		if (p instanceof FloatPixelProcessor)
+			return processInplace((FloatPixelProcessor) p);
+
 		for (int y = 0; y < this.height; y++)
 		{
 			for (int x = 0; x < this.width; x++)
@@ -1347,15 +1462,75 @@ public class FImage extends SingleBandImage<Float, FImage>
 		return this;
 	}
 
+	/**
+	 * Process this image with the given {@link FloatPixelProcessor}
+	 * side-affecting this image.
+	 *
+	 * @param p
+	 *            The {@link FloatPixelProcessor} to apply.
+	 * @return A reference to this image containing the result.
+	 */
+	public FImage processInplace(final FloatPixelProcessor p)
+	{
+		for (int y = 0; y < this.height; y++)
+		{
+			final float[] row = this.pixels[y];
+			for (int x = 0; x < this.width; x++)
+			{
+				row[x] = p.processPixel(row[x]);
+			}
+		}
+
+		return this;
+	}
+
 	/**
 	 * {@inheritDoc} This method has been overridden in {@link FImage} for
-	 * performance.
+	 * performance. If the processor is a {@link FloatPixelProcessor} the
+	 * pixels are processed without boxing.
+	 *
+	 * @see org.openimaj.image.Image#processMaskedInplace(org.openimaj.image.FImage,
+	 *      org.openimaj.image.processor.PixelProcessor)
+	 */
+	@Override
+	public FImage processMaskedInplace(final FImage mask, final PixelProcessor<Float> p)
+	{
+		if (p instanceof FloatPixelProcessor) {
+			final FloatPixelProcessor fp = (FloatPixelProcessor) p;
+
+			for (int y = 0; y < this.height; y++)
+			{
+				final float[] row = this.pixels[y];
+				final float[] mrow = mask.pixels[y];
+				for (int x = 0; x < this.width; x++)
+				{
+					if (mrow[x] == 0)
+						continue;
+					row[x] = fp.processPixel(row[x]);
+				}
+			}
+
+			return this;
+		}
+
+		return super.processMaskedInplace(mask, p);
+	}
+
+	/**
+	 * {@inheritDoc} This method has been overridden in {@link FImage} for
+	 * performance. If the analyser is a {@link FloatPixelAnalyser} the pixels
+	 * are analysed without boxing.
 	 *
 	 * @see org.openimaj.image.Image#analyseWith(org.openimaj.image.analyser.PixelAnalyser)
 	 */
 	@Override
 	public void analyseWith(final PixelAnalyser<Float> p)
 	{
+		if (p instanceof FloatPixelAnalyser) {
+			analyseWith((FloatPixelAnalyser) p);
+			return;
+		}
+
 		p.reset();
 
 		for (int y = 0; y < this.height; y++)
@@ -1367,6 +1542,58 @@ public class FImage extends SingleBandImage<Float, FImage>
 		}
 	}
 
+	/**
+	 * Analyse this image with a {@link FloatPixelAnalyser}.
+	 *
+	 * @param p
+	 *            The analyser to analyse with.
+	 */
+	public void analyseWith(final FloatPixelAnalyser p)
+	{
+		p.reset();
+
+		for (int y = 0; y < this.height; y++)
+		{
+			final float[] row = this.pixels[y];
+			for (int x = 0; x < this.width; x++)
+			{
+				p.analysePixel(row[x]);
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc} This method has been overridden in {@link FImage} for
+	 * performance. If the analyser is a {@link FloatPixelAnalyser} the pixels
+	 * are analysed without boxing.
+	 *
+	 * @see org.openimaj.image.Image#analyseWithMasked(org.openimaj.image.FImage,
+	 *      org.openimaj.image.analyser.PixelAnalyser)
+	 */
+	@Override
+	public void analyseWithMasked(final FImage mask, final PixelAnalyser<Float> p)
+	{
+		if (!(p instanceof FloatPixelAnalyser)) {
+			super.analyseWithMasked(mask, p);
+			return;
+		}
+
+		final FloatPixelAnalyser fp = (FloatPixelAnalyser) p;
+		fp.reset();
+
+		for (int y = 0; y < this.height; y++)
+		{
+			final float[] row = this.pixels[y];
+			final float[] mrow = mask.pixels[y];
+			for (int x = 0; x < this.width; x++)
+			{
+				if (mrow[x] == 0)
+					continue;
+				fp.analysePixel(row[x]);
+			}
+		}
+	}
+
 	/**
 	 * {@inheritDoc}
 	 *
@@ -1722,6 +1722,25 @@ public abstract class Image<Q, I extends Image<Q, I>> implements Cloneable, Seri
 		return newImage;
 	}
 
+	/**
+	 * Process this image with an {@link Processor} and return an image from
+	 * the given pool containing the result. This image is not modified. The
+	 * caller is responsible for releasing the returned image back to the pool
+	 * when it is no longer required.
+	 *
+	 * @param p
+	 *            The {@link Processor} to apply to this image.
+	 * @param pool
+	 *            The pool to draw the result image from.
+	 * @return An image from the pool containing the result.
+	 */
+	@SuppressWarnings("unchecked")
+	public I process(Processor<I> p, ImagePool<I> pool) {
+		final I newImage = pool.acquireCopy((I) this);
+		newImage.processInplace(p);
+		return newImage;
+	}
+
 	/**
 	 * Process this image with the given {@link Processor} side-affecting this
 	 * image.
@@ -0,0 +1,245 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.image;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A pool of reusable images, bucketed by size. Images can be acquired from the
+ * pool as scratch space (for example for the intermediate results of a chain
+ * of processors) and released back into the pool when they are no longer
+ * needed, so that processing a stream of same-sized images (such as the
+ * frames of a video) does not continuously allocate new pixel storage.
+ * <p>
+ * New images are created with {@link Image#newInstance(int, int)} on a
+ * template image, so for example an {@link MBFImage} pool will create images
+ * with the same number of bands and colour space as the template. Images
+ * released into the pool must be compatible with the template. The content of
+ * an image returned by {@link #acquire(int, int)} is undefined.
+ * <p>
+ * At most <code>maxPerSize</code> free images of each size are retained;
+ * additional released images are left to the garbage collector. The pool is
+ * thread-safe.
+ * <p>
+ * Anything that holds state derived from the content of an image (for
+ * example a cache of analysis results keyed on the image) can register a
+ * {@link ReleaseListener} to be told when an image is released, as the image
+ * will subsequently be handed out again with different content.
+ *
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ *
+ * @param <I>
+ *            the type of image
+ */
+public class ImagePool<I extends Image<?, I>> {
+	/**
+	 * Interface for objects that need to be notified when an image is
+	 * released back into an {@link ImagePool}.
+	 *
+	 * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+	 *
+	 * @param <I>
+	 *            the type of image
+	 */
+	public static interface ReleaseListener<I> {
+		/**
+		 * Called when an image is released into the pool, before it can be
+		 * acquired again. The content of the image must not be relied upon
+		 * after this call.
+		 *
+		 * @param image
+		 *            the released image
+		 */
+		public void imageReleased(I image);
+	}
+
+	/**
+	 * The default maximum number of free images of each size
+	 */
+	public static final int DEFAULT_MAX_PER_SIZE = 8;
+
+	private final I template;
+	private final int maxPerSize;
+	private final Map<Long, ArrayDeque<I>> free = new HashMap<Long, ArrayDeque<I>>();
+	private final List<ReleaseListener<? super I>> listeners = new CopyOnWriteArrayList<ReleaseListener<? super I>>();
+
+	/**
+	 * Construct a pool that creates images like the given template, retaining
+	 * up to {@link #DEFAULT_MAX_PER_SIZE} free images of each size.
+	 *
+	 * @param template
+	 *            the template image
+	 */
+	public ImagePool(I template) {
+		this(template, DEFAULT_MAX_PER_SIZE);
+	}
+
+	/**
+	 * Construct a pool that creates images like the given template, retaining
+	 * up to the given number of free images of each size.
+	 *
+	 * @param template
+	 *            the template image
+	 * @param maxPerSize
+	 *            the maximum number of free images of each size to retain
+	 */
+	public ImagePool(I template, int maxPerSize) {
+		this.template = template;
+		this.maxPerSize = maxPerSize;
+	}
+
+	private static long key(int width, int height) {
+		return ((long) width << 32) | (height & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Get an image of the given size from the pool, creating a new one if
+	 * there are no free images of that size. The content of the image is
+	 * undefined.
+	 *
+	 * @param width
+	 *            the width
+	 * @param height
+	 *            the height
+	 * @return an image of the given size
+	 */
+	public I acquire(int width, int height) {
+		synchronized (free) {
+			final ArrayDeque<I> bucket = free.get(key(width, height));
+
+			if (bucket != null && !bucket.isEmpty())
+				return bucket.pop();
+		}
+
+		return template.newInstance(width, height);
+	}
+
+	/**
+	 * Get an image with the same size as the given image from the pool. The
+	 * content of the image is undefined.
+	 *
+	 * @param image
+	 *            the image whose size to match
+	 * @return an image of the same size
+	 */
+	public I acquire(I image) {
+		return acquire(image.getWidth(), image.getHeight());
+	}
+
+	/**
+	 * Get an image from the pool and fill it with a copy of the given image.
+	 * This is the pooled equivalent of {@link Image#clone()}.
+	 *
+	 * @param image
+	 *            the image to copy
+	 * @return a copy of the image
+	 */
+	public I acquireCopy(I image) {
+		return acquire(image).internalCopy(image);
+	}
+
+	/**
+	 * Add a listener that will be notified whenever an image is released into
+	 * the pool.
+	 *
+	 * @param listener
+	 *            the listener
+	 */
+	public void addReleaseListener(ReleaseListener<? super I> listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * Remove a listener previously added with
+	 * {@link #addReleaseListener(ReleaseListener)}.
+	 *
+	 * @param listener
+	 *            the listener
+	 */
+	public void removeReleaseListener(ReleaseListener<? super I> listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Return an image to the pool. The image must not be used by the caller
+	 * after it has been released. The {@link ReleaseListener}s of the pool are
+	 * notified before the image becomes available to be acquired again.
+	 * Releasing <code>null</code> has no effect.
+	 *
+	 * @param image
+	 *            the image to release
+	 */
+	public void release(I image) {
+		if (image == null)
+			return;
+
+		for (final ReleaseListener<? super I> listener : listeners)
+			listener.imageReleased(image);
+
+		final long key = key(image.getWidth(), image.getHeight());
+
+		synchronized (free) {
+			ArrayDeque<I> bucket = free.get(key);
+
+			if (bucket == null)
+				free.put(key, bucket = new ArrayDeque<I>());
+
+			if (bucket.size() < maxPerSize)
+				bucket.push(image);
+		}
+	}
+
+	/**
+	 * Get the number of free images currently held by the pool.
+	 *
+	 * @return the number of free images
+	 */
+	public int size() {
+		synchronized (free) {
+			int size = 0;
+			for (final ArrayDeque<I> bucket : free.values())
+				size += bucket.size();
+			return size;
+		}
+	}
+
+	/**
+	 * Remove all free images from the pool.
+	 */
+	public void clear() {
+		synchronized (free) {
+			free.clear();
+		}
+	}
+}
@@ -31,8 +31,12 @@ package org.openimaj.image;
 
 import java.util.Comparator;
 
+import org.openimaj.image.analyser.FloatArrayPixelAnalyser;
+import org.openimaj.image.analyser.PixelAnalyser;
 import org.openimaj.image.colour.ColourSpace;
 import org.openimaj.image.pixel.Pixel;
+import org.openimaj.image.processor.FloatArrayPixelProcessor;
+import org.openimaj.image.processor.PixelProcessor;
 import org.openimaj.image.renderer.MBFImageRenderer;
 import org.openimaj.image.renderer.RenderHints;
 
@@ -517,6 +521,173 @@ public class MBFImage extends MultiBandImage<Float, MBFImage, FImage> {
 		}
 	}
 
+	/**
+	 * {@inheritDoc} This method has been overridden in {@link MBFImage} for
+	 * performance. If the processor is a {@link FloatArrayPixelProcessor} the
+	 * pixels are processed through a single reused <code>float[]</code> and
+	 * written directly into the bands.
+	 *
+	 * @see org.openimaj.image.Image#processInplace(org.openimaj.image.processor.PixelProcessor)
+	 */
+	@Override
+	public MBFImage processInplace(final PixelProcessor<Float[]> p) {
+		if (p instanceof FloatArrayPixelProcessor)
+			return processInplace((FloatArrayPixelProcessor) p);
+
+		return super.processInplace(p);
+	}
+
+	/**
+	 * Process this image with the given {@link FloatArrayPixelProcessor}
+	 * side-affecting this image. Unlike
+	 * {@link #setPixel(int, int, Float[])}, the processed values are written
+	 * directly to the bands without any alpha compositing.
+	 *
+	 * @param p
+	 *            The {@link FloatArrayPixelProcessor} to apply.
+	 * @return A reference to this image containing the result.
+	 */
+	public MBFImage processInplace(final FloatArrayPixelProcessor p) {
+		final int width = this.getWidth();
+		final int height = this.getHeight();
+		final float[][][] bpix = this.getBandPixels();
+		final float[] pixel = new float[bpix.length];
+
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				for (int b = 0; b < bpix.length; b++)
+					pixel[b] = bpix[b][y][x];
+
+				p.processPixel(pixel);
+
+				for (int b = 0; b < bpix.length; b++)
+					bpix[b][y][x] = pixel[b];
+			}
+		}
+
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc} This method has been overridden in {@link MBFImage} for
+	 * performance. If the processor is a {@link FloatArrayPixelProcessor} the
+	 * pixels are processed through a single reused <code>float[]</code> and
+	 * written directly into the bands.
+	 *
+	 * @see org.openimaj.image.Image#processMaskedInplace(org.openimaj.image.FImage,
+	 *      org.openimaj.image.processor.PixelProcessor)
+	 */
+	@Override
+	public MBFImage processMaskedInplace(final FImage mask, final PixelProcessor<Float[]> p) {
+		if (!(p instanceof FloatArrayPixelProcessor))
+			return super.processMaskedInplace(mask, p);
+
+		final FloatArrayPixelProcessor fp = (FloatArrayPixelProcessor) p;
+		final int width = this.getWidth();
+		final int height = this.getHeight();
+		final float[][][] bpix = this.getBandPixels();
+		final float[] pixel = new float[bpix.length];
+
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				if (mask.pixels[y][x] == 0)
+					continue;
+
+				for (int b = 0; b < bpix.length; b++)
+					pixel[b] = bpix[b][y][x];
+
+				fp.processPixel(pixel);
+
+				for (int b = 0; b < bpix.length; b++)
+					bpix[b][y][x] = pixel[b];
+			}
+		}
+
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc} This method has been overridden in {@link MBFImage} for
+	 * performance. If the analyser is a {@link FloatArrayPixelAnalyser} the
+	 * pixels are passed through a single reused <code>float[]</code>.
+	 *
+	 * @see org.openimaj.image.Image#analyseWith(org.openimaj.image.analyser.PixelAnalyser)
+	 */
+	@Override
+	public void analyseWith(final PixelAnalyser<Float[]> p) {
+		if (p instanceof FloatArrayPixelAnalyser)
+			analyseWith((FloatArrayPixelAnalyser) p);
+		else
+			super.analyseWith(p);
+	}
+
+	/**
+	 * Analyse this image with a {@link FloatArrayPixelAnalyser}.
+	 *
+	 * @param p
+	 *            The analyser to analyse with.
+	 */
+	public void analyseWith(final FloatArrayPixelAnalyser p) {
+		p.reset();
+
+		final int width = this.getWidth();
+		final int height = this.getHeight();
+		final float[][][] bpix = this.getBandPixels();
+		final float[] pixel = new float[bpix.length];
+
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				for (int b = 0; b < bpix.length; b++)
+					pixel[b] = bpix[b][y][x];
+
+				p.analysePixel(pixel);
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc} This method has been overridden in {@link MBFImage} for
+	 * performance. If the analyser is a {@link FloatArrayPixelAnalyser} the
+	 * pixels are passed through a single reused <code>float[]</code>.
+	 *
+	 * @see org.openimaj.image.Image#analyseWithMasked(org.openimaj.image.FImage,
+	 *      org.openimaj.image.analyser.PixelAnalyser)
+	 */
+	@Override
+	public void analyseWithMasked(final FImage mask, final PixelAnalyser<Float[]> p) {
+		if (!(p instanceof FloatArrayPixelAnalyser)) {
+			super.analyseWithMasked(mask, p);
+			return;
+		}
+
+		final FloatArrayPixelAnalyser fp = (FloatArrayPixelAnalyser) p;
+		fp.reset();
+
+		final int width = this.getWidth();
+		final int height = this.getHeight();
+		final float[][][] bpix = this.getBandPixels();
+		final float[] pixel = new float[bpix.length];
+
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				if (mask.pixels[y][x] == 0)
+					continue;
+
+				for (int b = 0; b < bpix.length; b++)
+					pixel[b] = bpix[b][y][x];
+
+				fp.analysePixel(pixel);
+			}
+		}
+	}
+
+	private float[][][] getBandPixels() {
+		final float[][][] bpix = new float[this.bands.size()][][];
+		for (int b = 0; b < bpix.length; b++)
+			bpix[b] = this.bands.get(b).pixels;
+		return bpix;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 * <p>
@@ -0,0 +1,565 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.image.pixel;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.openimaj.image.FImage;
+import org.openimaj.image.pixel.ConnectedComponent.ConnectMode;
+import org.openimaj.image.renderer.ScanRasteriser.ScanLineListener;
+import org.openimaj.math.geometry.shape.Rectangle;
+
+/**
+ * A compact representation of all the connected components in an image. Rather
+ * than storing a {@link Pixel} object for every pixel of every component (as
+ * {@link ConnectedComponent} does), the components are represented by an
+ * integer label image together with a run-length encoding of each component,
+ * and the area, bounds and moments of each component are computed directly
+ * from these.
+ * <p>
+ * Components are identified by labels in the range
+ * <code>1..{@link #getNumComponents()}</code>; a label of 0 denotes the
+ * background. Labels are allocated in raster order of the top-left-most pixel
+ * of each component. If a {@link ConnectedComponent} is required for a
+ * component, it can be created on demand with {@link #getComponent(int)}, or
+ * all components can be accessed through the list view returned by
+ * {@link #getComponents()}.
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class LabelledComponents {
+	private final int width;
+	private final int height;
+	private final int[][] labels;
+	private final int numComponents;
+
+	private final int[] area;
+	private final int[] minX;
+	private final int[] minY;
+	private final int[] maxX;
+	private final int[] maxY;
+	private final long[] sumX;
+	private final long[] sumY;
+
+	/** offsets into runs for each label; runs of label l are runOffsets[l] until runOffsets[l+1] */
+	private final int[] runOffsets;
+	/** runs, stored as triples of y, x1, x2 (inclusive) */
+	private final int[] runs;
+
+	/** lazily computed central moments up to 3rd order, indexed [p][q] */
+	private final double[][][] centralMoments;
+
+	/**
+	 * Construct from an existing label image. The labels must be in the range
+	 * <code>0..numComponents</code>, where 0 is background, and each label
+	 * should be assigned to at least one pixel. The label image is not copied.
+	 * 
+	 * @param labels
+	 *            the label image
+	 * @param numComponents
+	 *            the number of components (the maximum label)
+	 */
+	public LabelledComponents(int[][] labels, int numComponents) {
+		this.labels = labels;
+		this.height = labels.length;
+		this.width = height == 0 ? 0 : labels[0].length;
+		this.numComponents = numComponents;
+
+		final int n = numComponents + 1;
+		area = new int[n];
+		minX = new int[n];
+		minY = new int[n];
+		maxX = new int[n];
+		maxY = new int[n];
+		sumX = new long[n];
+		sumY = new long[n];
+		runOffsets = new int[n + 1];
+		centralMoments = new double[n][][];
+
+		Arrays.fill(minX, Integer.MAX_VALUE);
+		Arrays.fill(minY, Integer.MAX_VALUE);
+
+		// gather statistics and count the runs of each label
+		final int[] runCounts = new int[n];
+		for (int y = 0; y < height; y++) {
+			final int[] row = labels[y];
+			int prev = 0;
+			for (int x = 0; x < width; x++) {
+				final int l = row[x];
+				if (l != 0) {
+					area[l]++;
+					sumX[l] += x;
+					sumY[l] += y;
+					if (x < minX[l])
+						minX[l] = x;
+					if (x > maxX[l])
+						maxX[l] = x;
+					if (y < minY[l])
+						minY[l] = y;
+					maxY[l] = y;
+
+					if (l != prev)
+						runCounts[l]++;
+				}
+				prev = l;
+			}
+		}
+
+		for (int l = 0; l < n; l++)
+			runOffsets[l + 1] = runOffsets[l] + runCounts[l];
+
+		// fill in the runs
+		runs = new int[3 * runOffsets[n]];
+		final int[] pos = Arrays.copyOf(runOffsets, n);
+		for (int y = 0; y < height; y++) {
+			final int[] row = labels[y];
+			int x = 0;
+			while (x < width) {
+				final int l = row[x];
+				final int x1 = x;
+				while (x + 1 < width && row[x + 1] == l)
+					x++;
+
+				if (l != 0) {
+					final int r = 3 * pos[l]++;
+					runs[r] = y;
+					runs[r + 1] = x1;
+					runs[r + 2] = x;
+				}
+				x++;
+			}
+		}
+	}
+
+	/**
+	 * Find the connected components in an image using a two-pass labelling
+	 * algorithm with a union-find structure. Pixels with values greater than
+	 * the background threshold are considered to be foreground.
+	 * 
+	 * @param image
+	 *            the image
+	 * @param bgThreshold
+	 *            the threshold at or below which pixels are considered to be
+	 *            background
+	 * @param mode
+	 *            the connectivity of the components
+	 * @return the labelled components
+	 */
+	public static LabelledComponents label(FImage image, float bgThreshold, ConnectMode mode) {
+		final int w = image.width;
+		final int h = image.height;
+		final int[][] labels = new int[h][w];
+		final boolean connect8 = mode == ConnectMode.CONNECT_8;
+
+		int[] parent = new int[64];
+		int next = 1;
+
+		// first pass: provisional labels, recording equivalences
+		for (int y = 0; y < h; y++) {
+			final float[] row = image.pixels[y];
+			final int[] lrow = labels[y];
+			final int[] prow = y > 0 ? labels[y - 1] : null;
+
+			for (int x = 0; x < w; x++) {
+				if (row[x] <= bgThreshold)
+					continue;
+
+				int l = 0;
+				if (x > 0)
+					l = union(parent, l, lrow[x - 1]);
+				if (prow != null) {
+					l = union(parent, l, prow[x]);
+					if (connect8) {
+						if (x > 0)
+							l = union(parent, l, prow[x - 1]);
+						if (x + 1 < w)
+							l = union(parent, l, prow[x + 1]);
+					}
+				}
+
+				if (l == 0) {
+					if (next == parent.length)
+						parent = Arrays.copyOf(parent, parent.length * 2);
+					parent[next] = next;
+					l = next++;
+				}
+				lrow[x] = l;
+			}
+		}
+
+		// second pass: replace provisional labels with consecutive final
+		// labels
+		final int[] finalLabel = new int[next];
+		int count = 0;
+		for (int y = 0; y < h; y++) {
+			final int[] lrow = labels[y];
+			for (int x = 0; x < w; x++) {
+				final int l = lrow[x];
+				if (l != 0) {
+					final int root = find(parent, l);
+					if (finalLabel[root] == 0)
+						finalLabel[root] = ++count;
+					lrow[x] = finalLabel[root];
+				}
+			}
+		}
+
+		return new LabelledComponents(labels, count);
+	}
+
+	private static int find(int[] parent, int l) {
+		while (parent[l] != l) {
+			parent[l] = parent[parent[l]];
+			l = parent[l];
+		}
+		return l;
+	}
+
+	/**
+	 * Merge the sets containing the two labels (either of which may be 0,
+	 * meaning no label) and return the root of the merged set.
+	 */
+	private static int union(int[] parent, int a, int b) {
+		if (b == 0)
+			return a;
+		b = find(parent, b);
+		if (a == 0)
+			return b;
+		a = find(parent, a);
+
+		if (a < b) {
+			parent[b] = a;
+			return a;
+		}
+		parent[a] = b;
+		return b;
+	}
+
+	/**
+	 * @return the number of components
+	 */
+	public int getNumComponents() {
+		return numComponents;
+	}
+
+	/**
+	 * @return the width of the label image
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * @return the height of the label image
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Get the underlying label image. Background pixels have a label of 0.
+	 * Changes to the returned array will not be reflected in the statistics of
+	 * the components.
+	 * 
+	 * @return the label image
+	 */
+	public int[][] getLabels() {
+		return labels;
+	}
+
+	/**
+	 * Get the label of the given pixel
+	 * 
+	 * @param x
+	 *            the x-ordinate
+	 * @param y
+	 *            the y-ordinate
+	 * @return the label, or 0 if the pixel is background
+	 */
+	public int getLabel(int x, int y) {
+		return labels[y][x];
+	}
+
+	/**
+	 * Report each horizontal run of pixels of the given component to the
+	 * listener. Runs are reported in raster order.
+	 * 
+	 * @param label
+	 *            the component label
+	 * @param listener
+	 *            the listener
+	 */
+	public void processRuns(int label, ScanLineListener listener) {
+		checkLabel(label);
+		for (int r = 3 * runOffsets[label], end = 3 * runOffsets[label + 1]; r < end; r += 3)
+			listener.process(runs[r + 1], runs[r + 2], runs[r]);
+	}
+
+	/**
+	 * Get the number of horizontal runs of pixels that make up the given
+	 * component.
+	 * 
+	 * @param label
+	 *            the component label
+	 * @return the number of runs
+	 */
+	public int getNumRuns(int label) {
+		checkLabel(label);
+		return runOffsets[label + 1] - runOffsets[label];
+	}
+
+	/**
+	 * Create a {@link ConnectedComponent} containing the pixels of the given
+	 * component. A new {@link ConnectedComponent} is created on each call.
+	 * 
+	 * @param label
+	 *            the component label
+	 * @return the component
+	 */
+	public ConnectedComponent getComponent(int label) {
+		final ConnectedComponent cc = new ConnectedComponent();
+		processRuns(label, new ScanLineListener() {
+			@Override
+			public void process(int x1, int x2, int y) {
+				for (int x = x1; x <= x2; x++)
+					cc.addPixel(x, y);
+			}
+		});
+		return cc;
+	}
+
+	/**
+	 * Get a list view of the components. The component at index
+	 * <code>i</code> has label <code>i+1</code>. {@link ConnectedComponent}s
+	 * are created on demand each time an element of the list is accessed.
+	 * 
+	 * @return a list view of the components
+	 */
+	public List<ConnectedComponent> getComponents() {
+		return new AbstractList<ConnectedComponent>() {
+			@Override
+			public ConnectedComponent get(int index) {
+				if (index < 0 || index >= numComponents)
+					throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + numComponents);
+				return getComponent(index + 1);
+			}
+
+			@Override
+			public int size() {
+				return numComponents;
+			}
+		};
+	}
+
+	/**
+	 * Create a binary mask of the given component the same size as the label
+	 * image. Pixels of the component have a value of 1.
+	 * 
+	 * @param label
+	 *            the component label
+	 * @return the mask
+	 */
+	public FImage getMask(int label) {
+		final FImage mask = new FImage(width, height);
+		processRuns(label, new ScanLineListener() {
+			@Override
+			public void process(int x1, int x2, int y) {
+				Arrays.fill(mask.pixels[y], x1, x2 + 1, 1f);
+			}
+		});
+		return mask;
+	}
+
+	/**
+	 * Get the area of the given component in pixels.
+	 * 
+	 * @see PixelSet#calculateArea()
+	 * 
+	 * @param label
+	 *            the component label
+	 * @return the area
+	 */
+	public int calculateArea(int label) {
+		checkLabel(label);
+		return area[label];
+	}
+
+	/**
+	 * Get the centroid of the given component as a double array (x then y).
+	 * 
+	 * @see PixelSet#calculateCentroid()
+	 * 
+	 * @param label
+	 *            the component label
+	 * @return the centroid
+	 */
+	public double[] calculateCentroid(int label) {
+		checkLabel(label);
+		return new double[] { (double) sumX[label] / area[label], (double) sumY[label] / area[label] };
+	}
+
+	/**
+	 * Get the regular bounding box of the given component. As with
+	 * {@link PixelSet#calculateRegularBoundingBox()} the width and height are
+	 * the differences between the maximum and minimum coordinates.
+	 * 
+	 * @param label
+	 *            the component label
+	 * @return the bounding box
+	 */
+	public Rectangle calculateRegularBoundingBox(int label) {
+		checkLabel(label);
+		return new Rectangle(minX[label], minY[label], maxX[label] - minX[label], maxY[label] - minY[label]);
+	}
+
+	/**
+	 * Calculate the pq central moment, μ<sub>pq</sub> of the given component.
+	 * Moments up to third order are computed together in a single pass over
+	 * the component the first time any of them is requested and are cached.
+	 * 
+	 * @see PixelSet#calculateMoment(int, int)
+	 * 
+	 * @param label
+	 *            the component label
+	 * @param p
+	 *            The P moment to calculate
+	 * @param q
+	 *            The Q moment to calculate
+	 * @return The pq moment
+	 */
+	public double calculateMoment(int label, int p, int q) {
+		if (p == 0 && q == 0)
+			return calculateArea(label);
+
+		if (p + q <= 3)
+			return centralMoments(label)[p][q];
+
+		final double[] centroid = calculateCentroid(label);
+		double mpq = 0;
+		for (int r = 3 * runOffsets[label], end = 3 * runOffsets[label + 1]; r < end; r += 3) {
+			final double dy = Math.pow(runs[r] - centroid[1], q);
+			for (int x = runs[r + 1]; x <= runs[r + 2]; x++)
+				mpq += Math.pow(x - centroid[0], p) * dy;
+		}
+		return mpq;
+	}
+
+	/**
+	 * Calculate the normalized, unscaled, central moments η<sub>pq</sub> of
+	 * the given component.
+	 * 
+	 * @see PixelSet#calculateMomentNormalised(int, int)
+	 * 
+	 * @param label
+	 *            the component label
+	 * @param p
+	 *            The P moment to calculate
+	 * @param q
+	 *            The Q moment to calculate
+	 * @return The normalised, unscaled central moment
+	 */
+	public double calculateMomentNormalised(int label, int p, int q) {
+		final double gamma = ((p + q) / 2) + 1;
+		return calculateMoment(label, p, q) / Math.pow(calculateArea(label), gamma);
+	}
+
+	/**
+	 * Calculates the principle direction of the given component.
+	 * 
+	 * @see PixelSet#calculateDirection()
+	 * 
+	 * @param label
+	 *            the component label
+	 * @return The principle direction (-PI/2 to +PI/2 radians) of the
+	 *         component.
+	 */
+	public double calculateDirection(int label) {
+		final double[][] mu = centralMoments(label);
+		return 0.5 * Math.atan2(2 * mu[1][1], mu[2][0] - mu[0][2]);
+	}
+
+	private synchronized double[][] centralMoments(int label) {
+		checkLabel(label);
+
+		if (centralMoments[label] != null)
+			return centralMoments[label];
+
+		final double[] centroid = calculateCentroid(label);
+		final double cx = centroid[0];
+		final double cy = centroid[1];
+		double m11 = 0, m20 = 0, m02 = 0, m21 = 0, m12 = 0, m30 = 0, m03 = 0, m10 = 0, m01 = 0;
+
+		for (int r = 3 * runOffsets[label], end = 3 * runOffsets[label + 1]; r < end; r += 3) {
+			final double dy = runs[r] - cy;
+			final double dy2 = dy * dy;
+			final int n = runs[r + 2] - runs[r + 1] + 1;
+
+			double sx = 0, sx2 = 0, sx3 = 0;
+			for (int x = runs[r + 1]; x <= runs[r + 2]; x++) {
+				final double dx = x - cx;
+				final double dx2 = dx * dx;
+				sx += dx;
+				sx2 += dx2;
+				sx3 += dx2 * dx;
+			}
+
+			m10 += sx;
+			m01 += n * dy;
+			m11 += sx * dy;
+			m20 += sx2;
+			m02 += n * dy2;
+			m21 += sx2 * dy;
+			m12 += sx * dy2;
+			m30 += sx3;
+			m03 += n * dy2 * dy;
+		}
+
+		final double[][] mu = new double[4][4];
+		mu[0][0] = area[label];
+		mu[1][0] = m10;
+		mu[0][1] = m01;
+		mu[1][1] = m11;
+		mu[2][0] = m20;
+		mu[0][2] = m02;
+		mu[2][1] = m21;
+		mu[1][2] = m12;
+		mu[3][0] = m30;
+		mu[0][3] = m03;
+
+		return centralMoments[label] = mu;
+	}
+
+	private void checkLabel(int label) {
+		if (label < 1 || label > numComponents)
+			throw new IllegalArgumentException("Invalid component label: " + label);
+	}
+}
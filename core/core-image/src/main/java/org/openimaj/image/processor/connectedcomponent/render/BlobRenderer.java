@@ -31,7 +31,10 @@ package org.openimaj.image.processor.connectedcomponent.render;
 
 import org.openimaj.image.Image;
 import org.openimaj.image.pixel.ConnectedComponent;
+import org.openimaj.image.pixel.LabelledComponents;
 import org.openimaj.image.pixel.Pixel;
+import org.openimaj.image.processor.connectedcomponent.LabelledComponentProcessor;
+import org.openimaj.image.renderer.ScanRasteriser.ScanLineListener;
 
 /**
  *	Draws the connected components as coloured blobs into the given image. 
@@ -40,7 +43,7 @@ import org.openimaj.image.pixel.Pixel;
  *	
  *  @param <T> The type of pixel
  */
-public class BlobRenderer<T> extends AbstractRenderer<T> 
+public class BlobRenderer<T> extends AbstractRenderer<T> implements LabelledComponentProcessor
 {
 	/**
 	 * 	Default constructor that takes the image to draw into and
@@ -76,4 +79,21 @@ public class BlobRenderer<T> extends AbstractRenderer<T>
 			image.setPixel(p.x, p.y, colour);
 		}
 	}
+
+	/**
+	 * 	Draws a labelled component into an image as a coloured blob.
+	 * 
+	 *  {@inheritDoc}
+	 *  @see org.openimaj.image.processor.connectedcomponent.LabelledComponentProcessor#process(org.openimaj.image.pixel.LabelledComponents, int)
+	 */
+	@Override
+	public void process(LabelledComponents components, int label) {
+		components.processRuns(label, new ScanLineListener() {
+			@Override
+			public void process(int x1, int x2, int y) {
+				for (int x = x1; x <= x2; x++)
+					image.setPixel(x, y, colour);
+			}
+		});
+	}
 }
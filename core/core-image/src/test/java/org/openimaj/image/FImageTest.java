@@ -29,7 +29,15 @@
  */
 package org.openimaj.image;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
 import org.junit.Test;
+import org.openimaj.image.analyser.FloatPixelAnalyser;
+import org.openimaj.image.processor.FloatPixelProcessor;
+import org.openimaj.image.processor.KernelProcessor;
+import org.openimaj.image.processor.PixelProcessor;
 
 /**
  * Tests for FImage
@@ -54,4 +62,125 @@ public class FImageTest {
 			}
 		}
 	}
+
+	/**
+	 * Test that the primitive pixel processor path gives the same result as
+	 * the boxed one
+	 */
+	@Test
+	public void testFloatPixelProcessor() {
+		final FImage im = FImage.randomImage(31, 17);
+
+		final FImage boxed = im.process(new PixelProcessor<Float>() {
+			@Override
+			public Float processPixel(Float pixel) {
+				return pixel * 2 + 1;
+			}
+		});
+
+		final FImage prim = im.process(new FloatPixelProcessor() {
+			@Override
+			public float processPixel(float pixel) {
+				return pixel * 2 + 1;
+			}
+
+			@Override
+			public Float processPixel(Float pixel) {
+				throw new AssertionError("boxed method should not be called");
+			}
+		});
+
+		for (int y = 0; y < im.height; y++)
+			assertArrayEquals(boxed.pixels[y], prim.pixels[y], 0f);
+	}
+
+	/**
+	 * Test the primitive pixel analyser path
+	 */
+	@Test
+	public void testFloatPixelAnalyser() {
+		final FImage im = FImage.randomImage(31, 17);
+		final float[] sum = new float[1];
+
+		im.analyseWith(new FloatPixelAnalyser() {
+			@Override
+			public void analysePixel(float pixel) {
+				sum[0] += pixel;
+			}
+
+			@Override
+			public void analysePixel(Float pixel) {
+				throw new AssertionError("boxed method should not be called");
+			}
+
+			@Override
+			public void reset() {
+				sum[0] = 0;
+			}
+		});
+
+		float expected = 0;
+		for (int y = 0; y < im.height; y++)
+			for (int x = 0; x < im.width; x++)
+				expected += im.pixels[y][x];
+
+		assertEquals(expected, sum[0], 0f);
+	}
+
+	/**
+	 * Test copying to and from strided contiguous buffers
+	 */
+	@Test
+	public void testStridedPixelVector() {
+		final FImage im = FImage.randomImage(13, 7);
+		final int stride = 16;
+		final float[] data = im.getFloatPixelVector(new float[3 + stride * im.height], 3, stride);
+
+		final FImage copy = new FImage(data, im.width, im.height, 3, stride);
+		assertEquals(im, copy);
+
+		final FImage assigned = new FImage(im.width, im.height).internalAssign(data, 3, stride);
+		assertEquals(im, assigned);
+
+		assertArrayEquals(im.getFloatPixelVector(), new FImage(im.getFloatPixelVector(), im.width, im.height)
+				.getFloatPixelVector(), 0f);
+	}
+
+	/**
+	 * Test that pooled kernel processing gives the same result as the
+	 * allocating version and recycles its intermediate images
+	 */
+	@Test
+	public void testPooledKernelProcessor() {
+		final KernelProcessor<Float, FImage> box = new KernelProcessor<Float, FImage>() {
+			@Override
+			public int getKernelHeight() {
+				return 3;
+			}
+
+			@Override
+			public int getKernelWidth() {
+				return 3;
+			}
+
+			@Override
+			public Float processKernel(FImage patch) {
+				return patch.sum() / 9;
+			}
+		};
+
+		final FImage im = FImage.randomImage(23, 19);
+		final FImage expected = im.process(box, true);
+
+		final ImagePool<FImage> pool = new ImagePool<FImage>(im);
+		final FImage pooled = im.clone();
+		pooled.processInplace(box, true, pool);
+		assertArrayEquals(expected.getFloatPixelVector(), pooled.getFloatPixelVector(), 0f);
+		assertEquals(2, pool.size());
+
+		final FImage copy = pool.acquireCopy(im);
+		assertArrayEquals(im.getFloatPixelVector(), copy.getFloatPixelVector(), 0f);
+		pool.release(copy);
+		assertSame(copy, pool.acquire(im.width, im.height));
+	}
 }
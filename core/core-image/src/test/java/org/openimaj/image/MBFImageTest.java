@@ -29,6 +29,7 @@
  */
 package org.openimaj.image;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
 import java.io.IOException;
@@ -37,6 +38,8 @@ import java.io.InputStream;
 import org.junit.Before;
 import org.junit.Test;
 import org.openimaj.image.colour.ColourSpace;
+import org.openimaj.image.processor.FloatArrayPixelProcessor;
+import org.openimaj.image.processor.PixelProcessor;
 
 /**
  * Tests for MBFImage
@@ -91,4 +94,36 @@ public class MBFImageTest {
 			}
 		}
 	}
+
+	/**
+	 * Test that the primitive pixel processor path gives the same result as
+	 * the boxed one
+	 */
+	@Test
+	public void testFloatArrayPixelProcessor() {
+		final MBFImage boxed = testImage.process(new PixelProcessor<Float[]>() {
+			@Override
+			public Float[] processPixel(Float[] pixel) {
+				return new Float[] { pixel[2], pixel[1], pixel[0] };
+			}
+		});
+
+		final MBFImage prim = testImage.process(new FloatArrayPixelProcessor() {
+			@Override
+			public void processPixel(float[] pixel) {
+				final float tmp = pixel[0];
+				pixel[0] = pixel[2];
+				pixel[2] = tmp;
+			}
+
+			@Override
+			public Float[] processPixel(Float[] pixel) {
+				throw new AssertionError("boxed method should not be called");
+			}
+		});
+
+		for (int b = 0; b < testImage.numBands(); b++)
+			for (int y = 0; y < testImage.getHeight(); y++)
+				assertArrayEquals(boxed.getBand(b).pixels[y], prim.getBand(b).pixels[y], 0f);
+	}
 }
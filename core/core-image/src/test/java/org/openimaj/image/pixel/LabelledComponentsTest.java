@@ -0,0 +1,148 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.image.pixel;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+import org.openimaj.image.FImage;
+import org.openimaj.image.pixel.ConnectedComponent.ConnectMode;
+
+/**
+ * Tests for {@link LabelledComponents}
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class LabelledComponentsTest {
+	private static FImage randomMask(Random rng, int width, int height) {
+		final FImage mask = new FImage(width, height);
+		for (int y = 0; y < height; y++)
+			for (int x = 0; x < width; x++)
+				mask.pixels[y][x] = rng.nextFloat() < 0.55f ? 1 : 0;
+		return mask;
+	}
+
+	/**
+	 * Find the components by flood filling from each unvisited foreground
+	 * pixel
+	 */
+	private static Set<Set<Pixel>> floodFill(FImage mask, ConnectMode mode) {
+		final Set<Set<Pixel>> components = new HashSet<Set<Pixel>>();
+		final boolean[][] visited = new boolean[mask.height][mask.width];
+
+		for (int y = 0; y < mask.height; y++) {
+			for (int x = 0; x < mask.width; x++) {
+				if (mask.pixels[y][x] == 0 || visited[y][x])
+					continue;
+
+				final Set<Pixel> component = new HashSet<Pixel>();
+				final Deque<Pixel> queue = new ArrayDeque<Pixel>();
+				queue.add(new Pixel(x, y));
+				visited[y][x] = true;
+
+				while (!queue.isEmpty()) {
+					final Pixel p = queue.poll();
+					component.add(p);
+
+					for (final Pixel n : mode.getNeighbours(mask, p.x, p.y, 0)) {
+						if (!visited[n.y][n.x]) {
+							visited[n.y][n.x] = true;
+							queue.add(n);
+						}
+					}
+				}
+				components.add(component);
+			}
+		}
+		return components;
+	}
+
+	/**
+	 * Test that the components match those found by flood filling
+	 */
+	@Test
+	public void testComponents() {
+		final Random rng = new Random(1);
+
+		for (int i = 0; i < 10; i++) {
+			final FImage mask = randomMask(rng, 50 + rng.nextInt(20), 40 + rng.nextInt(20));
+
+			for (final ConnectMode mode : ConnectMode.values()) {
+				final LabelledComponents lc = LabelledComponents.label(mask, 0, mode);
+				final List<ConnectedComponent> components = lc.getComponents();
+
+				final Set<Set<Pixel>> found = new HashSet<Set<Pixel>>();
+				for (final ConnectedComponent cc : components)
+					found.add(cc.getPixels());
+
+				assertEquals(lc.getNumComponents(), components.size());
+				assertEquals(floodFill(mask, mode), found);
+
+				for (int l = 1; l <= lc.getNumComponents(); l++)
+					for (final Pixel p : lc.getComponent(l))
+						assertEquals(l, lc.getLabel(p.x, p.y));
+			}
+		}
+	}
+
+	/**
+	 * Test that the statistics match those computed from the pixels
+	 */
+	@Test
+	public void testStatistics() {
+		final Random rng = new Random(2);
+		final FImage mask = randomMask(rng, 80, 60);
+		final LabelledComponents lc = LabelledComponents.label(mask, 0, ConnectMode.CONNECT_8);
+
+		for (int l = 1; l <= lc.getNumComponents(); l++) {
+			final ConnectedComponent cc = lc.getComponent(l);
+
+			assertEquals(cc.calculateArea(), lc.calculateArea(l));
+			assertEquals(cc.calculateRegularBoundingBox(), lc.calculateRegularBoundingBox(l));
+			assertEquals(cc.calculateCentroid()[0], lc.calculateCentroid(l)[0], 1e-9);
+			assertEquals(cc.calculateCentroid()[1], lc.calculateCentroid(l)[1], 1e-9);
+			assertEquals(cc.calculateDirection(), lc.calculateDirection(l), 1e-9);
+
+			for (int p = 0; p <= 4; p++) {
+				for (int q = 0; p + q <= 4; q++) {
+					final double expected = cc.calculateMoment(p, q);
+					assertEquals(expected, lc.calculateMoment(l, p, q), 1e-9 * (1 + Math.abs(expected)));
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,183 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.math.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import edu.emory.mathcs.jtransforms.fft.FloatFFT_1D;
+import edu.emory.mathcs.jtransforms.fft.FloatFFT_2D;
+
+/**
+ * A cache of JTransforms FFT plans. Constructing a plan computes the twiddle
+ * factor and bit-reversal tables for the transform, which for small
+ * transforms can cost as much as the transform itself; code that repeatedly
+ * performs transforms of the same size (for example, when processing an audio
+ * stream window by window) should obtain its plans from here rather than
+ * constructing new ones.
+ * <p>
+ * 1D plans are immutable once constructed and are shared between all threads.
+ * 2D plans hold internal scratch space, so are cached on a per-thread basis.
+ * Each cache holds at most {@link #MAX_CACHED_PLANS} plans, discarding the
+ * least recently used.
+ * <p>
+ * The class also provides a small number of per-thread work buffers, that can
+ * be used to hold the data being transformed without allocating new arrays
+ * for every transform.
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public final class FFTPlanCache {
+	/**
+	 * The maximum number of plans held in each cache
+	 */
+	public static final int MAX_CACHED_PLANS = 32;
+
+	/**
+	 * The number of work buffers available to each thread
+	 */
+	public static final int NUM_WORK_BUFFERS = 4;
+
+	private static class LRUCache<K, V> extends LinkedHashMap<K, V> {
+		private static final long serialVersionUID = 1L;
+
+		LRUCache() {
+			super(16, 0.75f, true);
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+			return size() > MAX_CACHED_PLANS;
+		}
+	}
+
+	private static final LRUCache<Integer, FloatFFT_1D> float1D = new LRUCache<Integer, FloatFFT_1D>();
+
+	private static final ThreadLocal<LRUCache<Long, FloatFFT_2D>> float2D = new ThreadLocal<LRUCache<Long, FloatFFT_2D>>() {
+		@Override
+		protected LRUCache<Long, FloatFFT_2D> initialValue() {
+			return new LRUCache<Long, FloatFFT_2D>();
+		}
+	};
+
+	private static final ThreadLocal<float[][]> workBuffers = new ThreadLocal<float[][]>() {
+		@Override
+		protected float[][] initialValue() {
+			return new float[NUM_WORK_BUFFERS][0];
+		}
+	};
+
+	private FFTPlanCache() {
+	}
+
+	/**
+	 * Get a plan for a 1D transform of the given size. The returned plan may
+	 * be shared with other threads.
+	 * 
+	 * @param n
+	 *            the size of the transform
+	 * @return the plan
+	 */
+	public static FloatFFT_1D getFloatFFT_1D(int n) {
+		final Integer key = n;
+
+		synchronized (float1D) {
+			final FloatFFT_1D fft = float1D.get(key);
+			if (fft != null)
+				return fft;
+		}
+
+		// construct outside the lock; at worst the plan is built twice
+		final FloatFFT_1D fft = new FloatFFT_1D(n);
+
+		synchronized (float1D) {
+			float1D.put(key, fft);
+		}
+
+		return fft;
+	}
+
+	/**
+	 * Get a plan for a 2D transform of the given size. The returned plan
+	 * belongs to the calling thread, and must not be used by other threads.
+	 * 
+	 * @param rows
+	 *            the number of rows
+	 * @param columns
+	 *            the number of columns
+	 * @return the plan
+	 */
+	public static FloatFFT_2D getFloatFFT_2D(int rows, int columns) {
+		final Long key = ((long) rows << 32) | (columns & 0xffffffffL);
+		final LRUCache<Long, FloatFFT_2D> cache = float2D.get();
+
+		FloatFFT_2D fft = cache.get(key);
+		if (fft == null) {
+			fft = new FloatFFT_2D(rows, columns);
+			cache.put(key, fft);
+		}
+
+		return fft;
+	}
+
+	/**
+	 * Get one of the calling thread's work buffers. The returned array has
+	 * exactly the requested length, and its contents are undefined. The array
+	 * will be returned again by subsequent calls from the same thread with the
+	 * same index and length, so it must not be retained beyond the current
+	 * operation.
+	 * 
+	 * @param index
+	 *            the index of the buffer (0 to {@link #NUM_WORK_BUFFERS}-1)
+	 * @param length
+	 *            the required length
+	 * @return the work buffer
+	 */
+	public static float[] getWorkBuffer(int index, int length) {
+		final float[][] buffers = workBuffers.get();
+
+		if (buffers[index].length != length)
+			buffers[index] = new float[length];
+
+		return buffers[index];
+	}
+
+	/**
+	 * Remove all the shared plans, and all the plans and work buffers
+	 * belonging to the calling thread.
+	 */
+	public static void clear() {
+		synchronized (float1D) {
+			float1D.clear();
+		}
+		float2D.remove();
+		workBuffers.remove();
+	}
+}
@@ -0,0 +1,106 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.math.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import edu.emory.mathcs.jtransforms.fft.FloatFFT_1D;
+import edu.emory.mathcs.jtransforms.fft.FloatFFT_2D;
+
+/**
+ * Tests for the {@link FFTPlanCache}
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class FFTPlanCacheTest {
+	/**
+	 * Test that 1D plans are reused and give the same result as new plans
+	 */
+	@Test
+	public void test1D() {
+		final FloatFFT_1D fft = FFTPlanCache.getFloatFFT_1D(100);
+		assertSame(fft, FFTPlanCache.getFloatFFT_1D(100));
+		assertNotSame(fft, FFTPlanCache.getFloatFFT_1D(128));
+
+		final Random rng = new Random(0);
+		final float[] data = new float[200];
+		for (int i = 0; i < data.length; i++)
+			data[i] = rng.nextFloat();
+
+		final float[] expected = data.clone();
+		new FloatFFT_1D(100).complexForward(expected);
+		fft.complexForward(data);
+
+		assertArrayEquals(expected, data, 0f);
+	}
+
+	/**
+	 * Test that 2D plans are reused within a thread, but not between threads
+	 * 
+	 * @throws InterruptedException
+	 */
+	@Test
+	public void test2D() throws InterruptedException {
+		final FloatFFT_2D fft = FFTPlanCache.getFloatFFT_2D(10, 20);
+		assertSame(fft, FFTPlanCache.getFloatFFT_2D(10, 20));
+		assertNotSame(fft, FFTPlanCache.getFloatFFT_2D(20, 10));
+
+		final FloatFFT_2D[] other = new FloatFFT_2D[1];
+		final Thread t = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				other[0] = FFTPlanCache.getFloatFFT_2D(10, 20);
+			}
+		});
+		t.start();
+		t.join();
+
+		assertNotSame(fft, other[0]);
+	}
+
+	/**
+	 * Test the work buffers
+	 */
+	@Test
+	public void testWorkBuffers() {
+		final float[] buf = FFTPlanCache.getWorkBuffer(0, 10);
+		assertEquals(10, buf.length);
+		assertSame(buf, FFTPlanCache.getWorkBuffer(0, 10));
+		assertNotSame(buf, FFTPlanCache.getWorkBuffer(1, 10));
+		assertEquals(20, FFTPlanCache.getWorkBuffer(0, 20).length);
+	}
+}
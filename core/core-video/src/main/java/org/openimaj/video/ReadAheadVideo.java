@@ -0,0 +1,538 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.video;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.openimaj.image.Image;
+import org.openimaj.image.ImagePool;
+import org.openimaj.util.concurrent.ArrayBlockingDroppingQueue;
+import org.openimaj.util.concurrent.BlockingDroppingQueue;
+
+/**
+ * A {@link Video} that decodes the frames of another video on a background
+ * thread, so that decoding overlaps with whatever the consumer does with each
+ * frame. When consuming a video offline, the throughput approaches the
+ * slower of decoding and processing, rather than their sum.
+ * <p>
+ * Decoded frames are held in a bounded queue. By default the decoder blocks
+ * when the queue is full (back-pressure), so every frame is delivered. If the
+ * video is created in dropping mode, the decoder never waits and the oldest
+ * queued frame is dropped instead, which is useful for live sources where
+ * the consumer only wants the most recent frames. The number of dropped
+ * frames is available from {@link #getDroppedFrameCount()}.
+ * <p>
+ * Many decoders (for example <code>XuggleVideo</code>) reuse a single buffer
+ * for every frame, so each frame is copied before it is queued. If an
+ * {@link ImagePool} is set the copies are taken from the pool, and frames
+ * which are dropped are released back to it; consumers may also release frames
+ * to the pool once they have finished with them. If the underlying video is
+ * known to return a new image for every frame, copying can be disabled with
+ * {@link #setCopyFrames(boolean)}.
+ * <p>
+ * The timestamp and frame index of each frame are captured when it is
+ * decoded, so {@link #getTimeStamp()} and {@link #getCurrentFrameIndex()}
+ * refer to the frame most recently returned by {@link #getNextFrame()}.
+ * Seeking, setting the frame index and resetting stop the background thread,
+ * discard the queued frames and are then passed on to the underlying video;
+ * decoding resumes at the next request for a frame.
+ *
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ *
+ * @param <T>
+ *            the image type of the frames
+ */
+public class ReadAheadVideo<T extends Image<?, T>> extends Video<T>
+{
+	/** The default number of frames to read ahead */
+	public static final int DEFAULT_CAPACITY = 8;
+
+	/**
+	 * A decoded frame together with its timing information
+	 */
+	private static class Entry<T>
+	{
+		final T frame;
+		final long timestamp;
+		final int index;
+
+		Entry(T frame, long timestamp, int index)
+		{
+			this.frame = frame;
+			this.timestamp = timestamp;
+			this.index = index;
+		}
+	}
+
+	/** Marks the end of the video in the queue */
+	@SuppressWarnings("rawtypes")
+	private static final Entry END = new Entry<Object>(null, -1, -1);
+
+	private final Video<T> video;
+	private final int capacity;
+	private final BlockingQueue<Entry<T>> blockingQueue;
+	private final BlockingDroppingQueue<Entry<T>> droppingQueue;
+
+	private ImagePool<T> pool;
+	private boolean copyFrames = true;
+
+	private Thread decoder;
+	private volatile boolean stopped;
+	private volatile Throwable error;
+
+	private Entry<T> pending;
+	private boolean finished;
+	private T current;
+	private long timestamp;
+
+	/**
+	 * Construct a read-ahead video that reads up to
+	 * {@link #DEFAULT_CAPACITY} frames ahead of the consumer, and blocks when
+	 * the queue is full.
+	 *
+	 * @param video
+	 *            the video to read
+	 */
+	public ReadAheadVideo(Video<T> video)
+	{
+		this(video, DEFAULT_CAPACITY, false);
+	}
+
+	/**
+	 * Construct a read-ahead video.
+	 *
+	 * @param video
+	 *            the video to read
+	 * @param capacity
+	 *            the maximum number of frames to hold in the queue
+	 * @param dropFrames
+	 *            if true the oldest queued frame is dropped when the queue is
+	 *            full; if false the decoder waits for space in the queue
+	 */
+	public ReadAheadVideo(Video<T> video, int capacity, boolean dropFrames)
+	{
+		if (capacity <= 0)
+			throw new IllegalArgumentException("Capacity must be positive");
+
+		this.video = video;
+		this.capacity = capacity;
+
+		if (dropFrames)
+		{
+			this.droppingQueue = new ArrayBlockingDroppingQueue<Entry<T>>(capacity);
+			this.blockingQueue = null;
+		}
+		else
+		{
+			this.blockingQueue = new ArrayBlockingQueue<Entry<T>>(capacity);
+			this.droppingQueue = null;
+		}
+	}
+
+	/**
+	 * Get the underlying video
+	 *
+	 * @return the underlying video
+	 */
+	public Video<T> getVideo()
+	{
+		return video;
+	}
+
+	/**
+	 * Get the maximum number of frames held in the queue
+	 *
+	 * @return the capacity of the queue
+	 */
+	public int getCapacity()
+	{
+		return capacity;
+	}
+
+	/**
+	 * Is this video dropping frames when the queue is full?
+	 *
+	 * @return true if frames are dropped; false if the decoder blocks
+	 */
+	public boolean isDroppingFrames()
+	{
+		return droppingQueue != null;
+	}
+
+	/**
+	 * Get the number of frames that have been dropped because the queue was
+	 * full. This is always zero if the video isn't dropping frames.
+	 *
+	 * @return the number of dropped frames
+	 */
+	public long getDroppedFrameCount()
+	{
+		return droppingQueue == null ? 0 : droppingQueue.dropCount();
+	}
+
+	/**
+	 * Set the pool from which copies of the decoded frames are taken. Must be
+	 * called before any frames are read.
+	 *
+	 * @param pool
+	 *            the pool, or null to clone frames
+	 */
+	public void setImagePool(ImagePool<T> pool)
+	{
+		this.pool = pool;
+	}
+
+	/**
+	 * Get the pool from which copies of the decoded frames are taken
+	 *
+	 * @return the pool, or null if frames are cloned
+	 */
+	public ImagePool<T> getImagePool()
+	{
+		return pool;
+	}
+
+	/**
+	 * Set whether the decoded frames are copied before they are queued. This
+	 * must be left enabled if the underlying video reuses its frame buffers.
+	 * Must be called before any frames are read.
+	 *
+	 * @param copyFrames
+	 *            true to copy frames
+	 */
+	public void setCopyFrames(boolean copyFrames)
+	{
+		this.copyFrames = copyFrames;
+	}
+
+	/**
+	 * Are the decoded frames copied before they are queued?
+	 *
+	 * @return true if frames are copied
+	 */
+	public boolean isCopyingFrames()
+	{
+		return copyFrames;
+	}
+
+	private T copy(T frame)
+	{
+		if (!copyFrames)
+			return frame;
+		if (pool != null)
+			return pool.acquireCopy(frame);
+		return frame.clone();
+	}
+
+	private void release(Entry<T> entry)
+	{
+		if (entry != null && entry != END && copyFrames && pool != null)
+			pool.release(entry.frame);
+	}
+
+	/**
+	 * Add an entry to the queue, waiting for space if necessary.
+	 *
+	 * @return false if the decoder was stopped whilst waiting
+	 */
+	private boolean enqueue(Entry<T> entry) throws InterruptedException
+	{
+		if (droppingQueue != null)
+		{
+			release(droppingQueue.put(entry));
+			return true;
+		}
+
+		while (!stopped)
+		{
+			if (blockingQueue.offer(entry, 50, TimeUnit.MILLISECONDS))
+				return true;
+		}
+		return false;
+	}
+
+	private Entry<T> take() throws InterruptedException
+	{
+		if (droppingQueue != null)
+			return droppingQueue.take();
+		return blockingQueue.take();
+	}
+
+	private void clearQueue()
+	{
+		Entry<T> entry;
+		if (droppingQueue != null)
+		{
+			while ((entry = droppingQueue.poll()) != null)
+				release(entry);
+		}
+		else
+		{
+			while ((entry = blockingQueue.poll()) != null)
+				release(entry);
+		}
+	}
+
+	/**
+	 * Start the decoder thread if it isn't running
+	 */
+	@SuppressWarnings("unchecked")
+	private void start()
+	{
+		if (decoder != null)
+			return;
+
+		stopped = false;
+		error = null;
+		decoder = new Thread(new Runnable() {
+			@Override
+			public void run()
+			{
+				try
+				{
+					while (!stopped)
+					{
+						final T frame = video.getNextFrame();
+
+						if (frame == null)
+						{
+							enqueue(END);
+							return;
+						}
+
+						final Entry<T> entry = new Entry<T>(copy(frame), video.getTimeStamp(),
+								video.getCurrentFrameIndex());
+
+						if (!enqueue(entry))
+							release(entry);
+					}
+				}
+				catch (final Throwable t)
+				{
+					error = t;
+					try
+					{
+						enqueue(END);
+					}
+					catch (final InterruptedException e)
+					{
+						// ignore; the consumer will see the error when it stops
+					}
+				}
+			}
+		}, "ReadAheadVideo decoder");
+		decoder.setDaemon(true);
+		decoder.start();
+	}
+
+	/**
+	 * Stop the decoder thread and discard any queued frames
+	 */
+	private void stop()
+	{
+		if (decoder != null)
+		{
+			stopped = true;
+			clearQueue();
+
+			boolean interrupted = false;
+			while (decoder.isAlive())
+			{
+				try
+				{
+					decoder.join();
+				}
+				catch (final InterruptedException e)
+				{
+					interrupted = true;
+				}
+			}
+			if (interrupted)
+				Thread.currentThread().interrupt();
+
+			decoder = null;
+		}
+
+		clearQueue();
+		release(pending);
+		pending = null;
+		finished = false;
+	}
+
+	/**
+	 * Get the next entry from the queue, starting the decoder if necessary.
+	 */
+	@SuppressWarnings("unchecked")
+	private Entry<T> nextEntry()
+	{
+		if (pending != null)
+		{
+			final Entry<T> e = pending;
+			pending = null;
+			return e;
+		}
+
+		if (finished)
+			return END;
+
+		start();
+
+		try
+		{
+			final Entry<T> e = take();
+
+			if (e == END)
+			{
+				finished = true;
+
+				if (error != null)
+					throw new RuntimeException("Error decoding video", error);
+			}
+
+			return e;
+		}
+		catch (final InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public synchronized T getNextFrame()
+	{
+		final Entry<T> e = nextEntry();
+
+		if (e == END)
+			return null;
+
+		this.current = e.frame;
+		this.timestamp = e.timestamp;
+		this.currentFrame = e.index;
+
+		return this.current;
+	}
+
+	@Override
+	public synchronized T getCurrentFrame()
+	{
+		if (this.current == null)
+			return getNextFrame();
+		return this.current;
+	}
+
+	@Override
+	public synchronized boolean hasNextFrame()
+	{
+		if (pending == null)
+			pending = nextEntry();
+
+		return pending != END;
+	}
+
+	@Override
+	public int getWidth()
+	{
+		return video.getWidth();
+	}
+
+	@Override
+	public int getHeight()
+	{
+		return video.getHeight();
+	}
+
+	@Override
+	public synchronized long getTimeStamp()
+	{
+		return timestamp;
+	}
+
+	@Override
+	public double getFPS()
+	{
+		return video.getFPS();
+	}
+
+	@Override
+	public long countFrames()
+	{
+		return video.countFrames();
+	}
+
+	/**
+	 * Take the current frame and its timing from the underlying video after it
+	 * has been repositioned
+	 */
+	private void syncWithVideo()
+	{
+		final T frame = video.getCurrentFrame();
+
+		this.current = frame == null ? null : copy(frame);
+		this.timestamp = video.getTimeStamp();
+		this.currentFrame = video.getCurrentFrameIndex();
+	}
+
+	@Override
+	public synchronized void setCurrentFrameIndex(long newFrame)
+	{
+		stop();
+		video.setCurrentFrameIndex(newFrame);
+		syncWithVideo();
+	}
+
+	@Override
+	public synchronized void seek(double timestamp)
+	{
+		stop();
+		video.seek(timestamp);
+		syncWithVideo();
+	}
+
+	@Override
+	public synchronized void reset()
+	{
+		stop();
+		video.reset();
+
+		this.current = null;
+		this.timestamp = 0;
+		this.currentFrame = 0;
+	}
+
+	@Override
+	public synchronized void close()
+	{
+		stop();
+		video.close();
+	}
+}
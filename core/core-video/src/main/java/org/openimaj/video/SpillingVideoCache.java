@@ -0,0 +1,710 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.video;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openimaj.image.FImage;
+import org.openimaj.image.Image;
+import org.openimaj.image.MBFImage;
+import org.openimaj.image.colour.ColourSpace;
+import org.openimaj.video.timecode.VideoTimecode;
+
+/**
+ * A {@link VideoCache} with a bounded memory footprint. The most recently
+ * added or accessed frames are held in memory up to a given budget (in
+ * bytes); older frames are written to a memory-mapped temporary file and read
+ * back on demand. This allows whole films to be cached for random access
+ * without exhausting the heap.
+ * <p>
+ * Frames are stored on disk in a raw fixed-size layout, described by a
+ * {@link FrameLayout}, so the position of any frame in the file can be
+ * computed directly from its index. Layouts are provided for {@link FImage}s
+ * and {@link MBFImage}s, stored either as floats (lossless) or as bytes (a
+ * quarter of the size, but quantised to 256 levels). All frames must have the
+ * width and height given to the constructor.
+ * <p>
+ * Frames returned by {@link #getFrame(int)} may be shared with the cache and
+ * should not be modified. Once a frame has been spilled it is not written
+ * again, so changes made to a frame after it has been added might be lost.
+ * The temporary file is deleted by {@link #close()}, or on exit if the cache
+ * is not closed.
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ * 
+ * @param <I>
+ *            The type of video frames to be cached
+ */
+public class SpillingVideoCache<I extends Image<?, I>> extends VideoCache<I>
+{
+	/**
+	 * Describes how frames are stored in the spill file. Every frame of a
+	 * given width and height must occupy the same number of bytes.
+	 * 
+	 * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+	 * 
+	 * @param <I>
+	 *            The type of video frames
+	 */
+	public interface FrameLayout<I extends Image<?, I>>
+	{
+		/**
+		 * Get the number of bytes required to store a frame on disk
+		 * 
+		 * @param width
+		 *            the frame width
+		 * @param height
+		 *            the frame height
+		 * @return the size of a stored frame in bytes
+		 */
+		public long getStoredSize(int width, int height);
+
+		/**
+		 * Get the approximate number of bytes a frame occupies in memory
+		 * 
+		 * @param width
+		 *            the frame width
+		 * @param height
+		 *            the frame height
+		 * @return the size of a frame in memory in bytes
+		 */
+		public long getMemorySize(int width, int height);
+
+		/**
+		 * Write a frame into the given buffer, starting at its current
+		 * position.
+		 * 
+		 * @param frame
+		 *            the frame
+		 * @param buffer
+		 *            the buffer to write to
+		 */
+		public void write(I frame, ByteBuffer buffer);
+
+		/**
+		 * Read a frame from the given buffer, starting at its current
+		 * position.
+		 * 
+		 * @param buffer
+		 *            the buffer to read from
+		 * @param width
+		 *            the frame width
+		 * @param height
+		 *            the frame height
+		 * @return the frame
+		 */
+		public I read(ByteBuffer buffer, int width, int height);
+	}
+
+	/**
+	 * {@link FrameLayout} that stores {@link FImage}s as 32-bit floats.
+	 */
+	public static final FrameLayout<FImage> FIMAGE_FLOAT = new FrameLayout<FImage>() {
+		@Override
+		public long getStoredSize(int width, int height)
+		{
+			return 4L * width * height;
+		}
+
+		@Override
+		public long getMemorySize(int width, int height)
+		{
+			return 4L * width * height;
+		}
+
+		@Override
+		public void write(FImage frame, ByteBuffer buffer)
+		{
+			writeFloats(frame, buffer);
+		}
+
+		@Override
+		public FImage read(ByteBuffer buffer, int width, int height)
+		{
+			return readFloats(buffer, new FImage(width, height));
+		}
+	};
+
+	/**
+	 * {@link FrameLayout} that stores {@link FImage}s as bytes. Pixel values
+	 * are assumed to lie in the range 0..1 and are quantised to 256 levels.
+	 */
+	public static final FrameLayout<FImage> FIMAGE_BYTE = new FrameLayout<FImage>() {
+		@Override
+		public long getStoredSize(int width, int height)
+		{
+			return (long) width * height;
+		}
+
+		@Override
+		public long getMemorySize(int width, int height)
+		{
+			return 4L * width * height;
+		}
+
+		@Override
+		public void write(FImage frame, ByteBuffer buffer)
+		{
+			writeBytes(frame, buffer);
+		}
+
+		@Override
+		public FImage read(ByteBuffer buffer, int width, int height)
+		{
+			return readBytes(buffer, new FImage(width, height));
+		}
+	};
+
+	/**
+	 * {@link FrameLayout} that stores RGB {@link MBFImage}s as 32-bit floats.
+	 */
+	public static final FrameLayout<MBFImage> MBFIMAGE_RGB_FLOAT = mbfImageFloatLayout(ColourSpace.RGB);
+
+	/**
+	 * {@link FrameLayout} that stores RGB {@link MBFImage}s as bytes.
+	 */
+	public static final FrameLayout<MBFImage> MBFIMAGE_RGB_BYTE = mbfImageByteLayout(ColourSpace.RGB);
+
+	/**
+	 * The default amount of memory used for holding frames (256MB)
+	 */
+	public static final long DEFAULT_MEMORY_BUDGET = 256L * 1024 * 1024;
+
+	/** The maximum size of each mapped region of the spill file */
+	private static final long MAX_REGION_SIZE = 256L * 1024 * 1024;
+
+	private final FrameLayout<I> layout;
+	private final int frameSize;
+	private final int framesPerRegion;
+	private final int maxFramesInMemory;
+
+	/** Frames held in memory, in least-recently used order */
+	private final LinkedHashMap<Integer, I> recent;
+
+	/** Whether each frame has been written to the spill file */
+	private final List<Boolean> spilled = new ArrayList<Boolean>();
+
+	private final List<MappedByteBuffer> regions = new ArrayList<MappedByteBuffer>();
+	private File spillFile;
+	private RandomAccessFile raf;
+	private FileChannel channel;
+
+	/**
+	 * Create a video cache for frames of the given size and for a video of
+	 * the given frame rate, using the default memory budget.
+	 * 
+	 * @param width
+	 *            The width of the video frames
+	 * @param height
+	 *            The height of the video frames
+	 * @param frameRate
+	 *            The frame rate of the video
+	 * @param layout
+	 *            The layout of frames in the spill file
+	 */
+	public SpillingVideoCache(int width, int height, double frameRate, FrameLayout<I> layout)
+	{
+		this(width, height, frameRate, layout, DEFAULT_MEMORY_BUDGET);
+	}
+
+	/**
+	 * Create a video cache for frames of the given size and for a video of
+	 * the given frame rate. At least one frame is always held in memory,
+	 * regardless of the budget.
+	 * 
+	 * @param width
+	 *            The width of the video frames
+	 * @param height
+	 *            The height of the video frames
+	 * @param frameRate
+	 *            The frame rate of the video
+	 * @param layout
+	 *            The layout of frames in the spill file
+	 * @param memoryBudget
+	 *            The maximum number of bytes of frames to hold in memory
+	 */
+	public SpillingVideoCache(int width, int height, double frameRate, FrameLayout<I> layout, long memoryBudget)
+	{
+		super(width, height, frameRate);
+
+		final long stored = layout.getStoredSize(width, height);
+		if (stored > MAX_REGION_SIZE)
+			throw new IllegalArgumentException("Frames are too large to be spilled: " + stored + " bytes");
+
+		this.layout = layout;
+		this.frameSize = (int) stored;
+		this.framesPerRegion = (int) (MAX_REGION_SIZE / Math.max(1, frameSize));
+		this.maxFramesInMemory = (int) Math.min(Integer.MAX_VALUE,
+				Math.max(1, memoryBudget / Math.max(1, layout.getMemorySize(width, height))));
+
+		this.recent = new LinkedHashMap<Integer, I>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, I> eldest)
+			{
+				if (size() <= maxFramesInMemory)
+					return false;
+
+				spill(eldest.getKey(), eldest.getValue());
+				return true;
+			}
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see org.openimaj.video.VideoCache#addFrame(org.openimaj.image.Image)
+	 */
+	@Override
+	public synchronized void addFrame(I frame)
+	{
+		if (frame.getWidth() != width || frame.getHeight() != height)
+			throw new IllegalArgumentException("Frame size " + frame.getWidth() + "x" + frame.getHeight()
+					+ " does not match the cache size " + width + "x" + height);
+
+		final int index = spilled.size();
+		spilled.add(Boolean.FALSE);
+		recent.put(index, frame);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see org.openimaj.video.VideoCache#getNumberOfFrames()
+	 */
+	@Override
+	public synchronized int getNumberOfFrames()
+	{
+		return spilled.size();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * If the frame is not in memory it is read from the spill file, and
+	 * becomes the most recently used frame.
+	 * 
+	 * @see org.openimaj.video.VideoCache#getFrame(int)
+	 */
+	@Override
+	public synchronized I getFrame(int i)
+	{
+		if (i < 0 || i >= spilled.size())
+			throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + spilled.size());
+
+		I frame = recent.get(i);
+		if (frame == null) {
+			frame = layout.read(frameBuffer(i), width, height);
+			recent.put(i, frame);
+		}
+		return frame;
+	}
+
+	/**
+	 * Returns the number of frames currently held in memory.
+	 * 
+	 * @return the number of frames held in memory
+	 */
+	public synchronized int getNumberOfFramesInMemory()
+	{
+		return recent.size();
+	}
+
+	/**
+	 * Returns an {@link ArrayBackedVideo} that reads its frames from this
+	 * cache, so it supports random access without loading every frame into
+	 * memory.
+	 * 
+	 * @return An {@link ArrayBackedVideo}
+	 */
+	@Override
+	public ArrayBackedVideo<I> getArrayBackedVideo()
+	{
+		return new CacheBackedVideo<I>(this, frameRate);
+	}
+
+	/**
+	 * Clears the cache. The spill file is kept and reused.
+	 * 
+	 * @see org.openimaj.video.VideoCache#reset()
+	 */
+	@Override
+	public synchronized void reset()
+	{
+		recent.clear();
+		spilled.clear();
+	}
+
+	/**
+	 * Clear the cache and delete the spill file. The cache can still be used
+	 * after it has been closed; a new spill file will be created if required.
+	 */
+	public synchronized void close()
+	{
+		reset();
+		regions.clear();
+
+		if (channel != null) {
+			try {
+				raf.close();
+			} catch (final IOException e) {
+				// ignore
+			}
+			spillFile.delete();
+
+			channel = null;
+			raf = null;
+			spillFile = null;
+		}
+	}
+
+	/**
+	 * Get the spill file, if one has been created
+	 * 
+	 * @return the spill file, or null
+	 */
+	synchronized File getSpillFile()
+	{
+		return spillFile;
+	}
+
+	/**
+	 * Write a frame to the spill file, unless it is already there
+	 */
+	private void spill(int index, I frame)
+	{
+		if (spilled.get(index))
+			return;
+
+		layout.write(frame, frameBuffer(index));
+		spilled.set(index, Boolean.TRUE);
+	}
+
+	/**
+	 * Get a buffer positioned at the start of the given frame in the spill
+	 * file, mapping more of the file if necessary.
+	 */
+	private ByteBuffer frameBuffer(int index)
+	{
+		final int region = index / framesPerRegion;
+
+		try {
+			if (channel == null) {
+				spillFile = File.createTempFile("openimaj-videocache", ".raw");
+				spillFile.deleteOnExit();
+				raf = new RandomAccessFile(spillFile, "rw");
+				channel = raf.getChannel();
+			}
+
+			while (regions.size() <= region) {
+				final long regionSize = (long) framesPerRegion * frameSize;
+				regions.add(channel.map(FileChannel.MapMode.READ_WRITE, regions.size() * regionSize, regionSize));
+			}
+		} catch (final IOException e) {
+			throw new RuntimeException("Unable to map the video cache spill file", e);
+		}
+
+		final ByteBuffer buffer = regions.get(region).duplicate();
+		buffer.position((index % framesPerRegion) * frameSize);
+		buffer.limit(buffer.position() + frameSize);
+
+		return buffer.slice().order(ByteOrder.nativeOrder());
+	}
+
+	/**
+	 * Create a {@link FrameLayout} that stores {@link MBFImage}s with the given
+	 * colour space as 32-bit floats.
+	 * 
+	 * @param colourSpace
+	 *            the colour space of the frames
+	 * @return the layout
+	 */
+	public static FrameLayout<MBFImage> mbfImageFloatLayout(final ColourSpace colourSpace)
+	{
+		final int nbands = colourSpace.getNumBands();
+
+		return new FrameLayout<MBFImage>() {
+			@Override
+			public long getStoredSize(int width, int height)
+			{
+				return 4L * nbands * width * height;
+			}
+
+			@Override
+			public long getMemorySize(int width, int height)
+			{
+				return 4L * nbands * width * height;
+			}
+
+			@Override
+			public void write(MBFImage frame, ByteBuffer buffer)
+			{
+				for (int b = 0; b < nbands; b++)
+					writeFloats(frame.getBand(b), buffer);
+			}
+
+			@Override
+			public MBFImage read(ByteBuffer buffer, int width, int height)
+			{
+				final MBFImage frame = new MBFImage(width, height, colourSpace);
+				for (int b = 0; b < nbands; b++)
+					readFloats(buffer, frame.getBand(b));
+				return frame;
+			}
+		};
+	}
+
+	/**
+	 * Create a {@link FrameLayout} that stores {@link MBFImage}s with the given
+	 * colour space as bytes. Pixel values are assumed to lie in the range 0..1
+	 * and are quantised to 256 levels.
+	 * 
+	 * @param colourSpace
+	 *            the colour space of the frames
+	 * @return the layout
+	 */
+	public static FrameLayout<MBFImage> mbfImageByteLayout(final ColourSpace colourSpace)
+	{
+		final int nbands = colourSpace.getNumBands();
+
+		return new FrameLayout<MBFImage>() {
+			@Override
+			public long getStoredSize(int width, int height)
+			{
+				return (long) nbands * width * height;
+			}
+
+			@Override
+			public long getMemorySize(int width, int height)
+			{
+				return 4L * nbands * width * height;
+			}
+
+			@Override
+			public void write(MBFImage frame, ByteBuffer buffer)
+			{
+				for (int b = 0; b < nbands; b++)
+					writeBytes(frame.getBand(b), buffer);
+			}
+
+			@Override
+			public MBFImage read(ByteBuffer buffer, int width, int height)
+			{
+				final MBFImage frame = new MBFImage(width, height, colourSpace);
+				for (int b = 0; b < nbands; b++)
+					readBytes(buffer, frame.getBand(b));
+				return frame;
+			}
+		};
+	}
+
+	private static void writeFloats(FImage image, ByteBuffer buffer)
+	{
+		final FloatBuffer fb = buffer.asFloatBuffer();
+		for (int y = 0; y < image.height; y++)
+			fb.put(image.pixels[y], 0, image.width);
+		buffer.position(buffer.position() + 4 * image.width * image.height);
+	}
+
+	private static FImage readFloats(ByteBuffer buffer, FImage image)
+	{
+		final FloatBuffer fb = buffer.asFloatBuffer();
+		for (int y = 0; y < image.height; y++)
+			fb.get(image.pixels[y], 0, image.width);
+		buffer.position(buffer.position() + 4 * image.width * image.height);
+		return image;
+	}
+
+	private static void writeBytes(FImage image, ByteBuffer buffer)
+	{
+		for (int y = 0; y < image.height; y++) {
+			final float[] row = image.pixels[y];
+			for (int x = 0; x < image.width; x++) {
+				final float v = row[x];
+				buffer.put((byte) (v <= 0 ? 0 : v >= 1 ? 255 : Math.round(v * 255)));
+			}
+		}
+	}
+
+	private static FImage readBytes(ByteBuffer buffer, FImage image)
+	{
+		for (int y = 0; y < image.height; y++) {
+			final float[] row = image.pixels[y];
+			for (int x = 0; x < image.width; x++)
+				row[x] = (buffer.get() & 0xff) / 255f;
+		}
+		return image;
+	}
+
+	/**
+	 * Cache the whole of the given video.
+	 * 
+	 * @param <I>
+	 *            The type of the video frames
+	 * @param video
+	 *            The video to cache
+	 * @param layout
+	 *            The layout of frames in the spill file
+	 * @param memoryBudget
+	 *            The maximum number of bytes of frames to hold in memory
+	 * @return A {@link SpillingVideoCache}
+	 */
+	public static <I extends Image<?, I>> SpillingVideoCache<I> cacheVideo(Video<I> video, FrameLayout<I> layout,
+			long memoryBudget)
+	{
+		final SpillingVideoCache<I> vc = new SpillingVideoCache<I>(video.getWidth(),
+				video.getHeight(), video.getFPS(), layout, memoryBudget);
+		video.reset();
+		while (video.hasNextFrame())
+			vc.addFrame(video.getNextFrame().clone());
+		return vc;
+	}
+
+	/**
+	 * Cache the given time range from the given video.
+	 * 
+	 * @param <I>
+	 *            The type of the video frames
+	 * @param video
+	 *            The video to cache
+	 * @param start
+	 *            The start of the video to cache
+	 * @param end
+	 *            The end of the video to cache
+	 * @param layout
+	 *            The layout of frames in the spill file
+	 * @param memoryBudget
+	 *            The maximum number of bytes of frames to hold in memory
+	 * @return A {@link SpillingVideoCache}
+	 */
+	public static <I extends Image<?, I>> SpillingVideoCache<I> cacheVideo(Video<I> video,
+			VideoTimecode start, VideoTimecode end, FrameLayout<I> layout, long memoryBudget)
+	{
+		final SpillingVideoCache<I> vc = new SpillingVideoCache<I>(video.getWidth(),
+				video.getHeight(), video.getFPS(), layout, memoryBudget);
+		video.setCurrentFrameIndex(start.getFrameNumber());
+		while (video.hasNextFrame() &&
+				video.getCurrentFrameIndex() < end.getFrameNumber())
+			vc.addFrame(video.getNextFrame().clone());
+		return vc;
+	}
+
+	/**
+	 * An {@link ArrayBackedVideo} that reads frames from a {@link VideoCache}
+	 * on demand rather than from an array.
+	 */
+	private static class CacheBackedVideo<I extends Image<?, I>> extends ArrayBackedVideo<I>
+	{
+		private final VideoCache<I> cache;
+		private final double fps;
+
+		CacheBackedVideo(VideoCache<I> cache, double fps)
+		{
+			this.cache = cache;
+			this.fps = fps;
+			this.currentFrame = 0;
+		}
+
+		@Override
+		public synchronized I getNextFrame()
+		{
+			final I frame = getCurrentFrame();
+			this.currentFrame++;
+			return frame;
+		}
+
+		@Override
+		public synchronized I getCurrentFrame()
+		{
+			return cache.getFrame(this.currentFrame % cache.getNumberOfFrames());
+		}
+
+		@Override
+		public synchronized void setCurrentFrameIndex(long newFrame)
+		{
+			this.currentFrame = (int) newFrame;
+		}
+
+		@Override
+		public synchronized boolean hasNextFrame()
+		{
+			return true;
+		}
+
+		@Override
+		public int getWidth()
+		{
+			return cache.width;
+		}
+
+		@Override
+		public int getHeight()
+		{
+			return cache.height;
+		}
+
+		@Override
+		public long countFrames()
+		{
+			return cache.getNumberOfFrames();
+		}
+
+		@Override
+		public void reset()
+		{
+			this.currentFrame = 0;
+		}
+
+		@Override
+		public long getTimeStamp()
+		{
+			return (long) (1000 * getCurrentFrameIndex() / this.fps);
+		}
+
+		@Override
+		public double getFPS()
+		{
+			return fps;
+		}
+	}
+}
@@ -123,4 +123,17 @@ public abstract class VideoWriter<T extends Image<?,T>>
 	{
 		return this.frameRate;
 	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Frames must be written in order, so writers are always sequential.
+	 *
+	 * @see org.openimaj.video.processor.VideoProcessor#isSequential()
+	 */
+	@Override
+	public boolean isSequential()
+	{
+		return true;
+	}
 }
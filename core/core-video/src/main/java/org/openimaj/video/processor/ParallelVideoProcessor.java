@@ -0,0 +1,423 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.video.processor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.openimaj.image.Image;
+import org.openimaj.image.ImagePool;
+import org.openimaj.util.function.Operation;
+import org.openimaj.util.parallel.GlobalExecutorPool;
+import org.openimaj.util.parallel.Parallel;
+import org.openimaj.video.Video;
+
+/**
+ * A driver that pushes the frames of a video through a sequence of
+ * {@link VideoProcessor}s (used as non-chained stages), using many threads.
+ * <p>
+ * Frames are read from the video in batches (for example a group-of-pictures
+ * worth of frames at a time). Consecutive stages are grouped into segments:
+ * stages whose {@link VideoProcessor#isSequential()} method returns false are
+ * applied to all the frames of a batch concurrently using a thread pool,
+ * whilst sequential stages (such as {@link org.openimaj.video.VideoWriter}s,
+ * or anything that carries state between frames) see the frames of each batch
+ * one at a time, in the order they were read from the video. Each segment runs
+ * on its own thread and batches are passed between segments in order, so a
+ * sequential stage such as an encoder works on one batch whilst the parallel
+ * stages work on the next. The outputs therefore reach the final stage in
+ * timecode order.
+ * <p>
+ * As many decoders reuse their frame buffers, each frame is copied when it is
+ * read; if an {@link ImagePool} is set the copies are drawn from it and
+ * released once the batch has passed through every stage.
+ *
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ *
+ * @param <I>
+ *            the image type of the frames
+ */
+public class ParallelVideoProcessor<I extends Image<?, I>>
+{
+	/** The default number of frames in each batch */
+	public static final int DEFAULT_BATCH_SIZE = 16;
+
+	/** The number of batches that can wait between two segments */
+	private static final int QUEUE_SIZE = 2;
+
+	/**
+	 * A batch of frames, together with the input copies that need releasing
+	 */
+	private static class Batch<I>
+	{
+		final List<I> inputs = new ArrayList<I>();
+		final List<I> frames = new ArrayList<I>();
+	}
+
+	/** Marks the end of the video */
+	@SuppressWarnings("rawtypes")
+	private static final Batch END = new Batch<Object>();
+
+	/**
+	 * A group of consecutive stages that are either all sequential or all
+	 * parallel
+	 */
+	private class Segment implements Runnable
+	{
+		final List<VideoProcessor<I>> stages = new ArrayList<VideoProcessor<I>>();
+		final boolean sequential;
+		BlockingQueue<Batch<I>> input;
+		BlockingQueue<Batch<I>> output;
+
+		Segment(boolean sequential)
+		{
+			this.sequential = sequential;
+		}
+
+		I apply(I frame)
+		{
+			for (final VideoProcessor<I> stage : stages)
+			{
+				if (frame == null)
+					break;
+				frame = stage.processFrame(frame);
+			}
+			return frame;
+		}
+
+		@Override
+		public void run()
+		{
+			try
+			{
+				Batch<I> batch;
+				while ((batch = take(input)) != END)
+				{
+					final List<I> frames = batch.frames;
+
+					if (sequential)
+					{
+						for (int i = 0; i < frames.size(); i++)
+							frames.set(i, apply(frames.get(i)));
+					}
+					else
+					{
+						// exceptions must not escape the operation, otherwise
+						// the loop would never complete
+						Parallel.forIndex(0, frames.size(), 1, new Operation<Integer>() {
+							@Override
+							public void perform(Integer i)
+							{
+								try
+								{
+									if (error == null)
+										frames.set(i, apply(frames.get(i)));
+								}
+								catch (final Throwable t)
+								{
+									fail(t);
+								}
+							}
+						}, pool);
+
+						if (error != null)
+							return;
+					}
+
+					if (output != null)
+						put(output, batch);
+					else
+						release(batch);
+				}
+
+				if (output != null)
+					put(output, batch);
+			}
+			catch (final Throwable t)
+			{
+				fail(t);
+			}
+		}
+	}
+
+	private final Video<I> video;
+	private final int batchSize;
+	private final ThreadPoolExecutor pool;
+	private final List<VideoProcessor<I>> stages = new ArrayList<VideoProcessor<I>>();
+	private final List<Boolean> sequential = new ArrayList<Boolean>();
+	private ImagePool<I> imagePool;
+
+	private volatile Throwable error;
+	private long frameCount;
+
+	/**
+	 * Construct a driver for the given video that reads
+	 * {@link #DEFAULT_BATCH_SIZE} frames at a time and uses the global thread
+	 * pool.
+	 *
+	 * @param video
+	 *            the video to process
+	 */
+	public ParallelVideoProcessor(Video<I> video)
+	{
+		this(video, DEFAULT_BATCH_SIZE, GlobalExecutorPool.getPool());
+	}
+
+	/**
+	 * Construct a driver for the given video.
+	 *
+	 * @param video
+	 *            the video to process
+	 * @param batchSize
+	 *            the number of frames in each batch
+	 * @param pool
+	 *            the thread pool used by the parallel stages
+	 */
+	public ParallelVideoProcessor(Video<I> video, int batchSize, ThreadPoolExecutor pool)
+	{
+		if (batchSize <= 0)
+			throw new IllegalArgumentException("Batch size must be positive");
+
+		this.video = video;
+		this.batchSize = batchSize;
+		this.pool = pool;
+	}
+
+	/**
+	 * Add a stage to the end of the processing chain. The stage is run
+	 * sequentially if its {@link VideoProcessor#isSequential()} method returns
+	 * true.
+	 *
+	 * @param stage
+	 *            the stage
+	 * @return this driver
+	 */
+	public ParallelVideoProcessor<I> addStage(VideoProcessor<I> stage)
+	{
+		return addStage(stage, stage.isSequential());
+	}
+
+	/**
+	 * Add a stage to the end of the processing chain, explicitly setting
+	 * whether it should be run sequentially. A stage should only be run in
+	 * parallel if it is safe to call its
+	 * {@link VideoProcessor#processFrame(Image)} method from many threads at
+	 * once.
+	 *
+	 * @param stage
+	 *            the stage
+	 * @param sequential
+	 *            true if the stage must see the frames in order
+	 * @return this driver
+	 */
+	public ParallelVideoProcessor<I> addStage(VideoProcessor<I> stage, boolean sequential)
+	{
+		this.stages.add(stage);
+		this.sequential.add(sequential);
+		return this;
+	}
+
+	/**
+	 * Set the pool from which the copies of the frames read from the video
+	 * are drawn. The copies are released back to the pool once they have been
+	 * through every stage, so stages must not hold on to the frames they are
+	 * given (for example, a {@link org.openimaj.video.VideoCache} cannot be
+	 * used with a pool).
+	 *
+	 * @param imagePool
+	 *            the pool, or null to clone frames
+	 */
+	public void setImagePool(ImagePool<I> imagePool)
+	{
+		this.imagePool = imagePool;
+	}
+
+	/**
+	 * Get the number of frames read from the video by the last call to
+	 * {@link #process()}.
+	 *
+	 * @return the number of frames
+	 */
+	public long getFrameCount()
+	{
+		return frameCount;
+	}
+
+	private synchronized void fail(Throwable t)
+	{
+		if (error == null)
+			error = t;
+	}
+
+	private Batch<I> take(BlockingQueue<Batch<I>> queue) throws InterruptedException
+	{
+		Batch<I> batch;
+		while ((batch = queue.poll(50, TimeUnit.MILLISECONDS)) == null)
+		{
+			if (error != null)
+				throw new InterruptedException("Processing was aborted");
+		}
+		return batch;
+	}
+
+	private void put(BlockingQueue<Batch<I>> queue, Batch<I> batch) throws InterruptedException
+	{
+		while (!queue.offer(batch, 50, TimeUnit.MILLISECONDS))
+		{
+			if (error != null)
+				throw new InterruptedException("Processing was aborted");
+		}
+	}
+
+	private void release(Batch<I> batch)
+	{
+		if (imagePool != null)
+			for (final I image : batch.inputs)
+				imagePool.release(image);
+	}
+
+	private List<Segment> createSegments()
+	{
+		final List<Segment> segments = new ArrayList<Segment>();
+
+		Segment current = null;
+		for (int i = 0; i < stages.size(); i++)
+		{
+			if (current == null || current.sequential != sequential.get(i))
+			{
+				current = new Segment(sequential.get(i));
+				segments.add(current);
+			}
+			current.stages.add(stages.get(i));
+		}
+
+		return segments;
+	}
+
+	/**
+	 * Process all of the remaining frames of the video through the stages,
+	 * and then call {@link VideoProcessor#processingComplete()} on each stage.
+	 * If any stage throws an exception, processing stops and the exception is
+	 * rethrown (wrapped in a {@link RuntimeException} if necessary).
+	 */
+	@SuppressWarnings("unchecked")
+	public void process()
+	{
+		error = null;
+		frameCount = 0;
+
+		final List<Segment> segments = createSegments();
+		final List<Thread> threads = new ArrayList<Thread>();
+
+		BlockingQueue<Batch<I>> head = null;
+		for (int i = segments.size() - 1; i >= 0; i--)
+		{
+			final Segment segment = segments.get(i);
+			segment.output = head;
+			segment.input = head = new ArrayBlockingQueue<Batch<I>>(QUEUE_SIZE);
+
+			final Thread thread = new Thread(segment, "ParallelVideoProcessor segment " + i);
+			thread.setDaemon(true);
+			threads.add(thread);
+			thread.start();
+		}
+
+		try
+		{
+			boolean more = true;
+			while (more && error == null)
+			{
+				final Batch<I> batch = new Batch<I>();
+
+				while (batch.frames.size() < batchSize)
+				{
+					final I frame = video.getNextFrame();
+					if (frame == null)
+					{
+						more = false;
+						break;
+					}
+
+					final I copy = imagePool == null ? frame.clone() : imagePool.acquireCopy(frame);
+					batch.inputs.add(copy);
+					batch.frames.add(copy);
+				}
+
+				frameCount += batch.frames.size();
+
+				if (head == null)
+					release(batch);
+				else if (batch.frames.size() > 0)
+					put(head, batch);
+			}
+
+			if (head != null)
+				put(head, END);
+		}
+		catch (final Throwable t)
+		{
+			fail(t);
+		}
+
+		boolean interrupted = false;
+		for (final Thread thread : threads)
+		{
+			while (thread.isAlive())
+			{
+				try
+				{
+					thread.join();
+				}
+				catch (final InterruptedException e)
+				{
+					interrupted = true;
+				}
+			}
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+
+		if (error != null)
+		{
+			if (error instanceof RuntimeException)
+				throw (RuntimeException) error;
+			if (error instanceof Error)
+				throw (Error) error;
+			throw new RuntimeException(error);
+		}
+
+		for (final VideoProcessor<I> stage : stages)
+			stage.processingComplete();
+	}
+}
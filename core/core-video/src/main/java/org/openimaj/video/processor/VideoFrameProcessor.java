@@ -33,6 +33,7 @@
 package org.openimaj.video.processor;
 
 import org.openimaj.image.Image;
+import org.openimaj.image.ImagePool;
 import org.openimaj.image.processor.ImageProcessor;
 import org.openimaj.video.Video;
 
@@ -53,6 +54,9 @@ public class VideoFrameProcessor<I extends Image<?, I>>
 	/** The processor that will be used to process frames */
 	private ImageProcessor<I> processor = null;
 
+	/** The last frame returned when drawing from a pool */
+	private I lastOutput = null;
+
 	/**
 	 * Non-chainable constructor
 	 * 
@@ -80,13 +84,48 @@ public class VideoFrameProcessor<I extends Image<?, I>>
 
 	/**
 	 * {@inheritDoc}
+	 * <p>
+	 * If an image pool is available (see {@link #setImagePool(ImagePool)}),
+	 * the output is drawn from the pool and the output returned for the
+	 * previous frame is released back to it; in this case the returned image
+	 * is only valid until the next call.
 	 * 
 	 * @see org.openimaj.video.processor.VideoProcessor#processFrame(org.openimaj.image.Image)
 	 */
 	@Override
 	public I processFrame(I frame)
 	{
-		return frame.process(this.processor);
+		final ImagePool<I> pool = this.getImagePool();
+
+		if (pool == null)
+			return frame.process(this.processor);
+
+		pool.release(this.lastOutput);
+		this.lastOutput = frame.process(this.processor, pool);
+		return this.lastOutput;
+	}
+
+	@Override
+	public void processingComplete()
+	{
+		final ImagePool<I> pool = this.getImagePool();
+
+		if (pool != null)
+			pool.release(this.lastOutput);
+		this.lastOutput = null;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The processor is sequential if an image pool is being used, as the
+	 * output for each frame is released when the next frame is processed.
+	 *
+	 * @see org.openimaj.video.processor.VideoProcessor#isSequential()
+	 */
+	@Override
+	public boolean isSequential()
+	{
+		return this.getImagePool() != null;
+	}
 }
@@ -33,6 +33,7 @@
 package org.openimaj.video.processor;
 
 import org.openimaj.image.Image;
+import org.openimaj.image.ImagePool;
 import org.openimaj.image.processor.ImageProcessor;
 import org.openimaj.video.Video;
 
@@ -78,6 +79,9 @@ extends Video<T>
 	/** A buffer of the current frame */
 	private T currentFrame = null;
 
+	/** The pool from which intermediate images can be drawn */
+	private ImagePool<T> pool = null;
+
 	/**
 	 * Default constructor for using the video processor in an ad-hoc manner.
 	 */
@@ -109,6 +113,66 @@ extends Video<T>
 	 */
 	public abstract T processFrame(T frame);
 
+	/**
+	 * Set the pool from which this processor should draw any intermediate
+	 * images it requires. If no pool is set on a chainable processor, the pool
+	 * of the upstream processor (if any) is used.
+	 *
+	 * @param pool
+	 *            the pool; can be null to disable pooling
+	 */
+	public void setImagePool(ImagePool<T> pool)
+	{
+		this.pool = pool;
+	}
+
+	/**
+	 * Get the pool from which this processor draws intermediate images. If no
+	 * pool has been set on this processor, the pool of the upstream processor
+	 * in the chain is returned.
+	 *
+	 * @return the pool, or null if pooling is not enabled
+	 */
+	public ImagePool<T> getImagePool()
+	{
+		if (this.pool == null && this.video instanceof VideoProcessor)
+			return ((VideoProcessor<T>) this.video).getImagePool();
+		return this.pool;
+	}
+
+	/**
+	 * Get a copy of the given image, drawing it from the pool if one is
+	 * available. Copies obtained with this method should be given back with
+	 * {@link #releaseImage(Image)} when they are no longer required.
+	 *
+	 * @param image
+	 *            the image to copy
+	 * @return a copy of the image
+	 */
+	protected T acquireCopy(T image)
+	{
+		final ImagePool<T> p = this.getImagePool();
+
+		if (p == null)
+			return image.clone();
+		return p.acquireCopy(image);
+	}
+
+	/**
+	 * Release an image obtained from {@link #acquireCopy(Image)} back to the
+	 * pool (if there is one).
+	 *
+	 * @param image
+	 *            the image to release
+	 */
+	protected void releaseImage(T image)
+	{
+		final ImagePool<T> p = this.getImagePool();
+
+		if (p != null)
+			p.release(image);
+	}
+
 	/**
 	 * A hook for subclasses to be called when processing for the video has
 	 * completed to clean up after themselves.
@@ -118,6 +182,21 @@ extends Video<T>
 		// No implementation
 	}
 
+	/**
+	 * Determine whether this processor must see the frames of a video one at
+	 * a time and in order. Processors that carry state from one frame to the
+	 * next, or that write their output somewhere, must return true. Processors
+	 * that return false (the default) must be safe to call concurrently with
+	 * different frames, and may be run over many frames at once by a
+	 * {@link ParallelVideoProcessor}.
+	 *
+	 * @return true if frames must be processed sequentially; false otherwise
+	 */
+	public boolean isSequential()
+	{
+		return false;
+	}
+
 	/**
 	 * Process the given video using this processor.
 	 *
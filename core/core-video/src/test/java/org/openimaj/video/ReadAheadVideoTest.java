@@ -0,0 +1,243 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.video;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.openimaj.image.FImage;
+
+/**
+ * Tests for {@link ReadAheadVideo}
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class ReadAheadVideoTest {
+	private static final int NUM_FRAMES = 10;
+	private static final double FPS = 25;
+
+	/**
+	 * An {@link ArrayBackedVideo} that counts the frames that have been
+	 * decoded, and optionally fails on a given frame.
+	 */
+	private static class CountingVideo extends ArrayBackedVideo<FImage> {
+		final AtomicInteger decoded = new AtomicInteger();
+		final int failAt;
+
+		CountingVideo(FImage[] frames, int failAt) {
+			super(frames, FPS);
+			this.failAt = failAt;
+		}
+
+		@Override
+		public synchronized FImage getNextFrame() {
+			if (decoded.getAndIncrement() == failAt)
+				throw new IllegalStateException("corrupt frame");
+
+			return super.getNextFrame();
+		}
+	}
+
+	private static FImage[] frames() {
+		final FImage[] frames = new FImage[NUM_FRAMES];
+		for (int i = 0; i < NUM_FRAMES; i++)
+			frames[i] = new FImage(4, 3).fill(i);
+		return frames;
+	}
+
+	private static int countDecoderThreads() {
+		int count = 0;
+		for (final Thread t : Thread.getAllStackTraces().keySet())
+			if (t.isAlive() && t.getName().equals("ReadAheadVideo decoder"))
+				count++;
+		return count;
+	}
+
+	private static void waitFor(AtomicInteger counter, int value) throws InterruptedException {
+		for (int i = 0; i < 500 && counter.get() < value; i++)
+			Thread.sleep(10);
+	}
+
+	/**
+	 * Test that the frames, timestamps and indices are the same as reading the
+	 * underlying video directly
+	 */
+	@Test(timeout = 10000)
+	public void testOrderAndTimestamps() {
+		final FImage[] frames = frames();
+		final ArrayBackedVideo<FImage> expected = new ArrayBackedVideo<FImage>(frames, FPS);
+		final ReadAheadVideo<FImage> video = new ReadAheadVideo<FImage>(new ArrayBackedVideo<FImage>(frames, FPS),
+				3, false);
+
+		for (int i = 0; i < 2 * NUM_FRAMES; i++) {
+			assertTrue(video.hasNextFrame());
+
+			final FImage frame = video.getNextFrame();
+			assertEquals(expected.getNextFrame(), frame);
+			assertEquals(expected.getTimeStamp(), video.getTimeStamp());
+			assertEquals(expected.getCurrentFrameIndex(), video.getCurrentFrameIndex());
+			assertSame(frame, video.getCurrentFrame());
+		}
+
+		video.close();
+	}
+
+	/**
+	 * Test that the decoder blocks when the queue is full
+	 * 
+	 * @throws InterruptedException
+	 */
+	@Test(timeout = 10000)
+	public void testBackPressure() throws InterruptedException {
+		final CountingVideo source = new CountingVideo(frames(), -1);
+		final ReadAheadVideo<FImage> video = new ReadAheadVideo<FImage>(source, 2, false);
+
+		assertEquals(0f, video.getNextFrame().pixels[0][0], 0);
+
+		// one frame consumed, two queued and one waiting to be queued
+		waitFor(source.decoded, 4);
+		Thread.sleep(200);
+		assertEquals(4, source.decoded.get());
+		assertEquals(0, video.getDroppedFrameCount());
+
+		// every frame is still delivered in order
+		for (int i = 1; i < NUM_FRAMES; i++)
+			assertEquals(i, video.getNextFrame().pixels[0][0], 0);
+
+		video.close();
+	}
+
+	/**
+	 * Test that frames are dropped and counted in dropping mode when the
+	 * consumer falls behind
+	 * 
+	 * @throws InterruptedException
+	 */
+	@Test(timeout = 10000)
+	public void testDropFrames() throws InterruptedException {
+		final CountingVideo source = new CountingVideo(frames(), -1);
+		final ReadAheadVideo<FImage> video = new ReadAheadVideo<FImage>(source, 2, true);
+		assertTrue(video.isDroppingFrames());
+
+		video.getNextFrame();
+		waitFor(source.decoded, 100);
+		assertTrue(video.getDroppedFrameCount() > 0);
+
+		// the frames that are delivered are still in order
+		int lastIndex = video.getCurrentFrameIndex();
+		for (int i = 0; i < 5; i++) {
+			video.getNextFrame();
+			assertTrue(video.getCurrentFrameIndex() > lastIndex);
+			lastIndex = video.getCurrentFrameIndex();
+		}
+
+		video.close();
+	}
+
+	/**
+	 * Test that setting the frame index and resetting discard the frames that
+	 * have been read ahead
+	 * 
+	 * @throws InterruptedException
+	 */
+	@Test(timeout = 10000)
+	public void testSeekFlushesQueue() throws InterruptedException {
+		final FImage[] frames = frames();
+		final CountingVideo source = new CountingVideo(frames, -1);
+		final ReadAheadVideo<FImage> video = new ReadAheadVideo<FImage>(source, 3, false);
+
+		assertEquals(frames[0], video.getNextFrame());
+		waitFor(source.decoded, 5);
+
+		video.setCurrentFrameIndex(7);
+		assertEquals(7, video.getCurrentFrameIndex());
+		assertEquals(frames[7], video.getCurrentFrame());
+		assertEquals(frames[7], video.getNextFrame());
+		assertEquals(frames[8], video.getNextFrame());
+
+		waitFor(source.decoded, 10);
+		video.reset();
+		assertEquals(0, video.getCurrentFrameIndex());
+		assertEquals(frames[0], video.getNextFrame());
+		assertEquals(frames[1], video.getNextFrame());
+
+		video.close();
+	}
+
+	/**
+	 * Test that an exception thrown by the underlying video is rethrown to
+	 * the consumer rather than causing it to wait forever
+	 */
+	@Test(timeout = 10000)
+	public void testDecoderException() {
+		final ReadAheadVideo<FImage> video = new ReadAheadVideo<FImage>(new CountingVideo(frames(), 3), 2, false);
+
+		for (int i = 0; i < 3; i++)
+			assertEquals(i, video.getNextFrame().pixels[0][0], 0);
+
+		try {
+			video.getNextFrame();
+			fail("expected the decoder exception to be rethrown");
+		} catch (final RuntimeException e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+			assertEquals("corrupt frame", e.getCause().getMessage());
+		}
+
+		video.close();
+	}
+
+	/**
+	 * Test that closing the video stops the decoder thread
+	 * 
+	 * @throws InterruptedException
+	 */
+	@Test(timeout = 10000)
+	public void testCloseStopsDecoder() throws InterruptedException {
+		final int before = countDecoderThreads();
+
+		final CountingVideo source = new CountingVideo(frames(), -1);
+		final ReadAheadVideo<FImage> video = new ReadAheadVideo<FImage>(source, 2, false);
+		video.getNextFrame();
+		waitFor(source.decoded, 4);
+		assertEquals(before + 1, countDecoderThreads());
+
+		video.close();
+		assertEquals(before, countDecoderThreads());
+
+		final int decoded = source.decoded.get();
+		Thread.sleep(100);
+		assertEquals(decoded, source.decoded.get());
+	}
+}
@@ -0,0 +1,253 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.video;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.junit.Test;
+import org.openimaj.image.FImage;
+import org.openimaj.image.Image;
+import org.openimaj.image.MBFImage;
+import org.openimaj.video.timecode.FrameNumberVideoTimecode;
+
+/**
+ * Tests for {@link SpillingVideoCache}
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class SpillingVideoCacheTest {
+	private static final int WIDTH = 13;
+	private static final int HEIGHT = 7;
+	private static final int NUM_FRAMES = 10;
+	private static final double FPS = 25;
+
+	/** A memory budget that holds two float frames */
+	private static final long TWO_FRAMES = 2 * 4 * WIDTH * HEIGHT;
+
+	private static FImage[] randomFImages() {
+		final FImage[] frames = new FImage[NUM_FRAMES];
+		for (int i = 0; i < NUM_FRAMES; i++)
+			frames[i] = FImage.randomImage(WIDTH, HEIGHT);
+		return frames;
+	}
+
+	private static MBFImage[] randomMBFImages() {
+		final MBFImage[] frames = new MBFImage[NUM_FRAMES];
+		for (int i = 0; i < NUM_FRAMES; i++)
+			frames[i] = MBFImage.randomImage(WIDTH, HEIGHT);
+		return frames;
+	}
+
+	private static <I extends Image<?, I>> SpillingVideoCache<I> cache(I[] frames,
+			SpillingVideoCache.FrameLayout<I> layout, long budget)
+	{
+		final ArrayBackedVideo<I> video = new ArrayBackedVideo<I>(frames, FPS);
+		return SpillingVideoCache.cacheVideo(video, new FrameNumberVideoTimecode(0, FPS),
+				new FrameNumberVideoTimecode(frames.length, FPS), layout, budget);
+	}
+
+	private static void assertClose(FImage expected, FImage actual, float tolerance) {
+		for (int y = 0; y < HEIGHT; y++)
+			for (int x = 0; x < WIDTH; x++)
+				assertEquals(expected.pixels[y][x], actual.pixels[y][x], tolerance);
+	}
+
+	/**
+	 * Test that {@link FImage}s are spilled and read back losslessly
+	 */
+	@Test
+	public void testFImageRoundTrip() {
+		final FImage[] frames = randomFImages();
+		final SpillingVideoCache<FImage> cache = cache(frames, SpillingVideoCache.FIMAGE_FLOAT, TWO_FRAMES);
+
+		assertEquals(NUM_FRAMES, cache.getNumberOfFrames());
+		assertEquals(2, cache.getNumberOfFramesInMemory());
+
+		for (int i = 0; i < NUM_FRAMES; i++)
+			assertEquals(frames[i], cache.getFrame(i));
+		assertEquals(2, cache.getNumberOfFramesInMemory());
+
+		cache.close();
+	}
+
+	/**
+	 * Test that {@link MBFImage}s are spilled and read back losslessly
+	 */
+	@Test
+	public void testMBFImageRoundTrip() {
+		final MBFImage[] frames = randomMBFImages();
+		final SpillingVideoCache<MBFImage> cache = cache(frames, SpillingVideoCache.MBFIMAGE_RGB_FLOAT,
+				3 * TWO_FRAMES);
+
+		assertEquals(2, cache.getNumberOfFramesInMemory());
+		for (int i = 0; i < NUM_FRAMES; i++)
+			assertEquals(frames[i], cache.getFrame(i));
+
+		cache.close();
+	}
+
+	/**
+	 * Test that the byte layouts quantise to within half a level
+	 */
+	@Test
+	public void testByteQuantisation() {
+		final float tolerance = 0.5f / 255 + 1e-6f;
+
+		final FImage[] frames = randomFImages();
+		final SpillingVideoCache<FImage> fcache = cache(frames, SpillingVideoCache.FIMAGE_BYTE, 0);
+		assertEquals(1, fcache.getNumberOfFramesInMemory());
+		for (int i = 0; i < NUM_FRAMES - 1; i++) {
+			final FImage frame = fcache.getFrame(i);
+			assertNotSame(frames[i], frame);
+			assertClose(frames[i], frame, tolerance);
+		}
+		fcache.close();
+
+		final MBFImage[] mbframes = randomMBFImages();
+		final SpillingVideoCache<MBFImage> mbcache = cache(mbframes, SpillingVideoCache.MBFIMAGE_RGB_BYTE, 0);
+		for (int i = 0; i < NUM_FRAMES - 1; i++) {
+			final MBFImage frame = mbcache.getFrame(i);
+			assertNotSame(mbframes[i], frame);
+			for (int b = 0; b < 3; b++)
+				assertClose(mbframes[i].getBand(b), frame.getBand(b), tolerance);
+		}
+		mbcache.close();
+	}
+
+	/**
+	 * Test that the least recently used frame is the one that is spilled
+	 */
+	@Test
+	public void testLRUEviction() {
+		final FImage[] frames = randomFImages();
+		final SpillingVideoCache<FImage> cache = new SpillingVideoCache<FImage>(WIDTH, HEIGHT, FPS,
+				SpillingVideoCache.FIMAGE_FLOAT, TWO_FRAMES);
+
+		cache.addFrame(frames[0]);
+		cache.addFrame(frames[1]);
+		cache.addFrame(frames[2]);
+
+		// frame 0 is the eldest; accessing frame 1 makes frame 2 the eldest
+		assertSame(frames[1], cache.getFrame(1));
+		cache.addFrame(frames[3]);
+
+		assertSame(frames[1], cache.getFrame(1));
+		assertSame(frames[3], cache.getFrame(3));
+
+		final FImage reloaded2 = cache.getFrame(2);
+		assertNotSame(frames[2], reloaded2);
+		assertEquals(frames[2], reloaded2);
+
+		// reloading frame 2 spilled frame 1, the least recently used
+		assertSame(frames[3], cache.getFrame(3));
+		final FImage reloaded1 = cache.getFrame(1);
+		assertNotSame(frames[1], reloaded1);
+		assertEquals(frames[1], reloaded1);
+
+		final FImage reloaded0 = cache.getFrame(0);
+		assertNotSame(frames[0], reloaded0);
+		assertEquals(frames[0], reloaded0);
+
+		cache.close();
+	}
+
+	/**
+	 * Test seeking, resetting and looping of the video backed by the cache
+	 */
+	@Test
+	public void testArrayBackedVideo() {
+		final FImage[] frames = randomFImages();
+		final SpillingVideoCache<FImage> cache = cache(frames, SpillingVideoCache.FIMAGE_FLOAT, TWO_FRAMES);
+		final ArrayBackedVideo<FImage> video = cache.getArrayBackedVideo();
+
+		assertEquals(NUM_FRAMES, video.countFrames());
+		assertEquals(WIDTH, video.getWidth());
+		assertEquals(HEIGHT, video.getHeight());
+		assertEquals(FPS, video.getFPS(), 0);
+
+		for (int i = 0; i < NUM_FRAMES; i++) {
+			assertTrue(video.hasNextFrame());
+			assertEquals(frames[i], video.getNextFrame());
+		}
+
+		// the video loops
+		assertTrue(video.hasNextFrame());
+		assertEquals(frames[0], video.getNextFrame());
+		assertEquals(frames[1], video.getCurrentFrame());
+
+		video.setCurrentFrameIndex(5);
+		assertEquals(5, video.getCurrentFrameIndex());
+		assertEquals((long) (1000 * 5 / FPS), video.getTimeStamp());
+		assertEquals(frames[5], video.getCurrentFrame());
+		assertEquals(frames[5], video.getNextFrame());
+		assertEquals(frames[6], video.getCurrentFrame());
+
+		video.reset();
+		assertEquals(0, video.getCurrentFrameIndex());
+		assertEquals(frames[0], video.getCurrentFrame());
+
+		cache.close();
+	}
+
+	/**
+	 * Test that the spill file is deleted when the cache is closed, and that
+	 * the cache can be reused afterwards
+	 */
+	@Test
+	public void testClose() {
+		final FImage[] frames = randomFImages();
+		final SpillingVideoCache<FImage> cache = cache(frames, SpillingVideoCache.FIMAGE_FLOAT, TWO_FRAMES);
+
+		final File spillFile = cache.getSpillFile();
+		assertNotNull(spillFile);
+		assertTrue(spillFile.exists());
+
+		cache.close();
+		assertFalse(spillFile.exists());
+		assertEquals(0, cache.getNumberOfFrames());
+		assertEquals(0, cache.getNumberOfFramesInMemory());
+
+		for (final FImage frame : frames)
+			cache.addFrame(frame);
+		final File newSpillFile = cache.getSpillFile();
+		assertTrue(newSpillFile.exists());
+		assertEquals(frames[0], cache.getFrame(0));
+
+		cache.close();
+		assertFalse(newSpillFile.exists());
+	}
+}
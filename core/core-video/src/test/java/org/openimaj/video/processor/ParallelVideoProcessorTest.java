@@ -0,0 +1,263 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.video.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openimaj.image.FImage;
+import org.openimaj.video.ArrayBackedVideo;
+import org.openimaj.video.VideoWriter;
+
+/**
+ * Tests for {@link ParallelVideoProcessor}
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class ParallelVideoProcessorTest {
+	private static final int NUM_FRAMES = 50;
+	private static final int WIDTH = 4;
+	private static final int HEIGHT = 3;
+
+	/**
+	 * An {@link ArrayBackedVideo} that ends after the last frame
+	 */
+	private static class FiniteVideo extends ArrayBackedVideo<FImage> {
+		private final int length;
+		private int read;
+
+		FiniteVideo(FImage[] frames) {
+			super(frames, 25, false);
+			this.length = frames.length;
+		}
+
+		@Override
+		public synchronized FImage getNextFrame() {
+			if (read++ >= length)
+				return null;
+			return super.getNextFrame();
+		}
+	}
+
+	/**
+	 * A parallel stage that takes a random time to process each frame, and
+	 * can fail on a given frame
+	 */
+	private static class SlowStage extends VideoProcessor<FImage> {
+		final List<Integer> completed = Collections.synchronizedList(new ArrayList<Integer>());
+		final Set<Thread> threads = Collections.synchronizedSet(new HashSet<Thread>());
+		final Random random = new Random(0);
+		final int failAt;
+
+		SlowStage(int failAt) {
+			this.failAt = failAt;
+		}
+
+		@Override
+		public FImage processFrame(FImage frame) {
+			final int index = (int) frame.pixels[0][0];
+			if (index == failAt)
+				throw new IllegalStateException("failed on frame " + index);
+
+			final int delay;
+			synchronized (random) {
+				delay = random.nextInt(10);
+			}
+			try {
+				Thread.sleep(delay);
+			} catch (final InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+
+			threads.add(Thread.currentThread());
+			completed.add(index);
+			return frame.add(1000f);
+		}
+	}
+
+	/**
+	 * A sequential writer that records the frames it is given
+	 */
+	private static class RecordingWriter extends VideoWriter<FImage> {
+		final List<Integer> frames = new ArrayList<Integer>();
+		final Set<Thread> threads = new HashSet<Thread>();
+		int concurrent;
+		boolean overlapped;
+		boolean complete;
+
+		RecordingWriter() {
+			super(WIDTH, HEIGHT, 25);
+		}
+
+		@Override
+		public void addFrame(FImage frame) {
+			synchronized (this) {
+				if (++concurrent > 1)
+					overlapped = true;
+			}
+
+			threads.add(Thread.currentThread());
+			frames.add((int) frame.pixels[0][0]);
+
+			synchronized (this) {
+				concurrent--;
+			}
+		}
+
+		@Override
+		public void processingComplete() {
+			complete = true;
+		}
+	}
+
+	private ThreadPoolExecutor pool;
+
+	/**
+	 * Create the thread pool
+	 */
+	@Before
+	public void setup() {
+		pool = (ThreadPoolExecutor) Executors.newFixedThreadPool(4);
+	}
+
+	/**
+	 * Shut down the thread pool
+	 */
+	@After
+	public void teardown() {
+		pool.shutdown();
+	}
+
+	private static FImage[] frames() {
+		final FImage[] frames = new FImage[NUM_FRAMES];
+		for (int i = 0; i < NUM_FRAMES; i++)
+			frames[i] = new FImage(WIDTH, HEIGHT).fill(i);
+		return frames;
+	}
+
+	/**
+	 * Test that frames completed out of order by a parallel stage are passed
+	 * to a sequential stage in order, on a single thread
+	 */
+	@Test(timeout = 30000)
+	public void testOrdering() {
+		final SlowStage worker = new SlowStage(-1);
+		final RecordingWriter writer = new RecordingWriter();
+		assertTrue(writer.isSequential());
+		assertFalse(worker.isSequential());
+
+		final ParallelVideoProcessor<FImage> pvp = new ParallelVideoProcessor<FImage>(new FiniteVideo(frames()), 8,
+				pool);
+		pvp.addStage(worker).addStage(writer);
+		pvp.process();
+
+		assertEquals(NUM_FRAMES, pvp.getFrameCount());
+
+		// the worker really did complete frames out of order on many threads
+		final List<Integer> sorted = new ArrayList<Integer>(worker.completed);
+		Collections.sort(sorted);
+		assertEquals(NUM_FRAMES, sorted.size());
+		assertFalse(sorted.equals(worker.completed));
+		assertTrue(worker.threads.size() > 1);
+
+		final List<Integer> expected = new ArrayList<Integer>();
+		for (int i = 0; i < NUM_FRAMES; i++)
+			expected.add(1000 + i);
+		assertEquals(expected, writer.frames);
+		assertEquals(1, writer.threads.size());
+		assertFalse(writer.overlapped);
+		assertTrue(writer.complete);
+	}
+
+	/**
+	 * Test that an exception thrown by a parallel stage is rethrown by
+	 * {@link ParallelVideoProcessor#process()} rather than deadlocking
+	 */
+	@Test(timeout = 30000)
+	public void testWorkerException() {
+		final RecordingWriter writer = new RecordingWriter();
+		final ParallelVideoProcessor<FImage> pvp = new ParallelVideoProcessor<FImage>(new FiniteVideo(frames()), 8,
+				pool);
+		pvp.addStage(new SlowStage(17)).addStage(writer);
+
+		try {
+			pvp.process();
+			fail("expected the worker exception to be rethrown");
+		} catch (final IllegalStateException e) {
+			assertEquals("failed on frame 17", e.getMessage());
+		}
+
+		// frames after the failure are never written, and the writer is not
+		// told that processing completed
+		assertTrue(writer.frames.size() < 17);
+		for (int i = 0; i < writer.frames.size(); i++)
+			assertEquals(1000 + i, (int) writer.frames.get(i));
+		assertFalse(writer.complete);
+	}
+
+	/**
+	 * Test that an exception thrown by a sequential stage is rethrown by
+	 * {@link ParallelVideoProcessor#process()} rather than deadlocking
+	 */
+	@Test(timeout = 30000)
+	public void testSequentialException() {
+		final ParallelVideoProcessor<FImage> pvp = new ParallelVideoProcessor<FImage>(new FiniteVideo(frames()), 8,
+				pool);
+		pvp.addStage(new SlowStage(-1)).addStage(new RecordingWriter() {
+			@Override
+			public void addFrame(FImage frame) {
+				if (frame.pixels[0][0] == 1020)
+					throw new IllegalStateException("writer failed");
+				super.addFrame(frame);
+			}
+		});
+
+		try {
+			pvp.process();
+			fail("expected the writer exception to be rethrown");
+		} catch (final IllegalStateException e) {
+			assertEquals("writer failed", e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,378 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.util.parallel;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.openimaj.util.function.Operation;
+import org.openimaj.util.parallel.Parallel.IntRange;
+import org.openimaj.util.parallel.partition.GrowingChunkPartitioner;
+import org.openimaj.util.parallel.partition.Partitioner;
+
+/**
+ * A fork-join backend for the parallel loops in {@link Parallel}. Integer
+ * ranges and random-access lists are split recursively and adaptively (a
+ * range is only split whilst the worker splitting it has few queued tasks
+ * that could be stolen), so load is balanced through work-stealing without
+ * creating a partition object per chunk. Loops over iterators are processed
+ * with a bounded window of forked tasks.
+ * <p>
+ * Because a worker that is waiting for its subtasks to complete will execute
+ * other queued tasks rather than blocking, parallel loops can be safely
+ * nested (for example, a parallel clustering running inside a parallel
+ * feature extraction) without deadlocking or oversubscribing the processors.
+ * <p>
+ * The methods of this class can be used directly. Alternatively, existing
+ * code calling {@link Parallel} with the {@link GlobalExecutorPool} (either
+ * explicitly, or through the methods without a pool argument) can be switched
+ * to this backend without any changes by setting the
+ * <code>{@value #ENABLED_PROPERTY}</code> system property to
+ * <code>true</code>, or by calling {@link #setEnabled(boolean)}. Loops given
+ * any other pool still run on that pool. The number of worker threads
+ * defaults to the number of available processors, and can be configured with
+ * the <code>{@value #PARALLELISM_PROPERTY}</code> system property or
+ * {@link #setParallelism(int)}.
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class ForkJoinParallel {
+	/**
+	 * System property that enables the fork-join backend for {@link Parallel}
+	 * loops running on the {@link GlobalExecutorPool}
+	 */
+	public static final String ENABLED_PROPERTY = "openimaj.parallel.forkjoin";
+
+	/**
+	 * System property that sets the number of worker threads
+	 */
+	public static final String PARALLELISM_PROPERTY = "openimaj.parallel.level";
+
+	/**
+	 * The number of chunks per worker below which ranges are never split
+	 */
+	private static final int CHUNKS_PER_THREAD = 8;
+
+	/**
+	 * The number of queued tasks above which a worker stops splitting
+	 */
+	private static final int MAX_SURPLUS = 3;
+
+	private static volatile boolean enabled = Boolean.getBoolean(ENABLED_PROPERTY);
+	private static ForkJoinPool pool;
+
+	private ForkJoinParallel() {
+	}
+
+	private static class RangeTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final int start;
+		private final int stop;
+		private final int incr;
+		private final int lo;
+		private final int hi;
+		private final int grain;
+		private final Operation<IntRange> op;
+
+		RangeTask(int start, int stop, int incr, int lo, int hi, int grain, Operation<IntRange> op) {
+			this.start = start;
+			this.stop = stop;
+			this.incr = incr;
+			this.lo = lo;
+			this.hi = hi;
+			this.grain = grain;
+			this.op = op;
+		}
+
+		@Override
+		protected void compute() {
+			int h = hi;
+			RangeTask[] forked = null;
+			int nforked = 0;
+
+			while (h - lo > grain && getSurplusQueuedTaskCount() <= MAX_SURPLUS) {
+				final int mid = (lo + h) >>> 1;
+				final RangeTask right = new RangeTask(start, stop, incr, mid, h, grain, op);
+				right.fork();
+
+				if (forked == null)
+					forked = new RangeTask[32];
+				forked[nforked++] = right;
+				h = mid;
+			}
+
+			op.perform(new IntRange(start + lo * incr, (int) Math.min(start + (long) h * incr, stop), incr));
+
+			while (nforked > 0)
+				forked[--nforked].join();
+		}
+	}
+
+	private static class WindowedTask<T> extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final Iterator<T> items;
+		private final Operation<T> op;
+
+		WindowedTask(Iterator<T> items, Operation<T> op) {
+			this.items = items;
+			this.op = op;
+		}
+
+		@Override
+		protected void compute() {
+			final int window = 2 * getPool().getParallelism();
+			final ArrayDeque<ForkJoinTask<?>> inflight = new ArrayDeque<ForkJoinTask<?>>(window);
+
+			while (items.hasNext()) {
+				final T item = items.next();
+
+				if (inflight.size() >= window)
+					inflight.removeFirst().join();
+
+				inflight.addLast(ForkJoinTask.adapt(new Runnable() {
+					@Override
+					public void run() {
+						op.perform(item);
+					}
+				}).fork());
+			}
+
+			while (!inflight.isEmpty())
+				inflight.removeFirst().join();
+		}
+	}
+
+	/**
+	 * Is the fork-join backend enabled for {@link Parallel} loops running on
+	 * the {@link GlobalExecutorPool}?
+	 * 
+	 * @return true if enabled; false otherwise
+	 */
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Enable or disable the fork-join backend for {@link Parallel} loops
+	 * running on the {@link GlobalExecutorPool}.
+	 * 
+	 * @param enabled
+	 *            true to enable; false to disable
+	 */
+	public static void setEnabled(boolean enabled) {
+		ForkJoinParallel.enabled = enabled;
+	}
+
+	/**
+	 * Get the pool used to run the loops. The pool is created on first use.
+	 * 
+	 * @return the pool
+	 */
+	public static synchronized ForkJoinPool getPool() {
+		if (pool == null)
+			pool = new ForkJoinPool(Integer.getInteger(PARALLELISM_PROPERTY, Runtime.getRuntime().availableProcessors()));
+
+		return pool;
+	}
+
+	/**
+	 * Get the number of worker threads used to run the loops.
+	 * 
+	 * @return the number of worker threads
+	 */
+	public static int getParallelism() {
+		return getPool().getParallelism();
+	}
+
+	/**
+	 * Set the number of worker threads used to run the loops. Loops that are
+	 * already running will complete on the previous pool.
+	 * 
+	 * @param parallelism
+	 *            the number of worker threads
+	 */
+	public static synchronized void setParallelism(int parallelism) {
+		final ForkJoinPool old = pool;
+		pool = new ForkJoinPool(parallelism);
+
+		if (old != null)
+			old.shutdown();
+	}
+
+	/**
+	 * Should a {@link Parallel} loop with the given pool be run by this
+	 * backend?
+	 */
+	static boolean handles(ThreadPoolExecutor executor) {
+		return enabled && executor == GlobalExecutorPool.getPool();
+	}
+
+	private static void invoke(ForkJoinTask<?> task) {
+		final ForkJoinPool p = getPool();
+
+		// run directly if we're already a worker, so that the worker helps
+		// rather than blocks
+		if (ForkJoinTask.getPool() == p)
+			task.invoke();
+		else
+			p.invoke(task);
+	}
+
+	/**
+	 * Parallel integer for loop.
+	 * 
+	 * @param start
+	 *            starting value
+	 * @param stop
+	 *            stopping value
+	 * @param incr
+	 *            increment amount
+	 * @param op
+	 *            operation to perform
+	 */
+	public static void forIndex(final int start, final int stop, final int incr, final Operation<Integer> op) {
+		forRange(start, stop, incr, new Operation<IntRange>() {
+			@Override
+			public void perform(IntRange range) {
+				for (int i = range.start; i < range.stop; i += range.incr)
+					op.perform(i);
+			}
+		});
+	}
+
+	/**
+	 * Parallel integer for loop over ranges. The ranges are split adaptively,
+	 * so the operation may be called with ranges of varying sizes.
+	 * 
+	 * @param start
+	 *            starting value
+	 * @param stop
+	 *            stopping value
+	 * @param incr
+	 *            increment amount
+	 * @param op
+	 *            operation to perform
+	 */
+	public static void forRange(final int start, final int stop, final int incr, final Operation<IntRange> op) {
+		if (stop <= start)
+			return;
+
+		final int n = (int) (((long) stop - start + incr - 1) / incr);
+		final int grain = Math.max(1, n / (CHUNKS_PER_THREAD * getParallelism()));
+
+		invoke(new RangeTask(start, stop, incr, 0, n, grain, op));
+	}
+
+	/**
+	 * Parallel ForEach loop over {@link Iterable} data. If the data is a
+	 * random-access {@link List}, then it is split adaptively in the same way
+	 * as an integer range, otherwise it is partitioned with a
+	 * {@link GrowingChunkPartitioner}.
+	 * 
+	 * @param <T>
+	 *            type of the data items
+	 * @param objects
+	 *            the data
+	 * @param op
+	 *            the operation to apply
+	 */
+	public static <T> void forEach(final Iterable<T> objects, final Operation<T> op) {
+		if (objects instanceof List && objects instanceof RandomAccess) {
+			final List<T> list = (List<T>) objects;
+
+			forRange(0, list.size(), 1, new Operation<IntRange>() {
+				@Override
+				public void perform(IntRange range) {
+					for (int i = range.start; i < range.stop; i++)
+						op.perform(list.get(i));
+				}
+			});
+		} else {
+			forEach(new GrowingChunkPartitioner<T>(objects), op);
+		}
+	}
+
+	/**
+	 * Parallel ForEach loop over partitioned data.
+	 * 
+	 * @param <T>
+	 *            type of the data items
+	 * @param partitioner
+	 *            the partitioner applied to the data
+	 * @param op
+	 *            the operation to apply
+	 */
+	public static <T> void forEach(final Partitioner<T> partitioner, final Operation<T> op) {
+		forEachPartitioned(partitioner, new Operation<Iterator<T>>() {
+			@Override
+			public void perform(Iterator<T> partition) {
+				while (partition.hasNext())
+					op.perform(partition.next());
+			}
+		});
+	}
+
+	/**
+	 * Parallel ForEach loop over unpartitioned data. Each item is processed by
+	 * its own task.
+	 * 
+	 * @param <T>
+	 *            type of the data items
+	 * @param data
+	 *            the iterator of data items
+	 * @param op
+	 *            the operation to apply
+	 */
+	public static <T> void forEachUnpartitioned(final Iterator<T> data, final Operation<T> op) {
+		invoke(new WindowedTask<T>(data, op));
+	}
+
+	/**
+	 * Parallel ForEach loop over partitioned data with batches of data.
+	 * 
+	 * @param <T>
+	 *            type of the data items
+	 * @param partitioner
+	 *            the partitioner applied to the data
+	 * @param op
+	 *            the operation to apply
+	 */
+	public static <T> void forEachPartitioned(final Partitioner<T> partitioner, final Operation<Iterator<T>> op) {
+		invoke(new WindowedTask<Iterator<T>>(partitioner.getPartitions(), op));
+	}
+}
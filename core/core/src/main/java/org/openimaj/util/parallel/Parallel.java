@@ -50,6 +50,12 @@ import org.openimaj.util.stream.Stream;
  * is partitioned using inspiration from <a href=
  * "http://reedcopsey.com/2010/01/26/parallelism-in-net-part-5-partitioning-of-work/"
  * >Reed Copsey's blog</a>.
+ * <p>
+ * Loops run on the {@link GlobalExecutorPool} can instead be run by the
+ * work-stealing {@link ForkJoinParallel} backend, which supports nested
+ * loops, by setting the <code>{@value ForkJoinParallel#ENABLED_PROPERTY}</code>
+ * system property to <code>true</code> or calling
+ * {@link ForkJoinParallel#setEnabled(boolean)}.
  *
  * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
  */
@@ -131,6 +137,11 @@ public class Parallel {
 	public static void forIndex(final int start, final int stop, final int incr, final Operation<Integer> op,
 			final ThreadPoolExecutor pool)
 	{
+		if (ForkJoinParallel.handles(pool)) {
+			ForkJoinParallel.forIndex(start, stop, incr, op);
+			return;
+		}
+
 		int loops = pool.getMaximumPoolSize();
 		final int ops = (stop - start) / incr;
 
@@ -230,6 +241,11 @@ public class Parallel {
 	public static void forRange(final int start, final int stop, final int incr, final Operation<IntRange> op,
 			final ThreadPoolExecutor pool)
 	{
+		if (ForkJoinParallel.handles(pool)) {
+			ForkJoinParallel.forRange(start, stop, incr, op);
+			return;
+		}
+
 		int loops = pool.getMaximumPoolSize();
 		final int ops = (stop - start) / incr;
 
@@ -300,6 +316,11 @@ public class Parallel {
 	 *            the thread pool.
 	 */
 	public static <T> void forEach(final Iterable<T> objects, final Operation<T> op, final ThreadPoolExecutor pool) {
+		if (ForkJoinParallel.handles(pool)) {
+			ForkJoinParallel.forEach(objects, op);
+			return;
+		}
+
 		Partitioner<T> partitioner;
 		if (objects instanceof List) {
 			partitioner = new RangePartitioner<T>((List<T>) objects, pool.getMaximumPoolSize());
@@ -366,6 +387,11 @@ public class Parallel {
 	void
 	forEach(final Partitioner<T> partitioner, final Operation<T> op, final ThreadPoolExecutor pool)
 	{
+		if (ForkJoinParallel.handles(pool)) {
+			ForkJoinParallel.forEach(partitioner, op);
+			return;
+		}
+
 		final ExecutorCompletionService<Boolean> completion = new ExecutorCompletionService<Boolean>(pool);
 		final Iterator<Iterator<T>> partitions = partitioner.getPartitions();
 		long submitted = 0;
@@ -455,6 +481,11 @@ public class Parallel {
 	void
 	forEachUnpartitioned(final Iterator<T> data, final Operation<T> op, final ThreadPoolExecutor pool)
 	{
+		if (ForkJoinParallel.handles(pool)) {
+			ForkJoinParallel.forEachUnpartitioned(data, op);
+			return;
+		}
+
 		final ExecutorCompletionService<Boolean> completion = new ExecutorCompletionService<Boolean>(pool);
 		long submitted = 0;
 
@@ -524,6 +555,11 @@ public class Parallel {
 	forEachPartitioned(final Partitioner<T> partitioner, final Operation<Iterator<T>> op,
 			final ThreadPoolExecutor pool)
 	{
+		if (ForkJoinParallel.handles(pool)) {
+			ForkJoinParallel.forEachPartitioned(partitioner, op);
+			return;
+		}
+
 		final ExecutorCompletionService<Boolean> completion = new ExecutorCompletionService<Boolean>(pool);
 		final Iterator<Iterator<T>> partitions = partitioner.getPartitions();
 		long submitted = 0;
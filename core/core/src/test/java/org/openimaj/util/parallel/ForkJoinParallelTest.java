@@ -0,0 +1,162 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.util.parallel;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openimaj.util.function.Operation;
+import org.openimaj.util.parallel.Parallel.IntRange;
+
+/**
+ * Tests for {@link ForkJoinParallel}, and its use as the backend of
+ * {@link Parallel}.
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class ForkJoinParallelTest {
+	/**
+	 * Enable the backend
+	 */
+	@Before
+	public void setup() {
+		ForkJoinParallel.setEnabled(true);
+	}
+
+	/**
+	 * Restore the default backend
+	 */
+	@After
+	public void teardown() {
+		ForkJoinParallel.setEnabled(Boolean.getBoolean(ForkJoinParallel.ENABLED_PROPERTY));
+	}
+
+	/**
+	 * Test that every index of a stepped range is visited exactly once
+	 */
+	@Test
+	public void testForRange() {
+		final int stop = 100003;
+		final AtomicIntegerArray visits = new AtomicIntegerArray(stop);
+
+		Parallel.forRange(7, stop, 3, new Operation<IntRange>() {
+			@Override
+			public void perform(IntRange range) {
+				for (int i = range.start; i < range.stop; i += range.incr)
+					visits.incrementAndGet(i);
+			}
+		});
+
+		for (int i = 0; i < stop; i++)
+			assertEquals(i >= 7 && (i - 7) % 3 == 0 ? 1 : 0, visits.get(i));
+	}
+
+	/**
+	 * Test the for-each loop over lists and other iterables
+	 */
+	@Test
+	public void testForEach() {
+		final List<Integer> list = new ArrayList<Integer>();
+		for (int i = 0; i < 10000; i++)
+			list.add(i);
+
+		final AtomicLong listSum = new AtomicLong();
+		Parallel.forEach(list, new Operation<Integer>() {
+			@Override
+			public void perform(Integer object) {
+				listSum.addAndGet(object);
+			}
+		});
+		assertEquals(10000L * 9999 / 2, listSum.get());
+
+		final AtomicLong setSum = new AtomicLong();
+		Parallel.forEach(new HashSet<Integer>(list), new Operation<Integer>() {
+			@Override
+			public void perform(Integer object) {
+				setSum.addAndGet(object);
+			}
+		});
+		assertEquals(10000L * 9999 / 2, setSum.get());
+
+		final AtomicLong unpartitionedSum = new AtomicLong();
+		Parallel.forEachUnpartitioned(list.iterator(), new Operation<Integer>() {
+			@Override
+			public void perform(Integer object) {
+				unpartitionedSum.addAndGet(object);
+			}
+		});
+		assertEquals(10000L * 9999 / 2, unpartitionedSum.get());
+	}
+
+	/**
+	 * Test that nested loops that use many more tasks than there are threads
+	 * complete
+	 */
+	@Test(timeout = 60000)
+	public void testNested() {
+		final AtomicLong count = new AtomicLong();
+
+		Parallel.forIndex(0, 4 * ForkJoinParallel.getParallelism(), 1, new Operation<Integer>() {
+			@Override
+			public void perform(Integer outer) {
+				Parallel.forIndex(0, 1000, 1, new Operation<Integer>() {
+					@Override
+					public void perform(Integer inner) {
+						count.incrementAndGet();
+					}
+				});
+			}
+		});
+
+		assertEquals(4000L * ForkJoinParallel.getParallelism(), count.get());
+	}
+
+	/**
+	 * Test that exceptions thrown by the operation are propagated
+	 */
+	@Test(expected = IllegalStateException.class)
+	public void testException() {
+		Parallel.forIndex(0, 1000, 1, new Operation<Integer>() {
+			@Override
+			public void perform(Integer object) {
+				if (object == 500)
+					throw new IllegalStateException();
+			}
+		});
+	}
+}
@@ -0,0 +1,170 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.audio.benchmark;
+
+import java.io.File;
+import java.util.Random;
+
+import org.openimaj.audio.AudioFormat;
+import org.openimaj.audio.AudioStream;
+import org.openimaj.audio.SampleChunk;
+import org.openimaj.audio.features.MFCC;
+import org.openimaj.audio.processor.FixedSizeSampleAudioProcessor;
+import org.openimaj.audio.timecode.AudioTimecode;
+import org.openimaj.video.xuggle.XuggleAudio;
+
+/**
+ * Measure the real-time factor (seconds of audio processed per second of
+ * processing) of windowing audio with a {@link FixedSizeSampleAudioProcessor}
+ * and of extracting {@link MFCC}s from the windows. By default a long 48kHz
+ * recording with broadcast-like content (a mixture of tones and noise bursts)
+ * is synthesised on the fly, delivered in decoder-sized chunks; alternatively a
+ * file can be given on the command line.
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class MFCCBenchmark {
+	private static final int SAMPLE_RATE = 48000;
+	private static final int DURATION_SECS = 30 * 60;
+	private static final int CHUNK_SIZE = 1152;
+
+	/**
+	 * Stream of synthetic audio. A minute of audio is generated up front and
+	 * then repeated so that generating the samples does not dominate the
+	 * timings.
+	 */
+	private static class SyntheticAudio extends AudioStream {
+		private final long totalSamples;
+		private final byte[] data;
+		private long position = 0;
+
+		SyntheticAudio(int seconds, int nChannels) {
+			this.format = new AudioFormat(16, SAMPLE_RATE / 1000.0, nChannels);
+			this.totalSamples = (long) seconds * SAMPLE_RATE * nChannels;
+			this.data = new byte[60 * SAMPLE_RATE * nChannels * 2];
+
+			// change the content every half second
+			final Random rng = new Random(42);
+			double freq = 0;
+			double noise = 0;
+			for (int i = 0; i < data.length / 2; i++) {
+				final int frame = i / nChannels;
+				if (frame % (SAMPLE_RATE / 2) == 0 && i % nChannels == 0) {
+					freq = 100 + rng.nextDouble() * 4000;
+					noise = rng.nextDouble() * 0.5;
+				}
+
+				final double t = (double) frame / SAMPLE_RATE;
+				final double v = 0.5 * Math.sin(2 * Math.PI * freq * t) + noise * (rng.nextDouble() - 0.5);
+				final short s = (short) (Short.MAX_VALUE * Math.max(-1, Math.min(1, v)));
+				data[2 * i] = (byte) s;
+				data[2 * i + 1] = (byte) (s >> 8);
+			}
+		}
+
+		@Override
+		public SampleChunk nextSampleChunk() {
+			if (position >= totalSamples)
+				return null;
+
+			final int nChannels = format.getNumChannels();
+			final int n = (int) Math.min(CHUNK_SIZE * nChannels, totalSamples - position);
+			final int offset = (int) ((position * 2) % data.length);
+
+			// like a decoder, a new array is provided for every chunk
+			final byte[] samples = new byte[n * 2];
+			for (int i = 0; i < samples.length;) {
+				final int len = Math.min(samples.length - i, data.length - (offset + i) % data.length);
+				System.arraycopy(data, (offset + i) % data.length, samples, i, len);
+				i += len;
+			}
+
+			final SampleChunk sc = new SampleChunk(samples, format,
+					new AudioTimecode((long) (position / (format.getSampleRateKHz() * nChannels))));
+			position += n;
+			return sc;
+		}
+
+		@Override
+		public void reset() {
+			position = 0;
+		}
+
+		@Override
+		public long getLength() {
+			return (long) (totalSamples / (format.getSampleRateKHz() * format.getNumChannels()));
+		}
+	}
+
+	private static AudioStream open(String[] args) {
+		if (args.length > 0)
+			return new XuggleAudio(new File(args[0]));
+		return new SyntheticAudio(DURATION_SECS, 1);
+	}
+
+	/**
+	 * Main method
+	 * 
+	 * @param args
+	 *            an optional audio file to use instead of the synthetic audio
+	 */
+	public static void main(String[] args) {
+		// 25ms and 100ms windows with a 10ms step, and non-overlapping 1024
+		// sample windows
+		final int[][] configs = { { 1200, 480 }, { 4800, 480 }, { 1024, 0 } };
+
+		System.out.format("%10s %8s %12s %10s %10s%n", "window", "step", "audio secs", "windowing", "mfcc");
+
+		for (final int[] config : configs) {
+			// windowing alone
+			AudioStream stream = open(args);
+			final double seconds = stream.getLength() / 1000.0;
+			final FixedSizeSampleAudioProcessor fssap = new FixedSizeSampleAudioProcessor(stream, config[0], config[1]);
+
+			long t0 = System.nanoTime();
+			while (fssap.nextSampleChunk() != null)
+				;
+			final double windowRTF = seconds / ((System.nanoTime() - t0) / 1e9);
+
+			// windowing and mfcc extraction
+			stream = open(args);
+			final MFCC mfcc = new MFCC(new FixedSizeSampleAudioProcessor(stream, config[0], config[1]));
+
+			t0 = System.nanoTime();
+			while (mfcc.nextSampleChunk() != null)
+				;
+			final double mfccRTF = seconds / ((System.nanoTime() - t0) / 1e9);
+
+			System.out.format("%10d %8d %12.1f %9.1fx %9.1fx%n", config[0], config[1], seconds, windowRTF, mfccRTF);
+		}
+
+		System.exit(0);
+	}
+}
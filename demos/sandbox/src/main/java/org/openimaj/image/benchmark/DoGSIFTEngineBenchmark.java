@@ -0,0 +1,117 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.image.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import org.openimaj.image.FImage;
+import org.openimaj.image.ImageUtilities;
+import org.openimaj.image.feature.local.engine.DoGSIFTEngine;
+
+/**
+ * Measure the throughput (in images per second) of the {@link DoGSIFTEngine}
+ * as the number of threads it uses is increased up to the number of available
+ * processors.
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class DoGSIFTEngineBenchmark {
+	private static final int WARMUP = 2;
+	private static final int REPEATS = 5;
+
+	/**
+	 * Create a test image containing randomly placed Gaussian blobs of
+	 * different sizes
+	 */
+	private static FImage createImage(int width, int height) {
+		final FImage image = new FImage(width, height);
+		final Random rng = new Random(42);
+
+		for (int i = 0; i < 400; i++) {
+			final int cx = rng.nextInt(width);
+			final int cy = rng.nextInt(height);
+			final float sigma = 2 + rng.nextFloat() * 20;
+			final float value = rng.nextFloat();
+			final int r = (int) (3 * sigma);
+
+			for (int y = Math.max(0, cy - r); y < Math.min(height, cy + r); y++) {
+				for (int x = Math.max(0, cx - r); x < Math.min(width, cx + r); x++) {
+					final float d2 = (x - cx) * (x - cx) + (y - cy) * (y - cy);
+					image.pixels[y][x] += value * (float) Math.exp(-d2 / (2 * sigma * sigma));
+				}
+			}
+		}
+
+		return image.normalise();
+	}
+
+	/**
+	 * Main method
+	 * 
+	 * @param args
+	 *            an optional image file to use instead of the generated image
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		final FImage image = args.length > 0 ? ImageUtilities.readF(new File(args[0])) : createImage(1600, 1200);
+		final int ncores = Runtime.getRuntime().availableProcessors();
+
+		final DoGSIFTEngine engine = new DoGSIFTEngine();
+
+		System.out.format("%dx%d image; %d processors%n", image.width, image.height, ncores);
+		System.out.format("%8s %10s %12s %10s%n", "threads", "features", "images/sec", "speedup");
+
+		double base = 0;
+		for (int threads = 1;; threads = Math.min(2 * threads, ncores)) {
+			engine.getOptions().setParallelism(threads);
+
+			int nfeatures = 0;
+			for (int i = 0; i < WARMUP; i++)
+				nfeatures = engine.findFeatures(image).size();
+
+			final long t0 = System.nanoTime();
+			for (int i = 0; i < REPEATS; i++)
+				engine.findFeatures(image);
+			final double rate = REPEATS / ((System.nanoTime() - t0) / 1e9);
+
+			if (threads == 1)
+				base = rate;
+
+			System.out.format("%8d %10d %12.3f %10.2f%n", threads, nfeatures, rate, rate / base);
+
+			if (threads == ncores)
+				break;
+		}
+
+		System.exit(0);
+	}
+}
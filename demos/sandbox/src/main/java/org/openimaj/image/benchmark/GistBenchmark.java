@@ -0,0 +1,89 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.image.benchmark;
+
+import org.openimaj.image.FImage;
+import org.openimaj.image.MBFImage;
+import org.openimaj.image.colour.ColourSpace;
+import org.openimaj.image.feature.global.Gist;
+import org.openimaj.util.parallel.GlobalExecutorPool;
+
+/**
+ * Measure the throughput of {@link Gist} extraction from colour thumbnails,
+ * with fresh extractors for every image (which share the cached filter banks),
+ * with a reused extractor, and with the filters convolved on the global
+ * thread pool.
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class GistBenchmark {
+	private static final int WARMUP = 5;
+	private static final int REPEATS = 50;
+
+	private static MBFImage randomImage(int width, int height) {
+		return new MBFImage(ColourSpace.RGB, FImage.randomImage(width, height), FImage.randomImage(width, height),
+				FImage.randomImage(width, height));
+	}
+
+	private static double time(MBFImage image, Gist<MBFImage> gist) {
+		for (int i = 0; i < WARMUP; i++)
+			(gist == null ? new Gist<MBFImage>() : gist).analyseImage(image);
+
+		final long t0 = System.nanoTime();
+		for (int i = 0; i < REPEATS; i++)
+			(gist == null ? new Gist<MBFImage>() : gist).analyseImage(image);
+
+		return (System.nanoTime() - t0) / (REPEATS * 1e6);
+	}
+
+	/**
+	 * Main method
+	 * 
+	 * @param args
+	 *            ignored
+	 */
+	public static void main(String[] args) {
+		final MBFImage image = randomImage(160, 120);
+
+		final Gist<MBFImage> pooled = new Gist<MBFImage>();
+		pooled.setThreadPool(GlobalExecutorPool.getPool());
+
+		final double fresh = time(image, null);
+		final double reused = time(image, new Gist<MBFImage>());
+		final double parallel = time(image, pooled);
+
+		System.out.format("%-10s %12s%n", "mode", "ms/image");
+		System.out.format("%-10s %12.2f%n", "fresh", fresh);
+		System.out.format("%-10s %12.2f%n", "reused", reused);
+		System.out.format("%-10s %12.2f%n", "pooled", parallel);
+
+		System.exit(0);
+	}
+}
@@ -0,0 +1,132 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.image.benchmark;
+
+import java.util.Random;
+
+import org.openimaj.image.FImage;
+import org.openimaj.image.processing.morphology.Dilate;
+import org.openimaj.image.processing.morphology.Erode;
+import org.openimaj.image.processing.morphology.PackedBinaryImage;
+import org.openimaj.image.processing.morphology.Skeleton;
+import org.openimaj.image.processing.morphology.StructuringElement;
+import org.openimaj.math.geometry.shape.Rectangle;
+
+/**
+ * Compare binary morphology on {@link FImage}s with the bit-packed
+ * {@link PackedBinaryImage} on a synthetic page of text-like strokes.
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class MorphologyBenchmark {
+	private static FImage createPage(int width, int height) {
+		final Random rng = new Random(0);
+		final FImage page = new FImage(width, height);
+
+		// rows of short thick strokes, roughly like lines of print
+		for (int line = 20; line < height - 20; line += 30) {
+			for (int x = 20; x < width - 30; x += 4 + rng.nextInt(12)) {
+				final int w = rng.nextBoolean() ? 3 : 2 + rng.nextInt(15);
+				final int h = w > 3 ? 3 : 5 + rng.nextInt(12);
+
+				page.drawShapeFilled(new Rectangle(x, line, w, h), 1f);
+			}
+		}
+
+		return page;
+	}
+
+	private static double time(Runnable r, int repeats) {
+		r.run();
+
+		final long t0 = System.nanoTime();
+		for (int i = 0; i < repeats; i++)
+			r.run();
+
+		return (System.nanoTime() - t0) / (repeats * 1e6);
+	}
+
+	/**
+	 * Main method
+	 * 
+	 * @param args
+	 *            ignored
+	 */
+	public static void main(String[] args) {
+		final FImage page = createPage(800, 600);
+		final PackedBinaryImage packed = new PackedBinaryImage(page);
+
+		final double fdilate = time(new Runnable() {
+			@Override
+			public void run() {
+				page.process(new Dilate(StructuringElement.BOX));
+			}
+		}, 3);
+		final double pdilate = time(new Runnable() {
+			@Override
+			public void run() {
+				packed.clone().dilate(StructuringElement.BOX);
+			}
+		}, 100);
+
+		final double ferode = time(new Runnable() {
+			@Override
+			public void run() {
+				page.process(new Erode(StructuringElement.BOX));
+			}
+		}, 3);
+		final double perode = time(new Runnable() {
+			@Override
+			public void run() {
+				packed.clone().erode(StructuringElement.BOX);
+			}
+		}, 100);
+
+		final double fskel = time(new Runnable() {
+			@Override
+			public void run() {
+				page.process(new Skeleton());
+			}
+		}, 1);
+		final double pskel = time(new Runnable() {
+			@Override
+			public void run() {
+				packed.clone().skeleton();
+			}
+		}, 10);
+
+		System.out.format("%-10s %12s %12s%n", "operation", "FImage(ms)", "packed(ms)");
+		System.out.format("%-10s %12.2f %12.2f%n", "dilate", fdilate, pdilate);
+		System.out.format("%-10s %12.2f %12.2f%n", "erode", ferode, perode);
+		System.out.format("%-10s %12.2f %12.2f%n", "skeleton", fskel, pskel);
+
+		System.exit(0);
+	}
+}
@@ -0,0 +1,103 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.image.benchmark;
+
+import java.util.Set;
+
+import org.openimaj.image.FImage;
+import org.openimaj.image.pixel.Pixel;
+import org.openimaj.image.processing.algorithm.FilterSupport;
+import org.openimaj.image.processing.algorithm.HistogramRankFilter;
+import org.openimaj.image.processing.algorithm.MaxFilter;
+import org.openimaj.image.processing.algorithm.MedianFilter;
+import org.openimaj.image.processing.algorithm.MinFilter;
+import org.openimaj.image.processor.SinglebandImageProcessor;
+
+/**
+ * Compare the throughput of the sorting {@link MedianFilter} with the
+ * {@link HistogramRankFilter}, and of the block {@link MinFilter} and
+ * {@link MaxFilter}, for square windows of different radii. The sorting median
+ * filter is skipped for the larger windows as it takes too long.
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class RankFilterBenchmark {
+	private static final int WARMUP = 5;
+	private static final int REPEATS = 20;
+	private static final int MAX_SORTING_RADIUS = 7;
+
+	private static double time(FImage image, SinglebandImageProcessor<Float, FImage> proc) {
+		final FImage work = image.clone();
+
+		for (int i = 0; i < WARMUP; i++)
+			work.internalCopy(image).processInplace(proc);
+
+		long total = 0;
+		for (int i = 0; i < REPEATS; i++) {
+			work.internalCopy(image);
+			final long t0 = System.nanoTime();
+			work.processInplace(proc);
+			total += System.nanoTime() - t0;
+		}
+
+		return total / (REPEATS * 1e6);
+	}
+
+	/**
+	 * Main method
+	 * 
+	 * @param args
+	 *            ignored
+	 */
+	public static void main(String[] args) {
+		final int[][] sizes = { { 640, 480 }, { 1920, 1080 } };
+		final int[] radii = { 1, 3, 7, 15, 31 };
+
+		System.out.format("%-12s %6s %12s %12s %12s %12s%n", "size", "radius", "median(ms)", "hist(ms)", "min(ms)",
+				"max(ms)");
+		for (final int[] size : sizes) {
+			final FImage image = FImage.randomImage(size[0], size[1]);
+
+			for (final int radius : radii) {
+				final Set<Pixel> support = FilterSupport.createBlockSupport(2 * radius + 1, 2 * radius + 1);
+
+				final double median = radius <= MAX_SORTING_RADIUS ? time(image, new MedianFilter(support)) : Double.NaN;
+				final double hist = time(image, new HistogramRankFilter(support, 0.5f));
+				final double min = time(image, new MinFilter(support));
+				final double max = time(image, new MaxFilter(support));
+
+				System.out.format("%-12s %6d %12.2f %12.2f %12.2f %12.2f%n", size[0] + "x" + size[1], radius, median,
+						hist, min, max);
+			}
+		}
+
+		System.exit(0);
+	}
+}
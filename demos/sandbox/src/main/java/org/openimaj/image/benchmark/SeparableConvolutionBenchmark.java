@@ -0,0 +1,96 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.image.benchmark;
+
+import org.openimaj.image.FImage;
+import org.openimaj.image.processing.convolution.FGaussianConvolve;
+import org.openimaj.image.processing.convolution.FImageConvolveSeparable;
+import org.openimaj.image.processing.convolution.ParallelFImageConvolveSeparable;
+import org.openimaj.image.processor.SinglebandImageProcessor;
+import org.openimaj.util.parallel.GlobalExecutorPool;
+
+/**
+ * Compare the throughput of {@link FImageConvolveSeparable} with the blocked
+ * {@link ParallelFImageConvolveSeparable} (both on a single thread and on the
+ * global pool) for Gaussian blurs of different sizes.
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class SeparableConvolutionBenchmark {
+	private static final int WARMUP = 5;
+	private static final int REPEATS = 20;
+
+	private static double time(FImage image, SinglebandImageProcessor<Float, FImage> proc) {
+		final FImage work = image.clone();
+
+		for (int i = 0; i < WARMUP; i++)
+			work.internalCopy(image).processInplace(proc);
+
+		long total = 0;
+		for (int i = 0; i < REPEATS; i++) {
+			work.internalCopy(image);
+			final long t0 = System.nanoTime();
+			work.processInplace(proc);
+			total += System.nanoTime() - t0;
+		}
+
+		return total / (REPEATS * 1e6);
+	}
+
+	/**
+	 * Main method
+	 * 
+	 * @param args
+	 *            ignored
+	 */
+	public static void main(String[] args) {
+		final int[][] sizes = { { 640, 480 }, { 1920, 1080 }, { 4000, 3000 } };
+		final float[] sigmas = { 1.6f, 3.2f, 6.4f };
+
+		System.out.format("%-12s %6s %12s %12s %12s%n", "size", "sigma", "current(ms)", "blocked(ms)", "parallel(ms)");
+		for (final int[] size : sizes) {
+			final FImage image = FImage.randomImage(size[0], size[1]);
+
+			for (final float sigma : sigmas) {
+				final float[] kernel = FGaussianConvolve.makeKernel(sigma);
+
+				final double current = time(image, new FImageConvolveSeparable(kernel));
+				final double blocked = time(image, new ParallelFImageConvolveSeparable(kernel, kernel, null));
+				final double parallel = time(image,
+						new ParallelFImageConvolveSeparable(kernel, kernel, GlobalExecutorPool.getPool()));
+
+				System.out.format("%-12s %6.1f %12.2f %12.2f %12.2f%n", size[0] + "x" + size[1], sigma, current, blocked,
+						parallel);
+			}
+		}
+
+		System.exit(0);
+	}
+}
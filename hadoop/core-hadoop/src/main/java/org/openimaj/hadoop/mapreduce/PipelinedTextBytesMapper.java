@@ -0,0 +1,314 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.hadoop.mapreduce;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.openimaj.util.parallel.GlobalExecutorPool.DaemonThreadFactory;
+
+/**
+ * A {@link Mapper} for {@link Text} keys and {@link BytesWritable} values that
+ * pipelines the work for each record across multiple threads within a single
+ * map task. Records are read and decoded by the task's main thread (see
+ * {@link #decode(Text, BytesWritable)}) and placed on a bounded queue; a pool
+ * of worker threads then process the decoded records and serialise the results
+ * (see {@link #process(Text, Object, OutputStream)}). The results are written
+ * back by the main thread in the same order as the input.
+ * <p>
+ * Unlike Hadoop's <code>MultithreadedMapper</code>, only a single instance of
+ * the mapper is created, so any state set up in {@link #setup(Context)} is
+ * shared between the worker threads and must be thread-safe. Output buffers
+ * are reused between records, and at most
+ * <code>numThreads + queueSize</code> decoded records are held in memory at
+ * any time.
+ * <p>
+ * The number of worker threads and the queue size are read from the job
+ * configuration; see {@link #setNumberOfThreads(Job, int)} and
+ * {@link #setQueueSize(Job, int)}.
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ * 
+ * @param <T>
+ *            the type of the decoded records
+ */
+public abstract class PipelinedTextBytesMapper<T> extends Mapper<Text, BytesWritable, Text, BytesWritable> {
+	/**
+	 * Configuration key for the number of worker threads
+	 */
+	public static final String NUM_THREADS_KEY = "openimaj.pipelinedmapper.threads";
+
+	/**
+	 * Configuration key for the number of decoded records that can be waiting
+	 * for a worker
+	 */
+	public static final String QUEUE_SIZE_KEY = "openimaj.pipelinedmapper.queuesize";
+
+	/**
+	 * Set the number of worker threads used by each mapper.
+	 * 
+	 * @param job
+	 *            the job
+	 * @param threads
+	 *            the number of threads; if less than 1, the number of
+	 *            processors will be used
+	 */
+	public static void setNumberOfThreads(Job job, int threads) {
+		job.getConfiguration().setInt(NUM_THREADS_KEY, threads);
+	}
+
+	/**
+	 * Get the number of worker threads from the configuration. Defaults to
+	 * the number of processors.
+	 * 
+	 * @param conf
+	 *            the configuration
+	 * @return the number of threads
+	 */
+	public static int getNumberOfThreads(Configuration conf) {
+		final int threads = conf.getInt(NUM_THREADS_KEY, 0);
+
+		return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+	}
+
+	/**
+	 * Set the number of decoded records that can be queued waiting for a
+	 * worker thread.
+	 * 
+	 * @param job
+	 *            the job
+	 * @param queueSize
+	 *            the queue size; if less than 1, the number of threads will be
+	 *            used
+	 */
+	public static void setQueueSize(Job job, int queueSize) {
+		job.getConfiguration().setInt(QUEUE_SIZE_KEY, queueSize);
+	}
+
+	/**
+	 * Get the queue size from the configuration. Defaults to the number of
+	 * worker threads.
+	 * 
+	 * @param conf
+	 *            the configuration
+	 * @return the queue size
+	 */
+	public static int getQueueSize(Configuration conf) {
+		final int size = conf.getInt(QUEUE_SIZE_KEY, 0);
+
+		return size > 0 ? size : getNumberOfThreads(conf);
+	}
+
+	/**
+	 * A {@link ByteArrayOutputStream} that exposes its buffer
+	 */
+	private static class Buffer extends ByteArrayOutputStream {
+		byte[] getBuffer() {
+			return buf;
+		}
+	}
+
+	/**
+	 * The state associated with a single record as it moves through the
+	 * pipeline. Slots are recycled once their record has been written.
+	 */
+	private class Slot implements Callable<Slot> {
+		final Text key = new Text();
+		final Buffer buffer = new Buffer();
+		final BytesWritable value = new BytesWritable();
+
+		T input;
+		Future<Slot> future;
+		boolean emit;
+		Throwable error;
+
+		@Override
+		public Slot call() {
+			try {
+				buffer.reset();
+				emit = process(key, input, buffer);
+
+				if (emit)
+					value.set(buffer.getBuffer(), 0, buffer.size());
+			} catch (final Throwable e) {
+				error = e;
+			} finally {
+				input = null;
+			}
+			return this;
+		}
+	}
+
+	/**
+	 * Decode the given record. This is called on the task's main thread, in
+	 * the order the records are read. The key and value must not be retained,
+	 * as they will be reused by the framework.
+	 * 
+	 * @param key
+	 *            the key
+	 * @param value
+	 *            the value
+	 * @return the decoded record
+	 * @throws Exception
+	 *             if an error occurs; the record will be reported through
+	 *             {@link #failed(Text, Throwable, Context)}
+	 */
+	protected abstract T decode(Text key, BytesWritable value) throws Exception;
+
+	/**
+	 * Process a decoded record, writing the serialised result to the given
+	 * stream. This is called concurrently from the worker threads.
+	 * 
+	 * @param key
+	 *            the key
+	 * @param input
+	 *            the decoded record
+	 * @param output
+	 *            the stream to write the output value to
+	 * @return true if the contents of the stream should be emitted; false
+	 *         otherwise
+	 * @throws Exception
+	 *             if an error occurs; the record will be reported through
+	 *             {@link #failed(Text, Throwable, Context)}
+	 */
+	protected abstract boolean process(Text key, T input, OutputStream output) throws Exception;
+
+	/**
+	 * Called on the main thread after a record has been successfully
+	 * processed (and written if necessary). Does nothing by default.
+	 * 
+	 * @param key
+	 *            the key
+	 * @param context
+	 *            the context
+	 */
+	protected void succeeded(Text key, Context context) {
+		// do nothing
+	}
+
+	/**
+	 * Called on the main thread if a record could not be decoded or
+	 * processed. Does nothing by default.
+	 * 
+	 * @param key
+	 *            the key
+	 * @param error
+	 *            the error
+	 * @param context
+	 *            the context
+	 */
+	protected void failed(Text key, Throwable error, Context context) {
+		// do nothing
+	}
+
+	@Override
+	public void run(Context context) throws IOException, InterruptedException {
+		setup(context);
+
+		final int numThreads = getNumberOfThreads(context.getConfiguration());
+		final int capacity = numThreads + getQueueSize(context.getConfiguration());
+
+		final ExecutorService service = Executors.newFixedThreadPool(numThreads, new DaemonThreadFactory());
+		final ArrayDeque<Slot> free = new ArrayDeque<Slot>(capacity);
+		final ArrayDeque<Slot> pending = new ArrayDeque<Slot>(capacity);
+
+		for (int i = 0; i < capacity; i++)
+			free.add(new Slot());
+
+		try {
+			while (context.nextKeyValue()) {
+				if (free.isEmpty())
+					free.add(write(pending.poll(), context));
+
+				final Slot slot = free.poll();
+				slot.key.set(context.getCurrentKey());
+				slot.error = null;
+				slot.emit = false;
+
+				try {
+					slot.input = decode(slot.key, context.getCurrentValue());
+					slot.future = service.submit(slot);
+				} catch (final Throwable e) {
+					slot.error = e;
+					slot.future = null;
+				}
+				pending.add(slot);
+
+				// write anything that has already finished
+				while (!pending.isEmpty() && isDone(pending.peek()))
+					free.add(write(pending.poll(), context));
+			}
+
+			while (!pending.isEmpty())
+				free.add(write(pending.poll(), context));
+		} finally {
+			service.shutdownNow();
+			cleanup(context);
+		}
+	}
+
+	private boolean isDone(Slot slot) {
+		return slot.future == null || slot.future.isDone();
+	}
+
+	private Slot write(Slot slot, Context context) throws IOException, InterruptedException {
+		if (slot.future != null) {
+			try {
+				slot.future.get();
+			} catch (final ExecutionException e) {
+				slot.error = e.getCause();
+			}
+			slot.future = null;
+		}
+
+		if (slot.error != null) {
+			failed(slot.key, slot.error, context);
+		} else {
+			if (slot.emit)
+				context.write(slot.key, slot.value);
+
+			succeeded(slot.key, context);
+		}
+
+		return slot;
+	}
+}
@@ -70,6 +70,12 @@ public class HadoopGlobalFeaturesOptions {
 	@Option(name="--remove", aliases="-rm", required=false, usage="Remove the existing output location if it exists.", metaVar="BOOLEAN")
 	private boolean replace = false;
 
+	@Option(name="--threads", aliases="-j", required=false, usage="Use a pipelined mapper with NUMBER extraction threads. If not set, a standard single-threaded mapper is used.", metaVar="NUMBER")
+	protected int threads = 0;
+	
+	@Option(name="--queue-size", aliases="-q", required=false, usage="Allow up to NUMBER decoded images to wait for an extraction thread when using the pipelined mapper. Defaults to the number of threads.", metaVar="NUMBER")
+	protected int queueSize = 0;
+
 	private boolean beforeMaps;
 	
 	/**
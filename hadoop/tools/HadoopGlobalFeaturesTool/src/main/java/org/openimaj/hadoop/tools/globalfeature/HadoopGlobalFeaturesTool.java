@@ -31,6 +31,8 @@ package org.openimaj.hadoop.tools.globalfeature;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -48,6 +50,7 @@ import org.apache.hadoop.util.Tool;
 import org.apache.hadoop.util.ToolRunner;
 import org.apache.log4j.Logger;
 import org.openimaj.feature.FeatureVector;
+import org.openimaj.hadoop.mapreduce.PipelinedTextBytesMapper;
 import org.openimaj.hadoop.mapreduce.TextBytesJobUtil;
 import org.openimaj.hadoop.sequencefile.MetadataConfiguration;
 import org.openimaj.hadoop.tools.HadoopToolsUtil;
@@ -69,6 +72,7 @@ public class HadoopGlobalFeaturesTool extends Configured implements Tool
 
 	static class GlobalFeaturesMapper extends Mapper<Text, BytesWritable, Text, BytesWritable> {
 		private HadoopGlobalFeaturesOptions options;
+		private final ByteArrayOutputStream baos = new ByteArrayOutputStream();
 
 		public GlobalFeaturesMapper() {
 		}
@@ -87,7 +91,7 @@ public class HadoopGlobalFeaturesTool extends Configured implements Tool
 				final MBFImage img = ImageUtilities.readMBF(new ByteArrayInputStream(value.getBytes()));
 				final FeatureVector fv = options.featureOp.extract(img);
 
-				final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+				baos.reset();
 				if (options.binary)
 					IOUtils.writeBinary(baos, fv);
 				else
@@ -100,6 +104,44 @@ public class HadoopGlobalFeaturesTool extends Configured implements Tool
 		}
 	}
 
+	/**
+	 * Pipelined version of the {@link GlobalFeaturesMapper}. Images are
+	 * decoded on the map task's main thread and the features are extracted and
+	 * serialised by a pool of worker threads.
+	 * 
+	 * @see PipelinedTextBytesMapper
+	 */
+	static class PipelinedGlobalFeaturesMapper extends PipelinedTextBytesMapper<MBFImage> {
+		private HadoopGlobalFeaturesOptions options;
+
+		@Override
+		protected void setup(Mapper<Text, BytesWritable, Text, BytesWritable>.Context context) {
+			options = new HadoopGlobalFeaturesOptions(context.getConfiguration().getStrings(ARGS_KEY));
+		}
+
+		@Override
+		protected MBFImage decode(Text key, BytesWritable value) throws IOException {
+			return ImageUtilities.readMBF(new ByteArrayInputStream(value.getBytes(), 0, value.getLength()));
+		}
+
+		@Override
+		protected boolean process(Text key, MBFImage img, OutputStream output) throws IOException {
+			final FeatureVector fv = options.featureOp.extract(img);
+
+			if (options.binary)
+				IOUtils.writeBinary(output, fv);
+			else
+				IOUtils.writeASCII(output, fv);
+
+			return true;
+		}
+
+		@Override
+		protected void failed(Text key, Throwable error, Mapper<Text, BytesWritable, Text, BytesWritable>.Context context) {
+			logger.warn("Problem processing image " + key + " (" + error + ")");
+		}
+	}
+
 	@Override
 	public int run(String[] args) throws Exception {
 		final HadoopGlobalFeaturesOptions options = new HadoopGlobalFeaturesOptions(args, true);
@@ -117,7 +159,13 @@ public class HadoopGlobalFeaturesTool extends Configured implements Tool
 
 		final Job job = TextBytesJobUtil.createJob(allPaths, new Path(options.output), metadata, this.getConf());
 		job.setJarByClass(this.getClass());
-		job.setMapperClass(GlobalFeaturesMapper.class);
+		if (options.threads > 0) {
+			job.setMapperClass(PipelinedGlobalFeaturesMapper.class);
+			PipelinedTextBytesMapper.setNumberOfThreads(job, options.threads);
+			PipelinedTextBytesMapper.setQueueSize(job, options.queueSize);
+		} else {
+			job.setMapperClass(GlobalFeaturesMapper.class);
+		}
 		job.getConfiguration().setStrings(ARGS_KEY, args);
 		job.setNumReduceTasks(0);
 
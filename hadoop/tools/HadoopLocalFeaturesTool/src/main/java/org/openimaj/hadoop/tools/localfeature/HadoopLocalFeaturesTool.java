@@ -29,10 +29,13 @@
  */
 package org.openimaj.hadoop.tools.localfeature;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.hadoop.conf.Configured;
@@ -47,9 +50,13 @@ import org.apache.hadoop.util.ToolRunner;
 import org.apache.log4j.Logger;
 import org.openimaj.feature.local.LocalFeature;
 import org.openimaj.feature.local.list.LocalFeatureList;
+import org.openimaj.feature.local.list.MemoryLocalFeatureList;
+import org.openimaj.hadoop.mapreduce.PipelinedTextBytesMapper;
 import org.openimaj.hadoop.mapreduce.TextBytesJobUtil;
 import org.openimaj.hadoop.sequencefile.MetadataConfiguration;
 import org.openimaj.hadoop.sequencefile.TextBytesSequenceFileUtility;
+import org.openimaj.image.ImageUtilities;
+import org.openimaj.image.MBFImage;
 import org.openimaj.io.IOUtils;
 import org.openimaj.time.Timer;
 
@@ -76,6 +83,7 @@ public class HadoopLocalFeaturesTool extends Configured implements Tool {
 
 		private static final Logger logger = Logger.getLogger(LocalFeaturesMapper.class);
 		private HadoopLocalFeaturesToolOptions options;
+		private final ByteArrayOutputStream baos = new ByteArrayOutputStream();
 
 		@Override
 		protected void setup(Context context) throws IOException,
@@ -99,7 +107,6 @@ public class HadoopLocalFeaturesTool extends Configured implements Tool {
 				final Timer t = Timer.timer();
 				logger.info("Generating Keypoint for image: " + key);
 				logger.trace("Keypoint mode: " + options.getMode());
-				ByteArrayOutputStream baos = null;
 				final LocalFeatureList<? extends LocalFeature<?, ?>> kpl = options.getMode().extract(value.getBytes());
 
 				logger.debug("Keypoints generated! Found: " + kpl.size());
@@ -109,7 +116,7 @@ public class HadoopLocalFeaturesTool extends Configured implements Tool {
 				}
 
 				logger.trace("Writing");
-				baos = new ByteArrayOutputStream();
+				baos.reset();
 				if (options.isAsciiMode()) {
 					IOUtils.writeASCII(baos, kpl);
 				} else {
@@ -126,6 +133,78 @@ public class HadoopLocalFeaturesTool extends Configured implements Tool {
 		}
 	}
 
+	/**
+	 * Pipelined feature extraction mapper. Images are decoded on the map
+	 * task's main thread and the features are extracted and serialised by a
+	 * pool of worker threads, with the results being written in the input
+	 * order. The features are extracted from the decoded {@link MBFImage}
+	 * using the <code>extractFeature(MBFImage)</code> method of the selected
+	 * mode.
+	 * 
+	 * @see PipelinedTextBytesMapper
+	 * 
+	 * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+	 */
+	static class PipelinedLocalFeaturesMapper extends PipelinedTextBytesMapper<MBFImage> {
+		private static final Logger logger = Logger.getLogger(PipelinedLocalFeaturesMapper.class);
+		private HadoopLocalFeaturesToolOptions options;
+
+		@Override
+		protected void setup(Context context) throws IOException, InterruptedException {
+			options = new HadoopLocalFeaturesToolOptions(context.getConfiguration().getStrings(ARGS_KEY));
+			options.prepare();
+		}
+
+		@Override
+		protected MBFImage decode(Text key, BytesWritable value) throws IOException {
+			return ImageUtilities.readMBF(new ByteArrayInputStream(value.getBytes(), 0, value.getLength()));
+		}
+
+		@Override
+		protected boolean process(Text key, MBFImage image, OutputStream output) throws IOException {
+			final Timer t = Timer.timer();
+			logger.info("Generating Keypoint for image: " + key);
+
+			final LocalFeatureList<? extends LocalFeature<?, ?>> kpl = asList(options.getMode().extractFeature(image));
+
+			logger.debug("Keypoints generated! Found: " + kpl.size());
+			if (options.dontwrite) {
+				logger.trace("Not Writing");
+				return false;
+			}
+
+			logger.trace("Writing");
+			if (options.isAsciiMode()) {
+				IOUtils.writeASCII(output, kpl);
+			} else {
+				IOUtils.writeBinary(output, kpl);
+			}
+			logger.info("Done in " + t.duration() + "ms");
+
+			return true;
+		}
+
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		private static LocalFeatureList<? extends LocalFeature<?, ?>> asList(List<? extends LocalFeature<?, ?>> features) {
+			if (features instanceof LocalFeatureList)
+				return (LocalFeatureList<? extends LocalFeature<?, ?>>) features;
+
+			return new MemoryLocalFeatureList(features);
+		}
+
+		@Override
+		protected void succeeded(Text key, Context context) {
+			context.getCounter(LocalFeaturesMapper.Counters.SUCCESSFUL).increment(1L);
+		}
+
+		@Override
+		protected void failed(Text key, Throwable error, Context context) {
+			context.getCounter(LocalFeaturesMapper.Counters.FAILED).increment(1L);
+			logger.warn("Problem with this image. (" + error + "/" + key + ")");
+			error.printStackTrace(System.err);
+		}
+	}
+
 	@Override
 	public int run(String[] args) throws Exception {
 		final HadoopLocalFeaturesToolOptions options = new HadoopLocalFeaturesToolOptions(args, true);
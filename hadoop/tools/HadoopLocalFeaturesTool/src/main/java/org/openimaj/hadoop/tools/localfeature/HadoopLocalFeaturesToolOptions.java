@@ -43,8 +43,10 @@ import org.kohsuke.args4j.CmdLineOptionsProvider;
 import org.kohsuke.args4j.CmdLineParser;
 import org.kohsuke.args4j.Option;
 import org.kohsuke.args4j.ProxyOptionHandler;
+import org.openimaj.hadoop.mapreduce.PipelinedTextBytesMapper;
 import org.openimaj.hadoop.sequencefile.SequenceFileUtility;
 import org.openimaj.hadoop.tools.localfeature.HadoopLocalFeaturesTool.LocalFeaturesMapper;
+import org.openimaj.hadoop.tools.localfeature.HadoopLocalFeaturesTool.PipelinedLocalFeaturesMapper;
 import org.openimaj.hadoop.tools.localfeature.HadoopLocalFeaturesToolOptions.MapperMode.MapperModeOp;
 import org.openimaj.tools.localfeature.options.ExtractorOptions;
 
@@ -90,6 +92,39 @@ public class HadoopLocalFeaturesToolOptions extends ExtractorOptions {
 					}
 				};
 			}
+		},
+		PIPELINED {
+			@Override
+			public MapperModeOp getOptions() {
+				return new MapperModeOp() {
+					@Option(
+							name = "--threads",
+							aliases = "-j",
+							required = false,
+							usage = "Use NUMBER extraction threads per mapper. defaults n processors.",
+							metaVar = "NUMBER")
+					private int concurrency = Runtime.getRuntime().availableProcessors();
+
+					@Option(
+							name = "--queue-size",
+							aliases = "-q",
+							required = false,
+							usage = "Allow up to NUMBER decoded images to wait for an extraction thread. defaults to the number of threads.",
+							metaVar = "NUMBER")
+					private int queueSize = 0;
+
+					@Override
+					public void prepareJobMapper(Job job, Class<LocalFeaturesMapper> mapperClass) {
+						if (concurrency <= 0)
+							concurrency = Runtime.getRuntime().availableProcessors();
+
+						job.setMapperClass(PipelinedLocalFeaturesMapper.class);
+						PipelinedTextBytesMapper.setNumberOfThreads(job, concurrency);
+						PipelinedTextBytesMapper.setQueueSize(job, queueSize);
+						System.out.println("Using pipelined mapper");
+					}
+				};
+			}
 		};
 
 		@Override
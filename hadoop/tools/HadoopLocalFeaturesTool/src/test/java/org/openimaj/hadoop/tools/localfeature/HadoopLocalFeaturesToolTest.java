@@ -29,6 +29,7 @@
  */
 package org.openimaj.hadoop.tools.localfeature;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.io.ByteArrayOutputStream;
@@ -156,6 +157,33 @@ public class HadoopLocalFeaturesToolTest {
 
 	}
 
+	/**
+	 * Test that the pipelined mapper produces the same features as the
+	 * standard mapper
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void testPipelinedKeypointGeneration() throws Exception {
+		final File featureSeqFile = folder.newFile("seq-testPipelinedKeypointGeneration.features");
+		final File featureSeqFilePipelined = folder.newFile("seq-testPipelinedKeypointGeneration.featuresPipelined");
+		featureSeqFile.delete();
+		featureSeqFilePipelined.delete();
+
+		HadoopLocalFeaturesTool.main(new String[] { "-D", "mapred.child.java.opts=\"-Xmx3000M\"", "-i",
+				imageSeqFile.getAbsolutePath(), "-o", featureSeqFile.getAbsolutePath() });
+		HadoopLocalFeaturesTool.main(new String[] { "-D", "mapred.child.java.opts=\"-Xmx3000M\"", "-i",
+				imageSeqFile.getAbsolutePath(), "-o", featureSeqFilePipelined.getAbsolutePath(), "-mm", "PIPELINED",
+				"-j", "2", "-q", "1" });
+
+		for (final Text key : keys) {
+			final LocalFeatureList<Keypoint> kpl = getKPLFromSequence(key, featureSeqFile);
+			final LocalFeatureList<Keypoint> pipelinedKpl = getKPLFromSequence(key, featureSeqFilePipelined);
+
+			assertEquals(kpl, pipelinedKpl);
+		}
+	}
+
 	private LocalFeatureList<Keypoint> getKPLFromSequence(Text text, File featureSeqFile) throws IOException {
 		final File keyOut = folder.newFile("out" + text.hashCode() + "-" + featureSeqFile.hashCode() + "Directory");
 		keyOut.delete();
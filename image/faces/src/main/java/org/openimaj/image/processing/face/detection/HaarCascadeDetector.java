@@ -47,6 +47,7 @@ import org.openimaj.image.FImage;
 import org.openimaj.image.objectdetection.filtering.DetectionFilter;
 import org.openimaj.image.objectdetection.filtering.OpenCVGrouping;
 import org.openimaj.image.objectdetection.haar.Detector;
+import org.openimaj.image.objectdetection.haar.ForkJoinDetector;
 import org.openimaj.image.objectdetection.haar.OCVHaarLoader;
 import org.openimaj.image.objectdetection.haar.StageTreeClassifier;
 import org.openimaj.image.processing.algorithm.EqualisationProcessor;
@@ -296,9 +297,13 @@ public class HaarCascadeDetector implements FaceDetector<DetectedFace, FImage> {
 
 	@Override
 	public List<DetectedFace> detectFaces(FImage image) {
-		if (histogramEqualize)
+		if (histogramEqualize) {
 			image.processInplace(new EqualisationProcessor());
 
+			if (detector.getAnalysisCache() != null)
+				detector.getAnalysisCache().invalidate(image);
+		}
+
 		final List<Rectangle> rects = detector.detect(image);
 		final List<ObjectIntPair<Rectangle>> filteredRects = groupingFilter.apply(rects);
 
@@ -341,6 +346,8 @@ public class HaarCascadeDetector implements FaceDetector<DetectedFace, FImage> {
 
 			if (this.detector == null)
 				this.detector = new Detector(cascade);
+			else if (this.detector instanceof ForkJoinDetector)
+				this.detector = new ForkJoinDetector(cascade, this.detector.getScaleFactor());
 			else
 				this.detector = new Detector(cascade, this.detector.getScaleFactor());
 		} catch (final Exception e) {
@@ -367,6 +374,39 @@ public class HaarCascadeDetector implements FaceDetector<DetectedFace, FImage> {
 		this.detector.setScaleFactor(scaleFactor);
 	}
 
+	/**
+	 * Set whether detection should be multi-threaded. If enabled, a
+	 * {@link ForkJoinDetector} is used to search all the scales concurrently;
+	 * otherwise a single-threaded {@link Detector} is used. The current
+	 * detector parameters are retained.
+	 * 
+	 * @param multiThreaded
+	 *            true if detection should be multi-threaded
+	 */
+	public void setMultiThreaded(boolean multiThreaded) {
+		if (multiThreaded == isMultiThreaded())
+			return;
+
+		final Detector old = this.detector;
+		if (multiThreaded)
+			this.detector = new ForkJoinDetector(old.getClassifier(), old.getScaleFactor(), old.smallStep(),
+					old.bigStep(), null);
+		else
+			this.detector = new Detector(old.getClassifier(), old.getScaleFactor(), old.smallStep(), old.bigStep());
+
+		this.detector.setMinimumDetectionSize(old.getMinimumDetectionSize());
+		this.detector.setMaximumDetectionSize(old.getMaximumDetectionSize());
+		this.detector.setAnalysisCache(old.getAnalysisCache());
+	}
+
+	/**
+	 * @return true if detection is multi-threaded
+	 * @see #setMultiThreaded(boolean)
+	 */
+	public boolean isMultiThreaded() {
+		return this.detector instanceof ForkJoinDetector;
+	}
+
 	/**
 	 * Serialize the detector using java serialization to the given stream
 	 * 
@@ -29,18 +29,15 @@
  */
 package org.openimaj.image.connectedcomponent;
 
-import gnu.trove.map.hash.TIntIntHashMap;
-
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Map;
 
 import org.openimaj.image.FImage;
 import org.openimaj.image.analyser.ImageAnalyser;
 import org.openimaj.image.pixel.ConnectedComponent;
 import org.openimaj.image.pixel.ConnectedComponent.ConnectMode;
+import org.openimaj.image.pixel.LabelledComponents;
 import org.openimaj.image.pixel.Pixel;
 
 /**
@@ -111,100 +108,20 @@ public class ConnectedComponentLabeler implements ImageAnalyser<FImage> {
 			}
 		},
 		/**
-		 * The standard two-pass algorithm.
+		 * The standard two-pass algorithm. Equivalent labels are tracked with
+		 * a union-find structure over an integer label image, and
+		 * {@link ConnectedComponent}s are only created once the final labels
+		 * are known.
+		 *
+		 * @see LabelledComponents#label(FImage, float, ConnectMode)
 		 *
 		 * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
 		 */
 		TWO_PASS {
 			@Override
 			public List<ConnectedComponent> findComponents(FImage image, float bgThreshold, ConnectMode mode) {
-				final List<ConnectedComponent> components = new ArrayList<ConnectedComponent>();
-				final TIntIntHashMap linked = new TIntIntHashMap();
-				final int[][] labels = new int[image.height][image.width];
-				int nextLabel = 1;
-
-				// first pass
-				for (int y = 0; y < image.height; y++) {
-					for (int x = 0; x < image.width; x++) {
-						final float element = image.pixels[y][x];
-
-						if (element > bgThreshold) {
-							final List<Pixel> neighbours = mode.getNeighbours(image, x, y, bgThreshold);
-							final List<Integer> L = new ArrayList<Integer>();
-
-							for (final Pixel p : neighbours)
-								if (labels[p.y][p.x] != 0)
-									L.add(labels[p.y][p.x]);
-
-							if (L.size() == 0) {
-								linked.put(nextLabel, nextLabel);
-								labels[y][x] = nextLabel;
-								nextLabel++;
-							} else {
-								int min = Integer.MAX_VALUE;
-								for (final int i : L)
-									if (i < min)
-										min = i;
-								labels[y][x] = min;
-
-								for (final int i : L) {
-									merge(linked, i, min);
-								}
-							}
-						}
-					}
-				}
-
-				// second pass
-				final Map<Integer, ConnectedComponent> comp = new HashMap<Integer, ConnectedComponent>();
-
-				for (int i = 1; i <= linked.size(); i++) {
-					int min = linked.get(i);
-
-					while (true) {
-						final int m = linked.get(min);
-
-						if (m == min)
-							break;
-						else
-							min = m;
-					}
-					linked.put(i, min);
-				}
-
-				for (int y = 0; y < image.height; y++) {
-					for (int x = 0; x < image.width; x++) {
-						if (labels[y][x] != 0) {
-							final int min = linked.get(labels[y][x]);
-							// labels[r][c] = min; //not needed
-
-							if (comp.containsKey(min)) {
-								comp.get(min).addPixel(x, y);
-							} else {
-								final ConnectedComponent cc = new ConnectedComponent();
-								cc.addPixel(x, y);
-								comp.put(min, cc);
-							}
-						}
-					}
-				}
-				components.addAll(comp.values());
-
-				return components;
-			}
-
-			private void merge(TIntIntHashMap linked, int start, int target) {
-				if (start == target)
-					return;
-
-				final int old = linked.get(start);
-
-				if (old > target) {
-					linked.put(start, target);
-					merge(linked, old, target);
-				} else {
-					merge(linked, target, old);
-				}
+				return new ArrayList<ConnectedComponent>(LabelledComponents.label(image, bgThreshold, mode)
+						.getComponents());
 			}
 		},
 		/**
@@ -367,6 +284,20 @@ public class ConnectedComponentLabeler implements ImageAnalyser<FImage> {
 		return components;
 	}
 
+	/**
+	 * Label the connected components of the given image, returning them in
+	 * the compact {@link LabelledComponents} form rather than as a list of
+	 * {@link ConnectedComponent}s. The two-pass algorithm is always used,
+	 * regardless of the algorithm this labeler was constructed with.
+	 *
+	 * @param image
+	 *            the image to extract components from
+	 * @return the labelled components
+	 */
+	public LabelledComponents label(FImage image) {
+		return LabelledComponents.label(image, bgThreshold, mode);
+	}
+
 	@Override
 	public void analyseImage(FImage image) {
 		components = algorithm.findComponents(image, bgThreshold, mode);
@@ -32,7 +32,9 @@ package org.openimaj.image.connectedcomponent.proc;
 import org.openimaj.feature.DoubleFV;
 import org.openimaj.feature.FeatureVectorProvider;
 import org.openimaj.image.pixel.ConnectedComponent;
+import org.openimaj.image.pixel.LabelledComponents;
 import org.openimaj.image.processor.connectedcomponent.ConnectedComponentProcessor;
+import org.openimaj.image.processor.connectedcomponent.LabelledComponentProcessor;
 
 
 /**
@@ -41,7 +43,8 @@ import org.openimaj.image.processor.connectedcomponent.ConnectedComponentProcess
  * 
  * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
  */
-public class AffineInvariantMoments implements ConnectedComponentProcessor, FeatureVectorProvider<DoubleFV> {
+public class AffineInvariantMoments implements ConnectedComponentProcessor, LabelledComponentProcessor,
+		FeatureVectorProvider<DoubleFV> {
 	/**
 	 * The first affine-invariant moment
 	 */
@@ -64,15 +67,21 @@ public class AffineInvariantMoments implements ConnectedComponentProcessor, Feat
 
 	@Override
 	public void process(ConnectedComponent cc) {
-		double u00 = cc.calculateMoment(0, 0);
-		double u20 = cc.calculateMoment(2, 0);
-		double u02 = cc.calculateMoment(0, 2);
-		double u11 = cc.calculateMoment(1, 1);
-		double u21 = cc.calculateMoment(2, 1);
-		double u12 = cc.calculateMoment(1, 2);
-		double u30 = cc.calculateMoment(3, 0);
-		double u03 = cc.calculateMoment(0, 3);
+		compute(cc.calculateMoment(0, 0), cc.calculateMoment(2, 0), cc.calculateMoment(0, 2),
+				cc.calculateMoment(1, 1), cc.calculateMoment(2, 1), cc.calculateMoment(1, 2),
+				cc.calculateMoment(3, 0), cc.calculateMoment(0, 3));
+	}
+
+	@Override
+	public void process(LabelledComponents components, int label) {
+		compute(components.calculateMoment(label, 0, 0), components.calculateMoment(label, 2, 0),
+				components.calculateMoment(label, 0, 2), components.calculateMoment(label, 1, 1),
+				components.calculateMoment(label, 2, 1), components.calculateMoment(label, 1, 2),
+				components.calculateMoment(label, 3, 0), components.calculateMoment(label, 0, 3));
+	}
 
+	private void compute(double u00, double u20, double u02, double u11, double u21, double u12, double u30,
+			double u03) {
 		I1 = ((u20 * u02) - (u11*u11)) / Math.pow(u00, 4);
 		
 		I2 = ((u30*u30 * u03*u03) - (6 * u30 * u21 * u12 * u03) + 
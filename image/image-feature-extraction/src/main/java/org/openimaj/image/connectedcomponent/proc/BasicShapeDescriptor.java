@@ -32,7 +32,9 @@ package org.openimaj.image.connectedcomponent.proc;
 import org.openimaj.feature.DoubleFV;
 import org.openimaj.feature.FeatureVectorProvider;
 import org.openimaj.image.pixel.ConnectedComponent;
+import org.openimaj.image.pixel.LabelledComponents;
 import org.openimaj.image.processor.connectedcomponent.ConnectedComponentProcessor;
+import org.openimaj.image.processor.connectedcomponent.LabelledComponentProcessor;
 
 /**
  * Basic descriptors of the shape of a connected component.
@@ -40,7 +42,8 @@ import org.openimaj.image.processor.connectedcomponent.ConnectedComponentProcess
  * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
  * 
  */
-public class BasicShapeDescriptor implements ConnectedComponentProcessor, FeatureVectorProvider<DoubleFV> {
+public class BasicShapeDescriptor implements ConnectedComponentProcessor, LabelledComponentProcessor,
+		FeatureVectorProvider<DoubleFV> {
 	/**
 	 * An enum of all the different basic shape descriptors.
 	 */
@@ -201,6 +204,30 @@ public class BasicShapeDescriptor implements ConnectedComponentProcessor, Featur
 
 		direction = cc.calculateDirection();
 
+		processShape(cc);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The area, centroid and direction are computed directly from the
+	 * {@link LabelledComponents}; a {@link ConnectedComponent} is only created
+	 * for the descriptors that depend on the boundary of the component.
+	 */
+	@Override
+	public void process(LabelledComponents components, int label) {
+		area = components.calculateArea(label);
+
+		final double[] c = components.calculateCentroid(label);
+		cx = c[0];
+		cy = c[1];
+
+		direction = components.calculateDirection(label);
+
+		processShape(components.getComponent(label));
+	}
+
+	private void processShape(ConnectedComponent cc) {
 		elongatedness = cc.calculateOrientatedBoundingBoxAspectRatio();
 
 		final float edge_length = cc.getOuterBoundary().size();
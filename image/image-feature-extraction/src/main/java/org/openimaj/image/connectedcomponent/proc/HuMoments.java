@@ -32,7 +32,9 @@ package org.openimaj.image.connectedcomponent.proc;
 import org.openimaj.feature.DoubleFV;
 import org.openimaj.feature.FeatureVectorProvider;
 import org.openimaj.image.pixel.ConnectedComponent;
+import org.openimaj.image.pixel.LabelledComponents;
 import org.openimaj.image.processor.connectedcomponent.ConnectedComponentProcessor;
+import org.openimaj.image.processor.connectedcomponent.LabelledComponentProcessor;
 
 
 /**
@@ -41,7 +43,8 @@ import org.openimaj.image.processor.connectedcomponent.ConnectedComponentProcess
  * 
  * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
  */
-public class HuMoments implements ConnectedComponentProcessor, FeatureVectorProvider<DoubleFV> {
+public class HuMoments implements ConnectedComponentProcessor, LabelledComponentProcessor,
+		FeatureVectorProvider<DoubleFV> {
 	/**
 	 * The first Hu moment
 	 */
@@ -79,17 +82,21 @@ public class HuMoments implements ConnectedComponentProcessor, FeatureVectorProv
 	
 	@Override
 	public void process(ConnectedComponent cc) {
-		double v11 = cc.calculateMomentNormalised(1, 1);
-		
-		double v12 = cc.calculateMomentNormalised(1, 2);
-		double v21 = cc.calculateMomentNormalised(2, 1);
-		
-		double v02 = cc.calculateMomentNormalised(0, 2);
-		double v20 = cc.calculateMomentNormalised(2, 0);
-		
-		double v03 = cc.calculateMomentNormalised(0, 3);
-		double v30 = cc.calculateMomentNormalised(3, 0);
-		
+		compute(cc.calculateMomentNormalised(1, 1),
+				cc.calculateMomentNormalised(1, 2), cc.calculateMomentNormalised(2, 1),
+				cc.calculateMomentNormalised(0, 2), cc.calculateMomentNormalised(2, 0),
+				cc.calculateMomentNormalised(0, 3), cc.calculateMomentNormalised(3, 0));
+	}
+
+	@Override
+	public void process(LabelledComponents components, int label) {
+		compute(components.calculateMomentNormalised(label, 1, 1),
+				components.calculateMomentNormalised(label, 1, 2), components.calculateMomentNormalised(label, 2, 1),
+				components.calculateMomentNormalised(label, 0, 2), components.calculateMomentNormalised(label, 2, 0),
+				components.calculateMomentNormalised(label, 0, 3), components.calculateMomentNormalised(label, 3, 0));
+	}
+
+	private void compute(double v11, double v12, double v21, double v02, double v20, double v03, double v30) {
 		h1 = v20 + v02;
 		h2 = ((v20 - v02) * (v20 - v02)) + (4 * v11 * v11); 
 		h3 = ((v30 - 3*v12)*(v30 - 3*v12)) + ((3*v21 - v03)*(3*v21 - v03));
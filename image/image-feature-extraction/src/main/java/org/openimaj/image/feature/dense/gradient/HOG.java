@@ -33,6 +33,7 @@ import org.openimaj.citation.annotation.Reference;
 import org.openimaj.citation.annotation.ReferenceType;
 import org.openimaj.image.FImage;
 import org.openimaj.image.analyser.ImageAnalyser;
+import org.openimaj.image.analysis.ImageAnalysisCache;
 import org.openimaj.image.analysis.algorithm.histogram.GradientOrientationHistogramExtractor;
 import org.openimaj.image.analysis.algorithm.histogram.binning.SpatialBinningStrategy;
 import org.openimaj.image.feature.dense.gradient.binning.FixedHOGStrategy;
@@ -127,6 +128,20 @@ public class HOG implements ImageAnalyser<FImage> {
 		extractor.analyseImage(image);
 	}
 
+	/**
+	 * Analyse the given image, reusing the gradient histogram data from the
+	 * given cache if an identically configured extractor has already analysed
+	 * the image.
+	 *
+	 * @param image
+	 *            the image to analyse
+	 * @param cache
+	 *            the cache
+	 */
+	public void analyseImage(FImage image, ImageAnalysisCache cache) {
+		extractor.analyseImage(image, cache);
+	}
+
 	/**
 	 * Analyse the given image, but construct the internal data such that the
 	 * gradient magnitudes are multiplied by the given edge map before being
@@ -35,7 +35,7 @@ import org.openimaj.citation.annotation.ReferenceType;
 import org.openimaj.feature.DoubleFV;
 import org.openimaj.feature.EnumFV;
 import org.openimaj.feature.FeatureVectorProvider;
-import org.openimaj.image.analyser.PixelAnalyser;
+import org.openimaj.image.analyser.FloatArrayPixelAnalyser;
 
 /**
  * Implementation of Hasler and Susstruck's Colorfulness metric
@@ -64,16 +64,21 @@ import org.openimaj.image.analyser.PixelAnalyser;
 				"status", "PUBLISHED",
 				"unit", "LCAV IVRG"
 		})
-public class Colorfulness implements PixelAnalyser<Float[]>, FeatureVectorProvider<DoubleFV> {
+public class Colorfulness implements FloatArrayPixelAnalyser, FeatureVectorProvider<DoubleFV> {
 	SummaryStatistics rgStats = new SummaryStatistics();
 	SummaryStatistics ybStats = new SummaryStatistics();
 
 	@Override
 	public void analysePixel(Float[] pixel) {
-		final float r = pixel[0];
-		final float g = pixel[1];
-		final float b = pixel[2];
+		analyse(pixel[0], pixel[1], pixel[2]);
+	}
+
+	@Override
+	public void analysePixel(float[] pixel) {
+		analyse(pixel[0], pixel[1], pixel[2]);
+	}
 
+	private void analyse(float r, float g, float b) {
 		final float rg = r - g;
 		final float yb = 0.5f * (r + g) - b;
 
@@ -29,6 +29,8 @@
  */
 package org.openimaj.image.feature.global;
 
+import java.util.concurrent.ThreadPoolExecutor;
+
 import org.openimaj.citation.annotation.Reference;
 import org.openimaj.citation.annotation.ReferenceType;
 import org.openimaj.feature.FloatFV;
@@ -41,11 +43,12 @@ import org.openimaj.image.colour.ColourSpace;
 import org.openimaj.image.colour.RGBColour;
 import org.openimaj.image.processing.algorithm.FourierTransform;
 import org.openimaj.image.processing.convolution.FourierConvolve;
-import org.openimaj.image.processing.convolution.GaborFilters;
 import org.openimaj.image.processing.resize.ResizeProcessor;
 import org.openimaj.image.processor.SinglebandImageProcessor;
+import org.openimaj.math.util.FFTPlanCache;
+import org.openimaj.util.function.Operation;
+import org.openimaj.util.parallel.Parallel;
 
-import edu.emory.mathcs.jtransforms.fft.FloatFFT_2D;
 
 /**
  * Implementation of the "Gist" spatial envelope feature. Based on (and tested
@@ -65,7 +68,14 @@ import edu.emory.mathcs.jtransforms.fft.FloatFFT_2D;
  * pre-defined size (allowing the Gabor filters to be pre-computed and reused).
  * In the variable size mode the Gabor filters will be re-computed as necessary
  * if the image size changes. For computing features to compare images, fixed
- * size mode makes more sense.
+ * size mode makes more sense. The filters are shared between all instances
+ * with the same configuration through the {@link GistFilterBankCache}.
+ * <p>
+ * The convolutions with the individual Gabor filters are independent, and can
+ * be spread across a thread pool by calling
+ * {@link #setThreadPool(ThreadPoolExecutor)}. By default everything runs on
+ * the calling thread, which is the best choice when many images are being
+ * processed in parallel.
  * <p>
  * <b>Example usage for image comparison:</b><br>
  * </br> <code>
@@ -164,6 +174,7 @@ ImageAnalyser<IMAGE>
 	protected boolean fixedSize;
 	protected int imageWidth;
 	protected int imageHeight;
+	protected ThreadPoolExecutor threadPool;
 
 	/**
 	 * Construct a fixed size Gist extractor using the default values.
@@ -245,7 +256,7 @@ ImageAnalyser<IMAGE>
 		this.imageHeight = height;
 
 		if (fixedSize)
-			this.gaborFilters = GaborFilters.createGaborJets(width + 2 * this.boundaryExtension, height + 2
+			this.gaborFilters = GistFilterBankCache.getGaborJets(width + 2 * this.boundaryExtension, height + 2
 					* this.boundaryExtension, orientationsPerScale);
 	}
 
@@ -262,7 +273,7 @@ ImageAnalyser<IMAGE>
 			if (gaborFilters == null || gaborFilters[0].width != image.getWidth()
 					|| gaborFilters[0].height != image.getHeight())
 			{
-				gaborFilters = GaborFilters.createGaborJets(image.getWidth() + 2 * this.boundaryExtension,
+				gaborFilters = GistFilterBankCache.getGaborJets(image.getWidth() + 2 * this.boundaryExtension,
 						image.getHeight() + 2 * this.boundaryExtension, orientationsPerScale);
 			}
 
@@ -292,7 +303,6 @@ ImageAnalyser<IMAGE>
 
 	private MBFImage prefilter(MBFImage img) {
 		final int w = 5;
-		final double s1 = this.prefilterFC / Math.sqrt(Math.log(2));
 
 		final int sw = img.getWidth() + 2 * w;
 		final int sh = img.getHeight() + 2 * w;
@@ -300,16 +310,7 @@ ImageAnalyser<IMAGE>
 		n = n + n % 2;
 		img = img.paddingSymmetric(w, w, w + n - sw, w + n - sh);
 
-		final FImage filter = new FImage(2 * n, n);
-		for (int j = 0; j < n; j++) {
-			final int fy = j - n / 2;
-
-			for (int i = 0; i < n * 2; i += 2) {
-				final int fx = (i / 2) - n / 2;
-
-				filter.pixels[j][i] = (float) Math.exp(-(fx * fx + fy * fy) / (s1 * s1));
-			}
-		}
+		final FImage filter = GistFilterBankCache.getPrefilter(n, prefilterFC);
 
 		final MBFImage output = new MBFImage();
 		for (int b = 0; b < img.numBands(); b++) {
@@ -341,35 +342,39 @@ ImageAnalyser<IMAGE>
 		final int blocksPerFilter = computeNumberOfSamplingBlocks();
 		final int nFeaturesPerBand = gaborFilters.length * blocksPerFilter;
 		final int nFilters = this.gaborFilters.length;
+		final int nBands = img.numBands();
 
 		// pad the image
 		img = img.paddingSymmetric(boundaryExtension, boundaryExtension, boundaryExtension, boundaryExtension);
 
 		final int cols = img.getCols();
 		final int rows = img.getRows();
-		final FloatFFT_2D fft = new FloatFFT_2D(rows, cols);
-
-		final float[][] workingSpace = new float[rows][cols * 2];
-		final FloatFV fv = new FloatFV(nFeaturesPerBand * img.numBands());
+		final FloatFV fv = new FloatFV(nFeaturesPerBand * nBands);
 
-		for (int b = 0; b < img.numBands(); b++) {
-			final FImage band = img.bands.get(b);
-
-			final float[][] preparedImage =
-					FourierTransform.prepareData(band.pixels, rows, cols, true);
-			fft.complexForward(preparedImage);
+		final float[][] preparedBands = new float[nBands][];
+		for (int b = 0; b < nBands; b++) {
+			preparedBands[b] = FourierTransform.prepareData1d(img.bands.get(b).pixels, rows, cols, true);
+			FFTPlanCache.getFloatFFT_2D(rows, cols).complexForward(preparedBands[b]);
+		}
 
-			for (int i = 0; i < nFilters; i++) {
-				// convolve with the filter
-				FImage ig = performConv(fft, preparedImage, workingSpace, this.gaborFilters[i], rows, cols);
+		final Operation<Integer> filterBand = new Operation<Integer>() {
+			@Override
+			public void perform(Integer index) {
+				final int b = index / nFilters;
+				final int i = index % nFilters;
 
-				// remove padding
-				ig = ig.extractROI(boundaryExtension, boundaryExtension, band.width - 2 * boundaryExtension, band.height
-						- 2
-						* boundaryExtension);
+				// convolve with the filter, removing the padding
+				final FImage ig = performConv(preparedBands[b], gaborFilters[i], rows, cols);
 
 				sampleResponses(ig, fv.values, b * nFeaturesPerBand + i * blocksPerFilter);
 			}
+		};
+
+		if (threadPool == null) {
+			for (int i = 0; i < nBands * nFilters; i++)
+				filterBand.perform(i);
+		} else {
+			Parallel.forIndex(0, nBands * nFilters, 1, filterBand, threadPool);
 		}
 
 		return fv;
@@ -429,38 +434,42 @@ ImageAnalyser<IMAGE>
 	}
 
 	/*
-	 * Perform convolution in the frequency domain an reconstruct the resultant
-	 * image as the magnitudes of the complex components from the ifft.
+	 * Perform convolution in the frequency domain and reconstruct the resultant
+	 * image (without the boundary extension) as the magnitudes of the complex
+	 * components from the ifft. The FFT plan and working space belong to the
+	 * calling thread, so this can be called concurrently.
 	 */
-	private FImage performConv(FloatFFT_2D fft, float[][] preparedImage, float[][] workingSpace, FImage filterfft,
-			int rows, int cols)
-	{
+	private FImage performConv(float[] preparedImage, FImage filterfft, int rows, int cols) {
 		final float[][] preparedKernel = filterfft.pixels;
+		final float[] workingSpace = FFTPlanCache.getWorkBuffer(0, rows * cols * 2);
 
-		for (int y = 0; y < rows; y++) {
-			for (int x = 0; x < cols; x++) {
-				final float reImage = preparedImage[y][x * 2];
-				final float imImage = preparedImage[y][1 + x * 2];
+		for (int y = 0, i = 0; y < rows; y++) {
+			final float[] krow = preparedKernel[y];
 
-				final float reKernel = preparedKernel[y][x * 2];
-				final float imKernel = preparedKernel[y][1 + x * 2];
+			for (int x = 0; x < cols; x++, i += 2) {
+				final float reImage = preparedImage[i];
+				final float imImage = preparedImage[i + 1];
 
-				final float re = reImage * reKernel - imImage * imKernel;
-				final float im = reImage * imKernel + imImage * reKernel;
+				final float reKernel = krow[x * 2];
+				final float imKernel = krow[1 + x * 2];
 
-				workingSpace[y][x * 2] = re;
-				workingSpace[y][1 + x * 2] = im;
+				workingSpace[i] = reImage * reKernel - imImage * imKernel;
+				workingSpace[i + 1] = reImage * imKernel + imImage * reKernel;
 			}
 		}
 
-		fft.complexInverse(workingSpace, true);
+		FFTPlanCache.getFloatFFT_2D(rows, cols).complexInverse(workingSpace, true);
 
-		final FImage out = new FImage(cols, rows);
-		for (int r = 0; r < rows; r++) {
-			for (int c = 0; c < cols; c++) {
-				out.pixels[r][c] = (float) Math.sqrt(workingSpace[r][c * 2] * workingSpace[r][c * 2]
-						+ workingSpace[r][1 + c * 2]
-								* workingSpace[r][1 + c * 2]);
+		final FImage out = new FImage(cols - 2 * boundaryExtension, rows - 2 * boundaryExtension);
+		for (int r = 0; r < out.height; r++) {
+			final float[] orow = out.pixels[r];
+			int i = 2 * ((r + boundaryExtension) * cols + boundaryExtension);
+
+			for (int c = 0; c < out.width; c++, i += 2) {
+				final float re = workingSpace[i];
+				final float im = workingSpace[i + 1];
+
+				orow[c] = (float) Math.sqrt(re * re + im * im);
 			}
 		}
 		return out;
@@ -534,6 +543,30 @@ ImageAnalyser<IMAGE>
 		return output;
 	}
 
+	/**
+	 * Set the thread pool used to convolve the image bands with the Gabor
+	 * filters. If the pool is <code>null</code> (the default) the convolutions
+	 * are performed on the calling thread. The pool should not be one that is
+	 * also being used to run this {@link Gist} extractor, as the calling
+	 * thread waits for the convolutions to complete.
+	 *
+	 * @param threadPool
+	 *            the thread pool; can be <code>null</code>
+	 */
+	public void setThreadPool(ThreadPoolExecutor threadPool) {
+		this.threadPool = threadPool;
+	}
+
+	/**
+	 * Get the thread pool used to convolve the image bands with the Gabor
+	 * filters.
+	 *
+	 * @return the thread pool; <code>null</code> if the calling thread is used
+	 */
+	public ThreadPoolExecutor getThreadPool() {
+		return threadPool;
+	}
+
 	/**
 	 * Get the response vector from the previous call to
 	 * {@link #analyseImage(Image)}.
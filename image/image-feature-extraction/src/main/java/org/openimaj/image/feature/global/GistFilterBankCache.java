@@ -0,0 +1,194 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.image.feature.global;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.openimaj.image.FImage;
+import org.openimaj.image.processing.convolution.FourierConvolve;
+import org.openimaj.image.processing.convolution.GaborFilters;
+
+/**
+ * A cache of the frequency-domain filters used by {@link Gist}. The Gabor
+ * filter bank and the whitening pre-filter only depend on the image size and
+ * the Gist configuration, but are relatively expensive to compute, so they are
+ * shared between all {@link Gist} instances and threads.
+ * <p>
+ * The cached filters are shared, and must not be modified. Each cache holds at
+ * most {@link #MAX_CACHED_FILTERS} entries, discarding the least recently
+ * used.
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public final class GistFilterBankCache {
+	/**
+	 * The maximum number of filter banks (and pre-filters) held in the cache
+	 */
+	public static final int MAX_CACHED_FILTERS = 8;
+
+	private static class LRUCache<K, V> extends LinkedHashMap<K, V> {
+		private static final long serialVersionUID = 1L;
+
+		LRUCache() {
+			super(16, 0.75f, true);
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+			return size() > MAX_CACHED_FILTERS;
+		}
+	}
+
+	private static class Key {
+		final int width;
+		final int height;
+		final int[] params;
+
+		Key(int width, int height, int[] params) {
+			this.width = width;
+			this.height = height;
+			this.params = params.clone();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key))
+				return false;
+
+			final Key that = (Key) obj;
+			return width == that.width && height == that.height && Arrays.equals(params, that.params);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * (31 * width + height) + Arrays.hashCode(params);
+		}
+	}
+
+	private static final LRUCache<Key, FImage[]> gaborJets = new LRUCache<Key, FImage[]>();
+	private static final LRUCache<Key, FImage> prefilters = new LRUCache<Key, FImage>();
+
+	private GistFilterBankCache() {
+	}
+
+	/**
+	 * Get the Gabor filter bank for the given (padded) image size and number
+	 * of orientations per scale, as created by
+	 * {@link GaborFilters#createGaborJets(int, int, int...)}.
+	 * 
+	 * @param width
+	 *            the image width
+	 * @param height
+	 *            the image height
+	 * @param orientationsPerScale
+	 *            the number of Gabor orientations per scale (from HF to LF)
+	 * @return the prepared frequency domain filters
+	 */
+	public static FImage[] getGaborJets(int width, int height, int[] orientationsPerScale) {
+		final Key key = new Key(width, height, orientationsPerScale);
+
+		synchronized (gaborJets) {
+			final FImage[] filters = gaborJets.get(key);
+			if (filters != null)
+				return filters;
+		}
+
+		// construct outside the lock; at worst the filters are built twice
+		final FImage[] filters = GaborFilters.createGaborJets(width, height, orientationsPerScale);
+
+		synchronized (gaborJets) {
+			gaborJets.put(key, filters);
+		}
+
+		return filters;
+	}
+
+	/**
+	 * Get the Gaussian pre-filter for square images of the given size. The
+	 * filter is prepared for
+	 * {@link FourierConvolve#convolvePrepared(FImage, FImage, boolean)}; it is
+	 * real, with the real and imaginary components interlaced across the rows
+	 * and the zero frequency in the centre.
+	 * 
+	 * @param size
+	 *            the (padded) image size
+	 * @param fc
+	 *            the number of cycles per image for the pre-filter Gaussian
+	 * @return the prepared frequency domain filter
+	 */
+	public static FImage getPrefilter(int size, int fc) {
+		final Key key = new Key(size, size, new int[] { fc });
+
+		synchronized (prefilters) {
+			final FImage filter = prefilters.get(key);
+			if (filter != null)
+				return filter;
+		}
+
+		final FImage filter = createPrefilter(size, fc);
+
+		synchronized (prefilters) {
+			prefilters.put(key, filter);
+		}
+
+		return filter;
+	}
+
+	private static FImage createPrefilter(int n, int fc) {
+		final double s1 = fc / Math.sqrt(Math.log(2));
+
+		final FImage filter = new FImage(2 * n, n);
+		for (int j = 0; j < n; j++) {
+			final int fy = j - n / 2;
+
+			for (int i = 0; i < n * 2; i += 2) {
+				final int fx = (i / 2) - n / 2;
+
+				filter.pixels[j][i] = (float) Math.exp(-(fx * fx + fy * fy) / (s1 * s1));
+			}
+		}
+
+		return filter;
+	}
+
+	/**
+	 * Remove all the cached filters
+	 */
+	public static void clear() {
+		synchronized (gaborJets) {
+			gaborJets.clear();
+		}
+		synchronized (prefilters) {
+			prefilters.clear();
+		}
+	}
+}
@@ -32,9 +32,9 @@ package org.openimaj.image.segmentation;
 import gnu.trove.map.hash.TObjectFloatHashMap;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-import java.util.Set;
 
 import org.openimaj.citation.annotation.Reference;
 import org.openimaj.citation.annotation.ReferenceType;
@@ -42,6 +42,7 @@ import org.openimaj.image.FImage;
 import org.openimaj.image.Image;
 import org.openimaj.image.MBFImage;
 import org.openimaj.image.pixel.ConnectedComponent;
+import org.openimaj.image.pixel.LabelledComponents;
 import org.openimaj.image.pixel.Pixel;
 import org.openimaj.image.processing.convolution.FGaussianConvolve;
 import org.openimaj.image.processor.SinglebandImageProcessor;
@@ -75,6 +76,11 @@ public class FelzenszwalbHuttenlocherSegmenter<I extends Image<?,I> & Singleband
 	protected float k = 500f / 255f;
 	protected int minSize = 50;
 
+	private static final int RIGHT = 0;
+	private static final int DOWN = 1;
+	private static final int DOWN_RIGHT = 2;
+	private static final int UP_RIGHT = 3;
+
 	/**
 	 * Default constructor
 	 */
@@ -94,88 +100,141 @@ public class FelzenszwalbHuttenlocherSegmenter<I extends Image<?,I> & Singleband
 
 	@Override
 	public List<ConnectedComponent> segment(I image) {
-		if (((Object)image) instanceof MBFImage) {
-			return segmentImage((MBFImage)((Object)image));
-		} else {
-			return segmentImage(new MBFImage((FImage)((Object)image)));
-		}
+		return segmentImage(toMBFImage(image));
 	}
 
-	private float diff(MBFImage image, Pixel p1, Pixel p2) {
-		float sum = 0;
+	/**
+	 * Segment an image, returning the segments as a {@link LabelledComponents}
+	 * rather than as a list of {@link ConnectedComponent}s. This avoids
+	 * creating a {@link Pixel} object for every pixel of the image.
+	 * 
+	 * @param image the image to segment
+	 * @return the segments
+	 */
+	public LabelledComponents segmentToLabels(I image) {
+		return segmentImageToLabels(toMBFImage(image));
+	}
 
-		for (FImage band : image.bands) {
-			float d = band.pixels[p1.y][p1.x] - band.pixels[p2.y][p2.x];
-			sum += d*d;
+	private MBFImage toMBFImage(I image) {
+		if (((Object)image) instanceof MBFImage) {
+			return (MBFImage)((Object)image);
+		} else {
+			return new MBFImage((FImage)((Object)image));
 		}
-
-		return (float) Math.sqrt(sum);
 	}
 
+	/**
+	 * Segment an image into a list of {@link ConnectedComponent}s.
+	 * 
+	 * @param im the image to segment
+	 * @return the segments
+	 */
 	protected List<ConnectedComponent> segmentImage(MBFImage im) {
-		int width = im.getWidth();
-		int height = im.getHeight();
+		return new ArrayList<ConnectedComponent>(segmentImageToLabels(im).getComponents());
+	}
+
+	/**
+	 * Segment an image into a {@link LabelledComponents} label image.
+	 * 
+	 * @param im the image to segment
+	 * @return the segments
+	 */
+	protected LabelledComponents segmentImageToLabels(MBFImage im) {
+		final int width = im.getWidth();
+		final int height = im.getHeight();
+
+		final MBFImage smooth = im.process(new FGaussianConvolve(sigma));
 
-		MBFImage smooth = im.process(new FGaussianConvolve(sigma));
+		// build graph; each edge is encoded as (pixel index << 2 | direction)
+		final int[] offsets = { 1, width, width + 1, 1 - width };
+		final int maxEdges = 4 * width * height;
+		int[] edges = new int[maxEdges];
+		float[] weights = new float[maxEdges];
+		int numEdges = 0;
 
-		// build graph
-		List<SimpleWeightedEdge<Pixel>> edges = new ArrayList<SimpleWeightedEdge<Pixel>>();
 		for (int y = 0; y < height; y++) {
 			for (int x = 0; x < width; x++) {
+				final int p = (y * width + x) << 2;
+
 				if (x < width-1) {
-					SimpleWeightedEdge<Pixel> p = new SimpleWeightedEdge<Pixel>();
-					p.from = new Pixel(x, y);
-					p.to = new Pixel(x+1, y);
-					p.weight = diff(smooth, p.from, p.to);
-					edges.add(p);
+					edges[numEdges] = p | RIGHT;
+					weights[numEdges++] = diff(smooth, x, y, x+1, y);
 				}
 
 				if (y < height-1) {
-					SimpleWeightedEdge<Pixel> p = new SimpleWeightedEdge<Pixel>();
-					p.from = new Pixel(x, y);
-					p.to = new Pixel(x, y+1);
-					p.weight = diff(smooth, p.from, p.to);
-					edges.add(p);
+					edges[numEdges] = p | DOWN;
+					weights[numEdges++] = diff(smooth, x, y, x, y+1);
 				}
 
 				if ((x < width-1) && (y < height-1)) {
-					SimpleWeightedEdge<Pixel> p = new SimpleWeightedEdge<Pixel>();
-					p.from = new Pixel(x, y);
-					p.to = new Pixel(x+1, y+1);
-					p.weight = diff(smooth, p.from, p.to);
-					edges.add(p);
+					edges[numEdges] = p | DOWN_RIGHT;
+					weights[numEdges++] = diff(smooth, x, y, x+1, y+1);
 				}
 
 				if ((x < width-1) && (y > 0)) {
-					SimpleWeightedEdge<Pixel> p = new SimpleWeightedEdge<Pixel>();
-					p.from = new Pixel(x, y);
-					p.to = new Pixel(x+1, y-1);
-					p.weight = diff(smooth, p.from, p.to);
-					edges.add(p);
+					edges[numEdges] = p | UP_RIGHT;
+					weights[numEdges++] = diff(smooth, x, y, x+1, y-1);
 				}
 			}
 		}
 
-		// segment
-		DisjointSetForest<Pixel> u = segmentGraph(width*height, edges);
+		// sort edges by weight
+		final int[] order = sortByWeight(weights, numEdges);
+		final int[] sortedEdges = new int[numEdges];
+		final float[] sortedWeights = new float[numEdges];
+		for (int i = 0; i < numEdges; i++) {
+			sortedEdges[i] = edges[order[i]];
+			sortedWeights[i] = weights[order[i]];
+		}
+		edges = sortedEdges;
+		weights = sortedWeights;
 
+		// segment
+		final IntDisjointSetForest u = new IntDisjointSetForest(width * height, k);
+		for (int i = 0; i < numEdges; i++) {
+			final int from = edges[i] >> 2;
+			u.merge(from, from + offsets[edges[i] & 3], weights[i]);
+		}
 
 		// post process small components
-		for (int i = 0; i < edges.size(); i++) {
-			Pixel a = u.find(edges.get(i).from);
-			Pixel b = u.find(edges.get(i).to);
+		for (int i = 0; i < numEdges; i++) {
+			final int from = edges[i] >> 2;
+			final int a = u.find(from);
+			final int b = u.find(from + offsets[edges[i] & 3]);
 
-			if ((a != b) && ((u.size(a) < minSize) || (u.size(b) < minSize)))
+			if ((a != b) && ((u.size[a] < minSize) || (u.size[b] < minSize)))
 				u.union(a, b);
 		}
 
-		Set<Set<Pixel>> subsets = u.getSubsets();
-		List<ConnectedComponent> ccs = new ArrayList<ConnectedComponent>();
-		for (Set<Pixel> sp : subsets) ccs.add(new ConnectedComponent(sp));
+		// label the components in raster order
+		final int[][] labels = new int[height][width];
+		final int[] rootLabels = new int[width * height];
+		int count = 0;
+		for (int y = 0, i = 0; y < height; y++) {
+			for (int x = 0; x < width; x++, i++) {
+				final int root = u.find(i);
+				if (rootLabels[root] == 0)
+					rootLabels[root] = ++count;
+				labels[y][x] = rootLabels[root];
+			}
+		}
 
-		return ccs;
+		return new LabelledComponents(labels, count);
 	}
 
+	/**
+	 * Segment a graph of pixels, merging the components joined by each edge
+	 * in order of increasing weight.
+	 * 
+	 * @param numVertices the number of vertices
+	 * @param edges the edges; these are sorted in place
+	 * @return the forest of segments
+	 * @deprecated The segmenter now works on primitive arrays of edges
+	 *             rather than {@link SimpleWeightedEdge}s, and no longer
+	 *             calls this method; it is retained for compatibility with
+	 *             existing subclasses.
+	 */
+	@Deprecated
 	protected DisjointSetForest<Pixel> segmentGraph(int numVertices, List<SimpleWeightedEdge<Pixel>> edges) { 
 		// sort edges by weight
 		Collections.sort(edges, SimpleWeightedEdge.ASCENDING_COMPARATOR);
@@ -211,4 +270,125 @@ public class FelzenszwalbHuttenlocherSegmenter<I extends Image<?,I> & Singleband
 
 		return u;
 	}
+
+	private float diff(MBFImage image, int x1, int y1, int x2, int y2) {
+		float sum = 0;
+
+		for (FImage band : image.bands) {
+			float d = band.pixels[y1][x1] - band.pixels[y2][x2];
+			sum += d*d;
+		}
+
+		return (float) Math.sqrt(sum);
+	}
+
+	/**
+	 * Stable LSD radix sort of the (non-negative) weights, returning the
+	 * permutation that sorts them. Non-negative floats order in the same way
+	 * as their bit patterns, so the raw bits are sorted as integers. Passes
+	 * over bytes that are the same for every weight are skipped.
+	 */
+	static int[] sortByWeight(float[] weights, int n) {
+		int[] keys = new int[n];
+		int[] order = new int[n];
+		for (int i = 0; i < n; i++) {
+			keys[i] = Float.floatToRawIntBits(weights[i]);
+			order[i] = i;
+		}
+
+		int[] tmpKeys = new int[n];
+		int[] tmpOrder = new int[n];
+		final int[] counts = new int[256];
+
+		for (int shift = 0; shift < 32; shift += 8) {
+			Arrays.fill(counts, 0);
+			for (int i = 0; i < n; i++)
+				counts[(keys[i] >>> shift) & 0xff]++;
+
+			if (n == 0 || counts[(keys[0] >>> shift) & 0xff] == n)
+				continue;
+
+			for (int i = 0, total = 0; i < 256; i++) {
+				final int c = counts[i];
+				counts[i] = total;
+				total += c;
+			}
+
+			for (int i = 0; i < n; i++) {
+				final int pos = counts[(keys[i] >>> shift) & 0xff]++;
+				tmpKeys[pos] = keys[i];
+				tmpOrder[pos] = order[i];
+			}
+
+			int[] t = keys; keys = tmpKeys; tmpKeys = t;
+			t = order; order = tmpOrder; tmpOrder = t;
+		}
+
+		return order;
+	}
+
+	/**
+	 * Disjoint-set forest over integer elements with union by rank and path
+	 * compression, which also tracks the size and merging threshold of each
+	 * set.
+	 */
+	static class IntDisjointSetForest {
+		final int[] parent;
+		final byte[] rank;
+		final int[] size;
+		final float[] threshold;
+		final float k;
+
+		IntDisjointSetForest(int n, float k) {
+			this.k = k;
+			parent = new int[n];
+			rank = new byte[n];
+			size = new int[n];
+			threshold = new float[n];
+
+			for (int i = 0; i < n; i++) {
+				parent[i] = i;
+				size[i] = 1;
+				threshold[i] = k;
+			}
+		}
+
+		int find(int x) {
+			int root = x;
+			while (parent[root] != root)
+				root = parent[root];
+
+			while (parent[x] != root) {
+				final int next = parent[x];
+				parent[x] = root;
+				x = next;
+			}
+			return root;
+		}
+
+		int union(int a, int b) {
+			if (rank[a] < rank[b]) {
+				final int t = a; a = b; b = t;
+			}
+			parent[b] = a;
+			size[a] += size[b];
+			if (rank[a] == rank[b])
+				rank[a]++;
+			return a;
+		}
+
+		/**
+		 * Merge the sets containing the two elements if the edge weight is no
+		 * greater than the threshold of both sets
+		 */
+		void merge(int from, int to, float weight) {
+			int a = find(from);
+			final int b = find(to);
+
+			if (a != b && weight <= threshold[a] && weight <= threshold[b]) {
+				a = union(a, b);
+				threshold[a] = weight + (k / size[a]);
+			}
+		}
+	}
 }
@@ -31,6 +31,7 @@ package org.openimaj.image.feature.global;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 import java.io.IOException;
 
@@ -39,6 +40,7 @@ import org.openimaj.feature.FloatFV;
 import org.openimaj.feature.FloatFVComparison;
 import org.openimaj.image.FImage;
 import org.openimaj.image.ImageUtilities;
+import org.openimaj.util.parallel.GlobalExecutorPool;
 
 /**
  * Tests for the {@link Gist} feature
@@ -230,4 +232,23 @@ public class GistTest {
 		final double d = FloatFVComparison.SUM_SQUARE.compare(f1, f2);
 		assertEquals(d, 0.8960182, 0.005);
 	}
+
+	/**
+	 * Test that the features are the same when the filters are convolved on a
+	 * thread pool, and that the filters are shared between instances
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void testThreadPool() throws Exception {
+		final Gist<FImage> serial = new Gist<FImage>(256, 256);
+		serial.analyseImage(demo1);
+
+		final Gist<FImage> parallel = new Gist<FImage>(256, 256);
+		parallel.setThreadPool(GlobalExecutorPool.getPool());
+		parallel.analyseImage(demo1);
+
+		assertArrayEquals(serial.getResponse().values, parallel.getResponse().values, 0f);
+		assertSame(serial.gaborFilters, parallel.gaborFilters);
+	}
 }
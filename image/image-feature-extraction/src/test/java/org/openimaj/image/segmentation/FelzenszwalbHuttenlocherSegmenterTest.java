@@ -0,0 +1,165 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.image.segmentation;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.openimaj.image.FImage;
+import org.openimaj.image.MBFImage;
+import org.openimaj.image.pixel.ConnectedComponent;
+import org.openimaj.image.pixel.LabelledComponents;
+import org.openimaj.image.pixel.Pixel;
+import org.openimaj.math.geometry.shape.Rectangle;
+import org.openimaj.math.graph.SimpleWeightedEdge;
+import org.openimaj.util.set.DisjointSetForest;
+
+/**
+ * Tests for {@link FelzenszwalbHuttenlocherSegmenter}
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class FelzenszwalbHuttenlocherSegmenterTest {
+	/**
+	 * Test that the radix sort orders the weights and is stable
+	 */
+	@Test
+	public void testSortByWeight() {
+		final Random rng = new Random(1);
+		final float[] weights = new float[10000];
+		for (int i = 0; i < weights.length; i++)
+			weights[i] = rng.nextInt(100) * rng.nextFloat() * 10;
+
+		final int[] order = FelzenszwalbHuttenlocherSegmenter.sortByWeight(weights, weights.length);
+
+		for (int i = 1; i < order.length; i++) {
+			assertTrue(weights[order[i - 1]] <= weights[order[i]]);
+			if (weights[order[i - 1]] == weights[order[i]])
+				assertTrue(order[i - 1] < order[i]);
+		}
+
+		final int[] sorted = order.clone();
+		Arrays.sort(sorted);
+		final int[] expected = new int[weights.length];
+		for (int i = 0; i < expected.length; i++)
+			expected[i] = i;
+		assertArrayEquals(expected, sorted);
+	}
+
+	/**
+	 * Test that two distinct regions are found, and that the label image
+	 * agrees with the components. The minimum size is set large enough that
+	 * the narrow strips created by blurring the boundary are merged.
+	 */
+	@Test
+	public void testTwoRegions() {
+		final MBFImage image = new MBFImage(80, 60, 3);
+		image.drawShapeFilled(new Rectangle(0, 0, 40, 60), new Float[] { 1f, 0f, 0f });
+
+		final FelzenszwalbHuttenlocherSegmenter<MBFImage> segmenter = new FelzenszwalbHuttenlocherSegmenter<MBFImage>(0.5f,
+				500f / 255f, 200);
+		final LabelledComponents labels = segmenter.segmentToLabels(image);
+
+		assertEquals(2, labels.getNumComponents());
+		assertEquals(labels.getLabel(0, 0), labels.getLabel(35, 59));
+		assertTrue(labels.getLabel(0, 0) != labels.getLabel(79, 0));
+
+		final List<ConnectedComponent> components = segmenter.segment(image);
+		int area = 0;
+		for (final ConnectedComponent cc : components) {
+			area += cc.calculateArea();
+
+			final Pixel p = cc.getPixels().iterator().next();
+			final int label = labels.getLabel(p.x, p.y);
+			for (final Pixel q : cc)
+				assertEquals(label, labels.getLabel(q.x, q.y));
+		}
+		assertEquals(80 * 60, area);
+	}
+
+	/**
+	 * Test that greyscale images can be segmented
+	 */
+	@Test
+	public void testFImage() {
+		final FImage image = new FImage(50, 50);
+		image.drawShapeFilled(new Rectangle(10, 10, 20, 20), 1f);
+
+		final LabelledComponents labels = new FelzenszwalbHuttenlocherSegmenter<FImage>(0.5f, 500f / 255f,
+				200).segmentToLabels(image);
+
+		assertEquals(2, labels.getNumComponents());
+		assertTrue(labels.getLabel(0, 0) != labels.getLabel(20, 20));
+	}
+
+	/**
+	 * Test that subclasses overriding the protected methods continue to work
+	 */
+	@Test
+	@SuppressWarnings("deprecation")
+	public void testSubclassCompatibility() {
+		final List<ConnectedComponent> custom = new ArrayList<ConnectedComponent>();
+		final FelzenszwalbHuttenlocherSegmenter<FImage> segmenter = new FelzenszwalbHuttenlocherSegmenter<FImage>(0.5f,
+				1f, 1) {
+			@Override
+			protected List<ConnectedComponent> segmentImage(MBFImage im) {
+				return custom;
+			}
+		};
+		assertSame(custom, segmenter.segment(new FImage(10, 10)));
+
+		final Pixel a = new Pixel(0, 0);
+		final Pixel b = new Pixel(1, 0);
+		final Pixel c = new Pixel(2, 0);
+		final List<SimpleWeightedEdge<Pixel>> edges = new ArrayList<SimpleWeightedEdge<Pixel>>();
+		edges.add(edge(b, c, 100));
+		edges.add(edge(a, b, 0));
+
+		final DisjointSetForest<Pixel> forest = segmenter.segmentGraph(3, edges);
+		assertEquals(forest.find(a), forest.find(b));
+		assertTrue(forest.find(a) != forest.find(c));
+	}
+
+	private static SimpleWeightedEdge<Pixel> edge(Pixel from, Pixel to, float weight) {
+		final SimpleWeightedEdge<Pixel> edge = new SimpleWeightedEdge<Pixel>();
+		edge.from = from;
+		edge.to = to;
+		edge.weight = weight;
+		return edge;
+	}
+}
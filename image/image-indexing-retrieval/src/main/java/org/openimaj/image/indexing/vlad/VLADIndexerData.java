@@ -46,10 +46,14 @@ import org.openimaj.image.MBFImage;
 import org.openimaj.image.feature.local.aggregate.VLAD;
 import org.openimaj.io.IOUtils;
 import org.openimaj.knn.pq.FloatProductQuantiser;
+import org.openimaj.knn.IncrementalNearestNeighbours;
 import org.openimaj.knn.pq.IncrementalFloatADCNearestNeighbours;
+import org.openimaj.knn.pq.IncrementalFloatIVFADCNearestNeighbours;
+import org.openimaj.knn.pq.PQCodeBuffer;
 import org.openimaj.ml.pca.FeatureVectorPCA;
 import org.openimaj.util.array.ArrayUtils;
 import org.openimaj.util.function.Function;
+import org.openimaj.util.pair.IntFloatPair;
 
 /**
  * Class representing the data required to build a VLAD + PCA +
@@ -176,6 +180,51 @@ public class VLADIndexerData {
 		return new IncrementalFloatADCNearestNeighbours(pq, pca.getMean().length);
 	}
 
+	/**
+	 * Open an {@link IncrementalFloatADCNearestNeighbours} over previously
+	 * indexed data. The file must contain codes written with
+	 * {@link PQCodeBuffer#write(File)} (for example
+	 * <code>nn.getCodes().write(file)</code> on an index created by
+	 * {@link #createIncrementalIndex()}). The codes are memory-mapped rather
+	 * than being read into the heap; further data can be added to the index,
+	 * but will not be written back to the file.
+	 * 
+	 * @param codes
+	 *            the file containing the codes
+	 * @return an {@link IncrementalFloatADCNearestNeighbours} over the codes
+	 * @throws IOException
+	 *             if an error occurs
+	 */
+	public IncrementalFloatADCNearestNeighbours createIncrementalIndex(File codes) throws IOException {
+		return new IncrementalFloatADCNearestNeighbours(pq, pca.getMean().length, PQCodeBuffer.map(codes));
+	}
+
+	/**
+	 * Create an {@link IncrementalFloatIVFADCNearestNeighbours} pre-prepared to
+	 * index data. Unlike the exhaustive index created by
+	 * {@link #createIncrementalIndex()}, the inverted-file index only searches
+	 * the cells of a coarse quantiser nearest to the query, and so scales to
+	 * much larger collections. The coarse quantiser and the product quantiser
+	 * for the residuals are learnt from the given sample of PCA-VLAD vectors
+	 * (as produced by {@link #extractPcaVlad(MBFImage)}).
+	 * 
+	 * @param pcaVladSample
+	 *            the sample of PCA-VLAD vectors to learn from
+	 * @param numCells
+	 *            the number of cells in the coarse quantiser
+	 * @param numAssigners
+	 *            the number of sub-quantisers in the residual product
+	 *            quantiser
+	 * @param nIter
+	 *            the maximum number of iterations for each k-means clustering
+	 * @return a new {@link IncrementalFloatIVFADCNearestNeighbours}
+	 */
+	public IncrementalFloatIVFADCNearestNeighbours createIncrementalIVFIndex(float[][] pcaVladSample, int numCells,
+			int numAssigners, int nIter)
+	{
+		return IncrementalFloatIVFADCNearestNeighbours.create(pcaVladSample, numCells, numAssigners, 256, nIter);
+	}
+
 	/**
 	 * Index the given features into the given nearest neighbours object by
 	 * converting them to the PCA-VLAD representation and then
@@ -188,7 +237,7 @@ public class VLADIndexerData {
 	 * @return the index at which the features were added in the nearest
 	 *         neighbours object
 	 */
-	public int index(List<? extends LocalFeature<?, ?>> features, IncrementalFloatADCNearestNeighbours nn) {
+	public int index(List<? extends LocalFeature<?, ?>> features, IncrementalNearestNeighbours<float[], float[], IntFloatPair> nn) {
 		return nn.add(extractPcaVlad(features));
 	}
 
@@ -203,7 +252,7 @@ public class VLADIndexerData {
 	 * @return the index at which the features were added in the nearest
 	 *         neighbours object
 	 */
-	public int index(MBFImage image, IncrementalFloatADCNearestNeighbours nn) {
+	public int index(MBFImage image, IncrementalNearestNeighbours<float[], float[], IntFloatPair> nn) {
 		return nn.add(extractPcaVlad(image));
 	}
 
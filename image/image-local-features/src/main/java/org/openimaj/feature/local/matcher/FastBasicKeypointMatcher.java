@@ -30,12 +30,14 @@
 package org.openimaj.feature.local.matcher;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.openimaj.citation.annotation.Reference;
 import org.openimaj.citation.annotation.ReferenceType;
 import org.openimaj.citation.annotation.References;
 import org.openimaj.image.feature.local.keypoints.Keypoint;
+import org.openimaj.image.feature.local.keypoints.PackedKeypointList;
 import org.openimaj.knn.approximate.ByteNearestNeighboursKDTree;
 import org.openimaj.util.pair.Pair;
 
@@ -44,6 +46,9 @@ import org.openimaj.util.pair.Pair;
  * target and checking whether the distance between the two matches is
  * sufficiently large.
  * <p>
+ * If the keypoints are provided in a {@link PackedKeypointList}, their
+ * descriptors are read directly from the packed storage.
+ * <p>
  * This is the method for determining matches suggested by Lowe in the original
  * SIFT papers.
  * 
@@ -72,6 +77,8 @@ import org.openimaj.util.pair.Pair;
 		)
 })
 public class FastBasicKeypointMatcher<T extends Keypoint> extends BasicMatcher<T> {
+	private static final int BATCH_SIZE = 1024;
+
 	protected ByteNearestNeighboursKDTree modelKeypointsKNN;
 
 	/**
@@ -101,6 +108,9 @@ public class FastBasicKeypointMatcher<T extends Keypoint> extends BasicMatcher<T
 	@Override
 	public boolean findMatches(List<T> keys1)
 	{
+		if (keys1 instanceof PackedKeypointList)
+			return findMatches((PackedKeypointList) keys1);
+
 		matches = new ArrayList<Pair<T>>();
 
 		final byte[][] data = new byte[keys1.size()][];
@@ -123,13 +133,51 @@ public class FastBasicKeypointMatcher<T extends Keypoint> extends BasicMatcher<T
 		return true;
 	}
 
+	/**
+	 * Find matches for keypoints stored in a {@link PackedKeypointList}. The
+	 * descriptors are searched in batches through a reusable buffer, and
+	 * {@link Keypoint} objects are only created for the keypoints that match.
+	 */
+	@SuppressWarnings("unchecked")
+	private boolean findMatches(PackedKeypointList keys1) {
+		matches = new ArrayList<Pair<T>>();
+
+		final int size = keys1.size();
+		final byte[][] buffer = new byte[Math.min(BATCH_SIZE, size)][keys1.vecLength()];
+
+		for (int start = 0; start < size; start += buffer.length) {
+			final int n = Math.min(buffer.length, size - start);
+			final byte[][] data = n == buffer.length ? buffer : Arrays.copyOf(buffer, n);
+			final int[][] argmins = new int[n][2];
+			final float[][] mins = new float[n][2];
+
+			keys1.getDescriptors(start, start + n, data);
+			modelKeypointsKNN.searchKNN(data, 2, argmins, mins);
+
+			for (int i = 0; i < n; i++) {
+				final float distsq1 = mins[i][0];
+				final float distsq2 = mins[i][1];
+
+				if (10 * 10 * distsq1 < thresh * thresh * distsq2) {
+					matches.add(new Pair<T>((T) keys1.get(start + i), modelKeypoints.get(argmins[i][0])));
+				}
+			}
+		}
+
+		return true;
+	}
+
 	@Override
 	public void setModelFeatures(List<T> modelkeys) {
 		modelKeypoints = modelkeys;
 
 		final byte[][] data = new byte[modelkeys.size()][];
-		for (int i = 0; i < modelkeys.size(); i++)
-			data[i] = modelkeys.get(i).ivec;
+		if (modelkeys instanceof PackedKeypointList) {
+			((PackedKeypointList) modelkeys).getDescriptors(0, data.length, data);
+		} else {
+			for (int i = 0; i < modelkeys.size(); i++)
+				data[i] = modelkeys.get(i).ivec;
+		}
 
 		modelKeypointsKNN = new ByteNearestNeighboursKDTree(data, 1, 100);
 	}
@@ -72,6 +72,8 @@ public class GradientFeatureExtractor implements ScaleSpaceFeatureExtractor<Orie
 
 	private GradientScaleSpaceImageExtractorProperties<FImage> currentGradientProperties = new GradientScaleSpaceImageExtractorProperties<FImage>();
 
+	private boolean sharedGradients = false;
+
 	/**
 	 * The magnification factor determining the size of the sampling region
 	 * relative to the scale of the interest point.
@@ -128,6 +130,28 @@ public class GradientFeatureExtractor implements ScaleSpaceFeatureExtractor<Orie
 		return ret;
 	}
 
+	/**
+	 * Set precomputed gradient magnitudes and orientations for the given
+	 * image. These are used for subsequent extractions from the image instead
+	 * of being recomputed, so a single set of gradient images can be shared by
+	 * a number of extractors (for example, running in different threads). The
+	 * given gradient images are only read, and are never overwritten if the
+	 * extractor is subsequently used with a different image.
+	 * 
+	 * @param image
+	 *            the image
+	 * @param magnitude
+	 *            the gradient magnitudes of the image
+	 * @param orientation
+	 *            the gradient orientations of the image
+	 */
+	public void setGradients(FImage image, FImage magnitude, FImage orientation) {
+		currentGradientProperties.image = image;
+		currentGradientProperties.magnitude = magnitude;
+		currentGradientProperties.orientation = orientation;
+		sharedGradients = true;
+	}
+
 	/**
 	 * Get the GradientScaleSpaceImageExtractorProperties for the given
 	 * properties. The returned properties are the same as the input properties,
@@ -150,7 +174,7 @@ public class GradientFeatureExtractor implements ScaleSpaceFeatureExtractor<Orie
 
 			// only if the size of the image has changed do we need to reset the
 			// gradient and orientation images.
-			if (currentGradientProperties.orientation == null ||
+			if (sharedGradients || currentGradientProperties.orientation == null ||
 					currentGradientProperties.orientation.height != currentGradientProperties.image.height ||
 					currentGradientProperties.orientation.width != currentGradientProperties.image.width)
 			{
@@ -158,6 +182,7 @@ public class GradientFeatureExtractor implements ScaleSpaceFeatureExtractor<Orie
 						currentGradientProperties.image.height);
 				currentGradientProperties.magnitude = new FImage(currentGradientProperties.image.width,
 						currentGradientProperties.image.height);
+				sharedGradients = false;
 			}
 
 			FImageGradients.gradientMagnitudesAndOrientations(currentGradientProperties.image,
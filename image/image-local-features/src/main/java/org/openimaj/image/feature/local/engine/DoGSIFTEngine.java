@@ -29,11 +29,24 @@
  */
 package org.openimaj.image.feature.local.engine;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
 import org.openimaj.citation.annotation.Reference;
 import org.openimaj.citation.annotation.ReferenceType;
 import org.openimaj.citation.annotation.References;
+import org.openimaj.feature.OrientedFeatureVector;
 import org.openimaj.feature.local.list.LocalFeatureList;
+import org.openimaj.feature.local.list.MemoryLocalFeatureList;
 import org.openimaj.image.FImage;
+import org.openimaj.image.analysis.pyramid.OctaveProcessor;
 import org.openimaj.image.analysis.pyramid.gaussian.GaussianOctave;
 import org.openimaj.image.analysis.pyramid.gaussian.GaussianPyramid;
 import org.openimaj.image.feature.local.descriptor.gradient.SIFTFeatureProvider;
@@ -45,7 +58,11 @@ import org.openimaj.image.feature.local.detector.dog.extractor.OrientationHistog
 import org.openimaj.image.feature.local.detector.dog.pyramid.DoGOctaveExtremaFinder;
 import org.openimaj.image.feature.local.detector.pyramid.BasicOctaveExtremaFinder;
 import org.openimaj.image.feature.local.detector.pyramid.OctaveInterestPointFinder;
+import org.openimaj.image.feature.local.detector.pyramid.OctaveInterestPointListener;
+import org.openimaj.image.feature.local.extraction.ScaleSpaceImageExtractorProperties;
 import org.openimaj.image.feature.local.keypoints.Keypoint;
+import org.openimaj.image.processing.convolution.FImageGradients;
+import org.openimaj.util.parallel.GlobalExecutorPool;
 
 /**
  * <p>
@@ -57,6 +74,17 @@ import org.openimaj.image.feature.local.keypoints.Keypoint;
  * the work needed to extract SIFT features into a single place without having
  * to deal with the setup of pyramid finders, collectors and providers.
  * </p>
+ * <p>
+ * If the options specify a parallelism of more than one thread (see
+ * {@link DoGSIFTEngineOptions#setParallelism(int)}), the detection of the
+ * interest points in each octave is overlapped with the construction of the
+ * following octaves, and the features are extracted in parallel batches. The
+ * features are identical to, and in the same order as, those extracted by a
+ * single thread. The work is performed on the pool given by
+ * {@link DoGSIFTEngineOptions#setThreadPool(ThreadPoolExecutor)} or, if no
+ * pool is given, on a pool created by the engine whose idle threads time out;
+ * {@link #close()} shuts down the engine's own pool immediately.
+ * </p>
  * 
  * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
  * 
@@ -82,7 +110,20 @@ import org.openimaj.image.feature.local.keypoints.Keypoint;
 		)
 })
 public class DoGSIFTEngine implements Engine<Keypoint, FImage> {
+	/**
+	 * The minimum number of interest points in a batch when extracting in
+	 * parallel
+	 */
+	private static final int MIN_BATCH_SIZE = 16;
+
+	/**
+	 * The time for which idle threads of the pool created by the engine are
+	 * kept alive
+	 */
+	private static final long POOL_KEEP_ALIVE_SECONDS = 10;
+
 	DoGSIFTEngineOptions<FImage> options;
+	private ThreadPoolExecutor pool;
 
 	/**
 	 * Construct a DoGSIFTEngine with the default options.
@@ -103,30 +144,13 @@ public class DoGSIFTEngine implements Engine<Keypoint, FImage> {
 
 	@Override
 	public LocalFeatureList<Keypoint> findFeatures(FImage image) {
-		final OctaveInterestPointFinder<GaussianOctave<FImage>, FImage> finder =
-				new DoGOctaveExtremaFinder(new BasicOctaveExtremaFinder(options.magnitudeThreshold,
-						options.eigenvalueRatio));
+		if (options.parallelism > 1)
+			return findFeaturesParallel(image);
+
+		final OctaveInterestPointFinder<GaussianOctave<FImage>, FImage> finder = createFinder();
 
 		final Collector<GaussianOctave<FImage>, Keypoint, FImage> collector = new OctaveKeypointCollector<FImage>(
-				new GradientFeatureExtractor(
-						new DominantOrientationExtractor(
-								options.peakThreshold,
-								new OrientationHistogramExtractor(
-										options.numOriHistBins,
-										options.scaling,
-										options.smoothingIterations,
-										options.samplingSize
-								)
-						),
-						new SIFTFeatureProvider(
-								options.numOriBins,
-								options.numSpatialBins,
-								options.valueThreshold,
-								options.gaussianSigma
-						),
-						options.magnificationFactor * options.numSpatialBins
-				)
-				);
+				createFeatureExtractor());
 
 		finder.setOctaveInterestPointListener(collector);
 
@@ -138,6 +162,228 @@ public class DoGSIFTEngine implements Engine<Keypoint, FImage> {
 		return collector.getFeatures();
 	}
 
+	/**
+	 * Create the finder for detecting the interest points in each octave of the
+	 * Gaussian pyramid
+	 * 
+	 * @return the finder
+	 */
+	protected DoGOctaveExtremaFinder createFinder() {
+		return new DoGOctaveExtremaFinder(new BasicOctaveExtremaFinder(options.magnitudeThreshold,
+				options.eigenvalueRatio));
+	}
+
+	/**
+	 * Create the extractor for computing the features at each interest point
+	 * 
+	 * @return the extractor
+	 */
+	protected GradientFeatureExtractor createFeatureExtractor() {
+		return new GradientFeatureExtractor(
+				new DominantOrientationExtractor(
+						options.peakThreshold,
+						new OrientationHistogramExtractor(
+								options.numOriHistBins,
+								options.scaling,
+								options.smoothingIterations,
+								options.samplingSize
+						)
+				),
+				new SIFTFeatureProvider(
+						options.numOriBins,
+						options.numSpatialBins,
+						options.valueThreshold,
+						options.gaussianSigma
+				),
+				options.magnificationFactor * options.numSpatialBins
+		);
+	}
+
+	/**
+	 * An interest point detected in a level of an octave, waiting for its
+	 * features to be extracted.
+	 */
+	private static class Candidate {
+		final FImage image;
+		final float x;
+		final float y;
+		final float scale;
+		final float octaveSize;
+
+		Candidate(FImage image, float x, float y, float scale, float octaveSize) {
+			this.image = image;
+			this.x = x;
+			this.y = y;
+			this.scale = scale;
+			this.octaveSize = octaveSize;
+		}
+	}
+
+	/**
+	 * Parallel extraction. The Gaussian pyramid is built on the calling
+	 * thread, but as each octave is completed the difference-of-Gaussian
+	 * extrema detection for that octave is performed on the pool whilst the
+	 * next octave is built. Once all interest points are known, the gradients
+	 * of each pyramid level are computed once on the pool, and the features
+	 * of the interest points in the level are then extracted in parallel
+	 * batches. The results of all tasks are gathered in submission order, so
+	 * the features are the same (and in the same order) as those produced by
+	 * the single-threaded extraction.
+	 */
+	private LocalFeatureList<Keypoint> findFeaturesParallel(FImage image) {
+		final ExecutorService service = getPool();
+
+		// detect the interest points of each octave as it is completed
+		final List<Future<List<Candidate>>> detections = new ArrayList<Future<List<Candidate>>>();
+		options.setOctaveProcessor(new OctaveProcessor<GaussianOctave<FImage>, FImage>() {
+			@Override
+			public void process(final GaussianOctave<FImage> octave) {
+				detections.add(service.submit(new Callable<List<Candidate>>() {
+					@Override
+					public List<Candidate> call() {
+						return detect(octave);
+					}
+				}));
+			}
+		});
+
+		final GaussianPyramid<FImage> pyr = new GaussianPyramid<FImage>(options);
+		pyr.process(image);
+
+		final List<Candidate> candidates = new ArrayList<Candidate>();
+		for (final Future<List<Candidate>> f : detections)
+			candidates.addAll(get(f));
+
+		// extract features from each run of candidates from the same image
+		final List<Future<List<Keypoint>>> batches = new ArrayList<Future<List<Keypoint>>>();
+		for (int i = 0; i < candidates.size();) {
+			final FImage level = candidates.get(i).image;
+
+			int j = i + 1;
+			while (j < candidates.size() && candidates.get(j).image == level)
+				j++;
+
+			submitExtraction(level, candidates.subList(i, j), service, batches);
+			i = j;
+		}
+
+		final LocalFeatureList<Keypoint> features = new MemoryLocalFeatureList<Keypoint>();
+		for (final Future<List<Keypoint>> f : batches)
+			features.addAll(get(f));
+
+		return features;
+	}
+
+	private List<Candidate> detect(GaussianOctave<FImage> octave) {
+		final List<Candidate> candidates = new ArrayList<Candidate>();
+		final OctaveInterestPointFinder<GaussianOctave<FImage>, FImage> finder = createFinder();
+
+		finder.setOctaveInterestPointListener(new OctaveInterestPointListener<GaussianOctave<FImage>, FImage>() {
+			@Override
+			public void foundInterestPoint(OctaveInterestPointFinder<GaussianOctave<FImage>, FImage> f, float x,
+					float y, float octaveScale)
+			{
+				final GaussianOctave<FImage> oct = f.getOctave();
+				candidates.add(new Candidate(oct.images[f.getCurrentScaleIndex()], x, y, octaveScale, oct.octaveSize));
+			}
+		});
+		finder.process(octave);
+
+		return candidates;
+	}
+
+	private void submitExtraction(final FImage level, List<Candidate> candidates, ExecutorService service,
+			List<Future<List<Keypoint>>> batches)
+	{
+		// the gradients task is always submitted before the batches that use
+		// it, so the pool will have started it before any batch waits on it
+		final Future<FImage[]> gradients = service.submit(new Callable<FImage[]>() {
+			@Override
+			public FImage[] call() {
+				final FImage magnitude = new FImage(level.width, level.height);
+				final FImage orientation = new FImage(level.width, level.height);
+				FImageGradients.gradientMagnitudesAndOrientations(level, magnitude, orientation);
+
+				return new FImage[] { magnitude, orientation };
+			}
+		});
+
+		final int n = candidates.size();
+		final int nbatches = Math.max(1, Math.min(options.parallelism, n / MIN_BATCH_SIZE));
+		for (int b = 0; b < nbatches; b++) {
+			final List<Candidate> batch = candidates.subList(b * n / nbatches, (b + 1) * n / nbatches);
+
+			batches.add(service.submit(new Callable<List<Keypoint>>() {
+				@Override
+				public List<Keypoint> call() {
+					final FImage[] grad = get(gradients);
+					final GradientFeatureExtractor extractor = createFeatureExtractor();
+					extractor.setGradients(level, grad[0], grad[1]);
+
+					final ScaleSpaceImageExtractorProperties<FImage> props = new ScaleSpaceImageExtractorProperties<FImage>();
+					props.image = level;
+
+					final List<Keypoint> keypoints = new ArrayList<Keypoint>(batch.size());
+					for (final Candidate c : batch) {
+						props.x = c.x;
+						props.y = c.y;
+						props.scale = c.scale;
+
+						for (final OrientedFeatureVector fv : extractor.extractFeature(props)) {
+							keypoints.add(new Keypoint(c.octaveSize * c.x, c.octaveSize * c.y, fv.orientation,
+									c.octaveSize * c.scale, fv.values));
+						}
+					}
+
+					return keypoints;
+				}
+			}));
+		}
+	}
+
+	private static <T> T get(Future<T> future) {
+		try {
+			return future.get();
+		} catch (final InterruptedException e) {
+			throw new RuntimeException(e);
+		} catch (final ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			throw new RuntimeException(e.getCause());
+		}
+	}
+
+	private synchronized ExecutorService getPool() {
+		if (options.threadPool != null)
+			return options.threadPool;
+
+		if (pool == null || pool.getMaximumPoolSize() != options.parallelism) {
+			if (pool != null)
+				pool.shutdown();
+
+			pool = new ThreadPoolExecutor(options.parallelism, options.parallelism, POOL_KEEP_ALIVE_SECONDS,
+					TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new GlobalExecutorPool.DaemonThreadFactory());
+			pool.allowCoreThreadTimeOut(true);
+		}
+
+		return pool;
+	}
+
+	/**
+	 * Shut down the pool created by this engine for parallel extraction (if
+	 * any). A pool supplied through
+	 * {@link DoGSIFTEngineOptions#setThreadPool(ThreadPoolExecutor)} is owned
+	 * by the caller and is not shut down. The engine can still be used after
+	 * it has been closed, in which case a new pool will be created if
+	 * required.
+	 */
+	public synchronized void close() {
+		if (pool != null) {
+			pool.shutdown();
+			pool = null;
+		}
+	}
+
 	/**
 	 * @return the current options used by the engine
 	 */
@@ -29,6 +29,8 @@
  */
 package org.openimaj.image.feature.local.engine;
 
+import java.util.concurrent.ThreadPoolExecutor;
+
 import org.openimaj.image.FImage;
 import org.openimaj.image.Image;
 import org.openimaj.image.analysis.pyramid.gaussian.GaussianPyramidOptions;
@@ -110,6 +112,18 @@ public class DoGSIFTEngineOptions<IMAGE extends Image<?, IMAGE> & SinglebandImag
 	 */
 	protected float gaussianSigma = 1.0f;
 
+	/**
+	 * The number of threads used to extract features from an image (default
+	 * 1, which performs the extraction on the calling thread).
+	 */
+	protected int parallelism = 1;
+
+	/**
+	 * The pool used for parallel extraction (default null, in which case the
+	 * engine creates and manages its own pool).
+	 */
+	protected ThreadPoolExecutor threadPool;
+
 	/**
 	 * Get the threshold on the ratio of the Eigenvalues of the Hessian matrix
 	 * (Lowe IJCV, p.12)
@@ -361,4 +375,51 @@ public class DoGSIFTEngineOptions<IMAGE extends Image<?, IMAGE> & SinglebandImag
 	public void setGaussianSigma(float gaussianSigma) {
 		this.gaussianSigma = gaussianSigma;
 	}
+
+	/**
+	 * Get the number of threads used to extract features from an image. A
+	 * value of 1 (the default) means that extraction is performed on the
+	 * calling thread.
+	 * 
+	 * @return the number of threads
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * Set the number of threads used to extract features from an image. A
+	 * value of 1 means that extraction is performed on the calling thread.
+	 * Engines that support parallel extraction produce exactly the same
+	 * features in the same order regardless of the number of threads.
+	 * 
+	 * @param parallelism
+	 *            the number of threads
+	 */
+	public void setParallelism(int parallelism) {
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Get the pool used for parallel extraction. If this is null, the engine
+	 * creates its own pool of {@link #getParallelism()} threads.
+	 * 
+	 * @return the pool, or null if the engine manages its own pool
+	 */
+	public ThreadPoolExecutor getThreadPool() {
+		return threadPool;
+	}
+
+	/**
+	 * Set the pool used for parallel extraction when the parallelism is more
+	 * than one. The pool is owned by the caller and is not shut down by the
+	 * engine, so it can be shared by many engines. If the pool is null, each
+	 * engine creates its own pool.
+	 * 
+	 * @param threadPool
+	 *            the pool to use, or null
+	 */
+	public void setThreadPool(ThreadPoolExecutor threadPool) {
+		this.threadPool = threadPool;
+	}
 }
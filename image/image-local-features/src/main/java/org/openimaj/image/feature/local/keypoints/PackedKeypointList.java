@@ -0,0 +1,546 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.image.feature.local.keypoints;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.reflect.Array;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.RandomAccess;
+
+import org.openimaj.data.AbstractDataSource;
+import org.openimaj.data.DataSource;
+import org.openimaj.data.RandomData;
+import org.openimaj.feature.local.list.LocalFeatureList;
+import org.openimaj.ml.clustering.assignment.HardAssigner;
+
+/**
+ * A compact {@link LocalFeatureList} of {@link Keypoint}s that stores the
+ * keypoint data in a columnar (structure-of-arrays) form: the location
+ * components are held in primitive <code>float</code> arrays, and all the
+ * descriptors are held back-to-back in a single <code>byte</code> array.
+ * <p>
+ * Compared to a {@link org.openimaj.feature.local.list.MemoryLocalFeatureList}
+ * this avoids allocating an object and a descriptor array per feature. The
+ * flyweight accessors ({@link #getX(int)}, {@link #getDescriptor(int, byte[])},
+ * etc.) allow the data to be read without creating {@link Keypoint}s;
+ * {@link #get(int)} creates a new {@link Keypoint} (with a copy of the
+ * descriptor) each time it is called, so modifying the returned object does not
+ * modify the list.
+ * <p>
+ * The descriptors can be passed to clustering algorithms through
+ * {@link #asDataSource()}, and quantised using {@link #assign(HardAssigner)},
+ * without first copying them into a <code>byte[][]</code>.
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class PackedKeypointList extends AbstractList<Keypoint>
+		implements
+		LocalFeatureList<Keypoint>,
+		RandomAccess
+{
+	private static final int DEFAULT_CAPACITY = 16;
+
+	/**
+	 * The number of descriptors that are copied at once by
+	 * {@link #assign(HardAssigner)}
+	 */
+	protected static final int BATCH_SIZE = 1024;
+
+	protected final int veclen;
+	protected int size;
+	protected float[] x;
+	protected float[] y;
+	protected float[] scale;
+	protected float[] ori;
+	protected byte[] descriptors;
+
+	/**
+	 * Construct an empty list for keypoints with the given descriptor length.
+	 * 
+	 * @param veclen
+	 *            the descriptor length
+	 */
+	public PackedKeypointList(int veclen) {
+		this(veclen, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Construct an empty list for keypoints with the given descriptor length and
+	 * initial capacity.
+	 * 
+	 * @param veclen
+	 *            the descriptor length
+	 * @param initialCapacity
+	 *            the initial capacity of the list
+	 */
+	public PackedKeypointList(int veclen, int initialCapacity) {
+		if (veclen <= 0)
+			throw new IllegalArgumentException("Descriptor length must be positive");
+		if (initialCapacity < 0)
+			throw new IllegalArgumentException("Illegal capacity: " + initialCapacity);
+
+		this.veclen = veclen;
+		this.x = new float[initialCapacity];
+		this.y = new float[initialCapacity];
+		this.scale = new float[initialCapacity];
+		this.ori = new float[initialCapacity];
+		this.descriptors = new byte[initialCapacity * veclen];
+	}
+
+	/**
+	 * Construct a list containing copies of the given keypoints. The descriptor
+	 * length is determined from the first keypoint (or is 128 if the list is
+	 * empty).
+	 * 
+	 * @param keypoints
+	 *            the keypoints
+	 */
+	public PackedKeypointList(List<? extends Keypoint> keypoints) {
+		this(keypoints.size() == 0 ? 128 : keypoints.get(0).ivec.length, keypoints.size());
+		addAll(keypoints);
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity <= x.length)
+			return;
+
+		final int newCapacity = Math.max(capacity, x.length + (x.length >> 1) + 1);
+		x = Arrays.copyOf(x, newCapacity);
+		y = Arrays.copyOf(y, newCapacity);
+		scale = Arrays.copyOf(scale, newCapacity);
+		ori = Arrays.copyOf(ori, newCapacity);
+		descriptors = Arrays.copyOf(descriptors, newCapacity * veclen);
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+	}
+
+	private void checkDescriptor(Keypoint keypoint) {
+		if (keypoint.ivec.length != veclen)
+			throw new IllegalArgumentException("Keypoint descriptor length " + keypoint.ivec.length
+					+ " does not match the list descriptor length " + veclen);
+	}
+
+	private void store(int index, Keypoint keypoint) {
+		x[index] = keypoint.x;
+		y[index] = keypoint.y;
+		scale[index] = keypoint.scale;
+		ori[index] = keypoint.ori;
+		System.arraycopy(keypoint.ivec, 0, descriptors, index * veclen, veclen);
+	}
+
+	@Override
+	public Keypoint get(int index) {
+		checkIndex(index);
+
+		final int offset = index * veclen;
+		return new Keypoint(x[index], y[index], ori[index], scale[index],
+				Arrays.copyOfRange(descriptors, offset, offset + veclen));
+	}
+
+	@Override
+	public Keypoint set(int index, Keypoint keypoint) {
+		final Keypoint old = get(index);
+		checkDescriptor(keypoint);
+		store(index, keypoint);
+		return old;
+	}
+
+	@Override
+	public void add(int index, Keypoint keypoint) {
+		if (index < 0 || index > size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		checkDescriptor(keypoint);
+
+		ensureCapacity(size + 1);
+
+		final int nmove = size - index;
+		if (nmove > 0) {
+			System.arraycopy(x, index, x, index + 1, nmove);
+			System.arraycopy(y, index, y, index + 1, nmove);
+			System.arraycopy(scale, index, scale, index + 1, nmove);
+			System.arraycopy(ori, index, ori, index + 1, nmove);
+			System.arraycopy(descriptors, index * veclen, descriptors, (index + 1) * veclen, nmove * veclen);
+		}
+
+		size++;
+		modCount++;
+		store(index, keypoint);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The descriptor lengths of all the keypoints are checked before any are
+	 * added, so if any is invalid the list is left unchanged.
+	 */
+	@Override
+	public boolean addAll(int index, Collection<? extends Keypoint> keypoints) {
+		if (index < 0 || index > size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+
+		for (final Keypoint keypoint : keypoints)
+			checkDescriptor(keypoint);
+
+		return super.addAll(index, keypoints);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The descriptor lengths of all the keypoints are checked before any are
+	 * added, so if any is invalid the list is left unchanged.
+	 */
+	@Override
+	public boolean addAll(Collection<? extends Keypoint> keypoints) {
+		return addAll(size, keypoints);
+	}
+
+	@Override
+	public Keypoint remove(int index) {
+		final Keypoint old = get(index);
+
+		final int nmove = size - index - 1;
+		if (nmove > 0) {
+			System.arraycopy(x, index + 1, x, index, nmove);
+			System.arraycopy(y, index + 1, y, index, nmove);
+			System.arraycopy(scale, index + 1, scale, index, nmove);
+			System.arraycopy(ori, index + 1, ori, index, nmove);
+			System.arraycopy(descriptors, (index + 1) * veclen, descriptors, index * veclen, nmove * veclen);
+		}
+
+		size--;
+		modCount++;
+
+		return old;
+	}
+
+	@Override
+	public void clear() {
+		size = 0;
+		modCount++;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Get the x-ordinate of the keypoint at the given index
+	 * 
+	 * @param index
+	 *            the index
+	 * @return the x-ordinate
+	 */
+	public float getX(int index) {
+		checkIndex(index);
+		return x[index];
+	}
+
+	/**
+	 * Get the y-ordinate of the keypoint at the given index
+	 * 
+	 * @param index
+	 *            the index
+	 * @return the y-ordinate
+	 */
+	public float getY(int index) {
+		checkIndex(index);
+		return y[index];
+	}
+
+	/**
+	 * Get the scale of the keypoint at the given index
+	 * 
+	 * @param index
+	 *            the index
+	 * @return the scale
+	 */
+	public float getScale(int index) {
+		checkIndex(index);
+		return scale[index];
+	}
+
+	/**
+	 * Get the orientation of the keypoint at the given index
+	 * 
+	 * @param index
+	 *            the index
+	 * @return the orientation
+	 */
+	public float getOrientation(int index) {
+		checkIndex(index);
+		return ori[index];
+	}
+
+	/**
+	 * Copy the descriptor of the keypoint at the given index into the given
+	 * array. If the array is <code>null</code> a new one will be created.
+	 * 
+	 * @param index
+	 *            the index
+	 * @param dest
+	 *            the array to fill; can be <code>null</code>
+	 * @return the filled array
+	 */
+	public byte[] getDescriptor(int index, byte[] dest) {
+		checkIndex(index);
+
+		if (dest == null)
+			dest = new byte[veclen];
+
+		System.arraycopy(descriptors, index * veclen, dest, 0, veclen);
+		return dest;
+	}
+
+	/**
+	 * Get a single element of the descriptor of the keypoint at the given
+	 * index
+	 * 
+	 * @param index
+	 *            the index of the keypoint
+	 * @param dimension
+	 *            the dimension of the descriptor
+	 * @return the descriptor value
+	 */
+	public byte getDescriptorValue(int index, int dimension) {
+		checkIndex(index);
+		return descriptors[index * veclen + dimension];
+	}
+
+	/**
+	 * Copy the descriptors of the keypoints from startRow (inclusive) to
+	 * stopRow (exclusive) into the rows of the given array. Any
+	 * <code>null</code> rows will be allocated.
+	 * 
+	 * @param startRow
+	 *            the first keypoint
+	 * @param stopRow
+	 *            the last keypoint + 1
+	 * @param dest
+	 *            the array to fill
+	 */
+	public void getDescriptors(int startRow, int stopRow, byte[][] dest) {
+		if (startRow < 0 || stopRow > size || startRow > stopRow)
+			throw new IndexOutOfBoundsException("Range: [" + startRow + ", " + stopRow + "), Size: " + size);
+
+		for (int i = startRow, j = 0; i < stopRow; i++, j++) {
+			if (dest[j] == null)
+				dest[j] = new byte[veclen];
+
+			System.arraycopy(descriptors, i * veclen, dest[j], 0, veclen);
+		}
+	}
+
+	/**
+	 * Get the backing array of descriptors. The descriptor of the keypoint at
+	 * index <code>i</code> occupies elements <code>i*vecLength()</code> to
+	 * <code>(i+1)*vecLength() - 1</code>. The array may be longer than
+	 * <code>size()*vecLength()</code>, and will be replaced if the list grows,
+	 * so it should not be retained across modifications.
+	 * 
+	 * @return the backing descriptor array
+	 */
+	public byte[] getDescriptorData() {
+		return descriptors;
+	}
+
+	/**
+	 * Get a {@link DataSource} view of the descriptors in this list. The view
+	 * reads directly from the packed storage, so it can be given to a
+	 * clustering algorithm (i.e. <code>ByteKMeans</code>) without creating a
+	 * <code>byte[][]</code> of all the descriptors. The view reflects any
+	 * subsequent changes to the list.
+	 * 
+	 * @return a {@link DataSource} over the descriptors
+	 */
+	public DataSource<byte[]> asDataSource() {
+		return new AbstractDataSource<byte[]>() {
+			@Override
+			public void getData(int startRow, int stopRow, byte[][] data) {
+				getDescriptors(startRow, stopRow, data);
+			}
+
+			@Override
+			public byte[] getData(int row) {
+				return getDescriptor(row, null);
+			}
+
+			@Override
+			public void getRandomRows(byte[][] data) {
+				final int[] rndIndexes = RandomData.getUniqueRandomInts(data.length, 0, size);
+
+				for (int i = 0; i < rndIndexes.length; i++)
+					data[i] = getDescriptor(rndIndexes[i], data[i]);
+			}
+
+			@Override
+			public int numDimensions() {
+				return veclen;
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+
+			@Override
+			public byte[][] createTemporaryArray(int size) {
+				return new byte[size][veclen];
+			}
+		};
+	}
+
+	/**
+	 * Assign all the descriptors in this list using the given assigner. The
+	 * descriptors are fed to the assigner in small batches through a reusable
+	 * buffer, rather than being copied into a single <code>byte[][]</code>.
+	 * 
+	 * @param assigner
+	 *            the assigner
+	 * @return the assignments for each keypoint
+	 */
+	public int[] assign(HardAssigner<byte[], ?, ?> assigner) {
+		final int[] assignments = new int[size];
+		final byte[][] buffer = new byte[Math.min(BATCH_SIZE, size)][veclen];
+
+		for (int start = 0; start < size; start += buffer.length) {
+			final int stop = Math.min(start + buffer.length, size);
+			final byte[][] batch = stop - start == buffer.length ? buffer : Arrays.copyOf(buffer, stop - start);
+
+			getDescriptors(start, stop, batch);
+			System.arraycopy(assigner.assign(batch), 0, assignments, start, batch.length);
+		}
+
+		return assignments;
+	}
+
+	@Override
+	public int vecLength() {
+		return veclen;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public <Q> Q[] asDataArray(Q[] a) {
+		if (a.length < size()) {
+			a = (Q[]) Array.newInstance(a.getClass().getComponentType(), size());
+		}
+
+		for (int i = 0; i < size; i++) {
+			a[i] = (Q) getDescriptor(i, null);
+		}
+
+		return a;
+	}
+
+	@Override
+	public PackedKeypointList subList(int fromIndex, int toIndex) {
+		if (fromIndex < 0 || toIndex > size || fromIndex > toIndex)
+			throw new IndexOutOfBoundsException("Range: [" + fromIndex + ", " + toIndex + "), Size: " + size);
+
+		final int n = toIndex - fromIndex;
+		final PackedKeypointList list = new PackedKeypointList(veclen, n);
+		System.arraycopy(x, fromIndex, list.x, 0, n);
+		System.arraycopy(y, fromIndex, list.y, 0, n);
+		System.arraycopy(scale, fromIndex, list.scale, 0, n);
+		System.arraycopy(ori, fromIndex, list.ori, 0, n);
+		System.arraycopy(descriptors, fromIndex * veclen, list.descriptors, 0, n * veclen);
+		list.size = n;
+
+		return list;
+	}
+
+	@Override
+	public PackedKeypointList randomSubList(int nelem) {
+		if (nelem > size())
+			throw new IllegalArgumentException("number of requested elements is greater than the list size");
+
+		final int[] indices = RandomData.getUniqueRandomInts(nelem, 0, size());
+
+		final PackedKeypointList list = new PackedKeypointList(veclen, nelem);
+		for (int j = 0; j < nelem; j++) {
+			final int i = indices[j];
+			list.x[j] = x[i];
+			list.y[j] = y[i];
+			list.scale[j] = scale[i];
+			list.ori[j] = ori[i];
+			System.arraycopy(descriptors, i * veclen, list.descriptors, j * veclen, veclen);
+		}
+		list.size = nelem;
+
+		return list;
+	}
+
+	@Override
+	public void writeBinary(DataOutput out) throws IOException {
+		out.writeInt(size);
+		out.writeInt(veclen);
+
+		for (int i = 0; i < size; i++) {
+			out.writeFloat(x[i]);
+			out.writeFloat(y[i]);
+			out.writeFloat(scale[i]);
+			out.writeFloat(ori[i]);
+			out.write(descriptors, i * veclen, veclen);
+		}
+	}
+
+	@Override
+	public void writeASCII(PrintWriter out) throws IOException {
+		final Locale def = Locale.getDefault();
+		Locale.setDefault(Locale.ENGLISH);
+
+		out.println(size + " " + veclen);
+		for (int i = 0; i < size; i++)
+			get(i).writeASCII(out);
+
+		Locale.setDefault(def);
+	}
+
+	@Override
+	public byte[] binaryHeader() {
+		return LocalFeatureList.BINARY_HEADER;
+	}
+
+	@Override
+	public String asciiHeader() {
+		return "";
+	}
+}
@@ -0,0 +1,162 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.feature.keypoints;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openimaj.feature.local.list.LocalFeatureList;
+import org.openimaj.feature.local.list.MappedLocalFeatureList;
+import org.openimaj.feature.local.list.MemoryLocalFeatureList;
+import org.openimaj.image.feature.local.keypoints.Keypoint;
+import org.openimaj.io.IOUtils;
+
+/**
+ * Tests for {@link MappedLocalFeatureList}
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ * 
+ */
+public class MappedLocalFeatureListTest {
+	/**
+	 * Temp folder
+	 */
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	LocalFeatureList<Keypoint> keys;
+	File binary;
+
+	/**
+	 * Create some random keypoints and write them to a file
+	 * 
+	 * @throws IOException
+	 */
+	@Before
+	public void setup() throws IOException {
+		final Random rng = new Random(42);
+
+		keys = new MemoryLocalFeatureList<Keypoint>(128);
+		for (int i = 0; i < 100; i++) {
+			final Keypoint kpt = new Keypoint(128);
+			kpt.x = rng.nextFloat() * 100;
+			kpt.y = rng.nextFloat() * 100;
+			kpt.scale = rng.nextFloat() * 10;
+			kpt.ori = rng.nextFloat();
+			rng.nextBytes(kpt.ivec);
+			keys.add(kpt);
+		}
+
+		binary = folder.newFile("kpt.bin");
+		IOUtils.writeBinary(binary, keys);
+	}
+
+	/**
+	 * Test that the mapped features are the same as the ones written
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testRead() throws IOException {
+		final MappedLocalFeatureList<Keypoint> mapped = MappedLocalFeatureList.read(binary, Keypoint.class);
+
+		assertEquals(keys.size(), mapped.size());
+		assertEquals(keys.vecLength(), mapped.vecLength());
+		assertEquals(keys, mapped);
+		assertEquals(keys.subList(10, 20), mapped.subList(10, 20));
+		assertEquals(5, mapped.randomSubList(5).size());
+	}
+
+	/**
+	 * Test the zero-copy access to the locations and descriptors
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testBuffers() throws IOException {
+		final MappedLocalFeatureList<Keypoint> mapped = MappedLocalFeatureList.read(binary, Keypoint.class);
+
+		assertEquals(16 + 128, mapped.getRecordLength());
+
+		for (int i = 0; i < keys.size(); i++) {
+			final Keypoint kpt = keys.get(i);
+
+			final ByteBuffer loc = mapped.getLocationBuffer(i);
+			assertEquals(16, loc.remaining());
+			assertEquals(kpt.x, loc.getFloat(), 0);
+			assertEquals(kpt.y, loc.getFloat(), 0);
+			assertEquals(kpt.scale, loc.getFloat(), 0);
+			assertEquals(kpt.ori, loc.getFloat(), 0);
+
+			final byte[] vec = new byte[128];
+			mapped.getVectorBuffer(i).get(vec);
+			assertArrayEquals(kpt.ivec, vec);
+		}
+	}
+
+	/**
+	 * Test that writing a mapped list gives an identical file
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testWrite() throws IOException {
+		final MappedLocalFeatureList<Keypoint> mapped = MappedLocalFeatureList.read(binary, Keypoint.class);
+
+		final File copy = folder.newFile("kpt-copy.bin");
+		IOUtils.writeBinary(copy, mapped);
+
+		assertArrayEquals(FileUtils.readFileToByteArray(binary),
+				FileUtils.readFileToByteArray(copy));
+	}
+
+	/**
+	 * Test that ASCII files are rejected
+	 * 
+	 * @throws IOException
+	 */
+	@Test(expected = IOException.class)
+	public void testASCII() throws IOException {
+		final File ascii = folder.newFile("kpt.ascii");
+		IOUtils.writeASCII(ascii, keys);
+
+		MappedLocalFeatureList.read(ascii, Keypoint.class);
+	}
+}
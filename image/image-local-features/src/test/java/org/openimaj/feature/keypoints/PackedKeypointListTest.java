@@ -0,0 +1,256 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.feature.keypoints;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openimaj.feature.local.list.MemoryLocalFeatureList;
+import org.openimaj.feature.local.matcher.FastBasicKeypointMatcher;
+import org.openimaj.image.feature.local.keypoints.Keypoint;
+import org.openimaj.image.feature.local.keypoints.PackedKeypointList;
+import org.openimaj.ml.clustering.ByteCentroidsResult;
+import org.openimaj.ml.clustering.assignment.HardAssigner;
+import org.openimaj.ml.clustering.kmeans.ByteKMeans;
+import org.openimaj.util.pair.IntFloatPair;
+import org.openimaj.util.pair.Pair;
+
+/**
+ * Tests for {@link PackedKeypointList}
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ * 
+ */
+public class PackedKeypointListTest {
+	MemoryLocalFeatureList<Keypoint> keys;
+
+	/**
+	 * Create some random keypoints
+	 */
+	@Before
+	public void setup() {
+		keys = createKeypoints(new Random(42), 2000);
+	}
+
+	private static MemoryLocalFeatureList<Keypoint> createKeypoints(Random rng, int n) {
+		final MemoryLocalFeatureList<Keypoint> keys = new MemoryLocalFeatureList<Keypoint>(128);
+		for (int i = 0; i < n; i++) {
+			final Keypoint kpt = new Keypoint(128);
+			kpt.x = rng.nextFloat() * 100;
+			kpt.y = rng.nextFloat() * 100;
+			kpt.scale = rng.nextFloat() * 10;
+			kpt.ori = rng.nextFloat();
+			rng.nextBytes(kpt.ivec);
+			keys.add(kpt);
+		}
+		return keys;
+	}
+
+	/**
+	 * Test that the packed list holds the same data as the original list
+	 */
+	@Test
+	public void testContents() {
+		final PackedKeypointList packed = new PackedKeypointList(keys);
+
+		assertEquals(keys.size(), packed.size());
+		assertEquals(128, packed.vecLength());
+		assertEquals(keys, packed);
+
+		for (int i = 0; i < keys.size(); i++) {
+			assertEquals(keys.get(i).x, packed.getX(i), 0);
+			assertEquals(keys.get(i).y, packed.getY(i), 0);
+			assertEquals(keys.get(i).scale, packed.getScale(i), 0);
+			assertEquals(keys.get(i).ori, packed.getOrientation(i), 0);
+			assertArrayEquals(keys.get(i).ivec, packed.getDescriptor(i, null));
+		}
+
+		assertEquals(keys.subList(10, 20), packed.subList(10, 20));
+	}
+
+	/**
+	 * Test modifying the list
+	 */
+	@Test
+	public void testModification() {
+		final PackedKeypointList packed = new PackedKeypointList(128);
+		final List<Keypoint> expected = new MemoryLocalFeatureList<Keypoint>(128);
+
+		for (final Keypoint k : keys.subList(0, 100)) {
+			packed.add(k);
+			expected.add(k);
+		}
+		assertEquals(expected, packed);
+
+		packed.add(5, keys.get(200));
+		expected.add(5, keys.get(200));
+		assertEquals(expected, packed);
+
+		assertEquals(expected.remove(17), packed.remove(17));
+		assertEquals(expected, packed);
+
+		assertEquals(expected.set(3, keys.get(300)), packed.set(3, keys.get(300)));
+		assertEquals(expected, packed);
+
+		// modifying a returned keypoint must not change the list
+		packed.get(0).ivec[0]++;
+		assertEquals(expected, packed);
+	}
+
+	/**
+	 * Test that adding or setting a keypoint with the wrong descriptor length
+	 * fails without changing the list
+	 */
+	@Test
+	public void testInvalidDescriptor() {
+		final PackedKeypointList packed = new PackedKeypointList(keys.subList(0, 10));
+		final List<Keypoint> expected = new ArrayList<Keypoint>(keys.subList(0, 10));
+		final Keypoint invalid = new Keypoint(1, 2, 3, 4, new byte[64]);
+
+		try {
+			packed.add(invalid);
+			fail();
+		} catch (final IllegalArgumentException e) {
+			// expected
+		}
+		assertEquals(10, packed.size());
+		assertEquals(expected, packed);
+
+		try {
+			packed.add(5, invalid);
+			fail();
+		} catch (final IllegalArgumentException e) {
+			// expected
+		}
+		assertEquals(10, packed.size());
+		assertEquals(expected, packed);
+
+		try {
+			packed.set(5, invalid);
+			fail();
+		} catch (final IllegalArgumentException e) {
+			// expected
+		}
+		assertEquals(expected, packed);
+
+		try {
+			packed.addAll(Arrays.asList(keys.get(10), invalid));
+			fail();
+		} catch (final IllegalArgumentException e) {
+			// expected
+		}
+		assertEquals(10, packed.size());
+		assertEquals(expected, packed);
+
+		try {
+			new PackedKeypointList(Arrays.asList(keys.get(0), invalid));
+			fail();
+		} catch (final IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * Test that the binary output is identical to a normal list
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testWriteBinary() throws IOException {
+		final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		keys.writeBinary(new DataOutputStream(expected));
+
+		final ByteArrayOutputStream actual = new ByteArrayOutputStream();
+		new PackedKeypointList(keys).writeBinary(new DataOutputStream(actual));
+
+		assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+	}
+
+	/**
+	 * Test clustering and assigning directly from the packed list
+	 */
+	@Test
+	public void testClusterAndAssign() {
+		final PackedKeypointList packed = new PackedKeypointList(keys);
+
+		final ByteKMeans kmeans = ByteKMeans.createExact(10, 5);
+		final ByteCentroidsResult result = kmeans.cluster(packed.asDataSource());
+		assertEquals(10, result.numClusters());
+
+		final HardAssigner<byte[], float[], IntFloatPair> assigner = result.defaultHardAssigner();
+		final byte[][] data = keys.asDataArray(new byte[keys.size()][]);
+
+		assertArrayEquals(assigner.assign(data), packed.assign(assigner));
+	}
+
+	/**
+	 * Test that the matcher gives the same result for packed and unpacked
+	 * lists
+	 */
+	@Test
+	public void testMatcher() {
+		final MemoryLocalFeatureList<Keypoint> query = new MemoryLocalFeatureList<Keypoint>(128);
+		final Random rng = new Random(1);
+		for (final Keypoint k : keys.subList(0, 1500)) {
+			final Keypoint q = k.clone();
+			for (int i = 0; i < q.ivec.length; i++)
+				q.ivec[i] += rng.nextInt(3) - 1;
+			query.add(q);
+		}
+		query.addAll(createKeypoints(rng, 100));
+
+		final FastBasicKeypointMatcher<Keypoint> matcher = new FastBasicKeypointMatcher<Keypoint>();
+		matcher.setModelFeatures(keys);
+		matcher.findMatches(query);
+		final List<Pair<Keypoint>> expected = matcher.getMatches();
+
+		final FastBasicKeypointMatcher<Keypoint> packedMatcher = new FastBasicKeypointMatcher<Keypoint>();
+		packedMatcher.setModelFeatures(new PackedKeypointList(keys));
+		packedMatcher.findMatches(new PackedKeypointList(query));
+		final List<Pair<Keypoint>> actual = packedMatcher.getMatches();
+
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i).firstObject(), actual.get(i).firstObject());
+			assertEquals(expected.get(i).secondObject(), actual.get(i).secondObject());
+		}
+	}
+}
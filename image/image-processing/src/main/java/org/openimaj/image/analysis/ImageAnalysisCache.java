@@ -0,0 +1,423 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.image.analysis;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.openimaj.image.FImage;
+import org.openimaj.image.Image;
+import org.openimaj.image.ImagePool;
+import org.openimaj.image.analysis.algorithm.SummedAreaTable;
+import org.openimaj.image.analysis.algorithm.SummedSqAreaTable;
+import org.openimaj.image.analysis.algorithm.SummedSqTiltAreaTable;
+import org.openimaj.image.analysis.pyramid.gaussian.GaussianPyramid;
+import org.openimaj.image.analysis.pyramid.gaussian.GaussianPyramidOptions;
+import org.openimaj.image.processing.convolution.FImageGradients;
+import org.openimaj.image.processor.SinglebandImageProcessor;
+import org.openimaj.util.function.Function;
+
+/**
+ * A cache of the results of analysing images, so that several analysers or
+ * detectors working on the same image (for example a face detector and a
+ * person detector applied to each frame of a video) can share intermediate
+ * results such as summed area tables, gradients and pyramids rather than each
+ * recomputing them.
+ * <p>
+ * Results are associated with the identity of the image object (not its
+ * content). Images are only weakly referenced, so the results for an image
+ * are evicted once the image has been garbage collected; in addition, at most
+ * a fixed number of images are retained, with the least recently used being
+ * evicted first.
+ * <p>
+ * When frames are recycled through an {@link ImagePool}, the cache should be
+ * registered as a listener of the pool (see
+ * {@link ImagePool#addReleaseListener(ImagePool.ReleaseListener)}) so that the
+ * results for a frame are evicted as soon as the frame is released, and a
+ * reacquired frame is never given the results of its previous content. Other
+ * than through a pool, the cache has no way of knowing when the pixels of an
+ * image are changed, so {@link #invalidate(Image)} <strong>must</strong> be
+ * called if an image is modified after it has been analysed.
+ * <p>
+ * The cache is thread-safe. The analyses themselves are performed outside of
+ * any lock, so if two threads simultaneously request the same analysis of the
+ * same image it might be computed twice, but only the first result will be
+ * retained.
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class ImageAnalysisCache implements ImagePool.ReleaseListener<Image<?, ?>> {
+	/**
+	 * The default maximum number of images for which results are retained
+	 */
+	public static final int DEFAULT_MAX_IMAGES = 16;
+
+	private static final Object SAT_KEY = SummedAreaTable.class;
+	private static final Object SQSAT_KEY = SummedSqAreaTable.class;
+	private static final Object TILTSAT_KEY = SummedSqTiltAreaTable.class;
+
+	/**
+	 * Weak reference to an image that uses the identity of the image for
+	 * equality
+	 */
+	private static final class ImageKey extends WeakReference<Image<?, ?>> {
+		private final int hash;
+
+		ImageKey(Image<?, ?> image, ReferenceQueue<Image<?, ?>> queue) {
+			super(image, queue);
+			this.hash = System.identityHashCode(image);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof ImageKey))
+				return false;
+
+			final Image<?, ?> image = get();
+			return image != null && image == ((ImageKey) obj).get();
+		}
+	}
+
+	private final ReferenceQueue<Image<?, ?>> queue = new ReferenceQueue<Image<?, ?>>();
+	private final LinkedHashMap<ImageKey, Map<Object, Object>> cache;
+
+	/**
+	 * Construct a cache that retains results for up to
+	 * {@link #DEFAULT_MAX_IMAGES} images.
+	 */
+	public ImageAnalysisCache() {
+		this(DEFAULT_MAX_IMAGES);
+	}
+
+	/**
+	 * Construct a cache that retains results for up to the given number of
+	 * images.
+	 * 
+	 * @param maxImages
+	 *            the maximum number of images
+	 */
+	public ImageAnalysisCache(final int maxImages) {
+		this.cache = new LinkedHashMap<ImageKey, Map<Object, Object>>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<ImageKey, Map<Object, Object>> eldest) {
+				return size() > maxImages;
+			}
+		};
+	}
+
+	/**
+	 * Remove the entries of images that have been garbage collected. Must be
+	 * called with the lock held.
+	 */
+	private void expunge() {
+		Object key;
+		while ((key = queue.poll()) != null)
+			cache.remove(key);
+	}
+
+	/**
+	 * Get a previously computed result for the given image
+	 * 
+	 * @param image
+	 *            the image
+	 * @param key
+	 *            the key identifying the analysis
+	 * @return the result, or null if it hasn't been computed
+	 */
+	@SuppressWarnings("unchecked")
+	public synchronized <T> T peek(Image<?, ?> image, Object key) {
+		expunge();
+
+		final Map<Object, Object> results = cache.get(new ImageKey(image, null));
+		return results == null ? null : (T) results.get(key);
+	}
+
+	/**
+	 * Store a result for the given image. Any existing result with the same
+	 * key is retained in preference.
+	 * 
+	 * @param image
+	 *            the image
+	 * @param key
+	 *            the key identifying the analysis
+	 * @param result
+	 *            the result
+	 * @return the result now held by the cache
+	 */
+	@SuppressWarnings("unchecked")
+	private synchronized <T> T put(Image<?, ?> image, Object key, T result) {
+		expunge();
+
+		final ImageKey ikey = new ImageKey(image, queue);
+		Map<Object, Object> results = cache.get(ikey);
+		if (results == null)
+			cache.put(ikey, results = new HashMap<Object, Object>());
+
+		final Object existing = results.get(key);
+		if (existing != null)
+			return (T) existing;
+
+		results.put(key, result);
+		return result;
+	}
+
+	/**
+	 * Get the result of analysing the given image with the given analyser. If
+	 * the analysis has previously been performed (as identified by the key) the
+	 * cached result is returned; otherwise the analyser is applied and its
+	 * result stored. The key must uniquely identify the analyser and any
+	 * parameters that affect its result.
+	 * 
+	 * @param image
+	 *            the image
+	 * @param key
+	 *            the key identifying the analysis
+	 * @param analyser
+	 *            the function that performs the analysis
+	 * @return the result
+	 */
+	public <I extends Image<?, I>, T> T get(I image, Object key, Function<? super I, T> analyser) {
+		final T result = peek(image, key);
+		if (result != null)
+			return result;
+
+		return put(image, key, analyser.apply(image));
+	}
+
+	/**
+	 * Remove all results for the given image. This must be called if the image
+	 * is modified after being analysed.
+	 * 
+	 * @param image
+	 *            the image
+	 */
+	public synchronized void invalidate(Image<?, ?> image) {
+		expunge();
+		cache.remove(new ImageKey(image, null));
+	}
+
+	/**
+	 * Remove all results for an image released into an {@link ImagePool}
+	 * with which this cache is registered.
+	 * 
+	 * @param image
+	 *            the released image
+	 */
+	@Override
+	public void imageReleased(Image<?, ?> image) {
+		invalidate(image);
+	}
+
+	/**
+	 * Remove all results from the cache
+	 */
+	public synchronized void clear() {
+		cache.clear();
+		while (queue.poll() != null)
+			;
+	}
+
+	/**
+	 * Get the number of images for which results are currently held
+	 * 
+	 * @return the number of images
+	 */
+	public synchronized int size() {
+		expunge();
+		return cache.size();
+	}
+
+	/**
+	 * Get the {@link SummedSqTiltAreaTable} of the given image. If a table
+	 * including the tilted sums has already been computed it will be returned,
+	 * even if <code>tilted</code> is false.
+	 * 
+	 * @param image
+	 *            the image
+	 * @param tilted
+	 *            true if the tilted sums are required
+	 * @return the summed area tables
+	 */
+	public SummedSqTiltAreaTable getSummedSqTiltAreaTable(FImage image, final boolean tilted) {
+		final SummedSqTiltAreaTable sat = peek(image, TILTSAT_KEY);
+		if (sat != null && (sat.tiltSum != null || !tilted))
+			return sat;
+
+		final SummedSqTiltAreaTable computed = new SummedSqTiltAreaTable(image, tilted);
+		synchronized (this) {
+			// replace any untilted table with a tilted one
+			final SummedSqTiltAreaTable current = peek(image, TILTSAT_KEY);
+			if (current != null && (current.tiltSum != null || !tilted))
+				return current;
+
+			invalidateKey(image, TILTSAT_KEY);
+			return put(image, TILTSAT_KEY, computed);
+		}
+	}
+
+	private synchronized void invalidateKey(Image<?, ?> image, Object key) {
+		final Map<Object, Object> results = cache.get(new ImageKey(image, null));
+		if (results != null)
+			results.remove(key);
+	}
+
+	/**
+	 * Get the {@link SummedSqAreaTable} of the given image. This will reuse the
+	 * sums from an existing {@link SummedSqTiltAreaTable} if there is one.
+	 * 
+	 * @param image
+	 *            the image
+	 * @return the summed area tables
+	 */
+	public SummedSqAreaTable getSummedSqAreaTable(FImage image) {
+		final SummedSqAreaTable tsat = peek(image, TILTSAT_KEY);
+		if (tsat != null)
+			return tsat;
+
+		return get(image, SQSAT_KEY, new Function<FImage, SummedSqAreaTable>() {
+			@Override
+			public SummedSqAreaTable apply(FImage in) {
+				return new SummedSqAreaTable(in);
+			}
+		});
+	}
+
+	/**
+	 * Get the {@link SummedAreaTable} of the given image. This will reuse the
+	 * sums from an existing {@link SummedSqAreaTable} or
+	 * {@link SummedSqTiltAreaTable} if there is one.
+	 * 
+	 * @param image
+	 *            the image
+	 * @return the summed area table
+	 */
+	public SummedAreaTable getSummedAreaTable(FImage image) {
+		SummedSqAreaTable sqsat = peek(image, TILTSAT_KEY);
+		if (sqsat == null)
+			sqsat = peek(image, SQSAT_KEY);
+
+		if (sqsat != null) {
+			final SummedSqAreaTable sums = sqsat;
+			return get(image, SAT_KEY, new Function<FImage, SummedAreaTable>() {
+				@Override
+				public SummedAreaTable apply(FImage in) {
+					final SummedAreaTable sat = new SummedAreaTable();
+					sat.data = sums.sum;
+					return sat;
+				}
+			});
+		}
+
+		return get(image, SAT_KEY, new Function<FImage, SummedAreaTable>() {
+			@Override
+			public SummedAreaTable apply(FImage in) {
+				return new SummedAreaTable(in);
+			}
+		});
+	}
+
+	/**
+	 * Get the gradient magnitudes and orientations of the given image.
+	 * 
+	 * @param image
+	 *            the image
+	 * @param mode
+	 *            the orientation mode
+	 * @return the gradients
+	 */
+	public FImageGradients getGradients(FImage image, final FImageGradients.Mode mode) {
+		return get(image, Arrays.asList(FImageGradients.class, mode), new Function<FImage, FImageGradients>() {
+			@Override
+			public FImageGradients apply(FImage in) {
+				return FImageGradients.getGradientMagnitudesAndOrientations(in, mode);
+			}
+		});
+	}
+
+	/**
+	 * Get the {@link GaussianPyramid} of the given image built with the given
+	 * options. Pyramids are cached against the identity of the options object,
+	 * which should be configured to keep the octaves (see
+	 * {@link GaussianPyramidOptions#setKeepOctaves(boolean)}).
+	 * 
+	 * @param image
+	 *            the image
+	 * @param options
+	 *            the pyramid options
+	 * @return the pyramid
+	 */
+	public <I extends Image<?, I> & SinglebandImageProcessor.Processable<Float, FImage, I>> GaussianPyramid<I>
+			getGaussianPyramid(I image, final GaussianPyramidOptions<I> options)
+	{
+		return get(image, Arrays.asList(GaussianPyramid.class, new IdentityKey(options)),
+				new Function<I, GaussianPyramid<I>>() {
+					@Override
+					public GaussianPyramid<I> apply(I in) {
+						final GaussianPyramid<I> pyr = new GaussianPyramid<I>(options);
+						pyr.process(in);
+						return pyr;
+					}
+				});
+	}
+
+	/**
+	 * Key that compares objects by identity
+	 */
+	private static final class IdentityKey {
+		private final Object obj;
+
+		IdentityKey(Object obj) {
+			this.obj = obj;
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(obj);
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			return other instanceof IdentityKey && ((IdentityKey) other).obj == obj;
+		}
+	}
+}
@@ -29,10 +29,15 @@
  */
 package org.openimaj.image.analysis.algorithm.histogram;
 
+import java.util.Arrays;
+
 import org.openimaj.image.FImage;
 import org.openimaj.image.analyser.ImageAnalyser;
+import org.openimaj.image.analysis.ImageAnalysisCache;
+import org.openimaj.image.analysis.algorithm.SummedAreaTable;
 import org.openimaj.image.analysis.algorithm.histogram.binning.SpatialBinningStrategy;
 import org.openimaj.image.processing.convolution.FImageGradients;
+import org.openimaj.util.function.Function;
 
 /**
  * Implementation of the {@link WindowedHistogramExtractor} for efficiently
@@ -96,6 +101,31 @@ implements ImageAnalyser<FImage>
 		computeSATs(magnitudes);
 	}
 
+	/**
+	 * Analyse the given image, sharing the underlying data with any other
+	 * identically configured extractor that has analysed the same image
+	 * through the given cache.
+	 *
+	 * @param image
+	 *            the image to analyse
+	 * @param cache
+	 *            the cache
+	 */
+	public void analyseImage(FImage image, ImageAnalysisCache cache) {
+		final Object key = Arrays.asList(GradientOrientationHistogramExtractor.class, nbins, histogramInterpolation,
+				orientationMode);
+
+		final SummedAreaTable[] cached = cache.get(image, key, new Function<FImage, SummedAreaTable[]>() {
+			@Override
+			public SummedAreaTable[] apply(FImage in) {
+				analyseImage(in);
+				return sats.clone();
+			}
+		});
+
+		System.arraycopy(cached, 0, sats, 0, nbins);
+	}
+
 	/**
 	 * Analyse the given image, but construct the internal data such that the
 	 * gradient magnitudes are multiplied by the given edge map before being
@@ -72,26 +72,24 @@ public class FourierCorrelation implements SinglebandImageProcessor<Float, FImag
 
 		FloatFFT_2D fft = new FloatFFT_2D(rows, cols);
 
-		float[][] preparedImage = FourierTransform.prepareData(image.pixels, rows, cols, false);
+		float[] preparedImage = FourierTransform.prepareData1d(image.pixels, rows, cols, false);
 		fft.complexForward(preparedImage);
 
-		float[][] preparedKernel = FourierTransform.prepareData(template.pixels, rows, cols, false);
+		float[] preparedKernel = FourierTransform.prepareData1d(template.pixels, rows, cols, false);
 		fft.complexForward(preparedKernel);
 
-		for(int y = 0; y < rows; y++) {
-			for(int x = 0; x < cols; x++) {
-				float reImage = preparedImage[y][x*2];
-				float imImage = preparedImage[y][1 + x*2];
+		for(int i = 0; i < preparedImage.length; i += 2) {
+			float reImage = preparedImage[i];
+			float imImage = preparedImage[i + 1];
 
-				float reKernel = preparedKernel[y][x*2];
-				float imKernelConj = -1 * preparedKernel[y][1 + x*2];
+			float reKernel = preparedKernel[i];
+			float imKernelConj = -1 * preparedKernel[i + 1];
 
-				float re = reImage * reKernel - imImage * imKernelConj;
-				float im = reImage * imKernelConj + imImage * reKernel;
+			float re = reImage * reKernel - imImage * imKernelConj;
+			float im = reImage * imKernelConj + imImage * reKernel;
 
-				preparedImage[y][x*2] = re;
-				preparedImage[y][1 + x*2] = im;
-			}
+			preparedImage[i] = re;
+			preparedImage[i + 1] = im;
 		}
 
 		fft.complexInverse(preparedImage, true);
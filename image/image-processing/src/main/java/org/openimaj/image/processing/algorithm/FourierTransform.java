@@ -29,7 +29,10 @@
  */
 package org.openimaj.image.processing.algorithm;
 
+import java.util.Arrays;
+
 import org.openimaj.image.FImage;
+import org.openimaj.math.util.FFTPlanCache;
 
 import edu.emory.mathcs.jtransforms.fft.FloatFFT_2D;
 
@@ -168,7 +171,30 @@ public class FourierTransform {
 	 * @return prepared data
 	 */
 	public static float[] prepareData1d(float[][] input, int rs, int cs, boolean centre) {
-		final float[] prepared = new float[rs * cs * 2];
+		return prepareData1d(input, rs, cs, centre, new float[rs * cs * 2]);
+	}
+
+	/**
+	 * Prepare data for a input to the FFT, padding if necessary. The data is
+	 * prepared as a packed 1D array and written into the given array, which
+	 * must have a length of <code>rs * cs * 2</code>. This allows work
+	 * buffers to be reused between transforms.
+	 *
+	 * @param input
+	 *            input data
+	 * @param rs
+	 *            desired number of rows
+	 * @param cs
+	 *            desired number of columns
+	 * @param centre
+	 *            if true, then the data will be prepared so that the DC
+	 *            component is centered.
+	 * @param prepared
+	 *            the array to write the prepared data into
+	 * @return the prepared data
+	 */
+	public static float[] prepareData1d(float[][] input, int rs, int cs, boolean centre, float[] prepared) {
+		Arrays.fill(prepared, 0);
 
 		if (centre) {
 			for (int r = 0; r < Math.min(rs, input.length); r++) {
@@ -292,18 +318,21 @@ public class FourierTransform {
 		phase = new FImage(cs, rs);
 		magnitude = new FImage(cs, rs);
 
-		final FloatFFT_2D fft = new FloatFFT_2D(rs, cs);
-		final float[][] prepared = prepareData(image.pixels, rs, cs, centre);
+		final FloatFFT_2D fft = FFTPlanCache.getFloatFFT_2D(rs, cs);
+		final float[] prepared = prepareData1d(image.pixels, rs, cs, centre, FFTPlanCache.getWorkBuffer(0, rs * cs * 2));
 
 		fft.complexForward(prepared);
 
-		for (int y = 0; y < rs; y++) {
-			for (int x = 0; x < cs; x++) {
-				final float re = prepared[y][x * 2];
-				final float im = prepared[y][1 + x * 2];
+		for (int y = 0, i = 0; y < rs; y++) {
+			final float[] prow = phase.pixels[y];
+			final float[] mrow = magnitude.pixels[y];
 
-				phase.pixels[y][x] = (float) Math.atan2(im, re);
-				magnitude.pixels[y][x] = (float) Math.sqrt(re * re + im * im);
+			for (int x = 0; x < cs; x++, i += 2) {
+				final float re = prepared[i];
+				final float im = prepared[i + 1];
+
+				prow[x] = (float) Math.atan2(im, re);
+				mrow[x] = (float) Math.sqrt(re * re + im * im);
 			}
 		}
 	}
@@ -318,18 +347,18 @@ public class FourierTransform {
 		final int cs = magnitude.getCols();
 		final int rs = magnitude.getRows();
 
-		final FloatFFT_2D fft = new FloatFFT_2D(rs, cs);
-		final float[][] prepared = new float[rs][cs * 2];
-		for (int y = 0; y < rs; y++) {
-			for (int x = 0; x < cs; x++) {
-				final float p = phase.pixels[y][x];
-				final float m = magnitude.pixels[y][x];
+		final FloatFFT_2D fft = FFTPlanCache.getFloatFFT_2D(rs, cs);
+		final float[] prepared = FFTPlanCache.getWorkBuffer(0, rs * cs * 2);
+		for (int y = 0, i = 0; y < rs; y++) {
+			final float[] prow = phase.pixels[y];
+			final float[] mrow = magnitude.pixels[y];
 
-				final float re = (float) (m * Math.cos(p));
-				final float im = (float) (m * Math.sin(p));
+			for (int x = 0; x < cs; x++, i += 2) {
+				final float p = prow[x];
+				final float m = mrow[x];
 
-				prepared[y][x * 2] = re;
-				prepared[y][1 + x * 2] = im;
+				prepared[i] = (float) (m * Math.cos(p));
+				prepared[i + 1] = (float) (m * Math.sin(p));
 			}
 		}
 
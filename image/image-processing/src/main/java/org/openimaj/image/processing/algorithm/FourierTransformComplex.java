@@ -30,6 +30,7 @@
 package org.openimaj.image.processing.algorithm;
 
 import org.openimaj.image.FImage;
+import org.openimaj.math.util.FFTPlanCache;
 
 import edu.emory.mathcs.jtransforms.fft.FloatFFT_2D;
 
@@ -88,15 +89,19 @@ public class FourierTransformComplex {
 		real = new FImage(cs, rs);
 		imaginary = new FImage(cs, rs);
 
-		final FloatFFT_2D fft = new FloatFFT_2D(rs, cs);
-		final float[][] prepared = FourierTransform.prepareData(image.pixels, rs, cs, centre);
+		final FloatFFT_2D fft = FFTPlanCache.getFloatFFT_2D(rs, cs);
+		final float[] prepared = FourierTransform.prepareData1d(image.pixels, rs, cs, centre,
+				FFTPlanCache.getWorkBuffer(0, rs * cs * 2));
 
 		fft.complexForward(prepared);
 
-		for (int y = 0; y < rs; y++) {
-			for (int x = 0; x < cs; x++) {
-				real.pixels[y][x] = prepared[y][x * 2];
-				imaginary.pixels[y][x] = prepared[y][1 + x * 2];
+		for (int y = 0, i = 0; y < rs; y++) {
+			final float[] rrow = real.pixels[y];
+			final float[] irow = imaginary.pixels[y];
+
+			for (int x = 0; x < cs; x++, i += 2) {
+				rrow[x] = prepared[i];
+				irow[x] = prepared[i + 1];
 			}
 		}
 	}
@@ -111,12 +116,15 @@ public class FourierTransformComplex {
 		final int cs = real.getCols();
 		final int rs = real.getRows();
 
-		final FloatFFT_2D fft = new FloatFFT_2D(rs, cs);
-		final float[][] prepared = new float[rs][cs * 2];
-		for (int y = 0; y < rs; y++) {
-			for (int x = 0; x < cs; x++) {
-				prepared[y][x * 2] = real.pixels[y][x];
-				prepared[y][1 + x * 2] = imaginary.pixels[y][x];
+		final FloatFFT_2D fft = FFTPlanCache.getFloatFFT_2D(rs, cs);
+		final float[] prepared = FFTPlanCache.getWorkBuffer(0, rs * cs * 2);
+		for (int y = 0, i = 0; y < rs; y++) {
+			final float[] rrow = real.pixels[y];
+			final float[] irow = imaginary.pixels[y];
+
+			for (int x = 0; x < cs; x++, i += 2) {
+				prepared[i] = rrow[x];
+				prepared[i + 1] = irow[x];
 			}
 		}
 
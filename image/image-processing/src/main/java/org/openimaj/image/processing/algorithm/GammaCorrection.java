@@ -29,7 +29,7 @@
  */
 package org.openimaj.image.processing.algorithm;
 
-import org.openimaj.image.processor.PixelProcessor;
+import org.openimaj.image.processor.FloatPixelProcessor;
 
 /**
  * Class to perform Gamma correction on a grey-level image.
@@ -40,7 +40,7 @@ import org.openimaj.image.processor.PixelProcessor;
  * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
  *
  */
-public class GammaCorrection implements PixelProcessor<Float> {
+public class GammaCorrection implements FloatPixelProcessor {
 	protected double gamma;
 	
 	/**
@@ -59,11 +59,16 @@ public class GammaCorrection implements PixelProcessor<Float> {
 	}
 	
 	@Override
-	public Float processPixel(Float pixel) {
+	public float processPixel(float pixel) {
 		if (gamma == 0) {
 			return (float) Math.log(pixel);
 		}
 		return (float) Math.pow(pixel, gamma);
 	}
+
+	@Override
+	public Float processPixel(Float pixel) {
+		return processPixel(pixel.floatValue());
+	}
 }
 
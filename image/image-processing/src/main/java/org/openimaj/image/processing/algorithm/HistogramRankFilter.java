@@ -0,0 +1,262 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.image.processing.algorithm;
+
+import java.util.Arrays;
+import java.util.Set;
+
+import org.openimaj.citation.annotation.Reference;
+import org.openimaj.citation.annotation.ReferenceType;
+import org.openimaj.image.FImage;
+import org.openimaj.image.pixel.Pixel;
+import org.openimaj.image.processor.SinglebandImageProcessor;
+
+/**
+ * Rank filter for rectangular supports that runs in constant time per pixel,
+ * regardless of the size of the support. Each pixel is replaced with the value
+ * at the given percentile of the pixels in the support; a percentile of 0.5
+ * gives a median filter, and 0 and 1 give min and max filters.
+ * <p>
+ * The filter works on a histogram of the pixels in the support, so pixel
+ * values are quantised to 256 levels over the range 0..1 (values outside this
+ * range are clamped), and the output values are also quantised. For images
+ * that came from 8-bit sources this quantisation has no effect. The
+ * histograms are maintained as described by Perreault and Hébert: a histogram
+ * is kept for each image column and updated as the filter moves down the
+ * image, and the histogram of the support is updated by adding and removing
+ * whole columns as it moves along a row. A two-level (coarse and fine)
+ * histogram is used, with the fine levels of the support histogram only
+ * brought up to date when they are needed.
+ * <p>
+ * At the image borders, only the pixels of the support that lie within the
+ * image are used. If the support contains <code>n</code> pixels, the output is
+ * the element of rank <code>round(percentile * (n - 1))</code>.
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+@Reference(
+		type = ReferenceType.Article,
+		author = { "Perreault, Simon", "Hébert, Patrick" },
+		title = "Median Filtering in Constant Time",
+		year = "2007",
+		journal = "IEEE Transactions on Image Processing",
+		pages = { "2389", "2394" },
+		volume = "16",
+		number = "9")
+public class HistogramRankFilter implements SinglebandImageProcessor<Float, FImage> {
+	private static final int NBINS = 256;
+	private static final int COARSE_SHIFT = 4;
+	private static final int NCOARSE = NBINS >> COARSE_SHIFT;
+	private static final int FINE_PER_COARSE = NBINS / NCOARSE;
+
+	private int left;
+	private int right;
+	private int up;
+	private int down;
+	private float percentile;
+
+	/**
+	 * Construct a median filter with a block support of the given size.
+	 * 
+	 * @param width
+	 *            the width of the support
+	 * @param height
+	 *            the height of the support
+	 */
+	public HistogramRankFilter(int width, int height) {
+		this(width, height, 0.5f);
+	}
+
+	/**
+	 * Construct a rank filter with a block support of the given size. The
+	 * support is positioned in the same way as
+	 * {@link FilterSupport#createBlockSupport(int, int)}.
+	 * 
+	 * @param width
+	 *            the width of the support
+	 * @param height
+	 *            the height of the support
+	 * @param percentile
+	 *            the percentile (0..1) of the support to select
+	 */
+	public HistogramRankFilter(int width, int height, float percentile) {
+		if (width < 1 || height < 1)
+			throw new IllegalArgumentException("The support must be at least 1x1");
+
+		this.left = width / 2;
+		this.right = width - 1 - left;
+		this.up = height / 2;
+		this.down = height - 1 - up;
+		setPercentile(percentile);
+	}
+
+	/**
+	 * Construct a rank filter with the given support, which must be a centred
+	 * block, such as those created by
+	 * {@link FilterSupport#createBlockSupport(int, int)}.
+	 * 
+	 * @param support
+	 *            the support coordinates
+	 * @param percentile
+	 *            the percentile (0..1) of the support to select
+	 * @throws IllegalArgumentException
+	 *             if the support is not a block
+	 */
+	public HistogramRankFilter(Set<Pixel> support, float percentile) {
+		if (!FilterSupport.isBlockSupport(support))
+			throw new IllegalArgumentException("HistogramRankFilter requires a block support");
+
+		left = right = up = down = 0;
+		for (final Pixel p : support) {
+			left = Math.max(left, -p.x);
+			right = Math.max(right, p.x);
+			up = Math.max(up, -p.y);
+			down = Math.max(down, p.y);
+		}
+		setPercentile(percentile);
+	}
+
+	private void setPercentile(float percentile) {
+		if (percentile < 0 || percentile > 1)
+			throw new IllegalArgumentException("The percentile must be between 0 and 1");
+		this.percentile = percentile;
+	}
+
+	@Override
+	public void processImage(FImage image) {
+		final int w = image.width;
+		final int h = image.height;
+
+		final byte[] bins = quantise(image);
+		final int[] colFine = new int[w * NBINS];
+		final int[] colCoarse = new int[w * NCOARSE];
+		final int[] kernelFine = new int[NBINS];
+		final int[] kernelCoarse = new int[NCOARSE];
+		final int[] updated = new int[NCOARSE];
+
+		for (int y = 0; y < Math.min(h, down); y++)
+			addRow(bins, y, w, colFine, colCoarse, 1);
+
+		for (int y = 0; y < h; y++) {
+			// move the column histograms down
+			if (y + down < h)
+				addRow(bins, y + down, w, colFine, colCoarse, 1);
+			if (y - up - 1 >= 0)
+				addRow(bins, y - up - 1, w, colFine, colCoarse, -1);
+
+			final int rows = Math.min(h - 1, y + down) - Math.max(0, y - up) + 1;
+			final float[] out = image.pixels[y];
+
+			Arrays.fill(kernelCoarse, 0);
+			Arrays.fill(updated, Integer.MIN_VALUE);
+			for (int c = 0; c < Math.min(w, right); c++)
+				addColumn(colCoarse, c * NCOARSE, kernelCoarse, 0, NCOARSE, 1);
+
+			for (int x = 0; x < w; x++) {
+				// move the support histogram along
+				if (x + right < w)
+					addColumn(colCoarse, (x + right) * NCOARSE, kernelCoarse, 0, NCOARSE, 1);
+				if (x - left - 1 >= 0)
+					addColumn(colCoarse, (x - left - 1) * NCOARSE, kernelCoarse, 0, NCOARSE, -1);
+
+				final int x0 = Math.max(0, x - left);
+				final int x1 = Math.min(w - 1, x + right);
+				final int n = (x1 - x0 + 1) * rows;
+				int rank = (int) (percentile * (n - 1) + 0.5f);
+
+				// find the coarse bin containing the rank
+				int coarse = 0;
+				while (rank >= kernelCoarse[coarse]) {
+					rank -= kernelCoarse[coarse];
+					coarse++;
+				}
+
+				// bring the fine histogram of that coarse bin up to date
+				final int offset = coarse * FINE_PER_COARSE;
+				final int last = updated[coarse];
+				if (last != Integer.MIN_VALUE && 2 * (x - last) < x1 - x0 + 1) {
+					for (int xx = last + 1; xx <= x; xx++) {
+						if (xx + right < w)
+							addColumn(colFine, (xx + right) * NBINS + offset, kernelFine, offset, FINE_PER_COARSE, 1);
+						if (xx - left - 1 >= 0)
+							addColumn(colFine, (xx - left - 1) * NBINS + offset, kernelFine, offset,
+									FINE_PER_COARSE, -1);
+					}
+				} else {
+					Arrays.fill(kernelFine, offset, offset + FINE_PER_COARSE, 0);
+					for (int xx = x0; xx <= x1; xx++)
+						addColumn(colFine, xx * NBINS + offset, kernelFine, offset, FINE_PER_COARSE, 1);
+				}
+				updated[coarse] = x;
+
+				// find the fine bin containing the rank
+				int bin = offset;
+				while (rank >= kernelFine[bin]) {
+					rank -= kernelFine[bin];
+					bin++;
+				}
+
+				out[x] = bin / (float) (NBINS - 1);
+			}
+		}
+	}
+
+	private static byte[] quantise(FImage image) {
+		final byte[] bins = new byte[image.width * image.height];
+
+		for (int y = 0, i = 0; y < image.height; y++) {
+			final float[] row = image.pixels[y];
+			for (int x = 0; x < image.width; x++, i++) {
+				final float v = row[x];
+				bins[i] = (byte) (v <= 0 ? 0 : v >= 1 ? NBINS - 1 : (int) (v * (NBINS - 1) + 0.5f));
+			}
+		}
+
+		return bins;
+	}
+
+	private static void addRow(byte[] bins, int y, int w, int[] colFine, int[] colCoarse, int delta) {
+		for (int x = 0, i = y * w; x < w; x++, i++) {
+			final int b = bins[i] & 0xff;
+			colFine[x * NBINS + b] += delta;
+			colCoarse[x * NCOARSE + (b >> COARSE_SHIFT)] += delta;
+		}
+	}
+
+	private static void addColumn(int[] src, int srcOffset, int[] dst, int dstOffset, int length, int delta) {
+		if (delta > 0) {
+			for (int i = 0; i < length; i++)
+				dst[dstOffset + i] += src[srcOffset + i];
+		} else {
+			for (int i = 0; i < length; i++)
+				dst[dstOffset + i] -= src[srcOffset + i];
+		}
+	}
+}
@@ -38,6 +38,10 @@ import org.openimaj.image.processor.SinglebandImageProcessor;
 /**
  * Min filter; replaces each pixel with the minimum of its neighbours. This is
  * equivalent to greyscale morphological erosion.
+ * <p>
+ * Block (rectangular) supports are processed separably using the van
+ * Herk/Gil-Werman algorithm, so the cost per pixel does not depend on the size
+ * of the block.
  * 
  * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
  * 
@@ -69,7 +73,7 @@ public class MinFilter implements SinglebandImageProcessor<Float, FImage> {
 	public void processImage(FImage image) {
 		if (blockWidth >= 1 && blockHeight >= 1) {
 			minHorizontalSym(image, blockWidth);
-			minVerticalSym(image, blockWidth);
+			minVerticalSym(image, blockHeight);
 		} else {
 			final FImage tmpImage = new FImage(image.width, image.height);
 
@@ -96,6 +100,8 @@ public class MinFilter implements SinglebandImageProcessor<Float, FImage> {
 	private static void minHorizontalSym(FImage image, int width) {
 		final int halfsize = width / 2;
 		final float buffer[] = new float[image.width + width];
+		final float prefix[] = new float[buffer.length];
+		final float suffix[] = new float[buffer.length];
 
 		for (int r = 0; r < image.height; r++) {
 			for (int i = 0; i < halfsize; i++)
@@ -105,15 +111,8 @@ public class MinFilter implements SinglebandImageProcessor<Float, FImage> {
 			for (int i = 0; i < halfsize; i++)
 				buffer[halfsize + image.width + i] = image.pixels[r][image.width - 1];
 
-			final int l = buffer.length - width;
-			for (int i = 0; i < l; i++) {
-				float min = Float.MAX_VALUE;
-
-				for (int j = 0; j < width; j++)
-					min = Math.min(buffer[i + j], min);
-
-				image.pixels[r][i] = min;
-			}
+			VanHerkGilWerman.min(buffer, image.width + width - 1, width, prefix, suffix);
+			System.arraycopy(buffer, 0, image.pixels[r], 0, image.width);
 		}
 	}
 
@@ -121,6 +120,8 @@ public class MinFilter implements SinglebandImageProcessor<Float, FImage> {
 		final int halfsize = width / 2;
 
 		final float buffer[] = new float[image.height + width];
+		final float prefix[] = new float[buffer.length];
+		final float suffix[] = new float[buffer.length];
 
 		for (int c = 0; c < image.width; c++) {
 			for (int i = 0; i < halfsize; i++)
@@ -130,15 +131,7 @@ public class MinFilter implements SinglebandImageProcessor<Float, FImage> {
 			for (int i = 0; i < halfsize; i++)
 				buffer[halfsize + image.height + i] = image.pixels[image.height - 1][c];
 
-			final int l = buffer.length - width;
-			for (int i = 0; i < l; i++) {
-				float min = Float.MAX_VALUE;
-
-				for (int j = 0; j < width; j++)
-					min = Math.min(buffer[i + j], min);
-
-				buffer[i] = min;
-			}
+			VanHerkGilWerman.min(buffer, image.height + width - 1, width, prefix, suffix);
 
 			for (int r = 0; r < image.height; r++)
 				image.pixels[r][c] = buffer[r];
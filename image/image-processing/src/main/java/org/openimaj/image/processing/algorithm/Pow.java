@@ -29,7 +29,7 @@
  */
 package org.openimaj.image.processing.algorithm;
 
-import org.openimaj.image.processor.PixelProcessor;
+import org.openimaj.image.processor.FloatPixelProcessor;
 
 /**
  * Process pixels by raising there value to a value
@@ -37,7 +37,7 @@ import org.openimaj.image.processor.PixelProcessor;
  * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
  *
  */
-public class Pow implements PixelProcessor<Float> {
+public class Pow implements FloatPixelProcessor {
 	double power;
 	
 	/**
@@ -49,8 +49,13 @@ public class Pow implements PixelProcessor<Float> {
 	}
 	
 	@Override
-	public Float processPixel(Float pixel) {
+	public float processPixel(float pixel) {
 		return (float) Math.pow(pixel, power);
 	}
+
+	@Override
+	public Float processPixel(Float pixel) {
+		return processPixel(pixel.floatValue());
+	}
 	
 }
@@ -0,0 +1,137 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.image.processing.algorithm;
+
+import org.openimaj.citation.annotation.Reference;
+import org.openimaj.citation.annotation.ReferenceType;
+import org.openimaj.citation.annotation.References;
+
+/**
+ * The van Herk/Gil-Werman algorithm for computing the running minimum or
+ * maximum over a window of a 1D signal, using at most three comparisons per
+ * element regardless of the window size. The signal is divided into blocks the
+ * size of the window; any window spans at most two blocks, so its extremum is
+ * given by the suffix extremum of the first block and the prefix extremum of
+ * the second.
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+@References(references = {
+		@Reference(
+				type = ReferenceType.Article,
+				author = { "van Herk, Marcel" },
+				title = "A fast algorithm for local minimum and maximum filters on rectangular and octagonal kernels",
+				year = "1992",
+				journal = "Pattern Recognition Letters",
+				pages = { "517", "521" },
+				volume = "13",
+				number = "7"),
+		@Reference(
+				type = ReferenceType.Article,
+				author = { "Gil, Joseph", "Werman, Michael" },
+				title = "Computing 2-D min, median, and max filters",
+				year = "1993",
+				journal = "IEEE Transactions on Pattern Analysis and Machine Intelligence",
+				pages = { "504", "507" },
+				volume = "15",
+				number = "5")
+})
+final class VanHerkGilWerman {
+	private VanHerkGilWerman() {
+	}
+
+	/**
+	 * Replace the first <code>length - window + 1</code> elements of the
+	 * buffer with the minimum of the <code>window</code> elements starting at
+	 * each position.
+	 * 
+	 * @param buffer
+	 *            the signal
+	 * @param length
+	 *            the length of the signal
+	 * @param window
+	 *            the window size
+	 * @param prefix
+	 *            workspace of at least <code>length</code> elements
+	 * @param suffix
+	 *            workspace of at least <code>length</code> elements
+	 */
+	static void min(float[] buffer, int length, int window, float[] prefix, float[] suffix) {
+		for (int start = 0; start < length; start += window) {
+			final int end = Math.min(start + window, length) - 1;
+
+			prefix[start] = buffer[start];
+			for (int i = start + 1; i <= end; i++)
+				prefix[i] = Math.min(prefix[i - 1], buffer[i]);
+
+			suffix[end] = buffer[end];
+			for (int i = end - 1; i >= start; i--)
+				suffix[i] = Math.min(suffix[i + 1], buffer[i]);
+		}
+
+		final int n = length - window + 1;
+		for (int i = 0; i < n; i++)
+			buffer[i] = Math.min(suffix[i], prefix[i + window - 1]);
+	}
+
+	/**
+	 * Replace the first <code>length - window + 1</code> elements of the
+	 * buffer with the maximum of the <code>window</code> elements starting at
+	 * each position.
+	 * 
+	 * @param buffer
+	 *            the signal
+	 * @param length
+	 *            the length of the signal
+	 * @param window
+	 *            the window size
+	 * @param prefix
+	 *            workspace of at least <code>length</code> elements
+	 * @param suffix
+	 *            workspace of at least <code>length</code> elements
+	 */
+	static void max(float[] buffer, int length, int window, float[] prefix, float[] suffix) {
+		for (int start = 0; start < length; start += window) {
+			final int end = Math.min(start + window, length) - 1;
+
+			prefix[start] = buffer[start];
+			for (int i = start + 1; i <= end; i++)
+				prefix[i] = Math.max(prefix[i - 1], buffer[i]);
+
+			suffix[end] = buffer[end];
+			for (int i = end - 1; i >= start; i--)
+				suffix[i] = Math.max(suffix[i + 1], buffer[i]);
+		}
+
+		final int n = length - window + 1;
+		for (int i = 0; i < n; i++)
+			buffer[i] = Math.max(suffix[i], prefix[i + window - 1]);
+	}
+}
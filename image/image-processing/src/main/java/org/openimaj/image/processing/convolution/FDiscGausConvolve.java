@@ -30,6 +30,7 @@
 package org.openimaj.image.processing.convolution;
 
 import org.openimaj.image.FImage;
+import org.openimaj.image.processing.algorithm.FourierTransform;
 import org.openimaj.image.processor.SinglebandImageProcessor;
 
 import edu.emory.mathcs.jtransforms.fft.FloatFFT_2D;
@@ -65,28 +66,18 @@ public class FDiscGausConvolve implements SinglebandImageProcessor<Float, FImage
 		int cs = image.getCols();
 		int rs = image.getRows();
 		FloatFFT_2D fft = new FloatFFT_2D(rs,cs);
-		float[][] prepared = new float[rs][cs*2];
-		for(int r = 0; r < rs ; r++){
-			for(int c = 0; c < cs; c++){
-				prepared[r][c*2] = image.pixels[r][c];
-				prepared[r][1 + c*2] = 0;
-			}
-		}
+		float[] prepared = FourierTransform.prepareData1d(image.pixels, rs, cs, false);
 		fft.complexForward(prepared);
-		for(int y = 0; y < rs; y++){
-			for(int x = 0; x < cs; x++){
+		for(int y = 0, i = 0; y < rs; y++){
+			double ycos = Math.cos(2 * Math.PI * ((float)y/rs));
+			for(int x = 0; x < cs; x++, i += 2){
 				double xcos = Math.cos(2 * Math.PI * ((float)x/cs));
-				double ycos = Math.cos(2 * Math.PI * ((float)y/rs));
 				float multiply = (float) Math.exp(sigma2 * (xcos + ycos - 2));
-				prepared[y][x*2] = prepared[y][x*2] * multiply;
-				prepared[y][1 + x*2] = prepared[y][1 + x*2] * multiply;
+				prepared[i] = prepared[i] * multiply;
+				prepared[i + 1] = prepared[i + 1] * multiply;
 			}
 		}
 		fft.complexInverse(prepared, true);
-		for(int r = 0; r < rs ; r++){
-			for(int c = 0; c < cs; c++){
-				image.pixels[r][c] = prepared[r][c*2];
-			}
-		}
+		FourierTransform.unprepareData(prepared, image, false);
 	}
 }
@@ -36,6 +36,11 @@ import org.openimaj.image.processor.SinglebandImageProcessor;
 
 /**
  * Fast approximate Gaussian smoothing using repeated fast box filtering.
+ * <p>
+ * The box filters are applied in the same way as by {@link AverageBoxFilter},
+ * but the image is copied once into a contiguous buffer and all the passes
+ * are performed on that buffer (with a single reused summed area table), so
+ * no intermediate images are allocated between passes.
  * 
  * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
  * 
@@ -55,8 +60,9 @@ import org.openimaj.image.processor.SinglebandImageProcessor;
 public class FFastGaussianConvolve implements SinglebandImageProcessor<Float, FImage> {
 	private final int n;
 	private final int m;
-	private SinglebandImageProcessor<Float, FImage> wlBox;
-	private SinglebandImageProcessor<Float, FImage> wuBox;
+	private final int wl;
+	private final int wu;
+	private final SinglebandImageProcessor<Float, FImage> gaussian;
 
 	/**
 	 * Construct an {@link FFastGaussianConvolve} to approximate blurring with a
@@ -73,26 +79,118 @@ public class FFastGaussianConvolve implements SinglebandImageProcessor<Float, FI
 			// std.devs of less than 1.8 are not well approximated.
 			this.m = 1;
 			this.n = 1;
-			this.wlBox = new FGaussianConvolve(sigma);
+			this.wl = 0;
+			this.wu = 0;
+			this.gaussian = new FGaussianConvolve(sigma);
 		} else {
 			final float ss = sigma * sigma;
 			final double wIdeal = Math.sqrt((12.0 * ss / n) + 1.0);
-			final int wl = (((int) wIdeal) % 2 == 0) ? (int) wIdeal - 1 : (int) wIdeal;
-			final int wu = wl + 2;
+			this.wl = (((int) wIdeal) % 2 == 0) ? (int) wIdeal - 1 : (int) wIdeal;
+			this.wu = wl + 2;
 
 			this.n = n;
 			this.m = Math.round((12 * ss - n * wl * wl - 4 * n * wl - 3 * n) / (-4 * wl - 4));
-
-			this.wlBox = new AverageBoxFilter(wl);
-			this.wuBox = new AverageBoxFilter(wu);
+			this.gaussian = null;
 		}
 	}
 
 	@Override
 	public void processImage(FImage image) {
+		if (gaussian != null) {
+			gaussian.processImage(image);
+			return;
+		}
+
+		final int width = image.width;
+		final int height = image.height;
+		final float[] data = image.getFloatPixelVector();
+		final float[] sat = new float[(width + 1) * (height + 1)];
+
 		for (int i = 0; i < m; i++)
-			wlBox.processImage(image);
+			boxFilter(data, sat, width, height, wl);
 		for (int i = 0; i < n - m; i++)
-			wuBox.processImage(image);
+			boxFilter(data, sat, width, height, wu);
+
+		image.internalAssign(data, 0, width);
+	}
+
+	/**
+	 * Apply a square averaging filter in place to an image stored in a
+	 * contiguous row-major buffer. The computation (including the order of the
+	 * floating point operations) is the same as that of
+	 * {@link AverageBoxFilter}.
+	 * 
+	 * @param data
+	 *            the image data
+	 * @param sat
+	 *            workspace for the summed area table; the first row and
+	 *            column must be zero
+	 * @param width
+	 *            the image width
+	 * @param height
+	 *            the image height
+	 * @param dim
+	 *            the size of the box
+	 */
+	private static void boxFilter(float[] data, float[] sat, int width, int height, int dim) {
+		// shortcut trivial case
+		if (dim == 1)
+			return;
+
+		final int sw = width + 1;
+		for (int y = 0; y < height; y++) {
+			final int row = y * width;
+			final int above = y * sw + 1;
+			final int current = above + sw;
+
+			float left = 0;
+			float diagonal = 0;
+			for (int x = 0; x < width; x++) {
+				final float up = sat[above + x];
+				final float v = data[row + x] + left + up - diagonal;
+
+				sat[current + x] = v;
+				left = v;
+				diagonal = up;
+			}
+		}
+
+		// columns [0, x0) and [x1, width) have boxes clipped by the border
+		final int hw = dim / 2;
+		final int x0 = Math.min(width, hw);
+		final int x1 = Math.max(x0, width - hw - 1);
+
+		for (int y = 0; y < height; y++) {
+			final int sy = Math.max(0, y - hw);
+			final int ey = Math.min(height, y + hw + 1);
+			final int top = sy * sw;
+			final int bottom = ey * sw;
+			final int rows = ey - sy;
+			final int row = y * width;
+
+			for (int x = 0; x < x0; x++) {
+				final int ex = Math.min(width, x + hw + 1);
+
+				final float sum = sat[top] + sat[bottom + ex] - sat[top + ex] - sat[bottom];
+				data[row + x] = sum / (ex * rows);
+			}
+
+			final int area = (2 * hw + 1) * rows;
+			for (int x = x0; x < x1; x++) {
+				final int sx = x - hw;
+				final int ex = x + hw + 1;
+
+				final float sum = sat[top + sx] + sat[bottom + ex] - sat[top + ex] - sat[bottom + sx];
+				data[row + x] = sum / area;
+			}
+
+			for (int x = x1; x < width; x++) {
+				final int sx = Math.max(0, x - hw);
+				final int ex = Math.min(width, x + hw + 1);
+
+				final float sum = sat[top + sx] + sat[bottom + ex] - sat[top + ex] - sat[bottom + sx];
+				data[row + x] = sum / ((ex - sx) * rows);
+			}
+		}
 	}
 }
@@ -32,11 +32,15 @@ package org.openimaj.image.processing.convolution;
 import org.openimaj.image.FImage;
 import org.openimaj.image.processing.algorithm.FourierTransform;
 import org.openimaj.image.processor.SinglebandImageProcessor;
+import org.openimaj.math.util.FFTPlanCache;
 
 import edu.emory.mathcs.jtransforms.fft.FloatFFT_2D;
 
 /**
- * {@link FImage} convolution performed in the fourier domain.
+ * {@link FImage} convolution performed in the fourier domain. FFT plans and
+ * the arrays holding the transformed data are obtained from the
+ * {@link FFTPlanCache}, so repeated convolutions of images of the same size
+ * do not need to recompute them.
  * 
  * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
  * 
@@ -85,28 +89,25 @@ public class FourierConvolve implements SinglebandImageProcessor<Float, FImage>
 		final int cols = image.getCols();
 		final int rows = image.getRows();
 
-		final FloatFFT_2D fft = new FloatFFT_2D(rows, cols);
+		final FloatFFT_2D fft = FFTPlanCache.getFloatFFT_2D(rows, cols);
 
-		final float[][] preparedImage = FourierTransform.prepareData(image.pixels, rows, cols, false);
+		final float[] preparedImage = FourierTransform.prepareData1d(image.pixels, rows, cols, false,
+				FFTPlanCache.getWorkBuffer(0, rows * cols * 2));
 		fft.complexForward(preparedImage);
 
-		final float[][] preparedKernel = FourierTransform.prepareData(kernel, rows, cols, false);
+		final float[] preparedKernel = FourierTransform.prepareData1d(kernel, rows, cols, false,
+				FFTPlanCache.getWorkBuffer(1, rows * cols * 2));
 		fft.complexForward(preparedKernel);
 
-		for (int y = 0; y < rows; y++) {
-			for (int x = 0; x < cols; x++) {
-				final float reImage = preparedImage[y][x * 2];
-				final float imImage = preparedImage[y][1 + x * 2];
+		for (int i = 0; i < preparedImage.length; i += 2) {
+			final float reImage = preparedImage[i];
+			final float imImage = preparedImage[i + 1];
 
-				final float reKernel = preparedKernel[y][x * 2];
-				final float imKernel = preparedKernel[y][1 + x * 2];
+			final float reKernel = preparedKernel[i];
+			final float imKernel = preparedKernel[i + 1];
 
-				final float re = reImage * reKernel - imImage * imKernel;
-				final float im = reImage * imKernel + imImage * reKernel;
-
-				preparedImage[y][x * 2] = re;
-				preparedImage[y][1 + x * 2] = im;
-			}
+			preparedImage[i] = reImage * reKernel - imImage * imKernel;
+			preparedImage[i + 1] = reImage * imKernel + imImage * reKernel;
 		}
 
 		fft.complexInverse(preparedImage, true);
@@ -139,27 +140,26 @@ public class FourierConvolve implements SinglebandImageProcessor<Float, FImage>
 		final int cols = image.getCols();
 		final int rows = image.getRows();
 
-		final FloatFFT_2D fft = new FloatFFT_2D(rows, cols);
+		final FloatFFT_2D fft = FFTPlanCache.getFloatFFT_2D(rows, cols);
 
-		final float[][] preparedImage =
-				FourierTransform.prepareData(image.pixels, rows, cols, centered);
+		final float[] preparedImage = FourierTransform.prepareData1d(image.pixels, rows, cols, centered,
+				FFTPlanCache.getWorkBuffer(0, rows * cols * 2));
 		fft.complexForward(preparedImage);
 
 		final float[][] preparedKernel = filter.pixels;
 
-		for (int y = 0; y < rows; y++) {
-			for (int x = 0; x < cols; x++) {
-				final float reImage = preparedImage[y][x * 2];
-				final float imImage = preparedImage[y][1 + x * 2];
+		for (int y = 0, i = 0; y < rows; y++) {
+			final float[] krow = preparedKernel[y];
 
-				final float reKernel = preparedKernel[y][x * 2];
-				final float imKernel = preparedKernel[y][1 + x * 2];
+			for (int x = 0; x < cols; x++, i += 2) {
+				final float reImage = preparedImage[i];
+				final float imImage = preparedImage[i + 1];
 
-				final float re = reImage * reKernel - imImage * imKernel;
-				final float im = reImage * imKernel + imImage * reKernel;
+				final float reKernel = krow[x * 2];
+				final float imKernel = krow[1 + x * 2];
 
-				preparedImage[y][x * 2] = re;
-				preparedImage[y][1 + x * 2] = im;
+				preparedImage[i] = reImage * reKernel - imImage * imKernel;
+				preparedImage[i + 1] = reImage * imKernel + imImage * reKernel;
 			}
 		}
 
@@ -30,6 +30,7 @@
 package org.openimaj.image.processing.convolution;
 
 import org.openimaj.image.FImage;
+import org.openimaj.image.analysis.ImageAnalysisCache;
 import org.openimaj.image.analysis.algorithm.SummedAreaTable;
 import org.openimaj.image.processor.SinglebandImageProcessor;
 
@@ -43,6 +44,7 @@ import org.openimaj.image.processor.SinglebandImageProcessor;
 public class SumBoxFilter implements SinglebandImageProcessor<Float, FImage> {
 	private int width;
 	private int height;
+	private ImageAnalysisCache cache;
 
 	/**
 	 * Construct the averaging operator with a kernel of the given dimensions.
@@ -68,14 +70,31 @@ public class SumBoxFilter implements SinglebandImageProcessor<Float, FImage> {
 		this(dim, dim);
 	}
 
+	/**
+	 * Set a cache from which to obtain the {@link SummedAreaTable} of the
+	 * images being processed. As the images are modified in place, their
+	 * entries are invalidated after processing.
+	 * 
+	 * @param cache
+	 *            the cache, or null to always compute the table
+	 */
+	public void setAnalysisCache(ImageAnalysisCache cache) {
+		this.cache = cache;
+	}
+
 	@Override
 	public void processImage(FImage image) {
 		// shortcut trivial case
 		if (this.height == 1 && this.width == 1)
 			return;
 
-		final SummedAreaTable sat = new SummedAreaTable();
-		sat.analyseImage(image);
+		final SummedAreaTable sat;
+		if (cache == null) {
+			sat = new SummedAreaTable();
+			sat.analyseImage(image);
+		} else {
+			sat = cache.getSummedAreaTable(image);
+		}
 
 		final int hw = width / 2;
 		final int hh = height / 2;
@@ -91,5 +110,8 @@ public class SumBoxFilter implements SinglebandImageProcessor<Float, FImage> {
 				image.pixels[y][x] = mean;
 			}
 		}
+
+		if (cache != null)
+			cache.invalidate(image);
 	}
 }
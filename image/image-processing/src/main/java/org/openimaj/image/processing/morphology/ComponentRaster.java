@@ -0,0 +1,132 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.image.processing.morphology;
+
+import java.util.Set;
+
+import org.openimaj.image.pixel.LabelledComponents;
+import org.openimaj.image.pixel.Pixel;
+import org.openimaj.image.renderer.ScanRasteriser.ScanLineListener;
+import org.openimaj.math.geometry.shape.Rectangle;
+
+/**
+ * A binary raster of a single component covering its bounding box. Used by
+ * the morphological operators to test pixel membership with an array lookup
+ * rather than by hashing {@link Pixel} objects.
+ *
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+final class ComponentRaster {
+	final int minX;
+	final int minY;
+	final int maxX;
+	final int maxY;
+	private final boolean[][] mask;
+
+	private ComponentRaster(int minX, int minY, int maxX, int maxY) {
+		this.minX = minX;
+		this.minY = minY;
+		this.maxX = maxX;
+		this.maxY = maxY;
+		this.mask = new boolean[maxY - minY + 1][maxX - minX + 1];
+	}
+
+	/**
+	 * Rasterise a set of pixels
+	 *
+	 * @param pixels
+	 *            the pixels; must not be empty
+	 * @param bounds
+	 *            the bounding box of the pixels
+	 */
+	ComponentRaster(Set<Pixel> pixels, Rectangle bounds) {
+		this((int) bounds.x, (int) bounds.y, (int) (bounds.x + bounds.width), (int) (bounds.y + bounds.height));
+
+		for (final Pixel p : pixels)
+			mask[p.y - minY][p.x - minX] = true;
+	}
+
+	/**
+	 * Rasterise a labelled component
+	 *
+	 * @param components
+	 *            the components
+	 * @param label
+	 *            the label of the component
+	 */
+	ComponentRaster(LabelledComponents components, int label) {
+		this(components.calculateRegularBoundingBox(label));
+
+		components.processRuns(label, new ScanLineListener() {
+			@Override
+			public void process(int x1, int x2, int y) {
+				final boolean[] row = mask[y - minY];
+				for (int x = x1; x <= x2; x++)
+					row[x - minX] = true;
+			}
+		});
+	}
+
+	private ComponentRaster(Rectangle bounds) {
+		this((int) bounds.x, (int) bounds.y, (int) (bounds.x + bounds.width), (int) (bounds.y + bounds.height));
+	}
+
+	/**
+	 * Test whether a pixel is set. Pixels outside the bounding box are never
+	 * set.
+	 *
+	 * @param x
+	 *            the x-ordinate
+	 * @param y
+	 *            the y-ordinate
+	 * @return true if the pixel belongs to the component
+	 */
+	boolean get(int x, int y) {
+		return x >= minX && x <= maxX && y >= minY && y <= maxY && mask[y - minY][x - minX];
+	}
+
+	/**
+	 * Convert the pixels of a structuring element into a flat array of
+	 * alternating x and y offsets
+	 *
+	 * @param pixels
+	 *            the structuring element pixels
+	 * @return the offsets
+	 */
+	static int[] offsets(Set<Pixel> pixels) {
+		final int[] offsets = new int[2 * pixels.size()];
+		int i = 0;
+		for (final Pixel p : pixels) {
+			offsets[i++] = p.x;
+			offsets[i++] = p.y;
+		}
+		return offsets;
+	}
+}
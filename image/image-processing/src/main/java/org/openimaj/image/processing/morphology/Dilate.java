@@ -29,16 +29,15 @@
  */
 package org.openimaj.image.processing.morphology;
 
-import java.util.HashSet;
 import java.util.Set;
 
 import org.openimaj.image.FImage;
 import org.openimaj.image.pixel.ConnectedComponent;
+import org.openimaj.image.pixel.LabelledComponents;
 import org.openimaj.image.pixel.Pixel;
 import org.openimaj.image.processing.algorithm.MaxFilter;
 import org.openimaj.image.processor.KernelProcessor;
 import org.openimaj.image.processor.connectedcomponent.ConnectedComponentProcessor;
-import org.openimaj.math.geometry.shape.Rectangle;
 
 /**
  * Morphological dilation of connected components and (assumed binary) FImages.
@@ -79,20 +78,61 @@ public class Dilate implements ConnectedComponentProcessor, KernelProcessor<Floa
 	@Override
 	public void process(ConnectedComponent cc) {
 		// Dilate a connected component
-		final Rectangle cc_bb = cc.calculateRegularBoundingBox();
+		final Set<Pixel> pixels = cc.getPixels();
+		if (pixels.isEmpty())
+			return;
 
-		final Set<Pixel> newPixels = new HashSet<Pixel>();
-		for (int j = (int) (cc_bb.y - sh); j <= cc_bb.y + sh + cc_bb.height; j++) {
-			for (int i = (int) (cc_bb.x - sw); i <= cc_bb.x + sw + cc_bb.width; i++) {
-				final Pixel p = new Pixel(i, j);
+		dilate(new ComponentRaster(pixels, cc.calculateRegularBoundingBox()), pixels);
+	}
+
+	/**
+	 * Dilate a component of a {@link LabelledComponents}. The labelled
+	 * components themselves are not modified.
+	 *
+	 * @param components
+	 *            the labelled components
+	 * @param label
+	 *            the label of the component to dilate
+	 * @return a new {@link ConnectedComponent} containing the dilated component
+	 */
+	public ConnectedComponent dilate(LabelledComponents components, int label) {
+		final ConnectedComponent cc = components.getComponent(label);
+		dilate(new ComponentRaster(components, label), cc.getPixels());
+		return cc;
+	}
+
+	/**
+	 * Dilate a {@link PackedBinaryImage} in place.
+	 *
+	 * @param image
+	 *            the image
+	 */
+	public void process(PackedBinaryImage image) {
+		image.dilate(element);
+	}
 
-				if (element.intersect(p, cc.getPixels()).size() >= 1) {
-					newPixels.add(p);
-				}
+	private void dilate(ComponentRaster raster, Set<Pixel> output) {
+		final int[] pos = ComponentRaster.offsets(element.positive);
+		final int[] neg = ComponentRaster.offsets(element.negative);
+
+		for (int j = raster.minY - sh; j <= raster.maxY + sh; j++) {
+			for (int i = raster.minX - sw; i <= raster.maxX + sw; i++) {
+				if (intersects(raster, i, j, pos, neg))
+					output.add(new Pixel(i, j));
 			}
 		}
+	}
+
+	private static boolean intersects(ComponentRaster raster, int x, int y, int[] pos, int[] neg) {
+		for (int k = 0; k < pos.length; k += 2)
+			if (raster.get(x + pos[k], y + pos[k + 1]))
+				return true;
+
+		for (int k = 0; k < neg.length; k += 2)
+			if (!raster.get(x + neg[k], y + neg[k + 1]))
+				return true;
 
-		cc.getPixels().addAll(newPixels);
+		return false;
 	}
 
 	@Override
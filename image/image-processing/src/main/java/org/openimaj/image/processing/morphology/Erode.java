@@ -29,16 +29,17 @@
  */
 package org.openimaj.image.processing.morphology;
 
-import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Set;
 
 import org.openimaj.image.FImage;
 import org.openimaj.image.pixel.ConnectedComponent;
+import org.openimaj.image.pixel.LabelledComponents;
 import org.openimaj.image.pixel.Pixel;
 import org.openimaj.image.processing.algorithm.MinFilter;
 import org.openimaj.image.processor.KernelProcessor;
 import org.openimaj.image.processor.connectedcomponent.ConnectedComponentProcessor;
-import org.openimaj.math.geometry.shape.Rectangle;
+import org.openimaj.image.renderer.ScanRasteriser.ScanLineListener;
 
 /**
  * Morphological erosion of connected components and (assumed binary) FImages.
@@ -79,21 +80,71 @@ public class Erode implements ConnectedComponentProcessor, KernelProcessor<Float
 	@Override
 	public void process(ConnectedComponent cc) {
 		// Erode a connected component
-		final Set<Pixel> retain = new HashSet<Pixel>();
 		final Set<Pixel> pixels = cc.getPixels();
-		final int[] se_size = element.size();
-		final Rectangle cc_bb = cc.calculateRegularBoundingBox();
-		for (int j = (int) (cc_bb.y - se_size[1]); j <= cc_bb.y + se_size[1] + cc_bb.height; j++) {
-			for (int i = (int) (cc_bb.x - se_size[0]); i <= cc_bb.x + se_size[0] + cc_bb.width; i++) {
-				final Pixel p = new Pixel(i, j);
-
-				if (element.matches(p, pixels)) {
-					retain.add(p);
-				}
-			}
+		if (pixels.isEmpty())
+			return;
+
+		final ComponentRaster raster = new ComponentRaster(pixels, cc.calculateRegularBoundingBox());
+		final int[] pos = ComponentRaster.offsets(element.positive);
+		final int[] neg = ComponentRaster.offsets(element.negative);
+
+		final Iterator<Pixel> iterator = pixels.iterator();
+		while (iterator.hasNext()) {
+			final Pixel p = iterator.next();
+
+			if (!matches(raster, p.x, p.y, pos, neg))
+				iterator.remove();
 		}
+	}
+
+	/**
+	 * Erode a component of a {@link LabelledComponents}. The labelled
+	 * components themselves are not modified.
+	 *
+	 * @param components
+	 *            the labelled components
+	 * @param label
+	 *            the label of the component to erode
+	 * @return a new {@link ConnectedComponent} containing the eroded component
+	 */
+	public ConnectedComponent erode(LabelledComponents components, int label) {
+		final ComponentRaster raster = new ComponentRaster(components, label);
+		final int[] pos = ComponentRaster.offsets(element.positive);
+		final int[] neg = ComponentRaster.offsets(element.negative);
+		final ConnectedComponent cc = new ConnectedComponent();
+
+		components.processRuns(label, new ScanLineListener() {
+			@Override
+			public void process(int x1, int x2, int y) {
+				for (int x = x1; x <= x2; x++)
+					if (matches(raster, x, y, pos, neg))
+						cc.addPixel(x, y);
+			}
+		});
+
+		return cc;
+	}
+
+	/**
+	 * Erode a {@link PackedBinaryImage} in place.
+	 *
+	 * @param image
+	 *            the image
+	 */
+	public void process(PackedBinaryImage image) {
+		image.erode(element);
+	}
+
+	private static boolean matches(ComponentRaster raster, int x, int y, int[] pos, int[] neg) {
+		for (int k = 0; k < pos.length; k += 2)
+			if (!raster.get(x + pos[k], y + pos[k + 1]))
+				return false;
+
+		for (int k = 0; k < neg.length; k += 2)
+			if (raster.get(x + neg[k], y + neg[k + 1]))
+				return false;
 
-		cc.getPixels().retainAll(retain);
+		return true;
 	}
 
 	@Override
@@ -113,6 +113,15 @@ public class HitAndMiss implements ConnectedComponentProcessor, KernelProcessor<
 		}
 	}
 
+	/**
+	 * Apply the hit and miss transform to a {@link PackedBinaryImage},
+	 * replacing its contents with the selected pixels.
+	 * @param image the image
+	 */
+	public void process(PackedBinaryImage image) {
+		image.hitAndMiss(elements);
+	}
+
 	/**
 	 * Get the pixels selected by the hit and miss operator
 	 * @return a list of selected pixels
@@ -0,0 +1,444 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.image.processing.morphology;
+
+import java.util.Arrays;
+
+import org.openimaj.image.FImage;
+import org.openimaj.image.pixel.Pixel;
+
+/**
+ * A binary image stored with 64 pixels packed into each <code>long</code>. The
+ * morphological operators work on whole words at a time, so they are much
+ * faster than the equivalent operations on an {@link FImage} or a
+ * {@link org.openimaj.image.pixel.ConnectedComponent}, which is useful for
+ * large masks and document images.
+ * <p>
+ * The structuring elements are applied in the same way as for connected
+ * components (see {@link StructuringElement#matches(Pixel, java.util.Set)}):
+ * the element's origin is placed on the pixel being tested and its pixels are
+ * compared with the image pixels at the same offsets. Pixels outside the
+ * image are treated as being unset.
+ * <p>
+ * The operators work in place and return this image so they can be chained.
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class PackedBinaryImage implements Cloneable {
+	private final int width;
+	private final int height;
+	private final int wordsPerRow;
+	private final long lastWordMask;
+	private long[] data;
+
+	/**
+	 * Construct an empty image of the given size
+	 * 
+	 * @param width
+	 *            the width
+	 * @param height
+	 *            the height
+	 */
+	public PackedBinaryImage(int width, int height) {
+		this.width = width;
+		this.height = height;
+		this.wordsPerRow = (width + 63) >>> 6;
+		this.lastWordMask = (width & 63) == 0 ? ~0L : (1L << (width & 63)) - 1;
+		this.data = new long[wordsPerRow * height];
+	}
+
+	/**
+	 * Construct from a binary {@link FImage}; pixels with values above 0.5 are
+	 * set.
+	 * 
+	 * @param image
+	 *            the image
+	 */
+	public PackedBinaryImage(FImage image) {
+		this(image, 0.5f);
+	}
+
+	/**
+	 * Construct by thresholding an {@link FImage}. Pixels with values above
+	 * the threshold are set, as with {@link FImage#threshold(Float)}.
+	 * 
+	 * @param image
+	 *            the image
+	 * @param threshold
+	 *            the threshold
+	 */
+	public PackedBinaryImage(FImage image, float threshold) {
+		this(image.width, image.height);
+
+		for (int y = 0; y < height; y++) {
+			final float[] row = image.pixels[y];
+			final int offset = y * wordsPerRow;
+
+			for (int x = 0; x < width; x++) {
+				if (row[x] > threshold)
+					data[offset + (x >>> 6)] |= 1L << x;
+			}
+		}
+	}
+
+	/**
+	 * @return the width of the image
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * @return the height of the image
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Test whether a pixel is set. Pixels outside the image are never set.
+	 * 
+	 * @param x
+	 *            the x-ordinate
+	 * @param y
+	 *            the y-ordinate
+	 * @return true if the pixel is set
+	 */
+	public boolean get(int x, int y) {
+		if (x < 0 || x >= width || y < 0 || y >= height)
+			return false;
+
+		return (data[y * wordsPerRow + (x >>> 6)] & (1L << x)) != 0;
+	}
+
+	/**
+	 * Set or clear a pixel
+	 * 
+	 * @param x
+	 *            the x-ordinate
+	 * @param y
+	 *            the y-ordinate
+	 * @param value
+	 *            true to set the pixel; false to clear it
+	 * @throws IndexOutOfBoundsException
+	 *             if the pixel is outside the image
+	 */
+	public void set(int x, int y, boolean value) {
+		if (x < 0 || x >= width || y < 0 || y >= height)
+			throw new IndexOutOfBoundsException("Pixel (" + x + ", " + y + ") is outside the " + width + "x"
+					+ height + " image");
+
+		final int i = y * wordsPerRow + (x >>> 6);
+
+		if (value)
+			data[i] |= 1L << x;
+		else
+			data[i] &= ~(1L << x);
+	}
+
+	/**
+	 * @return the number of set pixels
+	 */
+	public int countSetPixels() {
+		int count = 0;
+		for (final long word : data)
+			count += Long.bitCount(word);
+		return count;
+	}
+
+	/**
+	 * Convert to an {@link FImage} with set pixels having the value 1 and
+	 * unset pixels the value 0.
+	 * 
+	 * @return the image
+	 */
+	public FImage toFImage() {
+		final FImage image = new FImage(width, height);
+
+		for (int y = 0; y < height; y++) {
+			final float[] row = image.pixels[y];
+			final int offset = y * wordsPerRow;
+
+			for (int i = 0; i < wordsPerRow; i++) {
+				long word = data[offset + i];
+
+				while (word != 0) {
+					row[(i << 6) + Long.numberOfTrailingZeros(word)] = 1;
+					word &= word - 1;
+				}
+			}
+		}
+
+		return image;
+	}
+
+	/**
+	 * Morphological dilation. A pixel is set if it is already set, if any of
+	 * the positive pixels of the element are set, or if any of the negative
+	 * pixels of the element are unset.
+	 * 
+	 * @param se
+	 *            the structuring element
+	 * @return this image
+	 */
+	public PackedBinaryImage dilate(StructuringElement se) {
+		final long[] out = data.clone();
+		final long[] shifted = new long[wordsPerRow];
+		final int[] pos = ComponentRaster.offsets(se.positive);
+		final int[] neg = ComponentRaster.offsets(se.negative);
+
+		for (int y = 0; y < height; y++) {
+			final int offset = y * wordsPerRow;
+
+			for (int k = 0; k < pos.length; k += 2) {
+				shiftRow(y + pos[k + 1], pos[k], shifted);
+				for (int i = 0; i < wordsPerRow; i++)
+					out[offset + i] |= shifted[i];
+			}
+
+			for (int k = 0; k < neg.length; k += 2) {
+				shiftRow(y + neg[k + 1], neg[k], shifted);
+				for (int i = 0; i < wordsPerRow; i++)
+					out[offset + i] |= ~shifted[i];
+			}
+		}
+
+		clearPadding(out);
+		data = out;
+		return this;
+	}
+
+	/**
+	 * Morphological erosion. A set pixel is kept only if all of the positive
+	 * pixels of the element are set and all of the negative pixels are unset.
+	 * 
+	 * @param se
+	 *            the structuring element
+	 * @return this image
+	 */
+	public PackedBinaryImage erode(StructuringElement se) {
+		final long[] out = data.clone();
+		match(se, out);
+		data = out;
+		return this;
+	}
+
+	/**
+	 * Morphological hit-and-miss transform. The image is replaced by the
+	 * pixels at which any of the structuring elements match, as computed by
+	 * {@link HitAndMiss}.
+	 * 
+	 * @param ses
+	 *            the structuring elements
+	 * @return this image
+	 */
+	public PackedBinaryImage hitAndMiss(StructuringElement... ses) {
+		data = hitAndMissWords(ses);
+		return this;
+	}
+
+	/**
+	 * Morphological thinning; the pixels selected by the hit-and-miss
+	 * transform with the given elements are cleared. This is the packed
+	 * equivalent of {@link Thin}.
+	 * 
+	 * @param ses
+	 *            the structuring elements
+	 * @return this image
+	 */
+	public PackedBinaryImage thin(StructuringElement... ses) {
+		thinOnce(ses);
+		return this;
+	}
+
+	/**
+	 * Morphological thickening; the pixels selected by the hit-and-miss
+	 * transform with the given elements are set. This is the packed
+	 * equivalent of {@link Thicken}.
+	 * 
+	 * @param ses
+	 *            the structuring elements
+	 * @return this image
+	 */
+	public PackedBinaryImage thicken(StructuringElement... ses) {
+		final long[] hm = hitAndMissWords(ses);
+
+		for (int i = 0; i < data.length; i++)
+			data[i] |= hm[i];
+
+		return this;
+	}
+
+	/**
+	 * Repeatedly thin the image until it stops changing or the given number
+	 * of iterations is reached. This is the packed equivalent of
+	 * {@link SequentialThin}.
+	 * 
+	 * @param niter
+	 *            the maximum number of iterations; a negative value means no
+	 *            limit
+	 * @param ses
+	 *            the structuring elements
+	 * @return this image
+	 */
+	public PackedBinaryImage sequentialThin(int niter, StructuringElement... ses) {
+		for (int i = niter; i != 0; i--) {
+			if (!thinOnce(ses))
+				break;
+		}
+
+		return this;
+	}
+
+	/**
+	 * Skeletonise the image by thinning with the {@link GolayAlphabet#L}
+	 * elements until it stops changing. This is the packed equivalent of
+	 * {@link Skeleton}.
+	 * 
+	 * @return this image
+	 */
+	public PackedBinaryImage skeleton() {
+		return sequentialThin(-1, GolayAlphabet.L);
+	}
+
+	private boolean thinOnce(StructuringElement[] ses) {
+		final long[] hm = hitAndMissWords(ses);
+
+		boolean changed = false;
+		for (int i = 0; i < data.length; i++) {
+			final long removed = data[i] & hm[i];
+
+			if (removed != 0) {
+				data[i] ^= removed;
+				changed = true;
+			}
+		}
+
+		return changed;
+	}
+
+	private long[] hitAndMissWords(StructuringElement[] ses) {
+		final long[] out = new long[data.length];
+		final long[] tmp = new long[data.length];
+
+		for (final StructuringElement se : ses) {
+			Arrays.fill(tmp, ~0L);
+			match(se, tmp);
+
+			for (int i = 0; i < out.length; i++)
+				out[i] |= tmp[i];
+		}
+
+		clearPadding(out);
+
+		return out;
+	}
+
+	/**
+	 * Clear the bits of out at which the element doesn't match
+	 */
+	private void match(StructuringElement se, long[] out) {
+		final long[] shifted = new long[wordsPerRow];
+		final int[] pos = ComponentRaster.offsets(se.positive);
+		final int[] neg = ComponentRaster.offsets(se.negative);
+
+		for (int y = 0; y < height; y++) {
+			final int offset = y * wordsPerRow;
+
+			for (int k = 0; k < pos.length; k += 2) {
+				shiftRow(y + pos[k + 1], pos[k], shifted);
+				for (int i = 0; i < wordsPerRow; i++)
+					out[offset + i] &= shifted[i];
+			}
+
+			for (int k = 0; k < neg.length; k += 2) {
+				shiftRow(y + neg[k + 1], neg[k], shifted);
+				for (int i = 0; i < wordsPerRow; i++)
+					out[offset + i] &= ~shifted[i];
+			}
+		}
+	}
+
+	/**
+	 * Fill out with the words of row sy shifted so that bit x holds the pixel
+	 * at x + dx. Rows and pixels outside the image are zero.
+	 */
+	private void shiftRow(int sy, int dx, long[] out) {
+		if (sy < 0 || sy >= height) {
+			Arrays.fill(out, 0L);
+			return;
+		}
+
+		final int base = sy * wordsPerRow;
+		final int q = dx >> 6;
+		final int r = dx & 63;
+
+		for (int i = 0; i < wordsPerRow; i++) {
+			final int w = i + q;
+			final long lo = w >= 0 && w < wordsPerRow ? data[base + w] : 0;
+
+			if (r == 0) {
+				out[i] = lo;
+			} else {
+				final long hi = w + 1 >= 0 && w + 1 < wordsPerRow ? data[base + w + 1] : 0;
+				out[i] = (lo >>> r) | (hi << (64 - r));
+			}
+		}
+	}
+
+	private void clearPadding(long[] words) {
+		if (wordsPerRow == 0)
+			return;
+
+		for (int y = 0; y < height; y++)
+			words[(y + 1) * wordsPerRow - 1] &= lastWordMask;
+	}
+
+	@Override
+	public PackedBinaryImage clone() {
+		final PackedBinaryImage image = new PackedBinaryImage(width, height);
+		System.arraycopy(data, 0, image.data, 0, data.length);
+		return image;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof PackedBinaryImage))
+			return false;
+
+		final PackedBinaryImage that = (PackedBinaryImage) obj;
+		return width == that.width && height == that.height && Arrays.equals(data, that.data);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * (31 * width + height) + Arrays.hashCode(data);
+	}
+}
@@ -74,6 +74,14 @@ public class SequentialThin implements ConnectedComponentProcessor, ImageProcess
 		}
 	}
 
+	/**
+	 * Apply the operator to a {@link PackedBinaryImage} in place.
+	 * @param image the image
+	 */
+	public void process(PackedBinaryImage image) {
+		image.sequentialThin(niter, hitAndMiss.elements);
+	}
+
 	/* (non-Javadoc)
 	 * @see org.openimaj.image.processor.ImageProcessor#processImage(org.openimaj.image.Image)
 	 */
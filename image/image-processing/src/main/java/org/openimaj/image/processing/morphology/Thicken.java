@@ -57,6 +57,14 @@ public class Thicken implements ConnectedComponentProcessor, ImageProcessor<FIma
 		cc.getPixels().addAll(hitAndMiss.outputPixels);
 	}
 
+	/**
+	 * Apply the operator to a {@link PackedBinaryImage} in place.
+	 * @param image the image
+	 */
+	public void process(PackedBinaryImage image) {
+		image.thicken(hitAndMiss.elements);
+	}
+
 	/* (non-Javadoc)
 	 * @see org.openimaj.image.processor.ImageProcessor#processImage(org.openimaj.image.Image)
 	 */
@@ -57,6 +57,14 @@ public class Thin implements ConnectedComponentProcessor, ImageProcessor<FImage>
 		cc.getPixels().removeAll(hitAndMiss.outputPixels);
 	}
 
+	/**
+	 * Apply the operator to a {@link PackedBinaryImage} in place.
+	 * @param image the image
+	 */
+	public void process(PackedBinaryImage image) {
+		image.thin(hitAndMiss.elements);
+	}
+
 	/* (non-Javadoc)
 	 * @see org.openimaj.image.processor.ImageProcessor#processImage(org.openimaj.image.Image)
 	 */
@@ -0,0 +1,147 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.image.analysis;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+import org.openimaj.image.FImage;
+import org.openimaj.image.ImagePool;
+import org.openimaj.image.analysis.algorithm.SummedAreaTable;
+import org.openimaj.image.analysis.algorithm.SummedSqTiltAreaTable;
+import org.openimaj.image.processing.convolution.FImageGradients;
+
+/**
+ * Tests for {@link ImageAnalysisCache}
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class ImageAnalysisCacheTest {
+	/**
+	 * Test that results are shared for the same image and not for different
+	 * images
+	 */
+	@Test
+	public void testSharing() {
+		final ImageAnalysisCache cache = new ImageAnalysisCache();
+		final FImage image = FImage.randomImage(20, 10);
+
+		final FImageGradients g1 = cache.getGradients(image, FImageGradients.Mode.Signed);
+		assertSame(g1, cache.getGradients(image, FImageGradients.Mode.Signed));
+		assertNotSame(g1, cache.getGradients(image, FImageGradients.Mode.Unsigned));
+		assertNotSame(g1, cache.getGradients(image.clone(), FImageGradients.Mode.Signed));
+		assertEquals(2, cache.size());
+	}
+
+	/**
+	 * Test that the summed area tables are derived from each other where
+	 * possible
+	 */
+	@Test
+	public void testSummedAreaTables() {
+		final ImageAnalysisCache cache = new ImageAnalysisCache();
+		final FImage image = FImage.randomImage(20, 10);
+
+		final SummedSqTiltAreaTable untilted = cache.getSummedSqTiltAreaTable(image, false);
+		assertSame(untilted, cache.getSummedSqTiltAreaTable(image, false));
+
+		final SummedSqTiltAreaTable tilted = cache.getSummedSqTiltAreaTable(image, true);
+		assertNotNull(tilted.tiltSum);
+		assertSame(tilted, cache.getSummedSqTiltAreaTable(image, false));
+		assertSame(tilted, cache.getSummedSqAreaTable(image));
+
+		final SummedAreaTable sat = cache.getSummedAreaTable(image);
+		assertSame(tilted.sum, sat.data);
+		assertArrayEquals(new SummedAreaTable(image).data.getFloatPixelVector(), sat.data.getFloatPixelVector(), 1e-4f);
+	}
+
+	/**
+	 * Test eviction by invalidation and capacity
+	 */
+	@Test
+	public void testEviction() {
+		final ImageAnalysisCache cache = new ImageAnalysisCache(2);
+		final FImage im1 = FImage.randomImage(20, 10);
+		final FImage im2 = FImage.randomImage(20, 10);
+		final FImage im3 = FImage.randomImage(20, 10);
+
+		final SummedAreaTable sat1 = cache.getSummedAreaTable(im1);
+		cache.invalidate(im1);
+		assertEquals(0, cache.size());
+		assertNotSame(sat1, cache.getSummedAreaTable(im1));
+
+		cache.getSummedAreaTable(im2);
+		cache.getSummedAreaTable(im3);
+		assertEquals(2, cache.size());
+
+		final SummedAreaTable sat2 = cache.getSummedAreaTable(im2);
+		assertSame(sat2, cache.getSummedAreaTable(im2));
+
+		cache.clear();
+		assertEquals(0, cache.size());
+	}
+
+	/**
+	 * Test that the results for an image are evicted when it is released to
+	 * an {@link ImagePool}, so a reacquired and refilled image is not given
+	 * stale results
+	 */
+	@Test
+	public void testPoolRelease() {
+		final ImageAnalysisCache cache = new ImageAnalysisCache();
+		final ImagePool<FImage> pool = new ImagePool<FImage>(new FImage(1, 1));
+		pool.addReleaseListener(cache);
+
+		final FImage frame1 = FImage.randomImage(20, 10);
+		final FImage image = pool.acquireCopy(frame1);
+		final SummedAreaTable sat1 = cache.getSummedAreaTable(image);
+		assertEquals(1, cache.size());
+
+		pool.release(image);
+		assertEquals(0, cache.size());
+
+		final FImage frame2 = FImage.randomImage(20, 10);
+		final FImage reacquired = pool.acquireCopy(frame2);
+		assertSame(image, reacquired);
+
+		final SummedAreaTable sat2 = cache.getSummedAreaTable(reacquired);
+		assertNotSame(sat1, sat2);
+		assertArrayEquals(new SummedAreaTable(frame2).data.getFloatPixelVector(), sat2.data.getFloatPixelVector(),
+				0f);
+
+		pool.removeReleaseListener(cache);
+		pool.release(reacquired);
+		assertEquals(1, cache.size());
+	}
+}
@@ -0,0 +1,140 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.image.processing.algorithm;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+import org.openimaj.image.FImage;
+
+/**
+ * Tests for the block-support paths of {@link MinFilter}, {@link MaxFilter}
+ * and {@link HistogramRankFilter}, checked against brute-force
+ * implementations.
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class RankFilterTest {
+	private static final int[][] SIZES = { { 1, 1 }, { 3, 3 }, { 5, 3 }, { 3, 7 }, { 4, 4 }, { 9, 9 }, { 31, 5 } };
+
+	private static FImage randomImage(int width, int height, long seed) {
+		final Random rng = new Random(seed);
+		final FImage image = new FImage(width, height);
+
+		for (int y = 0; y < height; y++)
+			for (int x = 0; x < width; x++)
+				image.pixels[y][x] = rng.nextFloat();
+
+		return image;
+	}
+
+	private static float[] window(FImage image, int x, int y, int width, int height) {
+		final int x0 = Math.max(0, x - width / 2);
+		final int x1 = Math.min(image.width - 1, x - width / 2 + width - 1);
+		final int y0 = Math.max(0, y - height / 2);
+		final int y1 = Math.min(image.height - 1, y - height / 2 + height - 1);
+
+		final float[] values = new float[(x1 - x0 + 1) * (y1 - y0 + 1)];
+		for (int yy = y0, i = 0; yy <= y1; yy++)
+			for (int xx = x0; xx <= x1; xx++)
+				values[i++] = image.pixels[yy][xx];
+
+		Arrays.sort(values);
+		return values;
+	}
+
+	/**
+	 * Test the min and max filters against a brute-force search of the window
+	 */
+	@Test
+	public void testMinMax() {
+		final FImage image = randomImage(37, 23, 0);
+
+		for (final int[] size : SIZES) {
+			final FImage min = image.process(new MinFilter(FilterSupport.createBlockSupport(size[0], size[1])));
+			final FImage max = image.process(new MaxFilter(FilterSupport.createBlockSupport(size[0], size[1])));
+
+			for (int y = 0; y < image.height; y++) {
+				for (int x = 0; x < image.width; x++) {
+					final float[] values = window(image, x, y, size[0], size[1]);
+
+					assertEquals(values[0], min.pixels[y][x], 0);
+					assertEquals(values[values.length - 1], max.pixels[y][x], 0);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Test the histogram rank filter against sorting the quantised window
+	 */
+	@Test
+	public void testHistogramRank() {
+		final FImage image = randomImage(41, 29, 1);
+		for (int y = 0; y < image.height; y++)
+			for (int x = 0; x < image.width; x++)
+				image.pixels[y][x] = Math.round(image.pixels[y][x] * 255) / 255f;
+
+		for (final int[] size : SIZES) {
+			for (final float percentile : new float[] { 0, 0.25f, 0.5f, 0.9f, 1 }) {
+				final FImage filtered = image.process(new HistogramRankFilter(size[0], size[1], percentile));
+
+				for (int y = 0; y < image.height; y++) {
+					for (int x = 0; x < image.width; x++) {
+						final float[] values = window(image, x, y, size[0], size[1]);
+						final float expected = values[Math.round(percentile * (values.length - 1))];
+
+						assertEquals(expected, filtered.pixels[y][x], 1e-6);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Test that the histogram median agrees with the {@link MedianFilter} away
+	 * from the image borders
+	 */
+	@Test
+	public void testMedian() {
+		final FImage image = randomImage(30, 30, 2);
+		for (int y = 0; y < image.height; y++)
+			for (int x = 0; x < image.width; x++)
+				image.pixels[y][x] = Math.round(image.pixels[y][x] * 255) / 255f;
+
+		final FImage median = image.process(new MedianFilter(FilterSupport.createBlockSupport(5, 5)));
+		final FImage hist = image.process(new HistogramRankFilter(FilterSupport.createBlockSupport(5, 5), 0.5f));
+
+		assertEquals(0, median.extractROI(2, 2, 25, 25).subtract(hist.extractROI(2, 2, 25, 25)).abs().sum(), 1e-5);
+	}
+}
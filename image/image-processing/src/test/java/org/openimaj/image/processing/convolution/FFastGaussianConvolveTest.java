@@ -0,0 +1,71 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.image.processing.convolution;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.openimaj.image.FImage;
+
+/**
+ * Test {@link FFastGaussianConvolve}.
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class FFastGaussianConvolveTest {
+	/**
+	 * Test that the results exactly match repeated application of an
+	 * {@link AverageBoxFilter} for a range of image sizes, including images
+	 * smaller than the boxes.
+	 */
+	@Test
+	public void testSameAsAverageBoxFilter() {
+		final int[][] sizes = { { 1, 1 }, { 5, 3 }, { 2, 40 }, { 200, 150 } };
+		final float sigma = 5f;
+		final int n = 4;
+
+		// the box sizes and number of passes for sigma=5, n=4 from Kovesi's
+		// formulae: 1 pass with a 7x7 box and 3 with a 9x9 box
+		final int wl = 7;
+		final int m = 1;
+
+		for (final int[] size : sizes) {
+			final FImage im = FImage.randomImage(size[0], size[1]);
+
+			final FImage expected = im.clone();
+			for (int i = 0; i < m; i++)
+				expected.processInplace(new AverageBoxFilter(wl));
+			for (int i = 0; i < n - m; i++)
+				expected.processInplace(new AverageBoxFilter(wl + 2));
+
+			assertEquals(expected, im.process(new FFastGaussianConvolve(sigma, n)));
+		}
+	}
+}
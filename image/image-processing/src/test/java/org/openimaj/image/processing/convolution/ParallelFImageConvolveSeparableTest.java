@@ -0,0 +1,69 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.image.processing.convolution;
+
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.openimaj.image.FImage;
+import org.openimaj.util.parallel.GlobalExecutorPool;
+
+/**
+ * Test {@link ParallelFImageConvolveSeparable}.
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class ParallelFImageConvolveSeparableTest {
+	/**
+	 * Test that the results match {@link FImageConvolveSeparable} for a range
+	 * of image and kernel sizes, both serially and in parallel.
+	 */
+	@Test
+	public void testConsistency() {
+		final int[][] sizes = { { 1, 1 }, { 7, 300 }, { 65, 3 }, { 200, 150 }, { 513, 257 } };
+		final float[][] kernels = { { 1f }, { 0.25f, 0.5f, 0.25f }, { 0.1f, 0.2f, 0.3f, 0.4f },
+				FGaussianConvolve.makeKernel(3f) };
+
+		for (final int[] size : sizes) {
+			final FImage im = FImage.randomImage(size[0], size[1]);
+
+			for (final float[] kernel : kernels) {
+				final FImage expected = im.process(new FImageConvolveSeparable(kernel));
+
+				final FImage serial = im.process(new ParallelFImageConvolveSeparable(kernel, kernel, null));
+				final FImage parallel = im.process(new ParallelFImageConvolveSeparable(kernel, kernel,
+						GlobalExecutorPool.getPool()));
+
+				assertTrue(expected.equalsThresh(serial, 1e-6f));
+				assertTrue(expected.equalsThresh(parallel, 1e-6f));
+			}
+		}
+	}
+}
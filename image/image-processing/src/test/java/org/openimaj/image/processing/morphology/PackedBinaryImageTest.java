@@ -0,0 +1,177 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.image.processing.morphology;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openimaj.image.FImage;
+import org.openimaj.image.pixel.ConnectedComponent;
+import org.openimaj.image.pixel.Pixel;
+
+/**
+ * Tests for {@link PackedBinaryImage}, checking the packed operators against
+ * the {@link ConnectedComponent} implementations.
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class PackedBinaryImageTest {
+	private FImage image;
+
+	/**
+	 * Create a test image containing some overlapping blobs and noise. The
+	 * width is chosen so rows span several partially filled words.
+	 */
+	@Before
+	public void setup() {
+		final Random rng = new Random(0);
+		image = new FImage(150, 90);
+
+		for (int i = 0; i < 12; i++) {
+			final int cx = rng.nextInt(image.width);
+			final int cy = rng.nextInt(image.height);
+			final int r = 3 + rng.nextInt(12);
+
+			for (int y = cy - r; y <= cy + r; y++)
+				for (int x = cx - r; x <= cx + r; x++)
+					if (x >= 0 && y >= 0 && x < image.width && y < image.height
+							&& (x - cx) * (x - cx) + (y - cy) * (y - cy) <= r * r)
+						image.pixels[y][x] = 1;
+		}
+
+		for (int i = 0; i < 200; i++)
+			image.pixels[rng.nextInt(image.height)][rng.nextInt(image.width)] = 1;
+	}
+
+	private ConnectedComponent toComponent(FImage img) {
+		final ConnectedComponent cc = new ConnectedComponent();
+		for (int y = 0; y < img.height; y++)
+			for (int x = 0; x < img.width; x++)
+				if (img.pixels[y][x] == 1)
+					cc.addPixel(x, y);
+		return cc;
+	}
+
+	private void assertSame(ConnectedComponent expected, PackedBinaryImage actual) {
+		final Set<Pixel> inside = new HashSet<Pixel>();
+		for (final Pixel p : expected.getPixels())
+			if (p.x >= 0 && p.y >= 0 && p.x < actual.getWidth() && p.y < actual.getHeight())
+				inside.add(p);
+
+		assertEquals(inside.size(), actual.countSetPixels());
+		for (final Pixel p : inside)
+			assertTrue(actual.get(p.x, p.y));
+	}
+
+	/**
+	 * Test conversion to and from {@link FImage}s
+	 */
+	@Test
+	public void testConversion() {
+		final PackedBinaryImage packed = new PackedBinaryImage(image);
+
+		assertEquals(image, packed.toFImage());
+		assertSame(toComponent(image), packed);
+
+		final FImage grey = image.multiply(0.7f);
+		assertEquals(image, new PackedBinaryImage(grey, 0.5f).toFImage());
+		assertEquals(0, new PackedBinaryImage(grey, 0.7f).countSetPixels());
+	}
+
+	/**
+	 * Test that setting a pixel outside the image fails rather than setting
+	 * padding bits or pixels of another row
+	 */
+	@Test
+	public void testSetOutOfBounds() {
+		final PackedBinaryImage packed = new PackedBinaryImage(70, 3);
+		final int[][] outside = { { 70, 0 }, { 127, 0 }, { 130, 0 }, { -1, 1 }, { 0, -1 }, { 0, 3 } };
+
+		for (final int[] p : outside) {
+			try {
+				packed.set(p[0], p[1], true);
+				fail();
+			} catch (final IndexOutOfBoundsException e) {
+				// expected
+			}
+		}
+		assertEquals(0, packed.countSetPixels());
+
+		packed.set(69, 2, true);
+		assertTrue(packed.get(69, 2));
+		assertEquals(1, packed.countSetPixels());
+	}
+
+	/**
+	 * Test dilation and erosion
+	 */
+	@Test
+	public void testDilateErode() {
+		final StructuringElement[] elements = { StructuringElement.BOX, StructuringElement.CROSS,
+				StructuringElement.HPIT, StructuringElement.disk(5) };
+
+		for (final StructuringElement se : elements) {
+			final ConnectedComponent dilated = toComponent(image);
+			new Dilate(se).process(dilated);
+			assertSame(dilated, new PackedBinaryImage(image).dilate(se));
+
+			final ConnectedComponent eroded = toComponent(image);
+			new Erode(se).process(eroded);
+			assertSame(eroded, new PackedBinaryImage(image).erode(se));
+		}
+	}
+
+	/**
+	 * Test thinning, thickening and skeletonisation
+	 */
+	@Test
+	public void testThinning() {
+		final ConnectedComponent thinned = toComponent(image);
+		new Thin(GolayAlphabet.E).process(thinned);
+		assertSame(thinned, new PackedBinaryImage(image).thin(GolayAlphabet.E));
+
+		final ConnectedComponent thickened = toComponent(image);
+		new Thicken(GolayAlphabet.L).process(thickened);
+		assertSame(thickened, new PackedBinaryImage(image).thicken(GolayAlphabet.L));
+
+		final ConnectedComponent skeleton = toComponent(image);
+		new Skeleton().process(skeleton);
+		final PackedBinaryImage packed = new PackedBinaryImage(image);
+		new Skeleton().process(packed);
+		assertSame(skeleton, packed);
+	}
+}
@@ -35,6 +35,7 @@ import java.util.List;
 import org.openimaj.citation.annotation.Reference;
 import org.openimaj.citation.annotation.ReferenceType;
 import org.openimaj.image.FImage;
+import org.openimaj.image.analysis.ImageAnalysisCache;
 import org.openimaj.image.analysis.algorithm.SummedSqTiltAreaTable;
 import org.openimaj.image.objectdetection.AbstractMultiScaleObjectDetector;
 import org.openimaj.math.geometry.shape.Rectangle;
@@ -90,6 +91,7 @@ public class Detector extends AbstractMultiScaleObjectDetector<FImage, Rectangle
 	protected float scaleFactor = 1.1f;
 	protected int smallStep = 1;
 	protected int bigStep = 2;
+	protected transient ImageAnalysisCache analysisCache;
 
 	/**
 	 * Construct the {@link Detector} with the given parameters.
@@ -186,15 +188,33 @@ public class Detector extends AbstractMultiScaleObjectDetector<FImage, Rectangle
 		}
 	}
 
-	@Override
-	public List<Rectangle> detect(FImage image) {
-		final List<Rectangle> results = new ArrayList<Rectangle>();
-
-		final int imageWidth = image.getWidth();
-		final int imageHeight = image.getHeight();
+	/**
+	 * Get the summed area tables required by the cascade for the given image,
+	 * either by computing them or by retrieving them from the analysis cache
+	 * (if one has been set).
+	 * 
+	 * @param image
+	 *            the image
+	 * @return the summed area tables
+	 */
+	protected SummedSqTiltAreaTable getSummedAreaTables(FImage image) {
+		if (analysisCache == null)
+			return new SummedSqTiltAreaTable(image, cascade.hasTiltedFeatures);
 
-		final SummedSqTiltAreaTable sat = new SummedSqTiltAreaTable(image, cascade.hasTiltedFeatures);
+		return analysisCache.getSummedSqTiltAreaTable(image, cascade.hasTiltedFeatures);
+	}
 
+	/**
+	 * Compute the scale factors that will be searched for an image of the
+	 * given size, taking into account the minimum and maximum detection sizes.
+	 * 
+	 * @param imageWidth
+	 *            the width of the image
+	 * @param imageHeight
+	 *            the height of the image
+	 * @return the scale factors in increasing order
+	 */
+	protected float[] computeScaleFactors(int imageWidth, int imageHeight) {
 		// compute the number of scales to test and the starting factor
 		int nFactors = 0;
 		int startFactor = 0;
@@ -215,9 +235,25 @@ public class Detector extends AbstractMultiScaleObjectDetector<FImage, Rectangle
 			nFactors++;
 		}
 
-		// run the detection at each scale
+		final float[] factors = new float[Math.max(0, nFactors - startFactor)];
 		float factor = (float) Math.pow(scaleFactor, startFactor);
-		for (int scaleStep = startFactor; scaleStep < nFactors; factor *= scaleFactor, scaleStep++) {
+		for (int i = 0; i < factors.length; factor *= scaleFactor, i++)
+			factors[i] = factor;
+
+		return factors;
+	}
+
+	@Override
+	public List<Rectangle> detect(FImage image) {
+		final List<Rectangle> results = new ArrayList<Rectangle>();
+
+		final int imageWidth = image.getWidth();
+		final int imageHeight = image.getHeight();
+
+		final SummedSqTiltAreaTable sat = getSummedAreaTables(image);
+
+		// run the detection at each scale
+		for (final float factor : computeScaleFactors(imageWidth, imageHeight)) {
 			final float ystep = Math.max(2, factor);
 
 			final int windowWidth = (int) (factor * cascade.width);
@@ -303,6 +339,28 @@ public class Detector extends AbstractMultiScaleObjectDetector<FImage, Rectangle
 		this.scaleFactor = scaleFactor;
 	}
 
+	/**
+	 * Get the cache used to share analyses of each image with other detectors.
+	 * 
+	 * @return the cache, or null if there is no cache
+	 */
+	public ImageAnalysisCache getAnalysisCache() {
+		return analysisCache;
+	}
+
+	/**
+	 * Set the cache used to share analyses of each image with other detectors
+	 * (for example, several detectors applied to the same video frame). If the
+	 * cache is set, the summed area tables of each image are retrieved from it
+	 * rather than being recomputed.
+	 * 
+	 * @param analysisCache
+	 *            the cache; can be null
+	 */
+	public void setAnalysisCache(ImageAnalysisCache analysisCache) {
+		this.analysisCache = analysisCache;
+	}
+
 	/**
 	 * Get the classifier tree or cascade used by this detector.
 	 * 
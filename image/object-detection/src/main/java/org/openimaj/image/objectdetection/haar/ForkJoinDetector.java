@@ -0,0 +1,308 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.image.objectdetection.haar;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.openimaj.image.FImage;
+import org.openimaj.image.analysis.algorithm.SummedSqTiltAreaTable;
+import org.openimaj.math.geometry.shape.Rectangle;
+
+/**
+ * Multi-threaded version of the {@link Detector} that searches all scales
+ * concurrently. Rather than parallelising the rows within each scale in turn
+ * (as the {@link MultiThreadedDetector} does), the search is broken into work
+ * units consisting of a band of rows at a single scale, and all the units for
+ * all the scales are submitted to a {@link ForkJoinPool} at once. Idle threads
+ * steal units from busy ones, so the small amount of work at the coarse scales
+ * doesn't leave cores idle, and the threads only synchronise once per image.
+ * <p>
+ * The summed area tables are computed once per image and shared by all units.
+ * Each worker thread has its own {@link StageTreeClassifier#copy() copy} of the
+ * cascade, which is only re-scaled when the thread moves on to a unit at a
+ * different scale. The search is otherwise identical to the {@link Detector},
+ * and the detections are returned in the same order.
+ * <p>
+ * Optionally, the detector can be configured to
+ * {@link #setStopOnFirstDetection(boolean) stop} as soon as any window
+ * matches; this is useful for quickly testing whether an object is present
+ * at all.
+ * <p>
+ * Unlike the other detectors, this detector is safe to use from multiple
+ * threads at once.
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class ForkJoinDetector extends Detector {
+	/**
+	 * Default number of rows of search windows in each unit of work
+	 */
+	public static final int DEFAULT_TILE_ROWS = 8;
+
+	private static class DefaultPoolHolder {
+		static final ForkJoinPool POOL = new ForkJoinPool();
+	}
+
+	private transient ForkJoinPool pool;
+	private transient ThreadLocal<StageTreeClassifier> localCascade;
+	private int tileRows = DEFAULT_TILE_ROWS;
+	private boolean stopOnFirstDetection = false;
+
+	/**
+	 * Construct the {@link ForkJoinDetector} with the given parameters.
+	 * 
+	 * @param cascade
+	 *            the cascade or tree of stages.
+	 * @param scaleFactor
+	 *            the amount to change between scales (multiplicative)
+	 * @param smallStep
+	 *            the amount to step when there is a hint of detection
+	 * @param bigStep
+	 *            the amount to step when there is definitely no detection
+	 * @param pool
+	 *            the pool. If <code>null</code> a shared default pool with one
+	 *            thread per processor is used.
+	 */
+	public ForkJoinDetector(StageTreeClassifier cascade, float scaleFactor, int smallStep, int bigStep,
+			ForkJoinPool pool)
+	{
+		super(cascade, scaleFactor, smallStep, bigStep);
+
+		this.pool = pool;
+	}
+
+	/**
+	 * Construct the {@link ForkJoinDetector} with the given tree of stages and
+	 * scale factor. The default step sizes and pool are used.
+	 * 
+	 * @param cascade
+	 *            the cascade or tree of stages.
+	 * @param scaleFactor
+	 *            the amount to change between scales
+	 */
+	public ForkJoinDetector(StageTreeClassifier cascade, float scaleFactor) {
+		this(cascade, scaleFactor, DEFAULT_SMALL_STEP, DEFAULT_BIG_STEP, null);
+	}
+
+	/**
+	 * Construct the {@link ForkJoinDetector} with the given tree of stages, and
+	 * the default parameters for step sizes, scale factor and pool.
+	 * 
+	 * @param cascade
+	 *            the cascade or tree of stages.
+	 */
+	public ForkJoinDetector(StageTreeClassifier cascade) {
+		this(cascade, DEFAULT_SCALE_FACTOR, DEFAULT_SMALL_STEP, DEFAULT_BIG_STEP, null);
+	}
+
+	private ForkJoinPool pool() {
+		if (pool == null)
+			pool = DefaultPoolHolder.POOL;
+		return pool;
+	}
+
+	private synchronized ThreadLocal<StageTreeClassifier> localCascade() {
+		if (localCascade == null) {
+			localCascade = new ThreadLocal<StageTreeClassifier>() {
+				@Override
+				protected StageTreeClassifier initialValue() {
+					return cascade.copy();
+				}
+			};
+		}
+		return localCascade;
+	}
+
+	/**
+	 * A unit of work: a band of rows of search windows at a single scale
+	 */
+	private class ScaleTile extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		final Search search;
+		final float factor;
+		final int startX, stopX, startY, stopY;
+		final float ystep;
+		final int windowWidth, windowHeight;
+		final List<Rectangle> results = new ArrayList<Rectangle>();
+
+		ScaleTile(Search search, float factor, int startX, int stopX, int startY, int stopY, float ystep,
+				int windowWidth, int windowHeight)
+		{
+			this.search = search;
+			this.factor = factor;
+			this.startX = startX;
+			this.stopX = stopX;
+			this.startY = startY;
+			this.stopY = stopY;
+			this.ystep = ystep;
+			this.windowWidth = windowWidth;
+			this.windowHeight = windowHeight;
+		}
+
+		@Override
+		protected void compute() {
+			if (search.done)
+				return;
+
+			final StageTreeClassifier local = search.cascades.get();
+			if (local.cachedScale != factor)
+				local.setScale(factor);
+
+			for (int iy = startY; iy < stopY && !search.done; iy++) {
+				final int y = Math.round(iy * ystep);
+
+				for (int ix = startX, xstep = 0; ix < stopX; ix += xstep) {
+					final int x = Math.round(ix * ystep);
+
+					final int result = local.classify(search.sat, x, y);
+
+					if (result > 0) {
+						results.add(new Rectangle(x, y, windowWidth, windowHeight));
+
+						if (stopOnFirstDetection) {
+							search.done = true;
+							return;
+						}
+					}
+
+					// if there is no detection, then increase the step size
+					xstep = (result > 0 ? smallStep : bigStep);
+				}
+			}
+		}
+	}
+
+	/**
+	 * State shared by all the units searching a single image
+	 */
+	private static class Search {
+		final SummedSqTiltAreaTable sat;
+		final ThreadLocal<StageTreeClassifier> cascades;
+		volatile boolean done;
+
+		Search(SummedSqTiltAreaTable sat, ThreadLocal<StageTreeClassifier> cascades) {
+			this.sat = sat;
+			this.cascades = cascades;
+		}
+	}
+
+	@Override
+	public List<Rectangle> detect(FImage image) {
+		final int imageWidth = image.getWidth();
+		final int imageHeight = image.getHeight();
+
+		final Search search = new Search(getSummedAreaTables(image), localCascade());
+
+		// create the work units for every scale
+		final List<ScaleTile> tiles = new ArrayList<ScaleTile>();
+		for (final float factor : computeScaleFactors(imageWidth, imageHeight)) {
+			final float ystep = Math.max(2, factor);
+
+			final int windowWidth = (int) (factor * cascade.width);
+			final int windowHeight = (int) (factor * cascade.height);
+
+			// determine the spatial range, taking into account any ROI.
+			final int startX = (int) (roi == null ? 0 : Math.max(0, roi.x));
+			final int startY = (int) (roi == null ? 0 : Math.max(0, roi.y));
+			final int stopX = Math.round(
+					(((roi == null ? imageWidth : Math.min(imageWidth, roi.x + roi.width)) - windowWidth)) / ystep);
+			final int stopY = Math.round(
+					(((roi == null ? imageHeight : Math.min(imageHeight, roi.y + roi.height)) - windowHeight)) / ystep);
+
+			for (int y = startY; y < stopY; y += tileRows) {
+				tiles.add(new ScaleTile(search, factor, startX, stopX, y, Math.min(stopY, y + tileRows), ystep,
+						windowWidth, windowHeight));
+			}
+		}
+
+		pool().invoke(new RecursiveAction() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void compute() {
+				invokeAll(tiles);
+			}
+		});
+
+		final List<Rectangle> results = new ArrayList<Rectangle>();
+		for (final ScaleTile tile : tiles)
+			results.addAll(tile.results);
+
+		return results;
+	}
+
+	/**
+	 * Get the number of rows of search windows in each unit of work.
+	 * 
+	 * @return the number of rows per unit
+	 */
+	public int getTileRows() {
+		return tileRows;
+	}
+
+	/**
+	 * Set the number of rows of search windows in each unit of work. Smaller
+	 * units balance better across threads, but have a higher scheduling
+	 * overhead.
+	 * 
+	 * @param tileRows
+	 *            the number of rows per unit
+	 */
+	public void setTileRows(int tileRows) {
+		this.tileRows = Math.max(1, tileRows);
+	}
+
+	/**
+	 * Will the search stop as soon as any window is matched?
+	 * 
+	 * @return true if the search stops on the first detection
+	 */
+	public boolean isStopOnFirstDetection() {
+		return stopOnFirstDetection;
+	}
+
+	/**
+	 * Set whether the search should stop as soon as any window is matched. If
+	 * enabled, the detections returned are not guaranteed to include all
+	 * objects in the image, and will not be grouped well by the
+	 * {@link org.openimaj.image.objectdetection.filtering.OpenCVGrouping}
+	 * filter.
+	 * 
+	 * @param stopOnFirstDetection
+	 *            true if the search should stop on the first detection
+	 */
+	public void setStopOnFirstDetection(boolean stopOnFirstDetection) {
+		this.stopOnFirstDetection = stopOnFirstDetection;
+	}
+}
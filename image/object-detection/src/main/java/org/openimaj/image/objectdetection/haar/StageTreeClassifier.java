@@ -29,6 +29,10 @@
  */
 package org.openimaj.image.objectdetection.haar;
 
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
 import org.openimaj.citation.annotation.Reference;
 import org.openimaj.citation.annotation.ReferenceType;
 import org.openimaj.image.analysis.algorithm.SummedSqTiltAreaTable;
@@ -69,6 +73,9 @@ import org.openimaj.image.analysis.algorithm.SummedSqTiltAreaTable;
  * 		}
  * }
  * </pre></code>
+ * <p>
+ * If different scales need to be searched concurrently, each thread should
+ * work with its own {@link #copy()} of the classifier.
  *
  * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
  */
@@ -197,6 +204,48 @@ public class StageTreeClassifier {
 			updateCaches(s.failureStage);
 	}
 
+	/**
+	 * Create a copy of this classifier that can be used concurrently with the
+	 * original at a different scale. The trained parameters are shared, but
+	 * the copy has its own scale-dependent caches. The scale of the copy must
+	 * be set with {@link #setScale(float)} before it is used.
+	 *
+	 * @return a copy of this classifier
+	 */
+	public StageTreeClassifier copy() {
+		return new StageTreeClassifier(width, height, name, hasTiltedFeatures,
+				copy(root, new IdentityHashMap<Stage, Stage>()));
+	}
+
+	private static Stage copy(Stage s, Map<Stage, Stage> copies) {
+		if (s == null)
+			return null;
+
+		Stage c = copies.get(s);
+		if (c == null) {
+			final Classifier[] ensemble = new Classifier[s.ensemble.length];
+			for (int i = 0; i < ensemble.length; i++)
+				ensemble[i] = copy(s.ensemble[i]);
+
+			c = new Stage(s.threshold, ensemble, copy(s.successStage, copies), copy(s.failureStage, copies));
+			copies.put(s, c);
+		}
+
+		return c;
+	}
+
+	private static Classifier copy(Classifier classifier) {
+		// value classifiers have no scale-dependent state, so can be shared
+		if (classifier instanceof ValueClassifier)
+			return classifier;
+
+		final HaarFeatureClassifier hfc = (HaarFeatureClassifier) classifier;
+		final HaarFeature feature = HaarFeature.create(Arrays.asList(hfc.feature.rects),
+				hfc.feature instanceof HaarFeature.TiltedFeature);
+
+		return new HaarFeatureClassifier(feature, hfc.threshold, copy(hfc.left), copy(hfc.right));
+	}
+
 	/**
 	 * Apply the classifier to the given image at the given position.
 	 * Internally, this will apply each stage to the image. If all stages
@@ -33,6 +33,7 @@ import java.util.List;
 
 import org.openimaj.feature.DoubleFV;
 import org.openimaj.image.FImage;
+import org.openimaj.image.analysis.ImageAnalysisCache;
 import org.openimaj.image.feature.dense.gradient.HOG;
 import org.openimaj.math.geometry.shape.Rectangle;
 import org.openimaj.math.statistics.distribution.Histogram;
@@ -49,6 +50,10 @@ public class HOGClassifier {
 		hogExtractor.analyseImage(image);
 	}
 
+	public void prepare(FImage image, ImageAnalysisCache cache) {
+		hogExtractor.analyseImage(image, cache);
+	}
+
 	public double classify(Rectangle current) {
 		final Histogram fv = hogExtractor.getFeatureVector(current);
 
@@ -33,6 +33,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.openimaj.image.FImage;
+import org.openimaj.image.analysis.ImageAnalysisCache;
 import org.openimaj.image.objectdetection.AbstractMultiScaleObjectDetector;
 import org.openimaj.math.geometry.shape.Rectangle;
 
@@ -40,6 +41,7 @@ public class HOGDetector extends AbstractMultiScaleObjectDetector<FImage, Rectan
 	protected float scaleFactor = 1.2f;
 	protected HOGClassifier classifier;
 	double threshold = 0.5;
+	protected transient ImageAnalysisCache analysisCache;
 
 	public HOGDetector(HOGClassifier classifier, float scaleFactor) {
 		this.classifier = classifier;
@@ -50,6 +52,17 @@ public class HOGDetector extends AbstractMultiScaleObjectDetector<FImage, Rectan
 		this.classifier = classifier;
 	}
 
+	/**
+	 * Set the cache used to share analyses of each image with other
+	 * detectors.
+	 * 
+	 * @param analysisCache
+	 *            the cache; can be null
+	 */
+	public void setAnalysisCache(ImageAnalysisCache analysisCache) {
+		this.analysisCache = analysisCache;
+	}
+
 	@Override
 	public List<Rectangle> detect(FImage image) {
 		final List<Rectangle> results = new ArrayList<Rectangle>();
@@ -57,7 +70,10 @@ public class HOGDetector extends AbstractMultiScaleObjectDetector<FImage, Rectan
 		final int imageWidth = image.getWidth();
 		final int imageHeight = image.getHeight();
 
-		classifier.prepare(image);
+		if (analysisCache == null)
+			classifier.prepare(image);
+		else
+			classifier.prepare(image, analysisCache);
 
 		// compute the number of scales to test and the starting factor
 		int nFactors = 0;
@@ -0,0 +1,102 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.image.objectdetection.haar;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openimaj.image.FImage;
+import org.openimaj.math.geometry.shape.Rectangle;
+
+/**
+ * Tests for the {@link ForkJoinDetector}
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class ForkJoinDetectorTest {
+	private StageTreeClassifier cascade;
+	private FImage image;
+
+	/**
+	 * Load the cascade and create a test image with some structure
+	 * 
+	 * @throws IOException
+	 */
+	@Before
+	public void setup() throws IOException {
+		cascade = OCVHaarLoader.read(OCVHaarLoader.class.getResourceAsStream("haarcascade_eye.xml"));
+
+		final Random rng = new Random(1);
+		image = new FImage(320, 240);
+		for (int y = 0; y < image.height; y++)
+			for (int x = 0; x < image.width; x++)
+				image.pixels[y][x] = (float) (0.5 + 0.3 * Math.sin(x / 7.0) * Math.cos(y / 9.0) + 0.1 * rng.nextFloat());
+	}
+
+	/**
+	 * Test that the detections are identical to the single-threaded detector
+	 */
+	@Test
+	public void testSameAsDetector() {
+		final List<Rectangle> expected = new Detector(cascade).detect(image);
+		assertFalse(expected.isEmpty());
+
+		for (final int rows : new int[] { 1, 3, ForkJoinDetector.DEFAULT_TILE_ROWS, 1000 }) {
+			final ForkJoinDetector detector = new ForkJoinDetector(cascade);
+			detector.setTileRows(rows);
+
+			assertEquals(expected, detector.detect(image));
+			// again, with the thread-local cascades already initialised
+			assertEquals(expected, detector.detect(image));
+		}
+	}
+
+	/**
+	 * Test stopping on the first detection
+	 */
+	@Test
+	public void testStopOnFirstDetection() {
+		final ForkJoinDetector detector = new ForkJoinDetector(cascade);
+		final int all = detector.detect(image).size();
+
+		detector.setStopOnFirstDetection(true);
+		final int some = detector.detect(image).size();
+
+		assertTrue(some >= 1);
+		assertTrue(some <= all);
+	}
+}
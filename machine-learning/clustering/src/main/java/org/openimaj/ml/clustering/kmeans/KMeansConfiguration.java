@@ -31,6 +31,7 @@ package org.openimaj.ml.clustering.kmeans;
 
 import java.util.concurrent.ExecutorService;
 
+import org.openimaj.data.DataSource;
 import org.openimaj.knn.NearestNeighbours;
 import org.openimaj.knn.NearestNeighboursFactory;
 import org.openimaj.util.parallel.GlobalExecutorPool;
@@ -46,6 +47,43 @@ import org.openimaj.util.parallel.GlobalExecutorPool;
  *            The type of data
  */
 public class KMeansConfiguration<NN extends NearestNeighbours<DATA, ?, ?>, DATA> implements Cloneable {
+	/**
+	 * The algorithms that can be used to perform the clustering by the
+	 * primitive-type K-Means implementations (for example {@link FloatKMeans}
+	 * and {@link ByteKMeans}).
+	 * 
+	 * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+	 */
+	public static enum Algorithm {
+		/**
+		 * Standard (Lloyd's) batch K-Means. Every iteration assigns every
+		 * sample to its nearest centroid using the {@link NearestNeighbours}
+		 * produced by the configured {@link NearestNeighboursFactory}.
+		 */
+		LLOYD,
+		/**
+		 * Mini-batch K-Means. Each iteration samples a small random batch of
+		 * data from the {@link DataSource}, assigns it with the
+		 * {@link NearestNeighbours} produced by the configured
+		 * {@link NearestNeighboursFactory}, and moves each centroid towards
+		 * the samples assigned to it with a per-centroid learning rate. Each
+		 * iteration is much cheaper than a full pass over the data, but many
+		 * more iterations are normally required.
+		 */
+		MINI_BATCH,
+		/**
+		 * Exact K-Means using Euclidean distance, with the triangle-inequality
+		 * bounds of Hamerly to avoid most of the distance computations in
+		 * later iterations. The centroids found are the same as with
+		 * {@link #LLOYD} using exact nearest-neighbours, but the configured
+		 * {@link NearestNeighboursFactory} is only used to create the
+		 * nearest-neighbours of the final result. Two bounds per sample are
+		 * held in memory, but the samples themselves are still streamed from
+		 * the {@link DataSource}.
+		 */
+		HAMERLY
+	}
+
 	/**
 	 * The default number of samples per parallel assignment instance.
 	 */
@@ -56,6 +94,11 @@ public class KMeansConfiguration<NN extends NearestNeighbours<DATA, ?, ?>, DATA>
 	 */
 	public static final int DEFAULT_NUMBER_ITERATIONS = 30;
 
+	/**
+	 * The default number of samples in each mini-batch.
+	 */
+	public static final int DEFAULT_MINI_BATCH_SIZE = 1000;
+
 	/**
 	 * The number of clusters
 	 */
@@ -82,6 +125,16 @@ public class KMeansConfiguration<NN extends NearestNeighbours<DATA, ?, ?>, DATA>
 	 */
 	protected ExecutorService threadpool;
 
+	/**
+	 * The clustering algorithm
+	 */
+	protected Algorithm algorithm = Algorithm.LLOYD;
+
+	/**
+	 * The number of samples in each mini-batch
+	 */
+	protected int miniBatchSize = DEFAULT_MINI_BATCH_SIZE;
+
 	/**
 	 * Create configuration for data that will create <code>K</code> clusters.
 	 * The algorithm will run for a maximum of
@@ -308,4 +361,50 @@ public class KMeansConfiguration<NN extends NearestNeighbours<DATA, ?, ?>, DATA>
 	public void setNearestNeighbourFactory(NearestNeighboursFactory<? extends NN, DATA> factory) {
 		this.factory = factory;
 	}
+
+	/**
+	 * Get the algorithm used to perform the clustering.
+	 * 
+	 * @return the algorithm
+	 */
+	public Algorithm getAlgorithm() {
+		return algorithm;
+	}
+
+	/**
+	 * Set the algorithm used to perform the clustering. Only the
+	 * primitive-type K-Means implementations support algorithms other than
+	 * {@link Algorithm#LLOYD}.
+	 * <p>
+	 * With {@link Algorithm#MINI_BATCH}, the maximum number of iterations is
+	 * the number of mini-batches that are processed, and will normally need to
+	 * be set much higher than for the other algorithms.
+	 * 
+	 * @param algorithm
+	 *            the algorithm
+	 */
+	public void setAlgorithm(Algorithm algorithm) {
+		this.algorithm = algorithm;
+	}
+
+	/**
+	 * Get the number of samples in each mini-batch when using
+	 * {@link Algorithm#MINI_BATCH}.
+	 * 
+	 * @return the mini-batch size
+	 */
+	public int getMiniBatchSize() {
+		return miniBatchSize;
+	}
+
+	/**
+	 * Set the number of samples in each mini-batch when using
+	 * {@link Algorithm#MINI_BATCH}.
+	 * 
+	 * @param miniBatchSize
+	 *            the mini-batch size
+	 */
+	public void setMiniBatchSize(int miniBatchSize) {
+		this.miniBatchSize = miniBatchSize;
+	}
 }
@@ -0,0 +1,131 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.knn.pq;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openimaj.data.RandomData;
+import org.openimaj.util.pair.IntFloatPair;
+
+/**
+ * Tests for {@link IncrementalFloatIVFADCNearestNeighbours}
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class IncrementalFloatIVFADCNearestNeighboursTest {
+	private float[][] data;
+	private IncrementalFloatIVFADCNearestNeighbours nn;
+
+	/**
+	 * Build an index over some random data
+	 */
+	@Before
+	public void setup() {
+		data = RandomData.getRandomFloatArray(1000, 16, -1, 1, 42);
+		nn = IncrementalFloatIVFADCNearestNeighbours.create(data, 8, 4, 16, 10);
+
+		for (int i = 0; i < data.length; i++)
+			assertEquals(i, nn.add(data[i]));
+	}
+
+	/**
+	 * Probing every cell should rank the whole database
+	 */
+	@Test
+	public void testProbeAll() {
+		nn.setNprobe(nn.numCells());
+
+		final List<IntFloatPair> res = nn.searchKNN(data[0], data.length);
+		assertEquals(data.length, res.size());
+
+		final boolean[] seen = new boolean[data.length];
+		for (int i = 0; i < res.size(); i++) {
+			assertTrue(!seen[res.get(i).first]);
+			seen[res.get(i).first] = true;
+
+			if (i > 0)
+				assertTrue(res.get(i - 1).second <= res.get(i).second);
+		}
+	}
+
+	/**
+	 * Probing fewer cells should consider fewer vectors, and more cells should
+	 * never give worse results
+	 */
+	@Test
+	public void testProbeFewer() {
+		nn.setNprobe(1);
+		final List<IntFloatPair> one = nn.searchKNN(data[0], data.length);
+		assertTrue(one.size() < data.length);
+
+		nn.setNprobe(nn.numCells());
+		final List<IntFloatPair> all = nn.searchKNN(data[0], 10);
+		for (int i = 0; i < 10; i++)
+			assertTrue(all.get(i).second <= one.get(i).second);
+	}
+
+	/**
+	 * Test that the index can be written and read back
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testReadWrite() throws IOException {
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		nn.writeBinary(new DataOutputStream(baos));
+
+		final IncrementalFloatIVFADCNearestNeighbours read = new IncrementalFloatIVFADCNearestNeighbours();
+		read.readBinary(new DataInputStream(new ByteArrayInputStream(baos.toByteArray())));
+
+		assertEquals(nn.size(), read.size());
+		assertEquals(nn.numCells(), read.numCells());
+
+		for (int i = 0; i < 20; i++) {
+			final List<IntFloatPair> expected = nn.searchKNN(data[i], 10);
+			final List<IntFloatPair> actual = read.searchKNN(data[i], 10);
+
+			assertEquals(expected.size(), actual.size());
+			for (int j = 0; j < expected.size(); j++) {
+				assertEquals(expected.get(j).first, actual.get(j).first);
+				assertEquals(expected.get(j).second, actual.get(j).second, 0);
+			}
+		}
+	}
+}
@@ -0,0 +1,357 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.knn.pq;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact storage for the byte codes produced by a product quantiser. Rather
+ * than storing each code as a separate <code>byte[]</code> (which costs an
+ * object header and a reference per code, often more than the code itself),
+ * the codes are packed end-to-end into large pages. Pages can either be
+ * allocated on the heap, or memory-mapped directly from a file in the format
+ * written by {@link #write(File)}, so that very large indexes can be opened
+ * without reading them into the heap.
+ * <p>
+ * Heap pages start small and grow geometrically up to the full page size as
+ * codes are added, so an empty or nearly empty buffer is cheap; only
+ * memory-mapped pages are always full-sized.
+ * <p>
+ * Codes can be appended at any time; codes appended to a memory-mapped buffer
+ * are held on the heap (the underlying file is never modified). Appending is
+ * not thread-safe, but concurrent reads are.
+ *
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class PQCodeBuffer {
+	private static final byte[] MAGIC = "PQCODES1".getBytes();
+	private static final int HEADER_LENGTH = MAGIC.length + 8;
+	private static final int TARGET_PAGE_BYTES = 1 << 26;
+	private static final int INITIAL_PAGE_CODES = 16;
+
+	private final int codeLength;
+	private final int pageShift;
+	private final int pageMask;
+	private final List<ByteBuffer> pages = new ArrayList<ByteBuffer>();
+	private int size;
+
+	/**
+	 * Construct an empty buffer for codes of the given length
+	 *
+	 * @param codeLength
+	 *            the number of bytes in each code
+	 */
+	public PQCodeBuffer(int codeLength) {
+		this(codeLength, TARGET_PAGE_BYTES / codeLength);
+	}
+
+	/**
+	 * Construct an empty buffer for codes of the given length, with pages
+	 * holding at most the given number of codes. The number of codes per page
+	 * is rounded down to a power of two.
+	 *
+	 * @param codeLength
+	 *            the number of bytes in each code
+	 * @param codesPerPage
+	 *            the maximum number of codes in each page
+	 */
+	public PQCodeBuffer(int codeLength, int codesPerPage) {
+		this.codeLength = codeLength;
+
+		// pages hold a power-of-two number of codes, so that the page and
+		// offset of a code can be found with shifts rather than divisions
+		codesPerPage = Integer.highestOneBit(Math.max(1, codesPerPage));
+		this.pageShift = Integer.numberOfTrailingZeros(codesPerPage);
+		this.pageMask = codesPerPage - 1;
+	}
+
+	/**
+	 * Get the length of each code in bytes
+	 *
+	 * @return the code length
+	 */
+	public int getCodeLength() {
+		return codeLength;
+	}
+
+	/**
+	 * Get the number of codes held by the buffer
+	 *
+	 * @return the number of codes
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Get the maximum number of codes held by each page
+	 *
+	 * @return the number of codes per page
+	 */
+	public int getCodesPerPage() {
+		return pageMask + 1;
+	}
+
+	/**
+	 * Get the page containing the code with the given index. Within the page,
+	 * the code begins at byte <code>(index % getCodesPerPage()) *
+	 * getCodeLength()</code>. The returned buffer should only be accessed with
+	 * absolute get operations.
+	 *
+	 * @param index
+	 *            the index of the code
+	 * @return the page
+	 */
+	public ByteBuffer getPage(int index) {
+		return pages.get(index >>> pageShift);
+	}
+
+	/**
+	 * Get the offset (in bytes) of the code with the given index within its
+	 * page.
+	 *
+	 * @param index
+	 *            the index of the code
+	 * @return the offset within the page
+	 */
+	public int getOffset(int index) {
+		return (index & pageMask) * codeLength;
+	}
+
+	/**
+	 * Append a code to the buffer
+	 *
+	 * @param code
+	 *            the code
+	 * @return the index of the code
+	 */
+	public int add(byte[] code) {
+		if (code.length != codeLength)
+			throw new IllegalArgumentException("Code has wrong length");
+
+		final int index = size;
+		final int offset = getOffset(index);
+		final int pageIndex = index >>> pageShift;
+
+		if (pageIndex == pages.size())
+			pages.add(ByteBuffer.allocate(Math.min(INITIAL_PAGE_CODES, pageMask + 1) * codeLength));
+		else if (offset + codeLength > pages.get(pageIndex).capacity())
+			grow(pageIndex);
+
+		final ByteBuffer page = pages.get(pageIndex);
+		for (int i = 0; i < codeLength; i++)
+			page.put(offset + i, code[i]);
+
+		size++;
+		return index;
+	}
+
+	/**
+	 * Double the capacity of the given (heap) page, up to the full page size
+	 */
+	private void grow(int pageIndex) {
+		final ByteBuffer old = pages.get(pageIndex).duplicate();
+		final ByteBuffer page = ByteBuffer.allocate(Math.min(old.capacity() * 2, (pageMask + 1) * codeLength));
+
+		old.clear();
+		page.put(old);
+		page.clear();
+		pages.set(pageIndex, page);
+	}
+
+	/**
+	 * Get a copy of the code with the given index
+	 *
+	 * @param index
+	 *            the index
+	 * @return the code
+	 */
+	public byte[] get(int index) {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+
+		final ByteBuffer page = getPage(index);
+		final int offset = getOffset(index);
+
+		final byte[] code = new byte[codeLength];
+		for (int i = 0; i < codeLength; i++)
+			code[i] = page.get(offset + i);
+
+		return code;
+	}
+
+	/**
+	 * Write the codes to the given output (without any header)
+	 *
+	 * @param out
+	 *            the output
+	 * @throws IOException
+	 *             if an error occurs
+	 */
+	public void writeCodes(DataOutput out) throws IOException {
+		final byte[] buffer = new byte[Math.min(size, pageMask + 1) * codeLength];
+
+		for (int i = 0; i < size; i += pageMask + 1) {
+			final int n = Math.min(size - i, pageMask + 1) * codeLength;
+			final ByteBuffer page = getPage(i).duplicate();
+			page.position(0);
+			page.get(buffer, 0, n);
+			out.write(buffer, 0, n);
+		}
+	}
+
+	/**
+	 * Append the given number of codes read from the given input (as written
+	 * by {@link #writeCodes(DataOutput)}).
+	 *
+	 * @param in
+	 *            the input
+	 * @param count
+	 *            the number of codes to read
+	 * @throws IOException
+	 *             if an error occurs
+	 */
+	public void readCodes(DataInput in, int count) throws IOException {
+		final byte[] code = new byte[codeLength];
+		for (int i = 0; i < count; i++) {
+			in.readFully(code);
+			add(code);
+		}
+	}
+
+	/**
+	 * Write the buffer to a file in a format that can be memory-mapped by
+	 * {@link #map(File)}.
+	 *
+	 * @param file
+	 *            the file
+	 * @throws IOException
+	 *             if an error occurs
+	 */
+	public void write(File file) throws IOException {
+		final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			raf.setLength(0);
+			raf.write(MAGIC);
+			raf.writeInt(codeLength);
+			raf.writeInt(size);
+			writeCodes(raf);
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * Open a file written by {@link #write(File)}, memory-mapping the codes
+	 * rather than reading them into the heap. Codes subsequently added to the
+	 * buffer are held on the heap.
+	 *
+	 * @param file
+	 *            the file
+	 * @return the buffer
+	 * @throws IOException
+	 *             if an error occurs
+	 */
+	public static PQCodeBuffer map(File file) throws IOException {
+		return map(file, -1);
+	}
+
+	/**
+	 * Open a file written by {@link #write(File)}, memory-mapping the codes
+	 * rather than reading them into the heap, with pages holding at most the
+	 * given number of codes. Codes subsequently added to the buffer are held
+	 * on the heap.
+	 *
+	 * @param file
+	 *            the file
+	 * @param codesPerPage
+	 *            the maximum number of codes in each page; if not positive
+	 *            the default page size is used
+	 * @return the buffer
+	 * @throws IOException
+	 *             if an error occurs
+	 */
+	public static PQCodeBuffer map(File file, int codesPerPage) throws IOException {
+		final RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			final byte[] magic = new byte[MAGIC.length];
+			raf.readFully(magic);
+			if (!Arrays.equals(magic, MAGIC))
+				throw new IOException("File does not contain product quantiser codes");
+
+			final int codeLength = raf.readInt();
+			final PQCodeBuffer buffer = codesPerPage > 0 ? new PQCodeBuffer(codeLength, codesPerPage)
+					: new PQCodeBuffer(codeLength);
+			final int count = raf.readInt();
+			final long pageBytes = (long) buffer.getCodesPerPage() * buffer.codeLength;
+
+			if (raf.length() < HEADER_LENGTH + (long) count * buffer.codeLength)
+				throw new IOException("File is truncated");
+
+			final FileChannel channel = raf.getChannel();
+			final int fullPages = count >>> buffer.pageShift;
+			for (int i = 0; i < fullPages; i++) {
+				buffer.pages.add(channel.map(FileChannel.MapMode.READ_ONLY, HEADER_LENGTH + i * pageBytes, pageBytes));
+			}
+			buffer.size = fullPages * buffer.getCodesPerPage();
+
+			// the final partial page is read onto the heap, so that it can be
+			// appended to; its capacity is rounded up to the next growth step
+			final int remaining = count - buffer.size;
+			if (remaining > 0) {
+				final int capacity = Math.min(Integer.highestOneBit(Math.max(INITIAL_PAGE_CODES, remaining) * 2 - 1),
+						buffer.getCodesPerPage());
+				final ByteBuffer page = ByteBuffer.allocate(capacity * buffer.codeLength);
+				final long start = HEADER_LENGTH + fullPages * pageBytes;
+				page.limit(remaining * buffer.codeLength);
+				while (page.hasRemaining())
+					if (channel.read(page, start + page.position()) < 0)
+						throw new IOException("File is truncated");
+				page.clear();
+				buffer.pages.add(page);
+				buffer.size = count;
+			}
+
+			return buffer;
+		} finally {
+			// mappings remain valid after the channel is closed
+			raf.close();
+		}
+	}
+}
@@ -0,0 +1,176 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.knn.pq;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openimaj.data.RandomData;
+import org.openimaj.knn.FloatNearestNeighboursExact;
+import org.openimaj.util.pair.IntFloatPair;
+import org.openimaj.util.parallel.GlobalExecutorPool;
+
+/**
+ * Tests for {@link PQCodeBuffer} and its use in
+ * {@link IncrementalFloatADCNearestNeighbours}
+ *
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class PQCodeBufferTest {
+	/**
+	 * Temporary folder
+	 */
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static byte[] code(int i) {
+		return new byte[] { (byte) i, (byte) (i >> 8), (byte) -i };
+	}
+
+	/**
+	 * Test adding and retrieving codes across page boundaries, writing and
+	 * mapping
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testAddWriteMap() throws IOException {
+		final PQCodeBuffer buffer = new PQCodeBuffer(3, 8);
+		assertEquals(8, buffer.getCodesPerPage());
+
+		final int n = buffer.getCodesPerPage() * 2 + 5;
+		for (int i = 0; i < n; i++)
+			assertEquals(i, buffer.add(code(i)));
+
+		assertEquals(n, buffer.size());
+		for (int i = 0; i < n; i++)
+			assertArrayEquals(code(i), buffer.get(i));
+
+		final File file = folder.newFile("codes.bin");
+		buffer.write(file);
+
+		final PQCodeBuffer mapped = PQCodeBuffer.map(file, 8);
+		assertEquals(n, mapped.size());
+		for (int i = 0; i < n; i++)
+			assertArrayEquals(code(i), mapped.get(i));
+
+		// appending to a mapped buffer, filling the partial last page and
+		// starting a new one
+		for (int i = n; i < n + 8; i++)
+			assertEquals(i, mapped.add(code(i)));
+		for (int i = 0; i < n + 8; i++)
+			assertArrayEquals(code(i), mapped.get(i));
+
+		// the default page size
+		final PQCodeBuffer defaults = PQCodeBuffer.map(file);
+		assertEquals(n, defaults.size());
+		for (int i = 0; i < n; i++)
+			assertArrayEquals(code(i), defaults.get(i));
+	}
+
+	/**
+	 * Test that heap pages start small and grow as codes are added
+	 */
+	@Test
+	public void testPageGrowth() {
+		final PQCodeBuffer buffer = new PQCodeBuffer(4);
+
+		buffer.add(new byte[4]);
+		assertTrue(buffer.getPage(0).capacity() < 1024);
+
+		for (int i = 1; i < 1000; i++)
+			buffer.add(new byte[] { (byte) i, 0, 0, (byte) -i });
+
+		assertTrue(buffer.getPage(0).capacity() >= 4000);
+		assertTrue(buffer.getPage(0).capacity() <= 8192);
+		for (int i = 1; i < 1000; i++)
+			assertArrayEquals(new byte[] { (byte) i, 0, 0, (byte) -i }, buffer.get(i));
+	}
+
+	/**
+	 * Test that the serial, parallel and memory-mapped searches agree, and
+	 * that the binary serialisation round-trips
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testADCSearch() throws IOException {
+		final float[][] data = RandomData.getRandomFloatArray(IncrementalFloatADCNearestNeighbours.MIN_PARALLEL_SIZE + 1000,
+				8, -1, 1, 42);
+		final float[][] queries = RandomData.getRandomFloatArray(5, 8, -1, 1, 43);
+
+		final FloatNearestNeighboursExact[] assigners = new FloatNearestNeighboursExact[4];
+		for (int i = 0; i < assigners.length; i++)
+			assigners[i] = new FloatNearestNeighboursExact(RandomData.getRandomFloatArray(16, 2, -1, 1, i));
+		final FloatProductQuantiser pq = new FloatProductQuantiser(assigners);
+		final IncrementalFloatADCNearestNeighbours serial = new IncrementalFloatADCNearestNeighbours(pq, data);
+
+		final IncrementalFloatADCNearestNeighbours parallel = new IncrementalFloatADCNearestNeighbours(pq, 8,
+				serial.getCodes());
+		parallel.setThreadPool(GlobalExecutorPool.getPool());
+
+		final File file = folder.newFile("codes.bin");
+		serial.getCodes().write(file);
+		final IncrementalFloatADCNearestNeighbours mapped = new IncrementalFloatADCNearestNeighbours(pq, 8,
+				PQCodeBuffer.map(file));
+
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		serial.writeBinary(new DataOutputStream(baos));
+		final IncrementalFloatADCNearestNeighbours read = new IncrementalFloatADCNearestNeighbours(pq, 8);
+		read.readBinary(new DataInputStream(new ByteArrayInputStream(baos.toByteArray())));
+
+		for (final float[] q : queries) {
+			final List<IntFloatPair> expected = serial.searchKNN(q, 10);
+
+			assertDistancesEqual(expected, parallel.searchKNN(q, 10));
+			assertDistancesEqual(expected, mapped.searchKNN(q, 10));
+			assertDistancesEqual(expected, read.searchKNN(q, 10));
+		}
+	}
+
+	private void assertDistancesEqual(List<IntFloatPair> expected, List<IntFloatPair> actual) {
+		assertEquals(expected.size(), actual.size());
+
+		for (int i = 0; i < expected.size(); i++)
+			assertEquals(expected.get(i).second, actual.get(i).second, 0f);
+	}
+}
@@ -0,0 +1,158 @@
+/**
+ * Copyright (c) 2011, The University of Southampton and the individual contributors.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *   * 	Redistributions of source code must retain the above copyright notice,
+ * 	this list of conditions and the following disclaimer.
+ *
+ *   *	Redistributions in binary form must reproduce the above copyright notice,
+ * 	this list of conditions and the following disclaimer in the documentation
+ * 	and/or other materials provided with the distribution.
+ *
+ *   *	Neither the name of the University of Southampton nor the names of its
+ * 	contributors may be used to endorse or promote products derived from this
+ * 	software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.openimaj.tools.audio;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.kohsuke.args4j.Argument;
+import org.kohsuke.args4j.CmdLineException;
+import org.kohsuke.args4j.CmdLineParser;
+import org.kohsuke.args4j.Option;
+import org.openimaj.audio.features.AudioFeatureType;
+import org.openimaj.audio.features.AudioFeatureWriter;
+import org.openimaj.audio.features.BatchAudioFeatureExtractor;
+
+/**
+ * A tool for extracting windowed audio features (such as MFCCs) from large
+ * numbers of audio files in parallel. The features of all the files are
+ * written to a single binary container that can be read with an
+ * {@link org.openimaj.audio.features.AudioFeatureReader}.
+ * 
+ * @author Jonathon Hare (jsh2@ecs.soton.ac.uk)
+ */
+public class AudioFeaturesTool {
+	@Option(name = "--feature-type", aliases = "-f", usage = "Feature type", required = true)
+	private AudioFeatureType feature;
+
+	@Option(name = "--window", aliases = "-w", usage = "Window size in milliseconds", required = false)
+	private float windowMillis = 25;
+
+	@Option(name = "--step", aliases = "-s", usage = "Step between windows in milliseconds; if 0 the windows don't overlap", required = false)
+	private float stepMillis = 10;
+
+	@Option(name = "--threads", aliases = "-j", usage = "Number of files to process concurrently; defaults to the number of processors", required = false)
+	private int threads = Runtime.getRuntime().availableProcessors();
+
+	@Option(name = "--input-list", aliases = "-il", usage = "File containing a list of audio files to process, one per line", required = false)
+	private File inputList;
+
+	@Option(name = "--output", aliases = "-o", usage = "Output file", required = true)
+	private File output;
+
+	@Argument(required = false, usage = "Audio files or directories of audio files", metaVar = "AUDIO-FILES")
+	private List<File> inputs = new ArrayList<File>();
+
+	private static void addFiles(File file, List<File> files) {
+		if (file.isDirectory()) {
+			final File[] children = file.listFiles();
+			if (children != null)
+				for (final File child : children)
+					addFiles(child, files);
+		} else {
+			files.add(file);
+		}
+	}
+
+	List<File> getFiles() throws IOException {
+		final List<File> files = new ArrayList<File>();
+
+		for (final File f : inputs)
+			addFiles(f, files);
+
+		if (inputList != null) {
+			final BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(inputList), "UTF-8"));
+			try {
+				String line;
+				while ((line = br.readLine()) != null) {
+					line = line.trim();
+					if (line.length() > 0)
+						files.add(new File(line));
+				}
+			} finally {
+				br.close();
+			}
+		}
+
+		return files;
+	}
+
+	void execute() throws IOException {
+		final List<File> files = getFiles();
+
+		final BatchAudioFeatureExtractor extractor = new BatchAudioFeatureExtractor(feature, windowMillis, stepMillis);
+		extractor.setNumThreads(threads);
+
+		final AudioFeatureWriter writer = new AudioFeatureWriter(output);
+		try {
+			final BatchAudioFeatureExtractor.Statistics stats = extractor.extract(files, writer);
+
+			for (final Map.Entry<File, Throwable> failure : stats.getFailures().entrySet())
+				System.err.println("Error processing " + failure.getKey() + ": " + failure.getValue());
+			System.err.println(stats);
+			System.err.format("Real-time factor: %.1f (%.1f per thread)%n",
+					stats.getAudioSecondsPerSecond(), stats.getAudioSecondsPerSecond() / threads);
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * The main method of the tool.
+	 * 
+	 * @param args
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		final AudioFeaturesTool tool = new AudioFeaturesTool();
+
+		final CmdLineParser parser = new CmdLineParser(tool);
+
+		try {
+			parser.parseArgument(args);
+
+			if (tool.inputs.isEmpty() && tool.inputList == null)
+				throw new CmdLineException(parser, "No input files specified");
+		} catch (final CmdLineException e) {
+			System.err.println(e.getMessage());
+			System.err.println("Usage: java -jar AudioFeaturesTool.jar [options...] [AUDIO-FILES...]");
+			parser.printUsage(System.err);
+			return;
+		}
+
+		tool.execute();
+	}
+}
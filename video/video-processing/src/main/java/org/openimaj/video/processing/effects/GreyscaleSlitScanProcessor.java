@@ -160,7 +160,7 @@ public class GreyscaleSlitScanProcessor extends VideoProcessor<MBFImage>
 			FImageConvolveSeparable.convolveVertical( f, this.blurKern );
 		}
 
-		if( this.cache.size() >= this.cacheSize ) this.cache.removeLast();
+		if( this.cache.size() >= this.cacheSize ) this.releaseImage( this.cache.removeLast() );
 
 		return frame;
 	}
@@ -187,7 +187,21 @@ public class GreyscaleSlitScanProcessor extends VideoProcessor<MBFImage>
 
 	private void addToCache( final MBFImage frame )
 	{
-		final MBFImage f = frame.clone();
+		final MBFImage f = this.acquireCopy( frame );
 		this.cache.addFirst( f );
 	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The slit-scan is built up from consecutive frames, so the processor is
+	 * always sequential.
+	 *
+	 * @see org.openimaj.video.processor.VideoProcessor#isSequential()
+	 */
+	@Override
+	public boolean isSequential()
+	{
+		return true;
+	}
 }
@@ -121,4 +121,17 @@ public class SlitScanProcessor extends VideoProcessor<MBFImage> {
 
 		cache.addFirst(entry);
 	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The slit-scan is built up from consecutive frames, so the processor is
+	 * always sequential.
+	 *
+	 * @see org.openimaj.video.processor.VideoProcessor#isSequential()
+	 */
+	@Override
+	public boolean isSequential() {
+		return true;
+	}
 }
@@ -136,4 +136,18 @@ public abstract class MotionEstimator extends VideoAnalyser<FImage>
 	protected abstract Map<Point2d, Point2d> estimateMotionField(
 			MotionEstimatorAlgorithm estimator, VideoFrame<FImage> frame,
 			VideoFrame<FImage>[] array );
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Motion is estimated between consecutive frames, so the estimator is
+	 * always sequential.
+	 *
+	 * @see org.openimaj.video.processor.VideoProcessor#isSequential()
+	 */
+	@Override
+	public boolean isSequential()
+	{
+		return true;
+	}
 }
\ No newline at end of file
@@ -487,4 +487,18 @@ public abstract class VideoShotDetector<I extends Image<?,I>>
 	{
 		this.fps = fps;
 	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Shot boundaries are found by comparing consecutive frames, so the
+	 * detector is always sequential.
+	 *
+	 * @see org.openimaj.video.processor.VideoProcessor#isSequential()
+	 */
+	@Override
+	public boolean isSequential()
+	{
+		return true;
+	}
 }